@@ -19,10 +19,12 @@ import org.carrot2.clustering.lingo.SimpleLabelAssigner;
 import org.carrot2.clustering.lingo.UniqueLabelAssigner;
 import org.carrot2.clustering.stc.STCClusteringAlgorithm;
 import org.carrot2.math.matrix.KMeansMatrixFactorizationFactory;
+import org.carrot2.math.matrix.LanczosSingularValueDecompositionFactory;
 import org.carrot2.math.matrix.LocalNonnegativeMatrixFactorizationFactory;
 import org.carrot2.math.matrix.NonnegativeMatrixFactorizationEDFactory;
 import org.carrot2.math.matrix.NonnegativeMatrixFactorizationKLFactory;
 import org.carrot2.math.matrix.PartialSingularValueDecompositionFactory;
+import org.carrot2.math.matrix.RandomizedSingularValueDecompositionFactory;
 import org.carrot2.text.preprocessing.BasicPreprocessingPipeline;
 import org.carrot2.text.preprocessing.CompletePreprocessingPipeline;
 import org.carrot2.text.preprocessing.DocumentAssigner;
@@ -92,6 +94,10 @@ public class ClassNameAliases implements AliasMapperFactory {
             "KMeansMatrixFactorizationFactory",
             KMeansMatrixFactorizationFactory.class,
             KMeansMatrixFactorizationFactory::new)
+        .alias(
+            "LanczosSingularValueDecompositionFactory",
+            LanczosSingularValueDecompositionFactory.class,
+            LanczosSingularValueDecompositionFactory::new)
         .alias(
             "LocalNonnegativeMatrixFactorizationFactory",
             LocalNonnegativeMatrixFactorizationFactory.class,
@@ -107,7 +113,11 @@ public class ClassNameAliases implements AliasMapperFactory {
         .alias(
             "PartialSingularValueDecompositionFactory",
             PartialSingularValueDecompositionFactory.class,
-            PartialSingularValueDecompositionFactory::new);
+            PartialSingularValueDecompositionFactory::new)
+        .alias(
+            "RandomizedSingularValueDecompositionFactory",
+            RandomizedSingularValueDecompositionFactory.class,
+            RandomizedSingularValueDecompositionFactory::new);
   }
 
   @Override
@@ -22,6 +22,23 @@ public interface ClusteringAlgorithm extends AcceptingVisitor {
   <T extends Document> List<Cluster<T>> cluster(
       Stream<? extends T> documents, LanguageComponents languageComponents);
 
+  /**
+   * Clusters documents without retaining them. Documents are tokenized as they arrive from the
+   * stream and the returned clusters refer to documents by their ordinal, the (zero-based) position
+   * of the document in the stream's encounter order. Callers resolve ordinals against their own
+   * storage of documents, if they need them at all.
+   *
+   * <p>If parallel tokenization is enabled in the algorithm's preprocessing pipeline, documents are
+   * buffered until they are tokenized.
+   *
+   * @throws UnsupportedOperationException If the algorithm does not support this mode.
+   */
+  default List<Cluster<Integer>> clusterOrdinals(
+      Stream<? extends Document> documents, LanguageComponents languageComponents) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support clustering document ordinals.");
+  }
+
   default boolean supports(LanguageComponents languageComponents) {
     return languageComponents.components().containsAll(requiredLanguageComponents());
   }
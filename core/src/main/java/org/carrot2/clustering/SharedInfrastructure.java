@@ -59,7 +59,7 @@ public class SharedInfrastructure {
         .collect(Collectors.toList());
   }
 
-  public static <T extends Document> List<Cluster<T>> reorderByDescendingSizeAndLabel(
+  public static <T> List<Cluster<T>> reorderByDescendingSizeAndLabel(
       ArrayList<Cluster<T>> clusters) {
     Comparator<ClusterData<T>> comparator =
         Comparator.<ClusterData<T>>comparingInt(data -> data.recursiveDocumentCount)
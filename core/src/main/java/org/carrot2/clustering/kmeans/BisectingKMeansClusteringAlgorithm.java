@@ -18,6 +18,7 @@ import com.carrotsearch.hppc.cursors.IntIntCursor;
 import com.carrotsearch.hppc.sorting.IndirectComparator;
 import com.carrotsearch.hppc.sorting.IndirectSort;
 import java.util.*;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.carrot2.attrs.*;
@@ -33,7 +34,6 @@ import org.carrot2.math.mahout.function.Functions;
 import org.carrot2.math.mahout.matrix.DoubleMatrix1D;
 import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
 import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix1D;
-import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
 import org.carrot2.text.preprocessing.BasicPreprocessingPipeline;
 import org.carrot2.text.preprocessing.LabelFormatter;
 import org.carrot2.text.preprocessing.PreprocessingContext;
@@ -146,10 +146,26 @@ public class BisectingKMeansClusteringAlgorithm extends AttrComposite
   public <T extends Document> List<Cluster<T>> cluster(
       Stream<? extends T> docStream, LanguageComponents languageComponents) {
     List<T> documents = docStream.collect(Collectors.toList());
+    return cluster(documents.stream(), languageComponents, documents::get);
+  }
+
+  @Override
+  public List<Cluster<Integer>> clusterOrdinals(
+      Stream<? extends Document> docStream, LanguageComponents languageComponents) {
+    return cluster(docStream, languageComponents, Integer::valueOf);
+  }
 
+  /**
+   * Performs k-means clustering of documents, <code>documents</code> returns the cluster element
+   * for the document with the given ordinal.
+   */
+  private <T> List<Cluster<T>> cluster(
+      Stream<? extends Document> docStream,
+      LanguageComponents languageComponents,
+      IntFunction<T> documents) {
     // Preprocessing of documents
     final PreprocessingContext preprocessingContext =
-        preprocessing.preprocess(documents.stream(), queryHint.get(), languageComponents);
+        preprocessing.preprocess(docStream, queryHint.get(), languageComponents);
 
     // Add trivial AllLabels so that we can reuse the common TD matrix builder
     final int[] stemsMfow = preprocessingContext.allStems.mostFrequentOriginalWordIndex;
@@ -236,7 +252,7 @@ public class BisectingKMeansClusteringAlgorithm extends AttrComposite
               preprocessingContext.allWords.image,
               labelFormatter);
           for (int j = 0; j < rawCluster.size(); j++) {
-            cluster.addDocument(documents.get(rawCluster.get(j)));
+            cluster.addDocument(documents.apply(rawCluster.get(j)));
           }
           clusters.add(cluster);
         }
@@ -316,9 +332,10 @@ public class BisectingKMeansClusteringAlgorithm extends AttrComposite
 
     // Matrices for centroids and document-centroid similarities
     final DoubleMatrix2D centroids =
-        new DenseDoubleMatrix2D(selected.rows(), partitions)
+        selected
+            .like(selected.rows(), partitions)
             .assign(selected.viewPart(0, 0, selected.rows(), partitions));
-    final DoubleMatrix2D similarities = new DenseDoubleMatrix2D(partitions, selected.columns());
+    final DoubleMatrix2D similarities = selected.like(partitions, selected.columns());
 
     // Run a fixed number of K-means iterations
     for (int it = 0; it < iterations; it++) {
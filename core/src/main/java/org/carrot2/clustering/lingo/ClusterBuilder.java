@@ -244,38 +244,34 @@ public class ClusterBuilder extends AttrComposite {
     final double[] clusterLabelScore = context.clusterLabelScore;
 
     final double clusterMergingThreshold = this.clusterMergingThreshold.get();
-    final List<IntArrayList> mergedClusters =
-        GraphUtils.findCoherentSubgraphs(
-            clusterDocuments.length,
-            new GraphUtils.IArcPredicate() {
-              private BitSet temp = new BitSet();
-
-              public boolean isArcPresent(int clusterA, int clusterB) {
-                temp.clear();
-                int size;
-                BitSet setA = clusterDocuments[clusterA];
-                BitSet setB = clusterDocuments[clusterB];
-
-                // Suitable for flat clustering
-                // A small subgroup contained within a bigger group
-                // will give small overlap ratio. Big ratios will
-                // be produced only for balanced group sizes.
-                if (setA.cardinality() < setB.cardinality()) {
-                  // addAll == or
-                  // reiatinAll == and | intersect
-                  temp.or(setA);
-                  temp.intersect(setB);
-                  size = (int) setB.cardinality();
-                } else {
-                  temp.or(setB);
-                  temp.intersect(setA);
-                  size = (int) setA.cardinality();
-                }
-
-                return temp.cardinality() / (double) size >= clusterMergingThreshold;
-              }
-            },
-            true);
+    final long[] clusterSizes = new long[clusterDocuments.length];
+    for (int i = 0; i < clusterDocuments.length; i++) {
+      clusterSizes[i] = clusterDocuments[i].cardinality();
+    }
+
+    // Suitable for flat clustering: the overlap is relative to the bigger group,
+    // so a small subgroup contained within a bigger group will give small overlap
+    // ratio. Big ratios will be produced only for balanced group sizes.
+    final List<IntArrayList> mergedClusters;
+    if (clusterMergingThreshold > 0) {
+      // Clusters without common documents are never merged, test only those that share some.
+      mergedClusters =
+          GraphUtils.findCoherentSubgraphs(
+              clusterDocuments,
+              (clusterA, clusterB, overlap) ->
+                  overlap / (double) Math.max(clusterSizes[clusterA], clusterSizes[clusterB])
+                      >= clusterMergingThreshold,
+              true);
+    } else {
+      mergedClusters =
+          GraphUtils.findCoherentSubgraphs(
+              clusterDocuments.length,
+              (clusterA, clusterB) ->
+                  BitSet.intersectionCount(clusterDocuments[clusterA], clusterDocuments[clusterB])
+                          / (double) Math.max(clusterSizes[clusterA], clusterSizes[clusterB])
+                      >= clusterMergingThreshold,
+              true);
+    }
 
     // For each merge group, choose the cluster with the highest score and
     // merge the rest to it
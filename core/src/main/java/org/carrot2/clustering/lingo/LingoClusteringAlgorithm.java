@@ -12,6 +12,7 @@ package org.carrot2.clustering.lingo;
 
 import com.carrotsearch.hppc.BitSet;
 import java.util.*;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.carrot2.attrs.AttrComposite;
@@ -142,10 +143,27 @@ public class LingoClusteringAlgorithm extends AttrComposite implements Clusterin
   public <T extends Document> List<Cluster<T>> cluster(
       Stream<? extends T> docStream, LanguageComponents languageComponents) {
     List<T> documents = docStream.collect(Collectors.toList());
+    return cluster(documents.stream(), languageComponents, documents::get);
+  }
+
+  /** Performs Lingo clustering of documents, referring to documents by their ordinals. */
+  @Override
+  public List<Cluster<Integer>> clusterOrdinals(
+      Stream<? extends Document> docStream, LanguageComponents languageComponents) {
+    return cluster(docStream, languageComponents, Integer::valueOf);
+  }
 
+  /**
+   * Performs Lingo clustering of documents, <code>documents</code> returns the cluster element for
+   * the document with the given ordinal.
+   */
+  private <T> List<Cluster<T>> cluster(
+      Stream<? extends Document> docStream,
+      LanguageComponents languageComponents,
+      IntFunction<T> documents) {
     // Preprocessing of documents
     final PreprocessingContext context =
-        preprocessing.preprocess(documents.stream(), queryHint.get(), languageComponents);
+        preprocessing.preprocess(docStream, queryHint.get(), languageComponents);
 
     // Further processing only if there are words to process
     List<Cluster<T>> clusters = new ArrayList<>();
@@ -161,7 +179,7 @@ public class LingoClusteringAlgorithm extends AttrComposite implements Clusterin
       matrixBuilder.buildTermPhraseMatrix(vsmContext);
 
       matrixReducer.reduce(
-          reducedVsmContext, computeClusterCount(desiredClusterCount.get(), documents.size()));
+          reducedVsmContext, computeClusterCount(desiredClusterCount.get(), context.documentCount));
 
       // Cluster label building
       clusterBuilder.buildLabels(lingoContext, matrixBuilder.termWeighting);
@@ -195,7 +213,7 @@ public class LingoClusteringAlgorithm extends AttrComposite implements Clusterin
         // Add documents
         final BitSet bs = clusterDocuments[i];
         for (int bit = bs.nextSetBit(0); bit >= 0; bit = bs.nextSetBit(bit + 1)) {
-          cluster.addDocument(documents.get(bit));
+          cluster.addDocument(documents.apply(bit));
         }
 
         // Add cluster
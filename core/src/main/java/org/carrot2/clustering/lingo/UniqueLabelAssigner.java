@@ -13,10 +13,13 @@ package org.carrot2.clustering.lingo;
 import com.carrotsearch.hppc.DoubleArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import java.util.Arrays;
 import org.carrot2.attrs.AttrComposite;
 import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
 import org.carrot2.text.preprocessing.PreprocessingContext;
-import org.carrot2.util.Pair;
+import org.carrot2.util.PriorityQueue;
 
 /**
  * Assigns unique labels to each base vector using a greedy algorithm. For each base vector chooses
@@ -39,36 +42,32 @@ public class UniqueLabelAssigner extends AttrComposite implements LabelAssigner
         preprocessingContext.allStems.mostFrequentOriginalWordIndex;
     final int desiredClusterCount = stemCos.columns();
 
+    final boolean[] usedColumns = new boolean[desiredClusterCount];
+    final ColumnMaxima stemMaxima = new ColumnMaxima(stemCos, usedColumns);
+    final ColumnMaxima phraseMaxima =
+        phraseCos != null ? new ColumnMaxima(phraseCos, usedColumns) : null;
+
     final IntArrayList clusterLabelFeatureIndex = new IntArrayList(desiredClusterCount);
     final DoubleArrayList clusterLabelScore = new DoubleArrayList(desiredClusterCount);
     for (int label = 0; label < desiredClusterCount; label++) {
-      final Pair<Integer, Integer> stemMax = max(stemCos);
-      final Pair<Integer, Integer> phraseMax = max(phraseCos);
+      final int stemColumn = stemMaxima.maximumColumn();
+      final int phraseColumn = phraseMaxima != null ? phraseMaxima.maximumColumn() : -1;
 
-      if (stemMax == null && phraseMax == null) {
+      if (stemColumn < 0 && phraseColumn < 0) {
         break;
       }
 
-      double stemScore = stemMax != null ? stemCos.getQuick(stemMax.objectA, stemMax.objectB) : -1;
-      double phraseScore =
-          phraseMax != null ? phraseCos.getQuick(phraseMax.objectA, phraseMax.objectB) : -1;
+      double stemScore = stemColumn >= 0 ? stemMaxima.value(stemColumn) : -1;
+      double phraseScore = phraseColumn >= 0 ? phraseMaxima.value(phraseColumn) : -1;
 
       if (phraseScore > stemScore) {
-        phraseCos.viewRow(phraseMax.objectA).assign(0);
-        phraseCos.viewColumn(phraseMax.objectB).assign(0);
-        stemCos.viewColumn(phraseMax.objectB).assign(0);
-
-        clusterLabelFeatureIndex.add(labelsFeatureIndex[phraseMax.objectA + firstPhraseIndex]);
+        final int phraseRow = phraseMaxima.use(phraseColumn);
+        clusterLabelFeatureIndex.add(labelsFeatureIndex[phraseRow + firstPhraseIndex]);
         clusterLabelScore.add(phraseScore);
       } else {
-        stemCos.viewRow(stemMax.objectA).assign(0);
-        stemCos.viewColumn(stemMax.objectB).assign(0);
-        if (phraseCos != null) {
-          phraseCos.viewColumn(stemMax.objectB).assign(0);
-        }
-
+        final int stemRow = stemMaxima.use(stemColumn);
         clusterLabelFeatureIndex.add(
-            mostFrequentOriginalWordIndex[filteredRowToStemIndex.get(stemMax.objectA)]);
+            mostFrequentOriginalWordIndex[filteredRowToStemIndex.get(stemRow)]);
         clusterLabelScore.add(stemScore);
       }
     }
@@ -77,30 +76,107 @@ public class UniqueLabelAssigner extends AttrComposite implements LabelAssigner
     context.clusterLabelScore = clusterLabelScore.toArray();
   }
 
-  private Pair<Integer, Integer> max(DoubleMatrix2D matrix) {
-    if (matrix == null) {
-      return null;
+  /**
+   * Tracks the maximum positive element of a matrix, excluding rows and columns already used for a
+   * label. Positive elements of each column are kept in the order of decreasing values and a queue
+   * holds the columns in the order of their largest elements. Elements in used rows and columns are
+   * skipped when they reach the top of the queue. Ties are resolved towards lower row, then lower
+   * column indices, the same as in a row-by-row scan of the matrix.
+   */
+  private static final class ColumnMaxima extends PriorityQueue<Integer> {
+    private final DoubleMatrix2D matrix;
+    private final boolean[] usedColumns;
+    private final boolean[] usedRows;
+    private final int[][] sortedRows;
+    private final int[] next;
+
+    ColumnMaxima(DoubleMatrix2D matrix, boolean[] usedColumns) {
+      this.matrix = matrix;
+      this.usedColumns = usedColumns;
+      this.usedRows = new boolean[matrix.rows()];
+      this.sortedRows = new int[matrix.columns()][];
+      this.next = new int[matrix.columns()];
+
+      initialize(matrix.columns());
+      final double[] values = new double[matrix.rows()];
+      for (int column = 0; column < matrix.columns(); column++) {
+        int positive = 0;
+        for (int row = 0; row < values.length; row++) {
+          values[row] = matrix.getQuick(row, column);
+          if (values[row] > 0) {
+            positive++;
+          }
+        }
+
+        // Merge sort is stable, rows with equal values stay in the increasing order.
+        final int[] order =
+            IndirectSort.mergesort(
+                0, values.length, new IndirectComparator.DescendingDoubleComparator(values));
+        sortedRows[column] = Arrays.copyOf(order, positive);
+        if (positive > 0) {
+          add(column);
+        }
+      }
     }
 
-    int row = 0;
-    int column = 0;
-    double value = 0;
-
-    for (int r = 0; r < matrix.rows(); r++) {
-      for (int c = 0; c < matrix.columns(); c++) {
-        final double currentValue = matrix.getQuick(r, c);
-        if (currentValue > value) {
-          value = currentValue;
-          row = r;
-          column = c;
+    /** Returns the column containing the maximum element or -1 if there are no elements left. */
+    int maximumColumn() {
+      while (size() > 0) {
+        final int column = top();
+        if (usedColumns[column]) {
+          pop();
+          continue;
+        }
+
+        final int[] rows = sortedRows[column];
+        int i = next[column];
+        while (i < rows.length && usedRows[rows[i]]) {
+          i++;
+        }
+        if (i == next[column]) {
+          return column;
+        }
+
+        next[column] = i;
+        if (i < rows.length) {
+          updateTop();
+        } else {
+          pop();
         }
       }
+      return -1;
     }
 
-    if (value > 0) {
-      return new Pair<>(row, column);
-    } else {
-      return null;
+    /** Returns the maximum element of a column returned from {@link #maximumColumn()}. */
+    double value(int column) {
+      return matrix.getQuick(row(column), column);
+    }
+
+    /** Marks the row and column of the maximum element as used and returns the row. */
+    int use(int column) {
+      final int row = row(column);
+      usedRows[row] = true;
+      usedColumns[column] = true;
+      return row;
+    }
+
+    private int row(int column) {
+      return sortedRows[column][next[column]];
+    }
+
+    @Override
+    protected boolean lessThan(Integer a, Integer b) {
+      final int rowA = row(a);
+      final int rowB = row(b);
+      final double valueA = matrix.getQuick(rowA, a);
+      final double valueB = matrix.getQuick(rowB, b);
+      if (valueA != valueB) {
+        return valueA > valueB;
+      }
+      if (rowA != rowB) {
+        return rowA < rowB;
+      }
+      return a < b;
     }
   }
 }
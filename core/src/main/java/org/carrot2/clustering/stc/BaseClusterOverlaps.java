@@ -0,0 +1,104 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.clustering.stc;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.carrot2.util.BitSetInvertedIndex;
+
+/**
+ * Finds pairs of base clusters to be merged. Instead of intersecting the documents of all pairs of
+ * base clusters, an inverted index of documents is used to count the shared documents of the pairs
+ * that have any documents in common. Pairs without common documents are never merged.
+ *
+ * <p>Overlaps can be optionally counted in parallel. In this mode, interleaved subsets of base
+ * clusters are processed concurrently on the common fork-join pool. The results are identical to
+ * sequential processing.
+ */
+final class BaseClusterOverlaps {
+  /** The minimum number of base clusters in a single shard processed in parallel. */
+  static final int MIN_CLUSTERS_PER_SHARD = 128;
+
+  private final List<ClusterCandidate> baseClusters;
+
+  /** Base clusters containing each document. */
+  private final BitSetInvertedIndex index;
+
+  BaseClusterOverlaps(List<ClusterCandidate> baseClusters) {
+    this.baseClusters = baseClusters;
+    this.index =
+        new BitSetInvertedIndex(
+            baseClusters.stream().map(cc -> cc.documents).toArray(BitSet[]::new));
+  }
+
+  /**
+   * Returns, for each base cluster, the increasing indices of base clusters following it that share
+   * more than <code>threshold</code> of documents of both clusters.
+   */
+  int[][] mergeNeighbors(float threshold, boolean parallel) {
+    final int[][] neighbors = new int[baseClusters.size()][];
+    final int shards =
+        parallel
+            ? Math.min(
+                baseClusters.size() / MIN_CLUSTERS_PER_SHARD,
+                Runtime.getRuntime().availableProcessors() * 4)
+            : 1;
+
+    if (shards > 1) {
+      // Base clusters with lower indices have more candidate pairs, interleave them.
+      IntStream.range(0, shards)
+          .parallel()
+          .forEach(shard -> mergeNeighbors(threshold, shard, shards, neighbors));
+    } else {
+      mergeNeighbors(threshold, 0, 1, neighbors);
+    }
+    return neighbors;
+  }
+
+  private void mergeNeighbors(float threshold, int first, int step, int[][] neighbors) {
+    final int[] counts = new int[baseClusters.size()];
+    final IntArrayList touched = new IntArrayList();
+    for (int i = first; i < baseClusters.size(); i += step) {
+      // Count documents shared with each following base cluster.
+      final BitSet documents = baseClusters.get(i).documents;
+      for (int d = documents.nextSetBit(0); d >= 0; d = documents.nextSetBit(d + 1)) {
+        for (int p = index.postingsEnd(d) - 1; p >= index.postingsStart(d); p--) {
+          final int j = index.posting(p);
+          if (j <= i) {
+            break;
+          }
+          if (counts[j]++ == 0) {
+            touched.add(j);
+          }
+        }
+      }
+
+      Arrays.sort(touched.buffer, 0, touched.size());
+      final float a = baseClusters.get(i).cardinality;
+      int size = 0;
+      for (int k = 0; k < touched.size(); k++) {
+        final int j = touched.get(k);
+        final float b = baseClusters.get(j).cardinality;
+        final float c = counts[j];
+        counts[j] = 0;
+
+        if (c / a > threshold && c / b > threshold) {
+          touched.set(size++, j);
+        }
+      }
+      neighbors[i] = Arrays.copyOf(touched.buffer, size);
+      touched.clear();
+    }
+  }
+}
@@ -13,14 +13,24 @@ package org.carrot2.clustering.stc;
 import static org.carrot2.text.suffixtree.SuffixTree.NO_EDGE;
 
 import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntStack;
 import java.util.ArrayList;
+import java.util.Arrays;
 import org.carrot2.text.suffixtree.IntegerSequence;
 import org.carrot2.text.suffixtree.Sequence;
+import org.carrot2.text.suffixtree.SuffixArrays;
 import org.carrot2.text.suffixtree.SuffixTree;
 import org.carrot2.text.suffixtree.SuffixTreeBuilder;
 
-/** A suffix tree dedicated to finding frequent phrases in documents. */
+/**
+ * A suffix tree dedicated to finding frequent phrases in documents. Instead of the suffix tree, an
+ * enhanced suffix array (the suffix array and the longest common prefix array) of the input can be
+ * used: internal states of the suffix tree correspond to LCP intervals of the suffix array.
+ *
+ * @see "M. I. Abouelhoda, S. Kurtz, E. Ohlebusch, Replacing suffix trees with enhanced suffix
+ *     arrays, Journal of Discrete Algorithms, 2004, volume 2, number 1, pages 53-86."
+ */
 final class GeneralizedSuffixTree {
   /**
    * Builds an {@link Sequence} suitable for detection of frequently occurring phrases in many
@@ -41,6 +51,18 @@ final class GeneralizedSuffixTree {
     /** A suffix tree built from the input phrases. */
     public SuffixTree stree;
 
+    /** Suffix array of the input phrases, if built instead of the suffix tree. */
+    public int[] suffixArray;
+
+    /**
+     * Longest common prefix of each suffix in {@link #suffixArray} and the preceding suffix, the
+     * first value is <code>0</code>.
+     */
+    public int[] lcp;
+
+    /** The document of each suffix in {@link #suffixArray}. */
+    public int[] suffixDocuments;
+
     /** Callbacks for marking leaf states. */
     private final class LeafStateMarker
         implements SuffixTree.IStateCallback, SuffixTree.IProgressCallback {
@@ -48,7 +70,8 @@ final class GeneralizedSuffixTree {
       private int markerIndex = 0;
 
       public void next(int pos) {
-        if (pos == documentMarkers.get(markerIndex)) {
+        // Skip the markers of empty documents.
+        while (markerIndex < documentMarkers.size() && pos == documentMarkers.get(markerIndex)) {
           currentDocument++;
           markerIndex++;
         }
@@ -78,7 +101,15 @@ final class GeneralizedSuffixTree {
 
     /** */
     public void buildSuffixTree() {
+      buildSuffixTree(false);
+    }
+
+    /** @see SuffixTreeBuilder#withCompactTransitions(boolean) */
+    public void buildSuffixTree(boolean compact) {
       this.stateOriginDocument.clear();
+      this.suffixArray = null;
+      this.lcp = null;
+      this.suffixDocuments = null;
 
       final LeafStateMarker marker = new LeafStateMarker();
       final Sequence seq = new IntegerSequence(input.buffer, 0, input.elementsCount);
@@ -86,80 +117,338 @@ final class GeneralizedSuffixTree {
           SuffixTreeBuilder.from(seq)
               .withProgressCallback(marker)
               .withStateCallback(marker)
+              .withCompactTransitions(compact)
               .build();
     }
+
+    /**
+     * Builds the suffix array and the longest common prefix array of the input instead of the
+     * suffix tree.
+     */
+    public void buildSuffixArray() {
+      this.stateOriginDocument.clear();
+      this.stree = null;
+
+      // Remap word codes to the alphabet of SuffixArrays, with unique separators after words.
+      final int size = input.size();
+      int maxWordCode = -1;
+      for (int i = 0; i < size; i++) {
+        maxWordCode = Math.max(maxWordCode, input.get(i));
+      }
+      final int[] symbols = new int[size + 1];
+      int alphabetSize = 1;
+      for (int i = 0; i < size; i++) {
+        final int code = input.get(i);
+        symbols[i] = code >= 0 ? code + 1 : maxWordCode + 1 - code;
+        alphabetSize = Math.max(alphabetSize, symbols[i] + 1);
+      }
+
+      // Drop the artificial sentinel which always comes first.
+      final int[] suffixArray = SuffixArrays.sais(symbols, alphabetSize);
+      final int[] lcp = SuffixArrays.kasaiLcp(symbols, suffixArray);
+      this.suffixArray = Arrays.copyOfRange(suffixArray, 1, suffixArray.length);
+      this.lcp = Arrays.copyOfRange(lcp, 1, lcp.length);
+      if (size > 0) {
+        this.lcp[0] = 0;
+      }
+
+      // Reuse the symbols for documents of input positions.
+      final int[] positionDocuments = symbols;
+      for (int i = 0, document = 0; i < size; i++) {
+        while (document < documentMarkers.size() && i == documentMarkers.get(document)) {
+          document++;
+        }
+        positionDocuments[i] = document;
+      }
+
+      this.suffixDocuments = new int[size];
+      for (int i = 0; i < size; i++) {
+        suffixDocuments[i] = positionDocuments[this.suffixArray[i]];
+      }
+    }
   }
 
   /**
-   * Recursive walk over the suffix tree (with additional information provided by {@link
-   * SequenceBuilder}), extracting paths that occurred more than once.
+   * Post-order walk over the suffix tree (with additional information provided by {@link
+   * SequenceBuilder}), extracting paths that occurred more than once. The walk uses an explicit
+   * stack, so the depth of the tree is not limited by the thread's stack size.
+   *
+   * <p>If the sequence builder has a suffix array instead of the suffix tree, LCP intervals of the
+   * suffix array are walked bottom-up instead. They are visited in the same order as the states of
+   * a compact suffix tree.
    */
   abstract static class Visitor {
+    /**
+     * Document sets with fewer documents than the number of words of a full-width {@link BitSet}
+     * times this factor are kept as lists of documents.
+     */
+    private static final int SPARSE_WORDS_FACTOR = 2;
+
+    /** The minimum number of documents above which document sets become dense. */
+    private static final int MIN_SPARSE_LIMIT = 32;
+
     /** Path from the root (edges index ranges) when walking through the tree. */
     private final IntStack edges = new IntStack();
 
-    /** Bitsets used to compute cardinality in each node. */
-    private final ArrayList<BitSet> bsets = new ArrayList<BitSet>();
+    /** Document sets of the states on the path from the root, reused between siblings. */
+    private final ArrayList<DocumentSet> docSets = new ArrayList<>();
+
+    /** States on the path from the root and their next edges to walk. */
+    private final IntStack states = new IntStack();
+
+    private final IntStack nextEdges = new IntStack();
+
+    /** Bit set passed to {@link #visit} for sparse document sets. */
+    private final BitSet sparseDocuments = new BitSet();
 
-    /** Suffix tree on all the input. */
+    /** Suffix tree on all the input or <code>null</code> if a suffix array was built. */
     private final SuffixTree stree;
 
+    /** Longest common prefixes of LCP intervals on the stack. */
+    private final IntStack lcps = new IntStack();
+
+    /** Left boundaries of LCP intervals on the stack. */
+    private final IntStack leftBounds = new IntStack();
+
     /** Sequence builder with the input. */
     protected final SequenceBuilder sb;
 
     /** Minimum cardinality (inclusive) in an internal state to visit it. */
     private int minCardinality;
 
+    /** The maximum number of (possibly repeated) documents in a sparse document set. */
+    private final int sparseLimit;
+
     public Visitor(SequenceBuilder sb, int minCardinality) {
       assert minCardinality > 1;
 
       this.stree = sb.stree;
       this.sb = sb;
       this.minCardinality = minCardinality;
+      this.sparseLimit =
+          Math.max(
+              MIN_SPARSE_LIMIT, BitSet.bits2words(sb.documentMarkers.size()) * SPARSE_WORDS_FACTOR);
     }
 
     public void visit() {
+      if (stree == null) {
+        visitIntervals();
+        return;
+      }
+
       // In a suffix tree without any documents, this will be the case.
-      if (stree.isLeaf(stree.getRootState())) return;
+      final int root = stree.getRootState();
+      if (stree.isLeaf(root)) return;
 
-      countDocs(0, stree.getRootState());
-    }
+      push(root);
+      while (!states.isEmpty()) {
+        final int depth = states.size() - 1;
+        final int state = states.get(depth);
+        final DocumentSet me = docSets.get(depth);
 
-    private void countDocs(int level, int state) {
-      assert !stree.isLeaf(state);
+        final int edge = nextEdges.get(depth);
+        if (edge != NO_EDGE) {
+          nextEdges.set(depth, stree.nextEdge(edge));
+          final int childState = stree.getToState(edge);
+          if (stree.isLeaf(childState)) {
+            me.add(sb.stateOriginDocument.get(childState), sparseLimit);
+          } else {
+            edges.push(stree.getStartIndex(edge), stree.getEndIndex(edge));
+            push(childState);
+          }
+          continue;
+        }
+
+        // All children done, visit the state and add its documents to the parent.
+        final int card = me.compact();
+        if (root != state && card >= minCardinality) {
+          if (me.dense) {
+            visit(state, card, me.bits, edges);
+          } else {
+            me.setAll(sparseDocuments);
+            visit(state, card, sparseDocuments, edges);
+            me.clearAll(sparseDocuments);
+          }
+        }
 
-      final BitSet me = getBitSet(level);
-      for (int edge = stree.firstEdge(state); edge != NO_EDGE; edge = stree.nextEdge(edge)) {
-        final int childState = stree.getToState(edge);
-        if (stree.isLeaf(childState)) {
-          final int documentIndex = sb.stateOriginDocument.get(childState);
-          me.set(documentIndex);
-        } else {
-          final BitSet child = getBitSet(level + 1);
-          child.clear();
-          edges.push(stree.getStartIndex(edge), stree.getEndIndex(edge));
-          countDocs(level + 1, childState);
+        states.discard();
+        nextEdges.discard();
+        if (depth > 0) {
           edges.discard(2);
-          me.or(child);
+          docSets.get(depth - 1).addAll(me, sparseLimit);
         }
       }
+    }
+
+    /**
+     * Bottom-up walk over LCP intervals of the suffix array. Documents of each interval are added
+     * to its enclosing interval when it is completed.
+     */
+    private void visitIntervals() {
+      final int[] suffixArray = sb.suffixArray;
+      final int[] lcp = sb.lcp;
+      final int[] suffixDocuments = sb.suffixDocuments;
+      final int size = suffixArray.length;
+
+      // The root interval.
+      pushInterval(0, 0);
+      for (int i = 1; i <= size; i++) {
+        final int prefix = i < size ? lcp[i] : 0;
+        int depth = lcps.size() - 1;
+
+        // Suffix i - 1 belongs to the top interval or to a new interval starting with it.
+        if (prefix > lcps.get(depth)) {
+          pushInterval(prefix, i - 1);
+          docSets.get(depth + 1).add(suffixDocuments[i - 1], sparseLimit);
+          continue;
+        }
+        docSets.get(depth).add(suffixDocuments[i - 1], sparseLimit);
+
+        // Complete the intervals with longer prefixes.
+        while (prefix < lcps.get(depth)) {
+          final DocumentSet me = docSets.get(depth);
+          final int card = me.compact();
+          if (card >= minCardinality) {
+            final int start = suffixArray[leftBounds.get(depth)];
+            edges.clear();
+            edges.push(start, start + lcps.get(depth) - 1);
+            if (me.dense) {
+              visit(leftBounds.get(depth), card, me.bits, edges);
+            } else {
+              me.setAll(sparseDocuments);
+              visit(leftBounds.get(depth), card, sparseDocuments, edges);
+              me.clearAll(sparseDocuments);
+            }
+          }
+
+          if (prefix > lcps.get(depth - 1)) {
+            // The completed interval is the first child of a new interval with the same start.
+            lcps.set(depth, prefix);
+            break;
+          }
 
-      if (stree.getRootState() != state) {
-        final int card = (int) me.cardinality();
-        if (card >= minCardinality) {
-          visit(state, card, me, edges);
+          lcps.discard();
+          leftBounds.discard();
+          depth--;
+          docSets.get(depth).addAll(me, sparseLimit);
         }
       }
+
+      lcps.clear();
+      leftBounds.clear();
+      edges.clear();
+    }
+
+    private void pushInterval(int prefix, int leftBound) {
+      final int depth = lcps.size();
+      lcps.push(prefix);
+      leftBounds.push(leftBound);
+      while (docSets.size() <= depth) docSets.add(new DocumentSet());
+      docSets.get(depth).clear();
     }
 
+    private void push(int state) {
+      assert !stree.isLeaf(state);
+      final int depth = states.size();
+      states.push(state);
+      nextEdges.push(stree.firstEdge(state));
+      while (docSets.size() <= depth) docSets.add(new DocumentSet());
+      docSets.get(depth).clear();
+    }
+
+    /**
+     * Invoked for states with at least the minimum number of documents.
+     *
+     * @param state The suffix tree state or, when walking a suffix array, the index of the first
+     *     suffix of the LCP interval.
+     * @param path Start and end indices (inclusive) in the input of the edges from the root.
+     */
     protected abstract void visit(int state, int cardinality, BitSet documents, IntStack path);
+  }
+
+  /**
+   * Documents of a suffix tree state: a list of documents while there are few of them, a {@link
+   * BitSet} once they become dense.
+   */
+  private static final class DocumentSet {
+    /** Documents of a sparse set, sorted and unique only after {@link #compact()}. */
+    final IntArrayList list = new IntArrayList();
+
+    final BitSet bits = new BitSet();
+
+    boolean dense;
+
+    void clear() {
+      if (dense) {
+        bits.clear();
+        dense = false;
+      }
+      list.clear();
+    }
+
+    void add(int document, int sparseLimit) {
+      if (dense) {
+        bits.set(document);
+      } else {
+        list.add(document);
+        if (list.size() > sparseLimit) {
+          densify();
+        }
+      }
+    }
+
+    void addAll(DocumentSet other, int sparseLimit) {
+      if (other.dense) {
+        if (!dense) {
+          densify();
+        }
+        bits.or(other.bits);
+      } else if (dense) {
+        other.setAll(bits);
+      } else {
+        list.addAll(other.list);
+        if (list.size() > sparseLimit) {
+          densify();
+        }
+      }
+    }
+
+    /** Sorts and removes duplicates from a sparse set, returns the number of documents. */
+    int compact() {
+      if (dense) {
+        return (int) bits.cardinality();
+      }
+
+      final int[] buffer = list.buffer;
+      Arrays.sort(buffer, 0, list.size());
+      int size = 0;
+      for (int i = 0; i < list.size(); i++) {
+        if (size == 0 || buffer[size - 1] != buffer[i]) {
+          buffer[size++] = buffer[i];
+        }
+      }
+      list.elementsCount = size;
+      return size;
+    }
+
+    void setAll(BitSet target) {
+      for (int i = 0; i < list.size(); i++) {
+        target.set(list.get(i));
+      }
+    }
+
+    void clearAll(BitSet target) {
+      for (int i = 0; i < list.size(); i++) {
+        target.clear(list.get(i));
+      }
+    }
 
-    private BitSet getBitSet(int level) {
-      while (bsets.size() <= level) bsets.add(new BitSet());
-      return bsets.get(level);
+    private void densify() {
+      setAll(bits);
+      list.clear();
+      dense = true;
     }
   }
-  ;
 
   /* */
   private GeneralizedSuffixTree() {}
@@ -15,12 +15,15 @@ import com.carrotsearch.hppc.BitSetIterator;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntStack;
 import java.util.*;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.carrot2.attrs.AttrBoolean;
 import org.carrot2.attrs.AttrComposite;
 import org.carrot2.attrs.AttrDouble;
+import org.carrot2.attrs.AttrEnum;
 import org.carrot2.attrs.AttrInteger;
 import org.carrot2.attrs.AttrObject;
 import org.carrot2.attrs.AttrString;
@@ -107,6 +110,47 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
               .max(1)
               .defaultValue(0.6));
 
+  /**
+   * Merge base clusters in parallel. If enabled and the number of base clusters is large enough,
+   * overlaps between base clusters are counted concurrently on the common fork-join pool. The
+   * results are identical to sequential merging.
+   */
+  public AttrBoolean parallelMerging =
+      attributes.register(
+          "parallelMerging",
+          AttrBoolean.builder().label("Parallel base cluster merging").defaultValue(false));
+
+  /**
+   * Score and label merged clusters in parallel. If enabled and the number of merged clusters is at
+   * least {@link #parallelLabelingThreshold}, the documents, score and label phrases of merged
+   * clusters are computed concurrently on the common fork-join pool. The results are identical to
+   * sequential processing.
+   */
+  public AttrBoolean parallelLabeling =
+      attributes.register(
+          "parallelLabeling",
+          AttrBoolean.builder().label("Parallel merged cluster labeling").defaultValue(false));
+
+  /** The minimum number of merged clusters to score and label in parallel. */
+  public AttrInteger parallelLabelingThreshold =
+      attributes.register(
+          "parallelLabelingThreshold",
+          AttrInteger.builder()
+              .label("Minimum number of merged clusters labeled in parallel")
+              .min(1)
+              .defaultValue(64));
+
+  /**
+   * The suffix structure used to find base clusters. All structures find the same base clusters,
+   * but base clusters with equal scores may be discovered (and ordered) differently.
+   */
+  public AttrEnum<SuffixStructure> suffixStructure =
+      attributes.register(
+          "suffixStructure",
+          AttrEnum.builder(SuffixStructure.class)
+              .label("Suffix structure for base cluster discovery")
+              .defaultValue(SuffixStructure.SUFFIX_TREE));
+
   /** Maximum cluster phrase overlap. */
   public AttrDouble maxPhraseOverlap =
       attributes.register(
@@ -257,16 +301,34 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
   public <T extends Document> List<Cluster<T>> cluster(
       Stream<? extends T> docStream, LanguageComponents languageComponents) {
     List<T> documents = docStream.collect(Collectors.toList());
+    return cluster(documents.stream(), languageComponents, documents::get);
+  }
+
+  /** Performs STC clustering of documents, referring to documents by their ordinals. */
+  @Override
+  public List<Cluster<Integer>> clusterOrdinals(
+      Stream<? extends Document> docStream, LanguageComponents languageComponents) {
+    return cluster(docStream, languageComponents, Integer::valueOf);
+  }
+
+  /**
+   * Performs STC clustering of documents, <code>documents</code> returns the cluster element for
+   * the document with the given ordinal.
+   */
+  private <T> List<Cluster<T>> cluster(
+      Stream<? extends Document> docStream,
+      LanguageComponents languageComponents,
+      IntFunction<T> documents) {
     List<Cluster<T>> clusters = new ArrayList<>();
 
     /*
      * Step 1. Preprocessing: tokenization, stop word marking and stemming (if available).
      */
-    context = preprocessing.preprocess(documents.stream(), queryHint.get(), languageComponents);
+    context = preprocessing.preprocess(docStream, queryHint.get(), languageComponents);
     labelFormatter = context.languageComponents.get(LabelFormatter.class);
 
     /*
-     * Step 2: Create a generalized suffix tree from phrases in the input.
+     * Step 2: Create a generalized suffix tree (or suffix array) from phrases in the input.
      */
     sb = new GeneralizedSuffixTree.SequenceBuilder();
 
@@ -291,7 +353,19 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
         sb.addPhrase(tokenIndex, s, phraseLength);
       }
     }
-    sb.buildSuffixTree();
+    switch (suffixStructure.get()) {
+      case SUFFIX_TREE:
+        sb.buildSuffixTree(false);
+        break;
+      case COMPACT_SUFFIX_TREE:
+        sb.buildSuffixTree(true);
+        break;
+      case ENHANCED_SUFFIX_ARRAY:
+        sb.buildSuffixArray();
+        break;
+      default:
+        throw new RuntimeException("Unhandled case: " + suffixStructure.get());
+    }
 
     /*
      * Step 3: Find "base" clusters by looking up frequently recurring phrases in the
@@ -419,9 +493,11 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
       int[] stemIndices = context.allWords.stemIndex;
       int[] phraseWords = cc.phrases.get(0);
       IntArrayList stemList = new IntArrayList(phraseWords.length);
-      for (int seqIndex : phraseWords) {
-        int termIndex = sb.input.get(seqIndex);
-        stemList.add(stemIndices[termIndex]);
+      for (int k = 0; k < phraseWords.length; k += 2) {
+        for (int seqIndex = phraseWords[k]; seqIndex <= phraseWords[k + 1]; seqIndex++) {
+          int termIndex = sb.input.get(seqIndex);
+          stemList.add(stemIndices[termIndex]);
+        }
       }
 
       // Check if we have stem-equivalent phrase like this.
@@ -470,30 +546,23 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
   private ArrayList<ClusterCandidate> createMergedClusters(List<ClusterCandidate> baseClusters) {
     /*
      * Calculate overlap between base clusters first, saving adjacency lists for
-     * each base cluster.
+     * each base cluster. Only base clusters with common documents are compared.
      */
+    final int[][] mergeNeighbors =
+        new BaseClusterOverlaps(baseClusters)
+            .mergeNeighbors(mergeThreshold.get().floatValue(), parallelMerging.get());
 
     // [i] - next neighbor or END, [i + 1] - neighbor cluster index.
     final int END = -1;
     final IntStack neighborList = new IntStack();
     neighborList.push(END);
     final int[] neighbors = new int[baseClusters.size()];
-    final float m = mergeThreshold.get().floatValue();
     for (int i = 0; i < baseClusters.size(); i++) {
-      for (int j = i + 1; j < baseClusters.size(); j++) {
-        final ClusterCandidate c1 = baseClusters.get(i);
-        final ClusterCandidate c2 = baseClusters.get(j);
-
-        final float a = c1.cardinality;
-        final float b = c2.cardinality;
-        final float c = BitSet.intersectionCount(c1.documents, c2.documents);
-
-        if (c / a > m && c / b > m) {
-          neighborList.push(neighbors[i], j);
-          neighbors[i] = neighborList.size() - 2;
-          neighborList.push(neighbors[j], i);
-          neighbors[j] = neighborList.size() - 2;
-        }
+      for (int j : mergeNeighbors[i]) {
+        neighborList.push(neighbors[i], j);
+        neighbors[i] = neighborList.size() - 2;
+        neighborList.push(neighbors[j], i);
+        neighbors[j] = neighborList.size() - 2;
       }
     }
 
@@ -506,7 +575,7 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
     final int[] merged = new int[baseClusters.size()];
     Arrays.fill(merged, NO_INDEX);
 
-    final ArrayList<ClusterCandidate> mergedClusters = new ArrayList<>(baseClusters.size());
+    final ArrayList<int[]> mergeLists = new ArrayList<>();
     final IntStack stack = new IntStack(baseClusters.size());
     final IntStack mergeList = new IntStack(baseClusters.size());
     int mergedIndex = 0;
@@ -536,14 +605,26 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
       }
       mergedIndex++;
 
-      /*
-       * Aggregate documents from each base cluster of the current merge, compute
-       * the score and labels.
-       */
-      mergedClusters.add(merge(context, mergeList, baseClusters));
+      mergeLists.add(mergeList.toArray());
       mergeList.clear();
     }
 
+    /*
+     * Aggregate documents from each base cluster of each merge, compute
+     * the score and labels. Merges are independent of each other.
+     */
+    final ClusterCandidate[] merges = new ClusterCandidate[mergeLists.size()];
+    if (parallelLabeling.get() && merges.length >= parallelLabelingThreshold.get()) {
+      IntStream.range(0, merges.length)
+          .parallel()
+          .forEach(i -> merges[i] = merge(context, mergeLists.get(i), baseClusters));
+    } else {
+      for (int i = 0; i < merges.length; i++) {
+        merges[i] = merge(context, mergeLists.get(i), baseClusters);
+      }
+    }
+    final ArrayList<ClusterCandidate> mergedClusters = new ArrayList<>(Arrays.asList(merges));
+
     /*
      * Sort merged clusters.
      */
@@ -567,15 +648,15 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
 
   /** Merge a list of base clusters into one. */
   private ClusterCandidate merge(
-      PreprocessingContext context, IntStack mergeList, List<ClusterCandidate> baseClusters) {
-    assert mergeList.size() > 0;
+      PreprocessingContext context, int[] mergeList, List<ClusterCandidate> baseClusters) {
+    assert mergeList.length > 0;
     final ClusterCandidate result = new ClusterCandidate();
 
     /*
      * Merge documents from all base clusters and update the score.
      */
-    for (int i = 0; i < mergeList.size(); i++) {
-      final ClusterCandidate cc = baseClusters.get(mergeList.get(i));
+    for (int i = 0; i < mergeList.length; i++) {
+      final ClusterCandidate cc = baseClusters.get(mergeList[i]);
       result.documents.or(cc.documents);
       result.score += cc.score;
     }
@@ -584,9 +665,9 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
     /*
      * Combine cluster labels and try to find the best description for the cluster.
      */
-    final ArrayList<PhraseCandidate> phrases = new ArrayList<PhraseCandidate>(mergeList.size());
-    for (int i = 0; i < mergeList.size(); i++) {
-      final ClusterCandidate cc = baseClusters.get(mergeList.get(i));
+    final ArrayList<PhraseCandidate> phrases = new ArrayList<PhraseCandidate>(mergeList.length);
+    for (int i = 0; i < mergeList.length; i++) {
+      final ClusterCandidate cc = baseClusters.get(mergeList[i]);
       final float coverage = cc.cardinality / (float) result.cardinality;
       phrases.add(new PhraseCandidate(cc, coverage));
     }
@@ -815,11 +896,11 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
    * Create the junk (unassigned documents) cluster and create the final set of clusters in Carrot2
    * format.
    */
-  private <T extends Document> void postProcessing(
-      List<T> documents, List<ClusterCandidate> candidates, List<Cluster<T>> clusters) {
+  private <T> void postProcessing(
+      IntFunction<T> documents, List<ClusterCandidate> candidates, List<Cluster<T>> clusters) {
     // Adapt to Carrot2 classes, counting used documents on the way.
-    final BitSet all = new BitSet(documents.size());
-    final ArrayList<T> docs = new ArrayList<>(documents.size());
+    final BitSet all = new BitSet(context.documentCount);
+    final ArrayList<T> docs = new ArrayList<>(context.documentCount);
     for (ClusterCandidate c : candidates) {
       final Cluster<T> c2 = new Cluster<>();
       collectPhrases(c, c2);
@@ -840,15 +921,14 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
   }
 
   /** Collect documents from a bitset. */
-  private <T extends Document> List<T> collectDocuments(
-      List<T> documents, List<T> l, BitSet bitset) {
+  private <T> List<T> collectDocuments(IntFunction<T> documents, List<T> l, BitSet bitset) {
     if (l == null) {
       l = new ArrayList<>((int) bitset.cardinality());
     }
 
     final BitSetIterator i = bitset.iterator();
     for (int d = i.nextSetBit(); d >= 0; d = i.nextSetBit()) {
-      l.add(documents.get(d));
+      l.add(documents.apply(d));
     }
     return l;
   }
@@ -992,7 +1072,7 @@ public final class STCClusteringAlgorithm extends AttrComposite implements Clust
 
         // If this word occurs in more than a given fraction of the input
         // collection don't count it.
-        final int docCount = context.allWords.tfByDocument[termIndex].length / 2;
+        final int docCount = context.allWords.tfByDocument.df(termIndex);
         if (docCount < lower || docCount > upper) {
           continue;
         }
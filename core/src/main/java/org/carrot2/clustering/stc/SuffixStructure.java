@@ -0,0 +1,29 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.clustering.stc;
+
+/** Suffix structure used by {@link STCClusteringAlgorithm} to find base clusters. */
+public enum SuffixStructure {
+  /** Suffix tree built with Ukkonen's algorithm, with a hash map of transitions. */
+  SUFFIX_TREE,
+
+  /**
+   * Suffix tree built from the suffix array of the input, with no hash map of transitions. Takes
+   * less memory than {@link #SUFFIX_TREE}.
+   */
+  COMPACT_SUFFIX_TREE,
+
+  /**
+   * Suffix array and longest common prefix array of the input, base clusters are found by walking
+   * LCP intervals instead of suffix tree states. No suffix tree is built.
+   */
+  ENHANCED_SUFFIX_ARRAY;
+}
@@ -20,6 +20,7 @@ import java.util.function.Supplier;
 public final class LanguageComponents {
   private final String language;
   private final Map<Class<?>, Supplier<?>> components;
+  private final StemCache stemCache = new StemCache();
 
   public LanguageComponents(String language, Map<Class<?>, Supplier<?>> suppliers) {
     this.language = language;
@@ -36,7 +37,8 @@ public final class LanguageComponents {
       throw new RuntimeException(
           String.format(
               Locale.ROOT,
-              "This instance of LanguageComponents for language '%s' does not come with a supplier of component class '%s'.",
+              "This instance of LanguageComponents for language '%s' does not come with a supplier"
+                  + " of component class '%s'.",
               language,
               componentClass.getName()));
     }
@@ -53,6 +55,14 @@ public final class LanguageComponents {
     return components.keySet();
   }
 
+  /**
+   * Returns the cache of stems produced by this instance's {@link Stemmer}. Instances returned from
+   * {@link #override(Class, Supplier)} have their own, empty cache.
+   */
+  public StemCache stemCache() {
+    return stemCache;
+  }
+
   public static LanguageComponentsLoader loader() {
     return new LanguageComponentsLoader();
   }
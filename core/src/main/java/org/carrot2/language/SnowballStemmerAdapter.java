@@ -36,4 +36,23 @@ public final class SnowballStemmerAdapter implements Stemmer {
       return null;
     }
   }
+
+  @Override
+  public int stem(char[] word, int start, int length, char[] output) {
+    char[] buffer = s.getCurrentBuffer();
+    if (buffer.length < length) buffer = new char[length];
+
+    System.arraycopy(word, start, buffer, 0, length);
+    s.setCurrent(buffer, length);
+
+    if (s.stem()) {
+      final int stemLength = s.getCurrentBufferLength();
+      if (stemLength <= output.length) {
+        System.arraycopy(s.getCurrentBuffer(), 0, output, 0, stemLength);
+      }
+      return stemLength;
+    } else {
+      return -1;
+    }
+  }
 }
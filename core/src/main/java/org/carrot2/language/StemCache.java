@@ -0,0 +1,112 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.language;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.carrot2.util.MutableCharArray;
+
+/**
+ * A bounded, thread-safe cache of (lower-case) words and their stems, shared by all clustering
+ * requests that use the same {@link LanguageComponents} instance.
+ *
+ * <p>Entries are kept in two generations. New entries are added to the current generation; once it
+ * is full, it becomes the previous generation and the oldest entries are dropped. Entries found in
+ * the previous generation are moved back to the current one, so frequently used words stay in the
+ * cache. The number of cached entries never exceeds the capacity by more than the number of
+ * concurrently inserting threads.
+ */
+public final class StemCache {
+  /** The default maximum number of cached words. */
+  public static final int DEFAULT_CAPACITY = 100_000;
+
+  private final int generationCapacity;
+  private volatile ConcurrentHashMap<MutableCharArray, char[]> current;
+  private volatile ConcurrentHashMap<MutableCharArray, char[]> previous;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public StemCache() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public StemCache(int capacity) {
+    if (capacity < 2) {
+      throw new IllegalArgumentException("Stem cache capacity must be at least 2: " + capacity);
+    }
+    this.generationCapacity = capacity / 2;
+    this.current = new ConcurrentHashMap<>();
+    this.previous = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the cached stem of <code>word</code> or <code>null</code> if the word is not in the
+   * cache. The returned array must not be modified.
+   */
+  public char[] get(MutableCharArray word) {
+    char[] stem = current.get(word);
+    if (stem == null) {
+      stem = previous.remove(word);
+      if (stem != null) {
+        put(word, stem);
+      }
+    }
+
+    if (stem == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return stem;
+  }
+
+  /**
+   * Caches the stem of <code>word</code>. The word is copied, the stem array is stored as is and
+   * must not be modified afterwards.
+   */
+  public void put(MutableCharArray word, char[] stem) {
+    ConcurrentHashMap<MutableCharArray, char[]> generation = current;
+    if (generation.size() >= generationCapacity) {
+      synchronized (this) {
+        if (current == generation) {
+          previous = generation;
+          current = new ConcurrentHashMap<>();
+        }
+        generation = current;
+      }
+    }
+    generation.putIfAbsent(word.clone(), stem);
+  }
+
+  /** Returns the number of words currently in the cache. */
+  public int size() {
+    return current.size() + previous.size();
+  }
+
+  /** Returns the number of lookups that found a cached stem. */
+  public long hits() {
+    return hits.sum();
+  }
+
+  /** Returns the number of lookups that did not find a cached stem. */
+  public long misses() {
+    return misses.sum();
+  }
+
+  /** Removes all entries from the cache and resets hit and miss counters. */
+  public synchronized void clear() {
+    current = new ConcurrentHashMap<>();
+    previous = new ConcurrentHashMap<>();
+    hits.reset();
+    misses.reset();
+  }
+}
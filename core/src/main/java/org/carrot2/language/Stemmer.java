@@ -10,6 +10,8 @@
  */
 package org.carrot2.language;
 
+import org.carrot2.util.MutableCharArray;
+
 /**
  * Simple lemmatization engine transforming an inflected form of a word to its base form or some
  * other unique token.
@@ -21,4 +23,29 @@ public interface Stemmer {
    * word.
    */
   CharSequence stem(CharSequence word);
+
+  /**
+   * Stems <code>length</code> characters of <code>word</code>, starting at <code>start</code>, and
+   * writes the base form to the beginning of <code>output</code>. Returns the length of the base
+   * form or <code>-1</code> if the base form cannot be determined. If the returned length is larger
+   * than the length of <code>output</code>, nothing is written and the call should be repeated with
+   * a larger buffer.
+   *
+   * <p>The default implementation delegates to {@link #stem(CharSequence)}. Implementations should
+   * override it if they can stem without allocating intermediate objects.
+   */
+  default int stem(char[] word, int start, int length, char[] output) {
+    final CharSequence stem = stem(new MutableCharArray(word, start, length));
+    if (stem == null) {
+      return -1;
+    }
+
+    final int stemLength = stem.length();
+    if (stemLength <= output.length) {
+      for (int i = 0; i < stemLength; i++) {
+        output[i] = stem.charAt(i);
+      }
+    }
+    return stemLength;
+  }
 }
@@ -0,0 +1,210 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.mahout.matrix.impl;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cache-blocked, fork-join parallel multiplication of dense matrices: <code>
+ * C = alpha * A * B + beta * C</code>.
+ *
+ * <p>Columns of <code>B</code> are first copied to a contiguous column-major array, so operands
+ * given as transposed (diced) views are handled at the same cost as row-major ones. Rows of <code>C
+ * </code> are then split into ranges computed by separate fork-join tasks. Each task copies its
+ * rows of <code>A</code> to a contiguous array and accumulates products block by block: blocks of
+ * {@link #ROW_BLOCK} rows, {@link #COLUMN_BLOCK} columns and {@link #INNER_BLOCK} elements of the
+ * inner dimension fit in the processor's cache, and each step of the innermost loop computes a 2x2
+ * block of results.
+ */
+final class BlockedMatrixMultiplication {
+  /** The minimum number of multiply-add operations for which the blocked algorithm is used. */
+  static final long MIN_OPERATIONS = 64 * 64 * 64;
+
+  /** The number of rows of <code>A</code> and <code>C</code> in a block. */
+  static final int ROW_BLOCK = 64;
+
+  /** The number of columns of <code>B</code> and <code>C</code> in a block. */
+  static final int COLUMN_BLOCK = 64;
+
+  /** The number of elements of the inner dimension in a block. */
+  static final int INNER_BLOCK = 256;
+
+  /** The minimum number of multiply-add operations performed by a single fork-join task. */
+  static final long MIN_TASK_OPERATIONS = 1 << 19;
+
+  private BlockedMatrixMultiplication() {}
+
+  static void multiply(
+      DenseDoubleMatrix2D A,
+      DenseDoubleMatrix2D B,
+      DenseDoubleMatrix2D C,
+      double alpha,
+      double beta) {
+    final int n = A.columns();
+    final int p = B.columns();
+
+    // Columns of B, contiguous.
+    final double[] bt = new double[n * p];
+    final double[] bElems = B.elements;
+    for (int k = 0; k < n; k++) {
+      int index = B.index(k, 0);
+      for (int j = 0; j < p; j++, index += B.columnStride) {
+        bt[j * n + k] = bElems[index];
+      }
+    }
+
+    final Task task = new Task(A, bt, C, alpha, beta, 0, A.rows());
+    if ((long) A.rows() * n * p < 2 * MIN_TASK_OPERATIONS) {
+      task.compute();
+    } else {
+      ForkJoinPool.commonPool().invoke(task);
+    }
+  }
+
+  /** Computes a range of rows of <code>C</code>. */
+  private static final class Task extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final DenseDoubleMatrix2D A;
+    private final double[] bt;
+    private final DenseDoubleMatrix2D C;
+    private final double alpha;
+    private final double beta;
+    private final int fromRow;
+    private final int toRow;
+
+    Task(
+        DenseDoubleMatrix2D A,
+        double[] bt,
+        DenseDoubleMatrix2D C,
+        double alpha,
+        double beta,
+        int fromRow,
+        int toRow) {
+      this.A = A;
+      this.bt = bt;
+      this.C = C;
+      this.alpha = alpha;
+      this.beta = beta;
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+    }
+
+    @Override
+    protected void compute() {
+      final int rows = toRow - fromRow;
+      final long operations = (long) rows * A.columns() * C.columns();
+      if (rows > ROW_BLOCK && operations >= 2 * MIN_TASK_OPERATIONS) {
+        final int middle = fromRow + rows / 2;
+        invokeAll(
+            new Task(A, bt, C, alpha, beta, fromRow, middle),
+            new Task(A, bt, C, alpha, beta, middle, toRow));
+      } else {
+        multiplyRows();
+      }
+    }
+
+    private void multiplyRows() {
+      final int rows = toRow - fromRow;
+      final int n = A.columns();
+      final int p = C.columns();
+
+      // Rows of A, contiguous.
+      final double[] a = new double[rows * n];
+      final double[] aElems = A.elements;
+      for (int i = 0; i < rows; i++) {
+        int index = A.index(fromRow + i, 0);
+        for (int k = 0; k < n; k++, index += A.columnStride) {
+          a[i * n + k] = aElems[index];
+        }
+      }
+
+      final double[] sums = new double[rows * p];
+      for (int kk = 0; kk < n; kk += INNER_BLOCK) {
+        final int kMax = Math.min(n, kk + INNER_BLOCK);
+        for (int ii = 0; ii < rows; ii += ROW_BLOCK) {
+          final int iMax = Math.min(rows, ii + ROW_BLOCK);
+          for (int jj = 0; jj < p; jj += COLUMN_BLOCK) {
+            final int jMax = Math.min(p, jj + COLUMN_BLOCK);
+            multiplyBlock(a, n, sums, p, ii, iMax, jj, jMax, kk, kMax);
+          }
+        }
+      }
+
+      final double[] cElems = C.elements;
+      for (int i = 0; i < rows; i++) {
+        int index = C.index(fromRow + i, 0);
+        for (int j = 0; j < p; j++, index += C.columnStride) {
+          final double s = alpha * sums[i * p + j];
+          cElems[index] = (beta == 0 ? s : s + beta * cElems[index]);
+        }
+      }
+    }
+
+    /** Adds products of a block of rows of A and columns of B to the corresponding sums. */
+    private void multiplyBlock(
+        double[] a,
+        int n,
+        double[] sums,
+        int p,
+        int ii,
+        int iMax,
+        int jj,
+        int jMax,
+        int kk,
+        int kMax) {
+      final double[] bt = this.bt;
+      int i = ii;
+      for (; i + 1 < iMax; i += 2) {
+        final int a0 = i * n;
+        final int a1 = a0 + n;
+        int j = jj;
+        for (; j + 1 < jMax; j += 2) {
+          final int b0 = j * n;
+          final int b1 = b0 + n;
+          double s00 = 0, s01 = 0, s10 = 0, s11 = 0;
+          for (int k = kk; k < kMax; k++) {
+            final double x0 = a[a0 + k];
+            final double x1 = a[a1 + k];
+            final double y0 = bt[b0 + k];
+            final double y1 = bt[b1 + k];
+            s00 += x0 * y0;
+            s01 += x0 * y1;
+            s10 += x1 * y0;
+            s11 += x1 * y1;
+          }
+          sums[i * p + j] += s00;
+          sums[i * p + j + 1] += s01;
+          sums[(i + 1) * p + j] += s10;
+          sums[(i + 1) * p + j + 1] += s11;
+        }
+        if (j < jMax) {
+          sums[i * p + j] += dot(a, a0, bt, j * n, kk, kMax);
+          sums[(i + 1) * p + j] += dot(a, a1, bt, j * n, kk, kMax);
+        }
+      }
+      if (i < iMax) {
+        for (int j = jj; j < jMax; j++) {
+          sums[i * p + j] += dot(a, i * n, bt, j * n, kk, kMax);
+        }
+      }
+    }
+
+    private static double dot(double[] x, int xOffset, double[] y, int yOffset, int from, int to) {
+      double s = 0;
+      for (int k = from; k < to; k++) {
+        s += x[xOffset + k] * y[yOffset + k];
+      }
+      return s;
+    }
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.mahout.matrix.impl;
+
+import java.util.Arrays;
+import org.carrot2.math.mahout.function.Functions;
+import org.carrot2.math.mahout.function.IntIntDoubleFunction;
+import org.carrot2.math.mahout.matrix.DoubleMatrix1D;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+
+/**
+ * A sparse matrix in the compressed sparse row (CSR) layout. Column indices and values of row
+ * <code>r</code> are stored at positions <code>[rowOffsets[r], rowOffsets[r + 1])</code> of the
+ * <code>columnIndices</code> and <code>values</code> arrays, column indices of each row are sorted.
+ *
+ * <p>The structure of non-zero elements is fixed once the matrix is created: existing elements can
+ * be modified, but setting a non-zero value at any other position is not supported. Matrix products
+ * with dense matrices and vectors only visit the non-zero elements. Views are not backed by the
+ * compressed arrays and fall back to element-wise access.
+ */
+public final class CompressedRowDoubleMatrix2D extends DoubleMatrix2D {
+  final int[] rowOffsets;
+  final int[] columnIndices;
+  final double[] values;
+
+  public CompressedRowDoubleMatrix2D(
+      int rows, int columns, int[] rowOffsets, int[] columnIndices, double[] values) {
+    setUp(rows, columns);
+    if (rowOffsets.length != rows + 1
+        || columnIndices.length != values.length
+        || rowOffsets[rows] != values.length) {
+      throw new IllegalArgumentException("Inconsistent compressed row storage.");
+    }
+    this.rowOffsets = rowOffsets;
+    this.columnIndices = columnIndices;
+    this.values = values;
+  }
+
+  @Override
+  public int cardinality() {
+    int cardinality = 0;
+    for (double v : values) {
+      if (v != 0) {
+        cardinality++;
+      }
+    }
+    return cardinality;
+  }
+
+  @Override
+  public void forEachNonZero(IntIntDoubleFunction function) {
+    for (int row = 0; row < rows; row++) {
+      for (int i = rowOffsets[row], max = rowOffsets[row + 1]; i < max; i++) {
+        final double value = values[i];
+        if (value != 0) {
+          final double r = function.apply(row, columnIndices[i], value);
+          if (r != value) {
+            values[i] = r;
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public double getQuick(int row, int column) {
+    final int i = Arrays.binarySearch(columnIndices, rowOffsets[row], rowOffsets[row + 1], column);
+    return i >= 0 ? values[i] : 0;
+  }
+
+  @Override
+  public void setQuick(int row, int column, double value) {
+    final int i = Arrays.binarySearch(columnIndices, rowOffsets[row], rowOffsets[row + 1], column);
+    if (i >= 0) {
+      values[i] = value;
+    } else if (value != 0) {
+      throw new UnsupportedOperationException(
+          "Cannot add non-zero elements to a compressed row matrix.");
+    }
+  }
+
+  @Override
+  public DoubleMatrix2D like(int rows, int columns) {
+    return new DenseDoubleMatrix2D(rows, columns);
+  }
+
+  @Override
+  public DoubleMatrix1D like1D(int size) {
+    return new DenseDoubleMatrix1D(size);
+  }
+
+  @Override
+  protected DoubleMatrix1D like1D(int size, int offset, int stride) {
+    throw new UnsupportedOperationException(); // should never get called
+  }
+
+  @Override
+  public DoubleMatrix1D viewColumn(int column) {
+    return new WrapperDoubleMatrix2D(this).viewColumn(column);
+  }
+
+  @Override
+  public DoubleMatrix2D viewColumnFlip() {
+    return new WrapperDoubleMatrix2D(this).viewColumnFlip();
+  }
+
+  @Override
+  public DoubleMatrix2D viewDice() {
+    return new WrapperDoubleMatrix2D(this).viewDice();
+  }
+
+  @Override
+  public DoubleMatrix2D viewPart(int row, int column, int height, int width) {
+    return new WrapperDoubleMatrix2D(this).viewPart(row, column, height, width);
+  }
+
+  @Override
+  public DoubleMatrix1D viewRow(int row) {
+    return new WrapperDoubleMatrix2D(this).viewRow(row);
+  }
+
+  @Override
+  public DoubleMatrix2D viewRowFlip() {
+    return new WrapperDoubleMatrix2D(this).viewRowFlip();
+  }
+
+  @Override
+  public DoubleMatrix2D viewSelection(int[] rowIndexes, int[] columnIndexes) {
+    return new WrapperDoubleMatrix2D(this).viewSelection(rowIndexes, columnIndexes);
+  }
+
+  @Override
+  protected DoubleMatrix2D viewSelectionLike(int[] rowOffsets, int[] columnOffsets) {
+    throw new UnsupportedOperationException(); // should never be called
+  }
+
+  @Override
+  public DoubleMatrix1D zMult(
+      DoubleMatrix1D y, DoubleMatrix1D z, double alpha, double beta, boolean transposeA) {
+    final int m = transposeA ? columns : rows;
+    final int n = transposeA ? rows : columns;
+
+    if (z == null) {
+      z = new DenseDoubleMatrix1D(m);
+    } else {
+      scale(z, beta);
+    }
+    if (n != y.size() || m > z.size()) {
+      throw new IllegalArgumentException("Incompatible args");
+    }
+
+    for (int row = 0; row < rows; row++) {
+      if (transposeA) {
+        final double yr = alpha * y.getQuick(row);
+        for (int i = rowOffsets[row], max = rowOffsets[row + 1]; i < max; i++) {
+          final int column = columnIndices[i];
+          z.setQuick(column, z.getQuick(column) + values[i] * yr);
+        }
+      } else {
+        double s = 0;
+        for (int i = rowOffsets[row], max = rowOffsets[row + 1]; i < max; i++) {
+          s += values[i] * y.getQuick(columnIndices[i]);
+        }
+        z.setQuick(row, z.getQuick(row) + alpha * s);
+      }
+    }
+    return z;
+  }
+
+  @Override
+  public DoubleMatrix2D zMult(
+      DoubleMatrix2D B,
+      DoubleMatrix2D C,
+      double alpha,
+      double beta,
+      boolean transposeA,
+      boolean transposeB) {
+    if (transposeB) {
+      B = B.viewDice();
+    }
+    final int m = transposeA ? columns : rows;
+    final int n = transposeA ? rows : columns;
+    final int p = B.columns();
+
+    if (C == null) {
+      C = new DenseDoubleMatrix2D(m, p);
+    } else {
+      scale(C, beta);
+    }
+    if (B.rows() != n) {
+      throw new IllegalArgumentException("Matrix2D inner dimensions must agree");
+    }
+    if (C.rows() != m || C.columns() != p) {
+      throw new IllegalArgumentException("Incompatible result matrix");
+    }
+    if (this == C || B == C) {
+      throw new IllegalArgumentException("Matrices must not be identical");
+    }
+
+    if (B instanceof DenseDoubleMatrix2D && C instanceof DenseDoubleMatrix2D) {
+      zMultDense((DenseDoubleMatrix2D) B, (DenseDoubleMatrix2D) C, alpha, transposeA);
+      return C;
+    }
+
+    for (int row = 0; row < rows; row++) {
+      for (int i = rowOffsets[row], max = rowOffsets[row + 1]; i < max; i++) {
+        final double v = alpha * values[i];
+        final int bRow = transposeA ? row : columnIndices[i];
+        final int cRow = transposeA ? columnIndices[i] : row;
+        for (int j = 0; j < p; j++) {
+          C.setQuick(cRow, j, C.getQuick(cRow, j) + v * B.getQuick(bRow, j));
+        }
+      }
+    }
+    return C;
+  }
+
+  /**
+   * Adds <code>alpha * A * B</code> (or <code>alpha * A' * B</code>) to <code>C</code>, one scaled
+   * row of <code>B</code> per non-zero element of this matrix.
+   */
+  private void zMultDense(
+      DenseDoubleMatrix2D B, DenseDoubleMatrix2D C, double alpha, boolean transposeA) {
+    final double[] bElems = B.elements;
+    final double[] cElems = C.elements;
+    final int cB = B.columnStride;
+    final int cC = C.columnStride;
+    final int p = B.columns();
+
+    for (int row = 0; row < rows; row++) {
+      for (int i = rowOffsets[row], max = rowOffsets[row + 1]; i < max; i++) {
+        final double v = alpha * values[i];
+        if (v == 0) {
+          continue;
+        }
+
+        int jB = transposeA ? B.index(row, 0) : B.index(columnIndices[i], 0);
+        int jC = transposeA ? C.index(columnIndices[i], 0) : C.index(row, 0);
+        for (int j = 0; j < p; j++) {
+          cElems[jC] += v * bElems[jB];
+          jB += cB;
+          jC += cC;
+        }
+      }
+    }
+  }
+
+  private static void scale(DoubleMatrix2D C, double beta) {
+    if (beta == 0) {
+      C.assign(0);
+    } else if (beta != 1) {
+      C.assign(Functions.mult(beta));
+    }
+  }
+
+  private static void scale(DoubleMatrix1D z, double beta) {
+    if (beta == 0) {
+      z.assign(0);
+    } else if (beta != 1) {
+      z.assign(Functions.mult(beta));
+    }
+  }
+}
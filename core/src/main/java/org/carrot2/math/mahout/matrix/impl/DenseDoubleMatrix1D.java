@@ -77,10 +77,7 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
       if (multiplicator == 1) {
         return;
       }
-      for (int k = size; --k >= 0; ) {
-        elems[i] *= multiplicator;
-        i += s;
-      }
+      VectorKernels.scale(elems, i, s, multiplicator, size);
     } else { // the general case x[i] = f(x[i])
       for (int k = size; --k >= 0; ) {
         elems[i] = function.apply(elems[i]);
@@ -151,40 +148,16 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
 
     // specialized for speed
     if (function == Functions.MULT) { // x[i] = x[i] * y[i]
-      for (int k = size; --k >= 0; ) {
-        elems[index] *= otherElems[otherIndex];
-        index += s;
-        otherIndex += ys;
-      }
+      VectorKernels.multiply(elems, index, s, otherElems, otherIndex, ys, size);
     } else if (function == Functions.DIV) { // x[i] = x[i] / y[i]
-      for (int k = size; --k >= 0; ) {
-        elems[index] /= otherElems[otherIndex];
-        index += s;
-        otherIndex += ys;
-      }
+      VectorKernels.divide(elems, index, s, otherElems, otherIndex, ys, size);
     } else if (function instanceof PlusMult) {
       double multiplicator = ((PlusMult) function).getMultiplicator();
       if (multiplicator == 0) { // x[i] = x[i] + 0*y[i]
         return this;
-      } else if (multiplicator == 1) { // x[i] = x[i] + y[i]
-        for (int k = size; --k >= 0; ) {
-          elems[index] += otherElems[otherIndex];
-          index += s;
-          otherIndex += ys;
-        }
-      } else if (multiplicator == -1) { // x[i] = x[i] - y[i]
-        for (int k = size; --k >= 0; ) {
-          elems[index] -= otherElems[otherIndex];
-          index += s;
-          otherIndex += ys;
-        }
-      } else { // the general case x[i] = x[i] + mult*y[i]
-        for (int k = size; --k >= 0; ) {
-          elems[index] += multiplicator * otherElems[otherIndex];
-          index += s;
-          otherIndex += ys;
-        }
       }
+      // x[i] = x[i] + mult*y[i], exact for the x[i] + y[i] and x[i] - y[i] cases
+      VectorKernels.addScaled(elems, index, s, otherElems, otherIndex, ys, multiplicator, size);
     } else { // the general case x[i] = f(x[i],y[i])
       for (int k = size; --k >= 0; ) {
         elems[index] = function.apply(elems[index], otherElems[otherIndex]);
@@ -334,46 +307,15 @@ public class DenseDoubleMatrix1D extends DoubleMatrix1D {
       throw new IllegalStateException();
     }
 
-    /*
-    // unoptimized
-    for (int k = min; --k >= 0;) {
-      sum += elems[i] * yElems[j];
-      i += s;
-      j += ys;
-    }
-    */
-
-    // optimized
-    // loop unrolling
-    i -= s;
-    j -= ys;
-    double sum = 0;
-    for (int k = min / 4; --k >= 0; ) {
-      sum +=
-          elems[i += s] * yElems[j += ys]
-              + elems[i += s] * yElems[j += ys]
-              + elems[i += s] * yElems[j += ys]
-              + elems[i += s] * yElems[j += ys];
-    }
-    for (int k = min % 4; --k >= 0; ) {
-      sum += elems[i += s] * yElems[j += ys];
-    }
-    return sum;
+    return VectorKernels.dot(elems, i, s, yElems, j, ys, min);
   }
 
   @Override
   public double zSum() {
-    int s = stride;
-    int i = index(0);
     double[] elems = this.elements;
     if (elems == null) {
       throw new IllegalStateException();
     }
-    double sum = 0;
-    for (int k = size; --k >= 0; ) {
-      sum += elems[i];
-      i += s;
-    }
-    return sum;
+    return VectorKernels.sum(elems, index(0), stride, size);
   }
 }
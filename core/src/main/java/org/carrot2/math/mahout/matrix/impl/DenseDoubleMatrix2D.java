@@ -101,11 +101,12 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
         assign(0);
         return;
       }
+      if (isNoView) { // contiguous
+        VectorKernels.scale(elems, 0, 1, multiplicator, rows * columns);
+        return;
+      }
       for (int row = rows; --row >= 0; ) { // the general case
-        for (int i = index, column = columns; --column >= 0; ) {
-          elems[i] *= multiplicator;
-          i += cs;
-        }
+        VectorKernels.scale(elems, index, cs, multiplicator, columns);
         index += rs;
       }
     } else { // the general case x[i] = f(x[i])
@@ -191,23 +192,18 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
     int index = index(0, 0);
 
     // specialized for speed
+    // Rows of matrices which are not views are contiguous, process them at once.
+    final boolean contiguous = isNoView && other.isNoView;
+    final int length = contiguous ? rows * columns : columns;
     if (function == Functions.MULT) { // x[i] = x[i] * y[i]
-      for (int row = rows; --row >= 0; ) {
-        for (int i = index, j = otherIndex, column = columns; --column >= 0; ) {
-          elems[i] *= otherElems[j];
-          i += cs;
-          j += ocs;
-        }
+      for (int row = contiguous ? 1 : rows; --row >= 0; ) {
+        VectorKernels.multiply(elems, index, cs, otherElems, otherIndex, ocs, length);
         index += rs;
         otherIndex += ors;
       }
     } else if (function == Functions.DIV) { // x[i] = x[i] / y[i]
-      for (int row = rows; --row >= 0; ) {
-        for (int i = index, j = otherIndex, column = columns; --column >= 0; ) {
-          elems[i] /= otherElems[j];
-          i += cs;
-          j += ocs;
-        }
+      for (int row = contiguous ? 1 : rows; --row >= 0; ) {
+        VectorKernels.divide(elems, index, cs, otherElems, otherIndex, ocs, length);
         index += rs;
         otherIndex += ors;
       }
@@ -215,36 +211,13 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
       double multiplicator = ((PlusMult) function).getMultiplicator();
       if (multiplicator == 0) { // x[i] = x[i] + 0*y[i]
         return this;
-      } else if (multiplicator == 1) { // x[i] = x[i] + y[i]
-        for (int row = rows; --row >= 0; ) {
-          for (int i = index, j = otherIndex, column = columns; --column >= 0; ) {
-            elems[i] += otherElems[j];
-            i += cs;
-            j += ocs;
-          }
-          index += rs;
-          otherIndex += ors;
-        }
-      } else if (multiplicator == -1) { // x[i] = x[i] - y[i]
-        for (int row = rows; --row >= 0; ) {
-          for (int i = index, j = otherIndex, column = columns; --column >= 0; ) {
-            elems[i] -= otherElems[j];
-            i += cs;
-            j += ocs;
-          }
-          index += rs;
-          otherIndex += ors;
-        }
-      } else { // the general case
-        for (int row = rows; --row >= 0; ) { // x[i] = x[i] + mult*y[i]
-          for (int i = index, j = otherIndex, column = columns; --column >= 0; ) {
-            elems[i] += multiplicator * otherElems[j];
-            i += cs;
-            j += ocs;
-          }
-          index += rs;
-          otherIndex += ors;
-        }
+      }
+      // x[i] = x[i] + mult*y[i], exact for the x[i] + y[i] and x[i] - y[i] cases
+      for (int row = contiguous ? 1 : rows; --row >= 0; ) {
+        VectorKernels.addScaled(
+            elems, index, cs, otherElems, otherIndex, ocs, multiplicator, length);
+        index += rs;
+        otherIndex += ors;
       }
     } else { // the general case x[i] = f(x[i],y[i])
       for (int row = rows; --row >= 0; ) {
@@ -353,21 +326,7 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
 
     int cols = columns;
     for (int row = rows; --row >= 0; ) {
-      double sum = 0;
-      // loop unrolled
-      int i = indexA - As;
-      int j = indexY - ys;
-      for (int k = cols % 4; --k >= 0; ) {
-        sum += AElems[i += As] * yElems[j += ys];
-      }
-      for (int k = cols / 4; --k >= 0; ) {
-        sum +=
-            AElems[i += As] * yElems[j += ys]
-                + AElems[i += As] * yElems[j += ys]
-                + AElems[i += As] * yElems[j += ys]
-                + AElems[i += As] * yElems[j += ys];
-      }
-
+      final double sum = VectorKernels.dot(AElems, indexA, As, yElems, indexY, ys, cols);
       zElems[indexZ] = alpha * sum + beta * zElems[indexZ];
       indexA += this.rowStride;
       indexZ += zs;
@@ -388,7 +347,7 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
     if (transposeA) {
       return viewDice().zMult(B, C, alpha, beta, false, transposeB);
     }
-    if (B instanceof SparseDoubleMatrix2D) {
+    if (B instanceof SparseDoubleMatrix2D || B instanceof CompressedRowDoubleMatrix2D) {
       // exploit quick sparse mult
       // A*B = (B' * A')'
       if (C == null) {
@@ -398,6 +357,14 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
         return C;
       }
     }
+    if (B instanceof DenseFloatMatrix2D) {
+      // A*B = (B' * A')', the single-precision kernel reads B directly
+      if (C == null) {
+        C = new DenseDoubleMatrix2D(rows, transposeB ? B.rows() : B.columns());
+      }
+      B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
+      return C;
+    }
     if (transposeB) {
       return this.zMult(B.viewDice(), C, alpha, beta, transposeA, false);
     }
@@ -408,7 +375,7 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
     if (C == null) {
       C = new DenseDoubleMatrix2D(m, p);
     }
-    if (!(C instanceof DenseDoubleMatrix2D)) {
+    if (!(B instanceof DenseDoubleMatrix2D) || !(C instanceof DenseDoubleMatrix2D)) {
       return super.zMult(B, C, alpha, beta, transposeA, transposeB);
     }
     if (B.rows != n) {
@@ -423,6 +390,19 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
 
     DenseDoubleMatrix2D BB = (DenseDoubleMatrix2D) B;
     DenseDoubleMatrix2D CC = (DenseDoubleMatrix2D) C;
+    if ((long) m * n * p >= BlockedMatrixMultiplication.MIN_OPERATIONS) {
+      BlockedMatrixMultiplication.multiply(this, BB, CC, alpha, beta);
+    } else {
+      zMultUnblocked(BB, CC, alpha, beta);
+    }
+    return C;
+  }
+
+  /** Computes <code>C = alpha * this * B + beta * C</code> with a single-threaded kernel. */
+  void zMultUnblocked(DenseDoubleMatrix2D BB, DenseDoubleMatrix2D CC, double alpha, double beta) {
+    int m = rows;
+    int n = columns;
+    int p = BB.columns;
     double[] AElems = this.elements;
     double[] BElems = BB.elements;
     double[] CElems = CC.elements;
@@ -514,7 +494,6 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
         jC += cC;
       }
     }
-    return C;
   }
 
   @Override
@@ -523,16 +502,14 @@ public final class DenseDoubleMatrix2D extends DoubleMatrix2D {
     if (elems == null) {
       throw new IllegalStateException();
     }
+    if (isNoView) { // contiguous
+      return VectorKernels.sum(elems, 0, 1, rows * columns);
+    }
     int index = index(0, 0);
-    int cs = this.columnStride;
-    int rs = this.rowStride;
     double sum = 0;
     for (int row = rows; --row >= 0; ) {
-      for (int i = index, column = columns; --column >= 0; ) {
-        sum += elems[i];
-        i += cs;
-      }
-      index += rs;
+      sum += VectorKernels.sum(elems, index, columnStride, columns);
+      index += rowStride;
     }
     return sum;
   }
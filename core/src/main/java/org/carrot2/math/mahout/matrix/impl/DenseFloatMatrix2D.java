@@ -0,0 +1,225 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.mahout.matrix.impl;
+
+import java.util.Arrays;
+import org.carrot2.math.mahout.matrix.DoubleMatrix1D;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+
+/**
+ * A dense matrix with single-precision storage. Elements are rounded to <code>float</code> when
+ * stored and all arithmetic is performed in <code>double</code>, so the matrix can be used wherever
+ * a {@link DoubleMatrix2D} is expected at half the memory footprint and bandwidth of {@link
+ * DenseDoubleMatrix2D}.
+ *
+ * <p>Transposed, flipped and partial views share the <code>float</code> storage. Row, column and
+ * selection views fall back to element-wise access. Matrix products read the elements directly, in
+ * a single pass over each row of this matrix, and read the second operand directly from its storage
+ * if it is a dense single or double-precision matrix. {@link #like(int, int)} and products of two
+ * single-precision matrices return single-precision matrices, products with other matrices return
+ * {@link DenseDoubleMatrix2D}.
+ */
+public final class DenseFloatMatrix2D extends DoubleMatrix2D {
+  final float[] elements;
+
+  public DenseFloatMatrix2D(int rows, int columns) {
+    setUp(rows, columns);
+    this.elements = new float[rows * columns];
+  }
+
+  public DenseFloatMatrix2D(double[][] values) {
+    this(values.length, values.length == 0 ? 0 : values[0].length);
+    assign(values);
+  }
+
+  @Override
+  public double getQuick(int row, int column) {
+    return elements[rowZero + row * rowStride + columnZero + column * columnStride];
+  }
+
+  @Override
+  public void setQuick(int row, int column, double value) {
+    elements[rowZero + row * rowStride + columnZero + column * columnStride] = (float) value;
+  }
+
+  @Override
+  protected int index(int row, int column) {
+    return rowZero + row * rowStride + columnZero + column * columnStride;
+  }
+
+  @Override
+  public DoubleMatrix2D assign(double value) {
+    final float v = (float) value;
+    int index = index(0, 0);
+    for (int row = rows; --row >= 0; ) {
+      for (int i = index, column = columns; --column >= 0; ) {
+        elements[i] = v;
+        i += columnStride;
+      }
+      index += rowStride;
+    }
+    return this;
+  }
+
+  @Override
+  public DoubleMatrix2D like(int rows, int columns) {
+    return new DenseFloatMatrix2D(rows, columns);
+  }
+
+  @Override
+  public DoubleMatrix1D like1D(int size) {
+    return new DenseDoubleMatrix1D(size);
+  }
+
+  @Override
+  protected DoubleMatrix1D like1D(int size, int zero, int stride) {
+    throw new UnsupportedOperationException(); // should never get called
+  }
+
+  @Override
+  public DoubleMatrix1D viewColumn(int column) {
+    checkColumn(column);
+    return new WrapperDoubleMatrix2D(this).viewColumn(column);
+  }
+
+  @Override
+  public DoubleMatrix1D viewRow(int row) {
+    checkRow(row);
+    return new WrapperDoubleMatrix2D(this).viewRow(row);
+  }
+
+  @Override
+  public DoubleMatrix2D viewSelection(int[] rowIndexes, int[] columnIndexes) {
+    return new WrapperDoubleMatrix2D(this).viewSelection(rowIndexes, columnIndexes);
+  }
+
+  @Override
+  protected DoubleMatrix2D viewSelectionLike(int[] rowOffsets, int[] columnOffsets) {
+    throw new UnsupportedOperationException(); // should never be called
+  }
+
+  @Override
+  public DoubleMatrix1D zMult(
+      DoubleMatrix1D y, DoubleMatrix1D z, double alpha, double beta, boolean transposeA) {
+    if (transposeA) {
+      return viewDice().zMult(y, z, alpha, beta, false);
+    }
+    if (z == null) {
+      z = new DenseDoubleMatrix1D(rows);
+    }
+    if (columns != y.size() || rows > z.size()) {
+      throw new IllegalArgumentException("Incompatible sizes");
+    }
+
+    final double[] yy = y.toArray();
+    for (int row = 0; row < rows; row++) {
+      double sum = 0;
+      for (int column = 0, i = index(row, 0); column < columns; column++, i += columnStride) {
+        sum += elements[i] * yy[column];
+      }
+      z.setQuick(row, alpha * sum + beta * z.getQuick(row));
+    }
+    return z;
+  }
+
+  @Override
+  public DoubleMatrix2D zMult(
+      DoubleMatrix2D B,
+      DoubleMatrix2D C,
+      double alpha,
+      double beta,
+      boolean transposeA,
+      boolean transposeB) {
+    if (transposeA) {
+      return viewDice().zMult(B, C, alpha, beta, false, transposeB);
+    }
+    if (B instanceof SparseDoubleMatrix2D || B instanceof CompressedRowDoubleMatrix2D) {
+      // A*B = (B' * A')'
+      if (C == null) {
+        return B.zMult(this, null, alpha, beta, !transposeB, true).viewDice();
+      } else {
+        B.zMult(this, C.viewDice(), alpha, beta, !transposeB, true);
+        return C;
+      }
+    }
+    if (transposeB) {
+      B = B.viewDice();
+    }
+
+    final int m = rows;
+    final int n = columns;
+    final int p = B.columns();
+    if (C == null) {
+      C = B instanceof DenseFloatMatrix2D ? like(m, p) : new DenseDoubleMatrix2D(m, p);
+    }
+    if (B.rows() != n) {
+      throw new IllegalArgumentException("Matrix2D inner dimensions must agree");
+    }
+    if (C.rows() != m || C.columns() != p) {
+      throw new IllegalArgumentException("Incompatible result matrix");
+    }
+    if (this == C || B == C) {
+      throw new IllegalArgumentException("Matrices must not be identical");
+    }
+
+    // Rows of B are read from the storage of dense matrices, other matrices are copied.
+    final float[] bFloats;
+    final double[] bDoubles;
+    final AbstractMatrix2D bStorage;
+    if (B instanceof DenseFloatMatrix2D) {
+      bFloats = ((DenseFloatMatrix2D) B).elements;
+      bDoubles = null;
+      bStorage = B;
+    } else {
+      final DenseDoubleMatrix2D dense =
+          B instanceof DenseDoubleMatrix2D
+              ? (DenseDoubleMatrix2D) B
+              : (DenseDoubleMatrix2D) new DenseDoubleMatrix2D(n, p).assign(B);
+      bFloats = null;
+      bDoubles = dense.elements;
+      bStorage = dense;
+    }
+    final int bColumnStride = bStorage.columnStride;
+
+    // Each row of C is a combination of rows of B, accumulated in double precision.
+    final double[] sums = new double[p];
+    for (int i = 0; i < m; i++) {
+      Arrays.fill(sums, 0);
+      for (int k = 0, index = index(i, 0); k < n; k++, index += columnStride) {
+        final double a = elements[index];
+        if (a != 0) {
+          int b = bStorage.index(k, 0);
+          if (bFloats != null) {
+            for (int j = 0; j < p; j++, b += bColumnStride) {
+              sums[j] += a * bFloats[b];
+            }
+          } else {
+            for (int j = 0; j < p; j++, b += bColumnStride) {
+              sums[j] += a * bDoubles[b];
+            }
+          }
+        }
+      }
+
+      for (int j = 0; j < p; j++) {
+        final double s = alpha * sums[j];
+        C.setQuick(i, j, beta == 0 ? s : s + beta * C.getQuick(i, j));
+      }
+    }
+    return C;
+  }
+
+  @Override
+  protected boolean haveSharedCellsRaw(DoubleMatrix2D other) {
+    return other instanceof DenseFloatMatrix2D
+        && this.elements == ((DenseFloatMatrix2D) other).elements;
+  }
+}
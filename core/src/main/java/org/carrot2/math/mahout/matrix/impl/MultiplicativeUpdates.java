@@ -0,0 +1,184 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.mahout.matrix.impl;
+
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+
+/**
+ * Fused element-wise kernels for the multiplicative update rules of non-negative matrix
+ * factorizations. Each kernel makes a single pass over the backing arrays of its arguments,
+ * replacing chains of <code>assign</code> calls that would each traverse the matrices and evaluate
+ * a function object per element.
+ *
+ * <p>All matrix arguments of a kernel must have the same dimensions.
+ */
+public final class MultiplicativeUpdates {
+  private MultiplicativeUpdates() {}
+
+  /**
+   * Computes <code>X = X .* (N + eps) ./ (D + eps)</code>.
+   *
+   * @return the sum of elements of <code>X .* N</code>, computed with the updated <code>X</code>.
+   */
+  public static double update(
+      DenseDoubleMatrix2D X, DenseDoubleMatrix2D N, DenseDoubleMatrix2D D, double eps) {
+    X.checkShape(N);
+    X.checkShape(D);
+
+    final double[] x = X.elements;
+    final double[] num = N.elements;
+    final double[] den = D.elements;
+    final int columns = X.columns();
+    double sum = 0;
+    for (int row = 0; row < X.rows(); row++) {
+      int ix = X.index(row, 0);
+      int in = N.index(row, 0);
+      int id = D.index(row, 0);
+      for (int column = 0; column < columns; column++) {
+        final double n = num[in];
+        final double v = x[ix] * ((n + eps) / (den[id] + eps));
+        x[ix] = v;
+        sum += v * n;
+        ix += X.columnStride;
+        in += N.columnStride;
+        id += D.columnStride;
+      }
+    }
+    return sum;
+  }
+
+  /** Computes <code>X = X .* F</code>. */
+  public static void multiply(DenseDoubleMatrix2D X, DenseDoubleMatrix2D F) {
+    multiply(X, F, false);
+  }
+
+  /** Computes <code>X = sqrt(X .* F)</code>. */
+  public static void multiplySqrt(DenseDoubleMatrix2D X, DenseDoubleMatrix2D F) {
+    multiply(X, F, true);
+  }
+
+  private static void multiply(DenseDoubleMatrix2D X, DenseDoubleMatrix2D F, boolean sqrt) {
+    X.checkShape(F);
+
+    final double[] x = X.elements;
+    final double[] f = F.elements;
+    final int columns = X.columns();
+    for (int row = 0; row < X.rows(); row++) {
+      int ix = X.index(row, 0);
+      int jf = F.index(row, 0);
+      for (int column = 0; column < columns; column++) {
+        final double v = x[ix] * f[jf];
+        x[ix] = sqrt ? Math.sqrt(v) : v;
+        ix += X.columnStride;
+        jf += F.columnStride;
+      }
+    }
+  }
+
+  /**
+   * Computes <code>UV = (A + eps) ./ (UV + eps)</code>, where <code>UV</code> initially holds an
+   * approximation of <code>A</code>.
+   *
+   * @return the squared Frobenius norm of <code>A - UV</code>, computed with the initial <code>UV
+   *     </code>.
+   */
+  public static double divide(DenseDoubleMatrix2D UV, DoubleMatrix2D A, double eps) {
+    UV.checkShape(A);
+
+    final double[] uv = UV.elements;
+    final int columns = UV.columns();
+    double sum = 0;
+    if (A instanceof DenseDoubleMatrix2D) {
+      final DenseDoubleMatrix2D dense = (DenseDoubleMatrix2D) A;
+      final double[] a = dense.elements;
+      for (int row = 0; row < UV.rows(); row++) {
+        int iuv = UV.index(row, 0);
+        int ia = dense.index(row, 0);
+        for (int column = 0; column < columns; column++) {
+          final double approximation = uv[iuv];
+          final double value = a[ia];
+          final double d = value - approximation;
+          sum += d * d;
+          uv[iuv] = (value + eps) / (approximation + eps);
+          iuv += UV.columnStride;
+          ia += dense.columnStride;
+        }
+      }
+    } else if (A instanceof DenseFloatMatrix2D) {
+      final DenseFloatMatrix2D dense = (DenseFloatMatrix2D) A;
+      final float[] a = dense.elements;
+      for (int row = 0; row < UV.rows(); row++) {
+        int iuv = UV.index(row, 0);
+        int ia = dense.index(row, 0);
+        for (int column = 0; column < columns; column++) {
+          final double approximation = uv[iuv];
+          final double value = a[ia];
+          final double d = value - approximation;
+          sum += d * d;
+          uv[iuv] = (value + eps) / (approximation + eps);
+          iuv += UV.columnStride;
+          ia += dense.columnStride;
+        }
+      }
+    } else if (A instanceof CompressedRowDoubleMatrix2D) {
+      final CompressedRowDoubleMatrix2D csr = (CompressedRowDoubleMatrix2D) A;
+      for (int row = 0; row < UV.rows(); row++) {
+        int iuv = UV.index(row, 0);
+        int i = csr.rowOffsets[row];
+        final int max = csr.rowOffsets[row + 1];
+        for (int column = 0; column < columns; column++) {
+          double value = 0;
+          if (i < max && csr.columnIndices[i] == column) {
+            value = csr.values[i++];
+          }
+          final double approximation = uv[iuv];
+          final double d = value - approximation;
+          sum += d * d;
+          uv[iuv] = (value + eps) / (approximation + eps);
+          iuv += UV.columnStride;
+        }
+      }
+    } else {
+      for (int row = 0; row < UV.rows(); row++) {
+        int iuv = UV.index(row, 0);
+        for (int column = 0; column < columns; column++) {
+          final double approximation = uv[iuv];
+          final double value = A.getQuick(row, column);
+          final double d = value - approximation;
+          sum += d * d;
+          uv[iuv] = (value + eps) / (approximation + eps);
+          iuv += UV.columnStride;
+        }
+      }
+    }
+    return sum;
+  }
+
+  /** Returns the sum of elements of <code>X .* Y</code>. */
+  public static double dot(DenseDoubleMatrix2D X, DenseDoubleMatrix2D Y) {
+    X.checkShape(Y);
+
+    final double[] x = X.elements;
+    final double[] y = Y.elements;
+    final int columns = X.columns();
+    double sum = 0;
+    for (int row = 0; row < X.rows(); row++) {
+      int ix = X.index(row, 0);
+      int iy = Y.index(row, 0);
+      for (int column = 0; column < columns; column++) {
+        sum += x[ix] * y[iy];
+        ix += X.columnStride;
+        iy += Y.columnStride;
+      }
+    }
+    return sum;
+  }
+}
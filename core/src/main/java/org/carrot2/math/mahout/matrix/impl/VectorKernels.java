@@ -0,0 +1,147 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.mahout.matrix.impl;
+
+/**
+ * Element-wise and reduction kernels over strided ranges of <code>double</code> arrays, used by the
+ * dense vector and matrix implementations. A range is given by an array, the index of its first
+ * element and the distance between subsequent elements.
+ *
+ * <p>The kernels process four elements per step. Reductions ({@link #dot}, {@link #sum}) keep four
+ * independent partial sums, which removes the dependency between subsequent additions; the order of
+ * additions differs from a simple loop, so results may differ from it by rounding errors bounded by
+ * <code>2 * length * ulp(1) * sum(|x[i] * y[i]|)</code> for dot products and by <code>
+ * 2 * length * ulp(1) * sum(|x[i]|)</code> for sums. Contiguous ranges are processed in loops over
+ * a single index, which the JIT compiler turns into SIMD instructions.
+ */
+final class VectorKernels {
+  private VectorKernels() {}
+
+  /** Returns the sum of <code>x[i] * y[i]</code>. */
+  static double dot(
+      double[] x, int xOffset, int xStride, double[] y, int yOffset, int yStride, int length) {
+    double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int k = 0;
+    if (xStride == 1 && yStride == 1) {
+      final int d = yOffset - xOffset;
+      final int end = xOffset + length;
+      int i = xOffset;
+      for (; i + 3 < end; i += 4) {
+        s0 += x[i] * y[i + d];
+        s1 += x[i + 1] * y[i + 1 + d];
+        s2 += x[i + 2] * y[i + 2 + d];
+        s3 += x[i + 3] * y[i + 3 + d];
+      }
+      for (; i < end; i++) {
+        s0 += x[i] * y[i + d];
+      }
+      return (s0 + s1) + (s2 + s3);
+    }
+
+    int i = xOffset;
+    int j = yOffset;
+    for (; k + 3 < length; k += 4) {
+      s0 += x[i] * y[j];
+      s1 += x[i + xStride] * y[j + yStride];
+      s2 += x[i + 2 * xStride] * y[j + 2 * yStride];
+      s3 += x[i + 3 * xStride] * y[j + 3 * yStride];
+      i += 4 * xStride;
+      j += 4 * yStride;
+    }
+    for (; k < length; k++, i += xStride, j += yStride) {
+      s0 += x[i] * y[j];
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /** Returns the sum of <code>x[i]</code>. */
+  static double sum(double[] x, int offset, int stride, int length) {
+    double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+    int k = 0;
+    int i = offset;
+    for (; k + 3 < length; k += 4) {
+      s0 += x[i];
+      s1 += x[i + stride];
+      s2 += x[i + 2 * stride];
+      s3 += x[i + 3 * stride];
+      i += 4 * stride;
+    }
+    for (; k < length; k++, i += stride) {
+      s0 += x[i];
+    }
+    return (s0 + s1) + (s2 + s3);
+  }
+
+  /** Computes <code>x[i] = x[i] * y[i]</code>. */
+  static void multiply(
+      double[] x, int xOffset, int xStride, double[] y, int yOffset, int yStride, int length) {
+    if (xStride == 1 && yStride == 1) {
+      for (int k = 0; k < length; k++) {
+        x[xOffset + k] *= y[yOffset + k];
+      }
+    } else {
+      for (int k = 0, i = xOffset, j = yOffset; k < length; k++, i += xStride, j += yStride) {
+        x[i] *= y[j];
+      }
+    }
+  }
+
+  /** Computes <code>x[i] = x[i] / y[i]</code>. */
+  static void divide(
+      double[] x, int xOffset, int xStride, double[] y, int yOffset, int yStride, int length) {
+    if (xStride == 1 && yStride == 1) {
+      for (int k = 0; k < length; k++) {
+        x[xOffset + k] /= y[yOffset + k];
+      }
+    } else {
+      for (int k = 0, i = xOffset, j = yOffset; k < length; k++, i += xStride, j += yStride) {
+        x[i] /= y[j];
+      }
+    }
+  }
+
+  /**
+   * Computes <code>x[i] = x[i] + alpha * y[i]</code>. The result is exact for <code>alpha</code>
+   * equal to 1 or -1, the same as <code>x[i] + y[i]</code> and <code>x[i] - y[i]</code>.
+   */
+  static void addScaled(
+      double[] x,
+      int xOffset,
+      int xStride,
+      double[] y,
+      int yOffset,
+      int yStride,
+      double alpha,
+      int length) {
+    if (xStride == 1 && yStride == 1) {
+      for (int k = 0; k < length; k++) {
+        x[xOffset + k] += alpha * y[yOffset + k];
+      }
+    } else {
+      for (int k = 0, i = xOffset, j = yOffset; k < length; k++, i += xStride, j += yStride) {
+        x[i] += alpha * y[j];
+      }
+    }
+  }
+
+  /** Computes <code>x[i] = x[i] * alpha</code>. */
+  static void scale(double[] x, int offset, int stride, double alpha, int length) {
+    if (stride == 1) {
+      for (int k = 0; k < length; k++) {
+        x[offset + k] *= alpha;
+      }
+    } else {
+      for (int k = 0, i = offset; k < length; k++, i += stride) {
+        x[i] *= alpha;
+      }
+    }
+  }
+}
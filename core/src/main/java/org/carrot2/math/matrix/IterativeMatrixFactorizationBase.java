@@ -92,13 +92,22 @@ abstract class IterativeMatrixFactorizationBase extends MatrixFactorizationBase
    *     </code>
    */
   protected boolean updateApproximationError() {
+    return updateApproximationError(
+        MatrixUtils.frobeniusNorm(U.zMult(V, null, 1, 0, false, true).assign(A, Functions.MINUS)));
+  }
+
+  /**
+   * Records the approximation error computed by the factorization itself, for algorithms that can
+   * obtain it at a lower cost than by forming <code>A - UV'</code>.
+   *
+   * @return true if the decrease in the approximation error is smaller than the <code>stopThreshold
+   *     </code>
+   */
+  protected boolean updateApproximationError(double newApproximationError) {
     if (approximationErrors == null) {
       approximationErrors = new double[maxIterations + 1];
     }
 
-    // Approximation error
-    double newApproximationError =
-        MatrixUtils.frobeniusNorm(U.zMult(V, null, 1, 0, false, true).assign(A, Functions.MINUS));
     approximationErrors[iterationsCompleted] = newApproximationError;
 
     if ((approximationError - newApproximationError) / approximationError < stopThreshold) {
@@ -62,6 +62,9 @@ public abstract class IterativeMatrixFactorizationFactory extends AttrComposite
 
   protected static final boolean DEFAULT_ORDERED = true;
 
+  /** Keys identifying rows of the next factorized matrix, used for warm starts */
+  protected String[] rowKeys;
+
   public IterativeMatrixFactorizationFactory() {
     this.k = DEFAULT_K;
     this.maxIterations = DEFAULT_MAX_ITERATIONS;
@@ -86,9 +89,20 @@ public abstract class IterativeMatrixFactorizationFactory extends AttrComposite
 
   /** */
   protected SeedingStrategy createSeedingStrategy() {
+    if (rowKeys != null && seedingFactory instanceof WarmStartSeedingStrategyFactory) {
+      return ((WarmStartSeedingStrategyFactory) seedingFactory).createSeedingStrategy(rowKeys);
+    }
     return seedingFactory.createSeedingStrategy();
   }
 
+  /**
+   * Sets the keys identifying rows of the next factorized matrix, used by {@link
+   * WarmStartSeedingStrategyFactory}. Set to <code>null</code> if rows are not known.
+   */
+  public void setRowKeys(String[] rowKeys) {
+    this.rowKeys = rowKeys;
+  }
+
   /** Returns the maximum number of iterations used by this factory. */
   public int getMaxIterations() {
     return maxIterations;
@@ -0,0 +1,343 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.matrix;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.carrot2.math.mahout.DenseMatrix;
+import org.carrot2.math.mahout.Matrix;
+import org.carrot2.math.mahout.SingularValueDecomposition;
+import org.carrot2.math.mahout.matrix.DoubleMatrix1D;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix1D;
+import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+
+/**
+ * Computes the top <i>k</i> singular vectors of a matrix using the Golub-Kahan-Lanczos
+ * bidiagonalization with thick restarts (Baglama, Reichel: <i>Augmented implicitly restarted
+ * Lanczos bidiagonalization methods</i>). Matrix <code>A</code> is accessed only through
+ * matrix-vector products with <code>A</code> and <code>A'</code>, so sparse matrices are never
+ * densified and <code>A'A</code> is never formed.
+ *
+ * <p>Each iteration extends the Krylov bases to <code>k + additionalVectors</code> vectors, fully
+ * reorthogonalized, and computes the SVD of the small projected matrix. Iterations are restarted
+ * from the current <i>k</i> Ritz vectors until their residuals drop below <code>tolerance</code>
+ * relative to the largest singular value or <code>maxIterations</code> is reached.
+ *
+ * <p>The starting vector is generated from a fixed seed, so the results are deterministic.
+ */
+public class LanczosSingularValueDecomposition extends MatrixFactorizationBase
+    implements MatrixFactorization {
+  /** The desired number of base vectors, all vectors are computed if not positive. */
+  protected int k = -1;
+
+  /** The number of Lanczos vectors in addition to the <i>k</i> restart vectors. */
+  protected int additionalVectors = 10;
+
+  /** The maximum number of restarted iterations. */
+  protected int maxIterations = 50;
+
+  /** Convergence threshold for residuals, relative to the largest singular value. */
+  protected double tolerance = 1e-8;
+
+  /** The seed of the starting vector. */
+  protected long seed;
+
+  /** Singular values */
+  private double[] S;
+
+  /** The number of iterations performed. */
+  private int iterations;
+
+  /** The number of products with <code>A</code> or <code>A'</code> performed. */
+  private int matrixVectorProducts;
+
+  /** The number of vectors orthogonalized against a Lanczos basis. */
+  private int reorthogonalizations;
+
+  /** The number of converged singular triplets. */
+  private int convergedCount;
+
+  public LanczosSingularValueDecomposition(DoubleMatrix2D A) {
+    super(A);
+  }
+
+  public void compute() {
+    final int rows = A.rows();
+    final int columns = A.columns();
+    final int rank = Math.min(rows, columns);
+    final int components = (k > 0 ? Math.min(k, rank) : rank);
+    final int p = Math.min(rank, components + additionalVectors);
+
+    iterations = 0;
+    matrixVectorProducts = 0;
+    reorthogonalizations = 0;
+    convergedCount = 0;
+
+    if (components == 0) {
+      U = new DenseDoubleMatrix2D(rows, 0);
+      V = new DenseDoubleMatrix2D(columns, 0);
+      S = new double[0];
+      return;
+    }
+
+    final Random random = new Random(seed);
+    final double[][] leftBasis = new double[p][rows];
+    final double[][] rightBasis = new double[p][columns];
+    final double[][] B = new double[p][p];
+    final double[] residual = new double[columns];
+
+    nextBasisVector(rightBasis, 0, randomVector(random, columns), random);
+
+    Matrix Ub;
+    Matrix Vb;
+    double[] s;
+    int start = 0;
+    while (true) {
+      iterations++;
+
+      // Extend the bases: A V = U B and A' U = V B' + r e'.
+      double beta = 0;
+      for (int j = start; j < p; j++) {
+        final double[] w = multiply(rightBasis[j], rows, false);
+        B[j][j] = nextBasisVector(leftBasis, j, w, random, B, j);
+
+        final double[] r = multiply(leftBasis[j], columns, true);
+        if (j + 1 < p) {
+          nextBasisVector(rightBasis, j + 1, r, random);
+        } else {
+          orthogonalize(rightBasis, p, r, null, 0);
+          beta = norm(r);
+          System.arraycopy(r, 0, residual, 0, columns);
+        }
+      }
+
+      final SingularValueDecomposition svd = new SingularValueDecomposition(new DenseMatrix(B));
+      Ub = svd.getU();
+      Vb = svd.getV();
+      s = svd.getSingularValues();
+
+      // Residual of the i-th Ritz triplet is |beta * Ub[p - 1][i]|.
+      convergedCount = 0;
+      while (convergedCount < components
+          && Math.abs(beta * Ub.getQuick(p - 1, convergedCount)) <= tolerance * s[0]) {
+        convergedCount++;
+      }
+      if (convergedCount == components || iterations >= maxIterations) {
+        break;
+      }
+
+      // Restart from the Ritz vectors and the residual direction.
+      final double[][] restartedLeft = combine(leftBasis, Ub, components);
+      final double[][] restartedRight = combine(rightBasis, Vb, components);
+      for (int i = 0; i < components; i++) {
+        leftBasis[i] = restartedLeft[i];
+        rightBasis[i] = restartedRight[i];
+        Arrays.fill(B[i], 0);
+        B[i][i] = s[i];
+      }
+      for (int i = components; i < p; i++) {
+        Arrays.fill(B[i], 0);
+      }
+      nextBasisVector(rightBasis, components, residual.clone(), random);
+      start = components;
+    }
+
+    U = toMatrix(combine(leftBasis, Ub, components), rows);
+    V = toMatrix(combine(rightBasis, Vb, components), columns);
+    S = Arrays.copyOf(s, components);
+  }
+
+  /** Returns <code>A v</code> or <code>A' v</code>. */
+  private double[] multiply(double[] v, int size, boolean transpose) {
+    final DoubleMatrix1D result = new DenseDoubleMatrix1D(size);
+    A.zMult(new DenseDoubleMatrix1D(v), result, 1, 0, transpose);
+    matrixVectorProducts++;
+    return result.toArray();
+  }
+
+  /**
+   * Stores <code>w</code>, orthonormalized against the first <code>count</code> vectors of the
+   * basis, as the basis vector at <code>count</code>. If <code>w</code> lies in the span of the
+   * basis, a random orthonormal vector is stored instead. Projection coefficients are added to
+   * column <code>column</code> of <code>B</code>.
+   *
+   * @return the norm of the orthogonalized <code>w</code>, zero if a random vector was stored.
+   */
+  private double nextBasisVector(
+      double[][] basis, int count, double[] w, Random random, double[][] B, int column) {
+    final double initialNorm = norm(w);
+    orthogonalize(basis, count, w, B, column);
+    double norm = norm(w);
+    if (norm <= initialNorm * 1e-12 || norm == 0) {
+      do {
+        w = randomVector(random, w.length);
+        orthogonalize(basis, count, w, null, 0);
+        norm = norm(w);
+      } while (norm == 0);
+      scale(w, 1 / norm);
+      basis[count] = w;
+      return 0;
+    }
+
+    scale(w, 1 / norm);
+    basis[count] = w;
+    return norm;
+  }
+
+  private double nextBasisVector(double[][] basis, int count, double[] w, Random random) {
+    return nextBasisVector(basis, count, w, random, null, 0);
+  }
+
+  /**
+   * Removes components of the first <code>count</code> basis vectors from <code>w</code>, in two
+   * passes of classical Gram-Schmidt to compensate for the loss of orthogonality.
+   */
+  private void orthogonalize(double[][] basis, int count, double[] w, double[][] B, int column) {
+    if (count == 0) {
+      return;
+    }
+    reorthogonalizations++;
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < count; i++) {
+        final double[] b = basis[i];
+        double dot = 0;
+        for (int r = 0; r < w.length; r++) {
+          dot += b[r] * w[r];
+        }
+        for (int r = 0; r < w.length; r++) {
+          w[r] -= dot * b[r];
+        }
+        if (B != null) {
+          B[i][column] += dot;
+        }
+      }
+    }
+  }
+
+  /** Returns the first <code>count</code> columns of <code>basis' * M</code>, as rows. */
+  private static double[][] combine(double[][] basis, Matrix M, int count) {
+    final int size = basis[0].length;
+    final double[][] result = new double[count][size];
+    for (int c = 0; c < count; c++) {
+      final double[] target = result[c];
+      for (int l = 0; l < basis.length; l++) {
+        final double m = M.getQuick(l, c);
+        if (m != 0) {
+          final double[] b = basis[l];
+          for (int r = 0; r < size; r++) {
+            target[r] += m * b[r];
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  private static DenseDoubleMatrix2D toMatrix(double[][] vectors, int size) {
+    final DenseDoubleMatrix2D result = new DenseDoubleMatrix2D(size, vectors.length);
+    for (int c = 0; c < vectors.length; c++) {
+      for (int r = 0; r < size; r++) {
+        result.setQuick(r, c, vectors[c][r]);
+      }
+    }
+    return result;
+  }
+
+  private static double[] randomVector(Random random, int size) {
+    final double[] vector = new double[size];
+    for (int i = 0; i < size; i++) {
+      vector[i] = random.nextGaussian();
+    }
+    return vector;
+  }
+
+  private static void scale(double[] vector, double factor) {
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] *= factor;
+    }
+  }
+
+  private static double norm(double[] vector) {
+    double sum = 0;
+    for (double v : vector) {
+      sum += v * v;
+    }
+    return Math.sqrt(sum);
+  }
+
+  public String toString() {
+    return "LanczosSVD";
+  }
+
+  /** Returns singular values of the matrix. */
+  public double[] getSingularValues() {
+    return S;
+  }
+
+  /** Returns the number of restarted iterations performed. */
+  public int getIterations() {
+    return iterations;
+  }
+
+  /** Returns the number of products with <code>A</code> or <code>A'</code> performed. */
+  public int getMatrixVectorProducts() {
+    return matrixVectorProducts;
+  }
+
+  /** Returns the number of vectors orthogonalized against a Lanczos basis. */
+  public int getReorthogonalizations() {
+    return reorthogonalizations;
+  }
+
+  /**
+   * Returns the number of leading singular triplets whose residuals are within the tolerance. Equal
+   * to the number of computed base vectors if the iterations converged.
+   */
+  public int getConvergedCount() {
+    return convergedCount;
+  }
+
+  /** Returns <code>true</code> if all computed singular triplets converged. */
+  public boolean isConverged() {
+    return S != null && convergedCount == S.length;
+  }
+
+  /** Sets the number of base vectors <i>k</i>, all vectors are computed if not positive. */
+  public void setK(int k) {
+    this.k = k;
+  }
+
+  /** Returns the number of base vectors <i>k</i>. */
+  public int getK() {
+    return k;
+  }
+
+  /** Sets the number of Lanczos vectors in addition to the <i>k</i> restart vectors. */
+  public void setAdditionalVectors(int additionalVectors) {
+    this.additionalVectors = additionalVectors;
+  }
+
+  /** Sets the maximum number of restarted iterations. */
+  public void setMaxIterations(int maxIterations) {
+    this.maxIterations = maxIterations;
+  }
+
+  /** Sets the convergence threshold, relative to the largest singular value. */
+  public void setTolerance(double tolerance) {
+    this.tolerance = tolerance;
+  }
+
+  /** Sets the seed of the starting vector. */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.matrix;
+
+import org.carrot2.attrs.AttrComposite;
+import org.carrot2.attrs.AttrDouble;
+import org.carrot2.attrs.AttrInteger;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+
+/**
+ * Performs matrix factorization using the restarted Lanczos bidiagonalization, see {@link
+ * LanczosSingularValueDecomposition}. Only matrix-vector products are performed on the factorized
+ * matrix, which makes this factorization suitable for large sparse matrices.
+ */
+public class LanczosSingularValueDecompositionFactory extends AttrComposite
+    implements MatrixFactorizationFactory {
+  /**
+   * The number of Lanczos vectors in addition to the computed base vectors. Larger values reduce
+   * the number of restarts at the cost of memory and time spent in each iteration.
+   */
+  public final AttrInteger additionalVectors =
+      attributes.register(
+          "additionalVectors",
+          AttrInteger.builder()
+              .min(1)
+              .max(100)
+              .label("Additional Lanczos vectors")
+              .defaultValue(10));
+
+  /** The maximum number of restarted iterations. */
+  public final AttrInteger maxIterations =
+      attributes.register(
+          "maxIterations",
+          AttrInteger.builder().min(1).label("Maximum number of iterations").defaultValue(50));
+
+  /**
+   * Convergence threshold. Iterations stop when residuals of all base vectors are below this value
+   * relative to the largest singular value.
+   */
+  public final AttrDouble tolerance =
+      attributes.register(
+          "tolerance",
+          AttrDouble.builder().min(0).max(1).label("Convergence tolerance").defaultValue(1e-8));
+
+  /** The seed of the starting vector, fixed so that results are deterministic. */
+  public final AttrInteger seed =
+      attributes.register(
+          "seed", AttrInteger.builder().label("Starting vector seed").defaultValue(0));
+
+  /** The desired number of base vectors */
+  protected int k;
+
+  /** The default desired number of base vectors */
+  protected static final int DEFAULT_K = -1;
+
+  /**
+   * Creates the factory that creates factorizations that compute the maximum number of base
+   * vectors.
+   */
+  public LanczosSingularValueDecompositionFactory() {
+    this.k = DEFAULT_K;
+  }
+
+  public MatrixFactorization factorize(DoubleMatrix2D A) {
+    LanczosSingularValueDecomposition factorization = new LanczosSingularValueDecomposition(A);
+
+    factorization.setK(k);
+    factorization.setAdditionalVectors(additionalVectors.get());
+    factorization.setMaxIterations(maxIterations.get());
+    factorization.setTolerance(tolerance.get());
+    factorization.setSeed(seed.get());
+    factorization.compute();
+
+    return factorization;
+  }
+
+  /**
+   * Sets the number of base vectors <i>k </i>.
+   *
+   * @param k the number of base vectors
+   */
+  public void setK(int k) {
+    this.k = k;
+  }
+
+  /** Returns the number of base vectors <i>k </i>. */
+  public int getK() {
+    return k;
+  }
+}
@@ -17,6 +17,7 @@ import org.carrot2.math.mahout.function.DoubleFunction;
 import org.carrot2.math.mahout.function.Functions;
 import org.carrot2.math.mahout.function.IntIntDoubleFunction;
 import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.CompressedRowDoubleMatrix2D;
 
 /** A set of <code>DoubleMatrix2D</code> shorthands and utility methods. */
 public class MatrixUtils {
@@ -32,6 +33,10 @@ public class MatrixUtils {
    * @return A with length-normalized columns (for convenience only)
    */
   public static DoubleMatrix2D normalizeColumnL2(DoubleMatrix2D A, double[] work) {
+    if (A instanceof CompressedRowDoubleMatrix2D) {
+      return normalizeSparseColumnL2(A, work);
+    }
+
     work = prepareWork(A, work);
 
     // Calculate the L2 norm for each column
@@ -86,8 +91,7 @@ public class MatrixUtils {
         new IntIntDoubleFunction() {
           @Override
           public double apply(int row, int column, double value) {
-            A.setQuick(row, column, value / w[column]);
-            return 0;
+            return value / w[column];
           }
         });
 
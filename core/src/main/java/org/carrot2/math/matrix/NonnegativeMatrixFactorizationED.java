@@ -10,10 +10,10 @@
  */
 package org.carrot2.math.matrix;
 
-import org.carrot2.math.mahout.function.DoubleFunction;
 import org.carrot2.math.mahout.function.Functions;
 import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
 import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.MultiplicativeUpdates;
 
 /**
  * Performs matrix factorization using the Non-negative Matrix Factorization algorithm with
@@ -51,44 +51,56 @@ public class NonnegativeMatrixFactorizationED extends IterativeMatrixFactorizati
     double eps = 1e-9;
 
     // Seed U and V with initial values
-    U = new DenseDoubleMatrix2D(A.rows(), k);
-    V = new DenseDoubleMatrix2D(A.columns(), k);
+    final DenseDoubleMatrix2D U = new DenseDoubleMatrix2D(A.rows(), k);
+    final DenseDoubleMatrix2D V = new DenseDoubleMatrix2D(A.columns(), k);
+    this.U = U;
+    this.V = V;
     seedingStrategy.seed(A, U, V);
 
     // Temporary matrices
-    DoubleMatrix2D T = new DenseDoubleMatrix2D(k, k);
-    DoubleMatrix2D UT1 = new DenseDoubleMatrix2D(A.rows(), k);
-    DoubleMatrix2D UT2 = new DenseDoubleMatrix2D(A.rows(), k);
-    DoubleMatrix2D VT1 = new DenseDoubleMatrix2D(A.columns(), k);
-    DoubleMatrix2D VT2 = new DenseDoubleMatrix2D(A.columns(), k);
-    DoubleFunction plusEps = Functions.plus(eps);
+    DenseDoubleMatrix2D T = new DenseDoubleMatrix2D(k, k);
+    DenseDoubleMatrix2D UTU = new DenseDoubleMatrix2D(k, k);
+    DenseDoubleMatrix2D UT1 = new DenseDoubleMatrix2D(A.rows(), k);
+    DenseDoubleMatrix2D UT2 = new DenseDoubleMatrix2D(A.rows(), k);
+    DenseDoubleMatrix2D VT1 = new DenseDoubleMatrix2D(A.columns(), k);
+    DenseDoubleMatrix2D VT2 = new DenseDoubleMatrix2D(A.columns(), k);
 
+    // ||A - UV'||^2 = ||A||^2 - 2 * sum(U .* AV) + sum(U'U .* V'V), so the approximation error
+    // follows from the products computed by the updates and U'U, without forming UV'.
+    double squaredNormA = 0;
+    boolean utuComputed = false;
     if (stopThreshold >= 0) {
+      squaredNormA = A.aggregate(Functions.PLUS, Functions.SQUARE);
       updateApproximationError();
     }
 
     for (int i = 0; i < maxIterations; i++) {
       // Update V
-      U.zMult(U, T, 1, 0, true, false); // T <- U'U
+      if (!utuComputed) {
+        U.zMult(U, T, 1, 0, true, false); // T <- U'U
+      }
       A.zMult(U, VT1, 1, 0, true, false); // VT1 <- A'U
       V.zMult(T, VT2, 1, 0, false, false); // VT2 <- VT
-      VT1.assign(plusEps);
-      VT2.assign(plusEps);
-      VT1.assign(VT2, Functions.DIV); // VT1 <- VT1 ./ VT2
-      V.assign(VT1, Functions.MULT); // V <- V .* VT1
+      MultiplicativeUpdates.update(V, VT1, VT2, eps); // V <- V .* (VT1 + eps) ./ (VT2 + eps)
 
       // Update U
       V.zMult(V, T, 1, 0, true, false); // T <- V'V
       A.zMult(V, UT1, 1, 0, false, false); // UT1 <- AV
       U.zMult(T, UT2, 1, 0, false, false); // UT2 <- UT
-      UT1.assign(plusEps);
-      UT2.assign(plusEps);
-      UT1.assign(UT2, Functions.DIV); // UT1 <- UT1 ./ UT2
-      U.assign(UT1, Functions.MULT); // U <- U .* UT1
+      final double trace = MultiplicativeUpdates.update(U, UT1, UT2, eps); // U <- U .* ...
 
       iterationsCompleted++;
       if (stopThreshold >= 0) {
-        if (updateApproximationError()) {
+        U.zMult(U, UTU, 1, 0, true, false); // UTU <- U'U
+        final double error = squaredNormA - 2 * trace + MultiplicativeUpdates.dot(UTU, T);
+
+        // Reuse U'U in the next update of V.
+        final DenseDoubleMatrix2D swap = T;
+        T = UTU;
+        UTU = swap;
+        utuComputed = true;
+
+        if (updateApproximationError(Math.sqrt(Math.max(0, error)))) {
           break;
         }
       }
@@ -10,11 +10,9 @@
  */
 package org.carrot2.math.matrix;
 
-import org.carrot2.math.mahout.function.DoubleDoubleFunction;
-import org.carrot2.math.mahout.function.DoubleFunction;
-import org.carrot2.math.mahout.function.Functions;
 import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
 import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.MultiplicativeUpdates;
 
 /**
  * Performs matrix factorization using the Non-negative Matrix Factorization by minimization of
@@ -56,46 +54,44 @@ public class NonnegativeMatrixFactorizationKL extends IterativeMatrixFactorizati
     double eps = 1e-9;
 
     // Seed U and V with initial values
-    U = new DenseDoubleMatrix2D(m, k);
-    V = new DenseDoubleMatrix2D(n, k);
+    final DenseDoubleMatrix2D U = new DenseDoubleMatrix2D(m, k);
+    final DenseDoubleMatrix2D V = new DenseDoubleMatrix2D(n, k);
+    this.U = U;
+    this.V = V;
     seedingStrategy.seed(A, U, V);
 
     // Temporary matrices
-    DoubleMatrix2D Aeps = A.copy();
-    Aeps.assign(Functions.plus(eps));
-    DoubleMatrix2D UV = new DenseDoubleMatrix2D(m, n);
-    DoubleMatrix2D VT = new DenseDoubleMatrix2D(n, k);
-    DoubleMatrix2D UT = new DenseDoubleMatrix2D(m, k);
+    DenseDoubleMatrix2D UV = new DenseDoubleMatrix2D(m, n);
+    DenseDoubleMatrix2D VT = new DenseDoubleMatrix2D(n, k);
+    DenseDoubleMatrix2D UT = new DenseDoubleMatrix2D(m, k);
     double[] work = new double[U.columns()];
 
-    // Colt functions
-    DoubleDoubleFunction invDiv = Functions.swapArgs(Functions.DIV);
-    DoubleFunction plusEps = Functions.plus(eps);
-
+    // The approximation error is computed in the same pass that divides A by UV', so UV' for the
+    // update of V is computed at the end of the previous iteration.
+    U.zMult(V, UV, 1, 0, false, true); // UV <- U*V'
+    double error = MultiplicativeUpdates.divide(UV, A, eps); // UV <- (A + eps) ./ (UV + eps)
     if (stopThreshold >= 0) {
-      updateApproximationError();
+      updateApproximationError(Math.sqrt(error));
     }
 
     for (int i = 0; i < maxIterations; i++) {
       // Update V
-      U.zMult(V, UV, 1, 0, false, true); // UV <- U*V'
-      UV.assign(plusEps); // UV <- UV + eps
-      UV.assign(Aeps, invDiv); // UV <- Aeps ./ UV
       UV.zMult(U, VT, 1, 0, true, false); // VT <- UV' * U
-      V.assign(VT, Functions.MULT); // V <- V .* VT
+      MultiplicativeUpdates.multiply(V, VT); // V <- V .* VT
 
       // Update U
       U.zMult(V, UV, 1, 0, false, true); // UV <- U*V'
-      UV.assign(plusEps); // UV <- UV + eps
-      UV.assign(Aeps, invDiv); // UV <- Aeps ./ UV
+      MultiplicativeUpdates.divide(UV, A, eps); // UV <- (A + eps) ./ (UV + eps)
       UV.zMult(V, UT, 1, 0, false, false); // UT <- UV * V
-      U.assign(UT, Functions.MULT); // U <- U .* UT
+      MultiplicativeUpdates.multiply(U, UT); // U <- U .* UT
 
       MatrixUtils.normalizeColumnL1(U, work);
 
       iterationsCompleted++;
-      if (stopThreshold >= 0) {
-        if (updateApproximationError()) {
+      if (stopThreshold >= 0 || i + 1 < maxIterations) {
+        U.zMult(V, UV, 1, 0, false, true); // UV <- U*V'
+        error = MultiplicativeUpdates.divide(UV, A, eps); // UV <- (A + eps) ./ (UV + eps)
+        if (stopThreshold >= 0 && updateApproximationError(Math.sqrt(error))) {
           break;
         }
       }
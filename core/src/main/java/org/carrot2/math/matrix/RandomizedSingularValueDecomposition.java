@@ -0,0 +1,175 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.matrix;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.carrot2.math.mahout.DenseMatrix;
+import org.carrot2.math.mahout.Matrix;
+import org.carrot2.math.mahout.SingularValueDecomposition;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+
+/**
+ * Computes the top <i>k</i> singular vectors of a matrix using a randomized range finder (Halko,
+ * Martinsson, Tropp: <i>Finding structure with randomness</i>). The column space of <code>A</code>
+ * is sampled with a Gaussian random matrix of <code>k + oversampling</code> columns, refined with
+ * power iterations and orthonormalized. A full SVD is then computed only for the small projection
+ * of <code>A</code> onto that space.
+ *
+ * <p>The random matrix is generated from a fixed seed, so the results are deterministic.
+ */
+public class RandomizedSingularValueDecomposition extends MatrixFactorizationBase
+    implements MatrixFactorization {
+  /** The desired number of base vectors, all vectors are computed if not positive. */
+  protected int k = -1;
+
+  /** The number of additional random samples of the column space. */
+  protected int oversampling = 10;
+
+  /** The number of power iterations refining the sampled column space. */
+  protected int powerIterations = 2;
+
+  /** The seed of the random matrix. */
+  protected long seed;
+
+  /** Singular values */
+  private double[] S;
+
+  public RandomizedSingularValueDecomposition(DoubleMatrix2D A) {
+    super(A);
+  }
+
+  public void compute() {
+    final int rank = Math.min(A.rows(), A.columns());
+    final int components = (k > 0 ? Math.min(k, rank) : rank);
+    final int samples = Math.min(rank, components + oversampling);
+
+    // Sample the column space of A.
+    final Random random = new Random(seed);
+    final DoubleMatrix2D omega = new DenseDoubleMatrix2D(A.columns(), samples);
+    omega.assign((arg) -> random.nextGaussian());
+
+    DoubleMatrix2D Q = A.zMult(omega, null, 1, 0, false, false);
+    orthonormalizeColumns(Q);
+    for (int i = 0; i < powerIterations; i++) {
+      final DoubleMatrix2D Z = A.zMult(Q, null, 1, 0, true, false);
+      orthonormalizeColumns(Z);
+      Q = A.zMult(Z, null, 1, 0, false, false);
+      orthonormalizeColumns(Q);
+    }
+
+    // SVD of B' = A'Q = Ub S Vb', hence A ~ QB = (Q Vb) S Ub'.
+    final DoubleMatrix2D Bt = A.zMult(Q, null, 1, 0, true, false);
+    final SingularValueDecomposition svd =
+        new SingularValueDecomposition(new DenseMatrix(Bt.toArray()));
+
+    U = Q.zMult(toColtMatrix(svd.getV()), null, 1, 0, false, false);
+    V = toColtMatrix(svd.getU());
+    S = svd.getSingularValues();
+
+    if (components < S.length) {
+      U = U.viewPart(0, 0, U.rows(), components);
+      V = V.viewPart(0, 0, V.rows(), components);
+      S = Arrays.copyOf(S, components);
+    }
+  }
+
+  /**
+   * Orthonormalizes columns of <code>M</code> in place using the modified Gram-Schmidt process with
+   * reorthogonalization. Columns linearly dependent on the previous ones are set to zero.
+   */
+  static void orthonormalizeColumns(DoubleMatrix2D M) {
+    final int rows = M.rows();
+    final double[][] columns = M.viewDice().toArray();
+    for (int j = 0; j < columns.length; j++) {
+      final double[] column = columns[j];
+      final double initialNorm = norm(column);
+      for (int pass = 0; pass < 2; pass++) {
+        for (int i = 0; i < j; i++) {
+          final double[] previous = columns[i];
+          double dot = 0;
+          for (int r = 0; r < rows; r++) {
+            dot += previous[r] * column[r];
+          }
+          for (int r = 0; r < rows; r++) {
+            column[r] -= dot * previous[r];
+          }
+        }
+      }
+
+      final double norm = norm(column);
+      if (norm <= initialNorm * 1e-10 || norm == 0) {
+        Arrays.fill(column, 0);
+      } else {
+        for (int r = 0; r < rows; r++) {
+          column[r] /= norm;
+        }
+      }
+
+      for (int r = 0; r < rows; r++) {
+        M.setQuick(r, j, column[r]);
+      }
+    }
+  }
+
+  private static double norm(double[] vector) {
+    double sum = 0;
+    for (double v : vector) {
+      sum += v * v;
+    }
+    return Math.sqrt(sum);
+  }
+
+  private static DenseDoubleMatrix2D toColtMatrix(Matrix m) {
+    DenseDoubleMatrix2D result = new DenseDoubleMatrix2D(m.rowSize(), m.columnSize());
+    for (int r = 0; r < result.rows(); r++) {
+      for (int c = 0; c < result.columns(); c++) {
+        result.setQuick(r, c, m.getQuick(r, c));
+      }
+    }
+    return result;
+  }
+
+  public String toString() {
+    return "RandomizedSVD";
+  }
+
+  /** Returns singular values of the matrix. */
+  public double[] getSingularValues() {
+    return S;
+  }
+
+  /** Sets the number of base vectors <i>k</i>, all vectors are computed if not positive. */
+  public void setK(int k) {
+    this.k = k;
+  }
+
+  /** Returns the number of base vectors <i>k</i>. */
+  public int getK() {
+    return k;
+  }
+
+  /** Sets the number of additional random samples of the column space. */
+  public void setOversampling(int oversampling) {
+    this.oversampling = oversampling;
+  }
+
+  /** Sets the number of power iterations. */
+  public void setPowerIterations(int powerIterations) {
+    this.powerIterations = powerIterations;
+  }
+
+  /** Sets the seed of the random matrix. */
+  public void setSeed(long seed) {
+    this.seed = seed;
+  }
+}
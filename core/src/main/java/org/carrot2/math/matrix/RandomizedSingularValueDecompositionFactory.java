@@ -0,0 +1,86 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.matrix;
+
+import org.carrot2.attrs.AttrComposite;
+import org.carrot2.attrs.AttrInteger;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+
+/**
+ * Performs matrix factorization using the randomized truncated Singular Value Decomposition
+ * algorithm, see {@link RandomizedSingularValueDecomposition}.
+ */
+public class RandomizedSingularValueDecompositionFactory extends AttrComposite
+    implements MatrixFactorizationFactory {
+  /**
+   * The number of additional random samples of the column space. Larger values improve the accuracy
+   * of singular vectors at the cost of factorization time.
+   */
+  public final AttrInteger oversampling =
+      attributes.register(
+          "oversampling",
+          AttrInteger.builder().min(0).max(100).label("Oversampling").defaultValue(10));
+
+  /**
+   * The number of power iterations. Power iterations improve the accuracy of singular vectors when
+   * singular values decay slowly, as is typical for term-document matrices.
+   */
+  public final AttrInteger powerIterations =
+      attributes.register(
+          "powerIterations",
+          AttrInteger.builder().min(0).max(20).label("Power iterations").defaultValue(2));
+
+  /** The seed of the random matrix, fixed so that results are deterministic. */
+  public final AttrInteger seed =
+      attributes.register(
+          "seed", AttrInteger.builder().label("Random matrix seed").defaultValue(0));
+
+  /** The desired number of base vectors */
+  protected int k;
+
+  /** The default desired number of base vectors */
+  protected static final int DEFAULT_K = -1;
+
+  /**
+   * Creates the factory that creates factorizations that compute the maximum number of base
+   * vectors.
+   */
+  public RandomizedSingularValueDecompositionFactory() {
+    this.k = DEFAULT_K;
+  }
+
+  public MatrixFactorization factorize(DoubleMatrix2D A) {
+    RandomizedSingularValueDecomposition factorization =
+        new RandomizedSingularValueDecomposition(A);
+
+    factorization.setK(k);
+    factorization.setOversampling(oversampling.get());
+    factorization.setPowerIterations(powerIterations.get());
+    factorization.setSeed(seed.get());
+    factorization.compute();
+
+    return factorization;
+  }
+
+  /**
+   * Sets the number of base vectors <i>k </i>.
+   *
+   * @param k the number of base vectors
+   */
+  public void setK(int k) {
+    this.k = k;
+  }
+
+  /** Returns the number of base vectors <i>k </i>. */
+  public int getK() {
+    return k;
+  }
+}
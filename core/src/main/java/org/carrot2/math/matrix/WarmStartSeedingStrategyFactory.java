@@ -0,0 +1,190 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.matrix;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+
+/**
+ * Seeds factorizations with base vectors cached from previous factorizations of similar matrices,
+ * for example term-document matrices of subsequent pages or refinements of the same query. Rows of
+ * the factorized matrices are identified by keys (such as stem images), so that the cached rows of
+ * <i>U</i> can be aligned to the rows of a new matrix with different rows or a different row order.
+ *
+ * <p>Factorizations are seeded with {@link #createSeedingStrategy(String[])}, their results are
+ * stored with {@link #update(String[], DoubleMatrix2D)}. Rows of <i>U</i> not found in the cache
+ * are seeded with the average of the cached rows, <i>V</i> is seeded with the fallback strategy. If
+ * no rows are found, the fallback strategy seeds both matrices. The cache keeps a limited number of
+ * the most recently used rows and can be shared between threads.
+ *
+ * <p>Warm starts reduce the number of iterations only for factorizations that stop on convergence,
+ * see {@link IterativeMatrixFactorizationFactory#setStopThreshold(double)}.
+ */
+public class WarmStartSeedingStrategyFactory implements SeedingStrategyFactory {
+  /** The default maximum number of cached rows */
+  public static final int DEFAULT_MAX_CACHED_ROWS = 100_000;
+
+  /**
+   * The minimum value of a warm-started element of <i>U</i>. Multiplicative updates never change
+   * zero elements, so elements close to zero are lifted.
+   */
+  private static final double MIN_SEED_VALUE = 1e-3;
+
+  /** Seeding of <i>V</i> and of the factorizations with no cached rows */
+  private final SeedingStrategyFactory fallbackFactory;
+
+  private final int maxCachedRows;
+
+  /** Cached rows of <i>U</i>, in the order of access */
+  private final LinkedHashMap<String, double[]> cache;
+
+  private long lookups;
+  private long hits;
+
+  /** Creates the factory with random seeding as the fallback strategy. */
+  public WarmStartSeedingStrategyFactory() {
+    this(DEFAULT_MAX_CACHED_ROWS, new RandomSeedingStrategyFactory(0));
+  }
+
+  /**
+   * Creates the factory.
+   *
+   * @param maxCachedRows the maximum number of cached rows of <i>U</i>
+   * @param fallbackFactory seeding strategy for rows not found in the cache
+   */
+  public WarmStartSeedingStrategyFactory(
+      int maxCachedRows, SeedingStrategyFactory fallbackFactory) {
+    if (maxCachedRows < 0) {
+      throw new IllegalArgumentException("The maximum number of cached rows must be >= 0");
+    }
+    this.maxCachedRows = maxCachedRows;
+    this.fallbackFactory = fallbackFactory;
+    this.cache =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, double[]> eldest) {
+            return size() > WarmStartSeedingStrategyFactory.this.maxCachedRows;
+          }
+        };
+  }
+
+  /** Creates a strategy that does not use the cache, rows of the matrix are not known. */
+  @Override
+  public SeedingStrategy createSeedingStrategy() {
+    return fallbackFactory.createSeedingStrategy();
+  }
+
+  /**
+   * Creates a strategy seeding the factorization of a matrix with rows identified by the provided
+   * keys.
+   */
+  public SeedingStrategy createSeedingStrategy(String[] rowKeys) {
+    final SeedingStrategy fallback = fallbackFactory.createSeedingStrategy();
+    return new SeedingStrategy() {
+      @Override
+      public void seed(DoubleMatrix2D A, DoubleMatrix2D U, DoubleMatrix2D V) {
+        fallback.seed(A, U, V);
+        if (U.rows() != rowKeys.length) {
+          throw new IllegalArgumentException("Row keys do not match the rows of U");
+        }
+
+        final boolean[] found = new boolean[U.rows()];
+        if (lookup(rowKeys, U, found) == 0) {
+          return;
+        }
+
+        final double[] average = new double[U.columns()];
+        int count = 0;
+        for (int r = 0; r < U.rows(); r++) {
+          if (found[r]) {
+            count++;
+            for (int c = 0; c < average.length; c++) {
+              average[c] += U.getQuick(r, c);
+            }
+          }
+        }
+
+        for (int r = 0; r < U.rows(); r++) {
+          for (int c = 0; c < average.length; c++) {
+            final double value = found[r] ? U.getQuick(r, c) : average[c] / count;
+            U.setQuick(r, c, Math.max(value, MIN_SEED_VALUE));
+          }
+        }
+      }
+
+      @Override
+      public String toString() {
+        return "W" + fallback;
+      }
+    };
+  }
+
+  /**
+   * Copies the cached rows of <i>U</i> with the provided keys and marks them as found. Only rows
+   * with the same number of columns as <code>U</code> are used.
+   *
+   * @return the number of rows found
+   */
+  private synchronized int lookup(String[] rowKeys, DoubleMatrix2D U, boolean[] found) {
+    int rowHits = 0;
+    for (int r = 0; r < rowKeys.length; r++) {
+      final double[] cached = cache.get(rowKeys[r]);
+      if (cached != null && cached.length == U.columns()) {
+        for (int c = 0; c < cached.length; c++) {
+          U.setQuick(r, c, cached[c]);
+        }
+        found[r] = true;
+        rowHits++;
+      }
+    }
+
+    lookups += rowKeys.length;
+    hits += rowHits;
+    return rowHits;
+  }
+
+  /** Stores the rows of a factorization result <i>U</i> with the provided keys in the cache. */
+  public synchronized void update(String[] rowKeys, DoubleMatrix2D U) {
+    if (U.rows() != rowKeys.length) {
+      throw new IllegalArgumentException("Row keys do not match the rows of U");
+    }
+    for (int r = 0; r < rowKeys.length; r++) {
+      cache.put(rowKeys[r], U.viewRow(r).toArray());
+    }
+  }
+
+  /** Returns the maximum number of cached rows of <i>U</i>. */
+  public int getMaxCachedRows() {
+    return maxCachedRows;
+  }
+
+  /** Returns the number of currently cached rows of <i>U</i>. */
+  public synchronized int getCachedRows() {
+    return cache.size();
+  }
+
+  /** Returns the fraction of rows of seeded matrices found in the cache. */
+  public synchronized double getHitRate() {
+    return lookups == 0 ? 0 : hits / (double) lookups;
+  }
+
+  /** Removes all cached rows and resets the hit rate. */
+  public synchronized void clear() {
+    cache.clear();
+    lookups = 0;
+    hits = 0;
+  }
+
+  public String toString() {
+    return "W" + fallbackFactory;
+  }
+}
@@ -11,7 +11,9 @@
 package org.carrot2.text.preprocessing;
 
 import java.util.stream.Stream;
+import org.carrot2.attrs.AttrBoolean;
 import org.carrot2.attrs.AttrComposite;
+import org.carrot2.attrs.AttrEnum;
 import org.carrot2.attrs.AttrInteger;
 import org.carrot2.clustering.Document;
 import org.carrot2.language.LanguageComponents;
@@ -41,6 +43,49 @@ public class BasicPreprocessingPipeline extends AttrComposite implements Context
               .label("Word document frequency threshold")
               .defaultValue(1));
 
+  /**
+   * Tokenize input documents in parallel. If enabled and the number of documents is large enough,
+   * consecutive ranges of documents are tokenized concurrently on the common fork-join pool. The
+   * results are identical to sequential tokenization.
+   */
+  public final AttrBoolean parallelTokenization =
+      attributes.register(
+          "parallelTokenization",
+          AttrBoolean.builder().label("Parallel tokenization").defaultValue(false));
+
+  /**
+   * Reuse temporary buffers of preprocessing across requests. If enabled, each thread keeps an
+   * arena of cleared buffers (see {@link PreprocessingArena}) instead of allocating them for every
+   * request.
+   */
+  public final AttrBoolean pooledArenas =
+      attributes.register(
+          "pooledArenas",
+          AttrBoolean.builder().label("Reuse preprocessing buffers").defaultValue(false));
+
+  /**
+   * The maximum size of buffers retained by a thread's arena between requests, in megabytes. If
+   * preprocessing grows buffers above this size, they are deallocated when preprocessing completes.
+   */
+  public final AttrInteger maxArenaSize =
+      attributes.register(
+          "maxArenaSize",
+          AttrInteger.builder()
+              .min(0)
+              .label("Maximum retained preprocessing buffer size (MB)")
+              .defaultValue(32));
+
+  /**
+   * Case normalization algorithm. Both algorithms produce identical results, hashing avoids sorting
+   * all tokens and is faster on large inputs.
+   */
+  public final AttrEnum<CaseNormalizationAlgorithm> caseNormalization =
+      attributes.register(
+          "caseNormalization",
+          AttrEnum.builder(CaseNormalizationAlgorithm.class)
+              .label("Case normalization algorithm")
+              .defaultValue(CaseNormalizationAlgorithm.HASHING));
+
   /** Case normalizer used by the algorithm. */
   protected final CaseNormalizer caseNormalizer = new CaseNormalizer();
 
@@ -59,9 +104,13 @@ public class BasicPreprocessingPipeline extends AttrComposite implements Context
    */
   public PreprocessingContext preprocess(
       Stream<? extends Document> documents, String query, LanguageComponents langModel) {
-    try (PreprocessingContext context = new PreprocessingContext(langModel)) {
-      tokenizer.tokenize(context, documents);
-      caseNormalizer.normalize(context, wordDfThreshold.get());
+    final PreprocessingArena arena =
+        pooledArenas.get()
+            ? PreprocessingArena.acquire(maxArenaSize.get() * (1L << 20))
+            : PreprocessingArena.unpooled();
+    try (PreprocessingContext context = new PreprocessingContext(langModel, arena)) {
+      tokenizer.tokenize(context, documents, parallelTokenization.get());
+      caseNormalizer.normalize(context, wordDfThreshold.get(), caseNormalization.get());
       stemming.stem(context, query);
       stopListMarker.mark(context);
       return context;
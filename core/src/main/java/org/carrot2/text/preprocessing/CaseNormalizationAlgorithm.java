@@ -0,0 +1,20 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+/** Algorithm used by {@link CaseNormalizer} to group case variants of words. */
+public enum CaseNormalizationAlgorithm {
+  /** Sorts unique token images and groups adjacent case variants. */
+  SORTING,
+
+  /** Groups case variants in a hash table keyed by the lower-case token image. */
+  HASHING;
+}
@@ -11,14 +11,18 @@
 package org.carrot2.text.preprocessing;
 
 import com.carrotsearch.hppc.*;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
 import com.carrotsearch.hppc.sorting.IndirectSort;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.carrot2.language.Tokenizer;
+import org.carrot2.text.preprocessing.PreprocessingContext.AllTokenImages;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllTokens;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllWords;
 import org.carrot2.util.CharArrayComparators;
+import org.carrot2.util.CharArrayUtils;
+import org.carrot2.util.MutableCharArray;
 
 /**
  * Performs case normalization and calculates a number of frequency statistics for words. The aim of
@@ -36,30 +40,54 @@ import org.carrot2.util.CharArrayComparators;
  *   <li>{@link AllWords#tfByDocument}
  * </ul>
  *
+ * <p>Token images are grouped by their {@link AllTokens#imageId}, so only unique images are
+ * compared and sorted, directly in the {@link AllTokenImages} arena. Only the images of words get
+ * their own <code>char[]</code>.
+ *
  * <p>This class requires that {@link InputTokenizer} be invoked first.
  */
 final class CaseNormalizer {
   /** Performs normalization and saves the results to the <code>context</code>. */
   public void normalize(PreprocessingContext context, int dfThreshold) {
+    normalize(context, dfThreshold, CaseNormalizationAlgorithm.SORTING);
+  }
+
+  /**
+   * Performs normalization with the given algorithm and saves the results to the <code>context
+   * </code>. Both algorithms produce identical results.
+   */
+  public void normalize(
+      PreprocessingContext context, int dfThreshold, CaseNormalizationAlgorithm algorithm) {
+    switch (algorithm) {
+      case SORTING:
+        normalizeBySorting(context, dfThreshold);
+        break;
+      case HASHING:
+        normalizeByHashing(context, dfThreshold);
+        break;
+      default:
+        throw new RuntimeException("Unhandled case: " + algorithm);
+    }
+  }
+
+  private void normalizeBySorting(PreprocessingContext context, int dfThreshold) {
     // Local references to already existing arrays
-    final char[][] tokenImages = context.allTokens.image;
     final short[] tokenTypesArray = context.allTokens.type;
     final int[] documentIndexesArray = context.allTokens.documentIndex;
     final byte[] tokensFieldIndex = context.allTokens.fieldIndex;
-    final int tokenCount = tokenImages.length;
+    final int[] tokenImageIds = context.allTokens.imageId;
+    final char[] arena = context.allTokenImages.arena;
+    final int[] imageOffset = context.allTokenImages.offset;
+    final int[] imageLength = context.allTokenImages.length;
+    final int tokenCount = tokenImageIds.length;
 
     // Sort token images
-    final int[] tokenImagesOrder =
-        IndirectSort.mergesort(
-            tokenImages,
-            0,
-            tokenImages.length,
-            CharArrayComparators.NORMALIZING_CHAR_ARRAY_COMPARATOR);
+    final int[] tokenImagesOrder = sortByImage(tokenImageIds, context.allTokenImages);
 
     // Create holders for new arrays
     final List<char[]> normalizedWordImages = new ArrayList<>();
     final IntArrayList normalizedWordTf = new IntArrayList();
-    final List<int[]> wordTfByDocumentList = new ArrayList<>();
+    final SparseTfByDocument.Builder wordTfByDocument = context.arena.tfByDocumentBuilder();
     final ByteArrayList fieldIndexList = new ByteArrayList();
     final ShortArrayList types = new ShortArrayList();
 
@@ -85,13 +113,13 @@ final class CaseNormalizer {
 
     // Go through the ordered token images
     for (int i = 0; i < tokenImagesOrder.length - 1; i++) {
-      final char[] image = tokenImages[tokenImagesOrder[i]];
-      final char[] nextImage = tokenImages[tokenImagesOrder[i + 1]];
+      final int image = tokenImageIds[tokenImagesOrder[i]];
+      final int nextImage = tokenImageIds[tokenImagesOrder[i + 1]];
       final int tokenType = tokenTypesArray[tokenImagesOrder[i]];
       final int documentIndex = documentIndexesArray[tokenImagesOrder[i + 1]];
 
-      // Reached the end of non-null tokens?
-      if (image == null) {
+      // Reached the end of tokens with images?
+      if (image < 0) {
         break;
       }
 
@@ -108,8 +136,7 @@ final class CaseNormalizer {
       fieldIndices.set(tokensFieldIndex[tokenImagesOrder[i]]);
 
       // Now check if image case is changing
-      final boolean sameCase =
-          CharArrayComparators.FAST_CHAR_ARRAY_COMPARATOR.compare(image, nextImage) == 0;
+      final boolean sameCase = image == nextImage;
       if (sameCase) {
         // Case has not changed, just increase counters
         tf++;
@@ -127,8 +154,15 @@ final class CaseNormalizer {
       }
 
       final boolean sameImage =
-          CharArrayComparators.CASE_INSENSITIVE_CHAR_ARRAY_COMPARATOR.compare(image, nextImage)
-              == 0;
+          nextImage >= 0
+              && CharArrayComparators.caseInsensitiveCompare(
+                      arena,
+                      imageOffset[image],
+                      imageLength[image],
+                      arena,
+                      imageOffset[nextImage],
+                      imageLength[nextImage])
+                  == 0;
 
       // Check if token image has changed
       if (sameImage) {
@@ -143,14 +177,15 @@ final class CaseNormalizer {
         // wordDocuments.size() may contain duplicate entries from the same document,
         // but this check is faster than deduping, so we do it first.
         if (wordDocuments.size() >= dfThreshold) {
-          // Flatten the list of documents this term occurred in.
-          final int[] sparseEncoding = SparseArray.toSparseEncoding(wordDocuments);
-          final int df = (sparseEncoding.length >> 1);
+          // Count the documents this term occurred in.
+          Arrays.sort(wordDocuments.buffer, 0, wordDocuments.size());
+          final int df = SparseArray.countUnique(wordDocuments.buffer, 0, wordDocuments.size());
           if (df >= dfThreshold) {
-            wordTfByDocumentList.add(sparseEncoding);
+            wordTfByDocument.addDocuments(wordDocuments.buffer, 0, wordDocuments.size());
+            wordTfByDocument.endFeature();
 
             // Add the word to the word list
-            normalizedWordImages.add(tokenImages[maxTfVariantIndex]);
+            normalizedWordImages.add(context.image(tokenImageIds[maxTfVariantIndex]));
             types.add(tokenTypesArray[maxTfVariantIndex]);
             normalizedWordTf.add(totalTf);
             fieldIndexList.add((byte) fieldIndices.bits[0]);
@@ -181,12 +216,280 @@ final class CaseNormalizer {
 
     context.allWords.image = normalizedWordImages.toArray(new char[normalizedWordImages.size()][]);
     context.allWords.tf = normalizedWordTf.toArray();
-    context.allWords.tfByDocument =
-        wordTfByDocumentList.toArray(new int[wordTfByDocumentList.size()][]);
+    context.allWords.tfByDocument = wordTfByDocument.build();
     context.allWords.fieldIndices = fieldIndexList.toArray();
     context.allWords.type = types.toArray();
   }
 
+  /**
+   * Groups case variants of token images in a hash table keyed by the lower-case image, in expected
+   * linear time. Tokens are then bucketed by their group. Only the words that pass the document
+   * frequency threshold are finally sorted (one entry per word, not per token), so that word
+   * indexes are identical to those produced by {@link #normalizeBySorting}.
+   */
+  private void normalizeByHashing(PreprocessingContext context, int dfThreshold) {
+    // Local references to already existing arrays
+    final short[] tokenTypesArray = context.allTokens.type;
+    final int[] documentIndexesArray = context.allTokens.documentIndex;
+    final byte[] tokensFieldIndex = context.allTokens.fieldIndex;
+    final int[] tokenImageIds = context.allTokens.imageId;
+    final AllTokenImages images = context.allTokenImages;
+    final char[] arena = images.arena;
+    final int[] imageOffset = images.offset;
+    final int[] imageLength = images.length;
+    final int tokenCount = tokenImageIds.length;
+    final int imageCount = images.size();
+
+    // Assign each image to a group of its case variants, count tokens of each image.
+    final int[] imageGroup = new int[imageCount];
+    Arrays.fill(imageGroup, -1);
+    final int[] imageTf = new int[imageCount];
+    final int[] imageFirstToken = new int[imageCount];
+    final int[] imageLastToken = new int[imageCount];
+    final ObjectIntHashMap<MutableCharArray> groups = context.arena.caseGroups;
+    groups.clear();
+    final MutableCharArray key = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
+    char[] buffer = new char[16];
+
+    for (int i = 0; i < tokenCount; i++) {
+      final int imageId = tokenImageIds[i];
+      if (imageId < 0 || isNotIndexed(tokenTypesArray[i])) {
+        continue;
+      }
+
+      if (imageGroup[imageId] < 0) {
+        final int offset = imageOffset[imageId];
+        final int length = imageLength[imageId];
+        if (buffer.length < 2 * length) {
+          buffer = new char[2 * length];
+        }
+
+        int keyLength = 0;
+        for (int j = 0; j < length; ) {
+          final int codePoint = Character.codePointAt(arena, offset + j, offset + length);
+          keyLength += Character.toChars(Character.toLowerCase(codePoint), buffer, keyLength);
+          j += Character.charCount(codePoint);
+        }
+        key.reset(buffer, 0, keyLength);
+
+        final int index = groups.indexOf(key);
+        if (groups.indexExists(index)) {
+          imageGroup[imageId] = groups.indexGet(index);
+        } else {
+          imageGroup[imageId] = groups.size();
+          groups.indexInsert(
+              index, new MutableCharArray(Arrays.copyOf(buffer, keyLength)), groups.size());
+        }
+        imageFirstToken[imageId] = i;
+      }
+
+      imageTf[imageId]++;
+      imageLastToken[imageId] = i;
+    }
+
+    // Bucket tokens and images by their group, preserving the order of first appearance.
+    final int groupCount = groups.size();
+    final int[] groupTokenStart = new int[groupCount + 1];
+    final int[] groupImageStart = new int[groupCount + 1];
+    for (int imageId = 0; imageId < imageCount; imageId++) {
+      final int group = imageGroup[imageId];
+      if (group >= 0) {
+        groupTokenStart[group + 1] += imageTf[imageId];
+        groupImageStart[group + 1]++;
+      }
+    }
+    for (int g = 0; g < groupCount; g++) {
+      groupTokenStart[g + 1] += groupTokenStart[g];
+      groupImageStart[g + 1] += groupImageStart[g];
+    }
+
+    final int[] groupTokens = new int[groupTokenStart[groupCount]];
+    final int[] tokenFill = Arrays.copyOf(groupTokenStart, groupCount);
+    for (int i = 0; i < tokenCount; i++) {
+      final int imageId = tokenImageIds[i];
+      if (imageId >= 0 && !isNotIndexed(tokenTypesArray[i])) {
+        groupTokens[tokenFill[imageGroup[imageId]]++] = i;
+      }
+    }
+
+    final int[] groupImages = new int[groupImageStart[groupCount]];
+    final int[] imageFill = Arrays.copyOf(groupImageStart, groupCount);
+    for (int imageId = 0; imageId < imageCount; imageId++) {
+      final int group = imageGroup[imageId];
+      if (group >= 0) {
+        groupImages[imageFill[group]++] = imageId;
+      }
+    }
+
+    final IndirectComparator imageComparator =
+        (a, b) ->
+            CharArrayComparators.normalizingCompare(
+                arena, imageOffset[a], imageLength[a], arena, imageOffset[b], imageLength[b]);
+
+    // Compute statistics for each group.
+    final int[] groupRepresentativeToken = new int[groupCount];
+    final byte[] groupFieldIndices = new byte[groupCount];
+    final IntArrayList retainedGroups = new IntArrayList();
+    final BitSet fieldIndices = new BitSet(context.allFields.name.length);
+
+    for (int g = 0; g < groupCount; g++) {
+      final int tokensStart = groupTokenStart[g];
+      final int tokensEnd = groupTokenStart[g + 1];
+      if (tokensEnd - tokensStart < dfThreshold) {
+        continue;
+      }
+
+      // Tokens of each group are in document order, so are their documents.
+      fieldIndices.clear();
+      int df = 0;
+      int lastDocument = -1;
+      for (int j = tokensStart; j < tokensEnd; j++) {
+        final int token = groupTokens[j];
+        if (documentIndexesArray[token] != lastDocument) {
+          lastDocument = documentIndexesArray[token];
+          df++;
+        }
+        fieldIndices.set(tokensFieldIndex[token]);
+      }
+
+      if (df < dfThreshold) {
+        continue;
+      }
+
+      // Select the most frequent variant, visiting variants in the same order and with the same
+      // counter updates as the sorting algorithm does.
+      final int imagesStart = groupImageStart[g];
+      final int imagesEnd = groupImageStart[g + 1];
+      final int[] variants =
+          imagesEnd - imagesStart == 1
+              ? new int[] {groupImages[imagesStart]}
+              : sortedVariants(groupImages, imagesStart, imagesEnd, imageComparator);
+
+      int tf = 1;
+      int maxTf = 1;
+      int representativeToken = imageFirstToken[variants[0]];
+      for (int variant : variants) {
+        tf += imageTf[variant] - 1;
+        if (maxTf < tf) {
+          maxTf = tf;
+          representativeToken = imageLastToken[variant];
+          tf = 1;
+        }
+      }
+
+      groupRepresentativeToken[g] = representativeToken;
+      groupFieldIndices[g] = (byte) fieldIndices.bits[0];
+      retainedGroups.add(g);
+    }
+
+    // Order words just like the sorting algorithm does: by any of their variants' images.
+    final int[] retained = retainedGroups.toArray();
+    final int[] wordsOrder =
+        IndirectSort.mergesort(
+            0,
+            retained.length,
+            (a, b) ->
+                imageComparator.compare(
+                    tokenImageIds[groupTokens[groupTokenStart[retained[a]]]],
+                    tokenImageIds[groupTokens[groupTokenStart[retained[b]]]]));
+
+    final int[] wordIndexes = new int[tokenCount];
+    Arrays.fill(wordIndexes, -1);
+    final char[][] wordImages = new char[retained.length][];
+    final short[] wordTypes = new short[retained.length];
+    final int[] wordTf = new int[retained.length];
+    final SparseTfByDocument.Builder wordTfByDocument = context.arena.tfByDocumentBuilder();
+    final byte[] wordFieldIndices = new byte[retained.length];
+
+    for (int wordIndex = 0; wordIndex < wordsOrder.length; wordIndex++) {
+      final int g = retained[wordsOrder[wordIndex]];
+      final int representativeToken = groupRepresentativeToken[g];
+      wordImages[wordIndex] = context.image(tokenImageIds[representativeToken]);
+      wordTypes[wordIndex] = tokenTypesArray[representativeToken];
+      wordTf[wordIndex] = groupTokenStart[g + 1] - groupTokenStart[g];
+      wordFieldIndices[wordIndex] = groupFieldIndices[g];
+
+      int lastDocument = -1;
+      int documentTf = 0;
+      for (int j = groupTokenStart[g]; j < groupTokenStart[g + 1]; j++) {
+        final int token = groupTokens[j];
+        wordIndexes[token] = wordIndex;
+        if (documentIndexesArray[token] != lastDocument) {
+          if (documentTf > 0) {
+            wordTfByDocument.add(lastDocument, documentTf);
+          }
+          lastDocument = documentIndexesArray[token];
+          documentTf = 0;
+        }
+        documentTf++;
+      }
+      wordTfByDocument.add(lastDocument, documentTf);
+      wordTfByDocument.endFeature();
+    }
+
+    // Mapping from allTokens
+    context.allTokens.wordIndex = wordIndexes;
+
+    context.allWords.image = wordImages;
+    context.allWords.tf = wordTf;
+    context.allWords.tfByDocument = wordTfByDocument.build();
+    context.allWords.fieldIndices = wordFieldIndices;
+    context.allWords.type = wordTypes;
+  }
+
+  /** Returns image identifiers of case variants in the order imposed by the comparator. */
+  private static int[] sortedVariants(
+      int[] groupImages, int from, int to, IndirectComparator imageComparator) {
+    final int[] order =
+        IndirectSort.mergesort(
+            0,
+            to - from,
+            (a, b) -> imageComparator.compare(groupImages[from + a], groupImages[from + b]));
+    final int[] variants = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      variants[i] = groupImages[from + order[i]];
+    }
+    return variants;
+  }
+
+  /**
+   * Returns the order of tokens equal to a stable sort of their images with {@link
+   * CharArrayComparators#NORMALIZING_CHAR_ARRAY_COMPARATOR}. Only unique images are sorted, tokens
+   * are then distributed according to the rank of their image. Tokens without an image come last.
+   */
+  static int[] sortByImage(int[] tokenImageIds, AllTokenImages images) {
+    final char[] arena = images.arena;
+    final int[] offset = images.offset;
+    final int[] length = images.length;
+    final int[] imagesOrder =
+        IndirectSort.mergesort(
+            0,
+            images.size(),
+            (a, b) ->
+                CharArrayComparators.normalizingCompare(
+                    arena, offset[a], length[a], arena, offset[b], length[b]));
+
+    // Start position of each image's tokens in the result, nulls go last.
+    final int[] imageStart = new int[images.size() + 1];
+    for (int imageId : tokenImageIds) {
+      imageStart[imageId < 0 ? images.size() : imageId]++;
+    }
+    for (int i = 0, start = 0; i < imagesOrder.length; i++) {
+      final int imageId = imagesOrder[i];
+      final int count = imageStart[imageId];
+      imageStart[imageId] = start;
+      start += count;
+    }
+    imageStart[images.size()] = tokenImageIds.length - imageStart[images.size()];
+
+    final int[] order = new int[tokenImageIds.length];
+    for (int i = 0; i < tokenImageIds.length; i++) {
+      final int imageId = tokenImageIds[i];
+      order[imageStart[imageId < 0 ? images.size() : imageId]++] = i;
+    }
+    return order;
+  }
+
   /** Initializes the counters for the a token image. */
   private void resetForNewTokenImage(
       final int[] documentIndexesArray,
@@ -11,7 +11,9 @@
 package org.carrot2.text.preprocessing;
 
 import java.util.stream.Stream;
+import org.carrot2.attrs.AttrBoolean;
 import org.carrot2.attrs.AttrComposite;
+import org.carrot2.attrs.AttrEnum;
 import org.carrot2.attrs.AttrInteger;
 import org.carrot2.attrs.AttrObject;
 import org.carrot2.clustering.Document;
@@ -58,6 +60,109 @@ public class CompletePreprocessingPipeline extends AttrComposite implements Cont
               .label("Phrase document frequency threshold")
               .defaultValue(1));
 
+  /** Minimum phrase length. Phrases shorter than <code>minPhraseLength</code> words are ignored. */
+  public final AttrInteger minPhraseLength =
+      attributes.register(
+          "minPhraseLength",
+          AttrInteger.builder()
+              .min(2)
+              .max(32)
+              .label("Minimum phrase length")
+              .defaultValue(PhraseExtractor.MIN_PHRASE_LENGTH));
+
+  /**
+   * Maximum phrase length. Longer phrases are truncated to <code>maxPhraseLength</code> words. The
+   * cost of phrase extraction grows with the square of this value on highly repetitive input.
+   */
+  public final AttrInteger maxPhraseLength =
+      attributes.register(
+          "maxPhraseLength",
+          AttrInteger.builder()
+              .min(2)
+              .max(32)
+              .label("Maximum phrase length")
+              .defaultValue(PhraseExtractor.MAX_PHRASE_LENGTH));
+
+  /**
+   * The maximum number of phrase candidates kept in memory during phrase extraction, 0 means no
+   * limit. When the limit is exceeded, the phrase document frequency threshold is raised and
+   * candidates below it are discarded, so repetitive input (logs, templated pages) cannot exhaust
+   * memory. At most <code>maxPhraseCandidates</code> phrase variants remain after extraction.
+   */
+  public final AttrInteger maxPhraseCandidates =
+      attributes.register(
+          "maxPhraseCandidates",
+          AttrInteger.builder()
+              .min(0)
+              .max(100_000_000)
+              .label("Maximum number of phrase candidates")
+              .defaultValue(0));
+
+  /**
+   * Tokenize input documents in parallel. If enabled and the number of documents is large enough,
+   * consecutive ranges of documents are tokenized concurrently on the common fork-join pool. The
+   * results are identical to sequential tokenization.
+   */
+  public final AttrBoolean parallelTokenization =
+      attributes.register(
+          "parallelTokenization",
+          AttrBoolean.builder().label("Parallel tokenization").defaultValue(false));
+
+  /**
+   * Reuse temporary buffers of preprocessing across requests. If enabled, each thread keeps an
+   * arena of cleared buffers (see {@link PreprocessingArena}) instead of allocating them for every
+   * request.
+   */
+  public final AttrBoolean pooledArenas =
+      attributes.register(
+          "pooledArenas",
+          AttrBoolean.builder().label("Reuse preprocessing buffers").defaultValue(false));
+
+  /**
+   * The maximum size of buffers retained by a thread's arena between requests, in megabytes. If
+   * preprocessing grows buffers above this size, they are deallocated when preprocessing completes.
+   */
+  public final AttrInteger maxArenaSize =
+      attributes.register(
+          "maxArenaSize",
+          AttrInteger.builder()
+              .min(0)
+              .label("Maximum retained preprocessing buffer size (MB)")
+              .defaultValue(32));
+
+  /**
+   * Case normalization algorithm. Both algorithms produce identical results, hashing avoids sorting
+   * all tokens and is faster on large inputs.
+   */
+  public final AttrEnum<CaseNormalizationAlgorithm> caseNormalization =
+      attributes.register(
+          "caseNormalization",
+          AttrEnum.builder(CaseNormalizationAlgorithm.class)
+              .label("Case normalization algorithm")
+              .defaultValue(CaseNormalizationAlgorithm.HASHING));
+
+  /**
+   * Suffix sorting algorithm used for phrase extraction. Both algorithms produce identical results,
+   * the linear-time algorithm is faster on large inputs with many repeated phrases.
+   */
+  public final AttrEnum<SuffixSortingAlgorithm> suffixSorting =
+      attributes.register(
+          "suffixSorting",
+          AttrEnum.builder(SuffixSortingAlgorithm.class)
+              .label("Suffix sorting algorithm")
+              .defaultValue(SuffixSortingAlgorithm.SAIS));
+
+  /**
+   * Phrase frequency counting algorithm. Both algorithms produce identical results, counting over
+   * suffix ranges does not allocate a hash map for each phrase candidate.
+   */
+  public final AttrEnum<PhraseCountingAlgorithm> phraseCounting =
+      attributes.register(
+          "phraseCounting",
+          AttrEnum.builder(PhraseCountingAlgorithm.class)
+              .label("Phrase counting algorithm")
+              .defaultValue(PhraseCountingAlgorithm.SUFFIX_RANGES));
+
   /** Label filtering is a composite of individual filters. */
   public LabelFilterProcessor labelFilters = new LabelFilterProcessor();
 
@@ -96,12 +201,23 @@ public class CompletePreprocessingPipeline extends AttrComposite implements Cont
 
   public PreprocessingContext preprocess(
       Stream<? extends Document> documents, String query, LanguageComponents langModel) {
-    try (PreprocessingContext context = new PreprocessingContext(langModel)) {
-      tokenizer.tokenize(context, documents);
-      caseNormalizer.normalize(context, wordDfThreshold.get());
+    final PreprocessingArena arena =
+        pooledArenas.get()
+            ? PreprocessingArena.acquire(maxArenaSize.get() * (1L << 20))
+            : PreprocessingArena.unpooled();
+    try (PreprocessingContext context = new PreprocessingContext(langModel, arena)) {
+      tokenizer.tokenize(context, documents, parallelTokenization.get());
+      caseNormalizer.normalize(context, wordDfThreshold.get(), caseNormalization.get());
       stemming.stem(context, query);
       stopListMarker.mark(context);
-      new PhraseExtractor(phraseDfThreshold.get()).extractPhrases(context);
+      new PhraseExtractor(
+              phraseDfThreshold.get(),
+              suffixSorting.get(),
+              phraseCounting.get(),
+              minPhraseLength.get(),
+              maxPhraseLength.get(),
+              maxPhraseCandidates.get())
+          .extractPhrases(context);
       labelFilters.process(context);
       documentAssigner.assign(context);
       return context;
@@ -57,26 +57,27 @@ public class DocumentAssigner extends AttrComposite {
   /** Assigns document to label candidates. */
   void assign(PreprocessingContext context) {
     final int[] labelsFeatureIndex = context.allLabels.featureIndex;
-    final int[][] stemsTfByDocument = context.allStems.tfByDocument;
+    final SparseTfByDocument stemsTfByDocument = context.allStems.tfByDocument;
     final int[] wordsStemIndex = context.allWords.stemIndex;
     final short[] wordsTypes = context.allWords.type;
-    final int[][] phrasesTfByDocument = context.allPhrases.tfByDocument;
+    final SparseTfByDocument phrasesTfByDocument = context.allPhrases.tfByDocument;
     final int[][] phrasesWordIndices = context.allPhrases.wordIndices;
     final int wordCount = wordsStemIndex.length;
     final int documentCount = context.documentCount;
 
     final BitSet[] labelsDocumentIndices = new BitSet[labelsFeatureIndex.length];
+    final BitSet temp = new BitSet(documentCount);
 
     for (int i = 0; i < labelsFeatureIndex.length; i++) {
       final BitSet documentIndices = new BitSet(documentCount);
 
       final int featureIndex = labelsFeatureIndex[i];
       if (featureIndex < wordCount) {
-        addTfByDocumentToBitSet(documentIndices, stemsTfByDocument[wordsStemIndex[featureIndex]]);
+        stemsTfByDocument.addDocuments(wordsStemIndex[featureIndex], documentIndices);
       } else {
         final int phraseIndex = featureIndex - wordCount;
         if (exactPhraseAssignment.get()) {
-          addTfByDocumentToBitSet(documentIndices, phrasesTfByDocument[phraseIndex]);
+          phrasesTfByDocument.addDocuments(phraseIndex, documentIndices);
         } else {
           final int[] wordIndices = phrasesWordIndices[phraseIndex];
           boolean firstAdded = false;
@@ -85,12 +86,11 @@ public class DocumentAssigner extends AttrComposite {
             final int wordIndex = wordIndices[j];
             if (!TokenTypeUtils.isCommon(wordsTypes[wordIndex])) {
               if (!firstAdded) {
-                addTfByDocumentToBitSet(
-                    documentIndices, stemsTfByDocument[wordsStemIndex[wordIndex]]);
+                stemsTfByDocument.addDocuments(wordsStemIndex[wordIndex], documentIndices);
                 firstAdded = true;
               } else {
-                final BitSet temp = new BitSet(documentCount);
-                addTfByDocumentToBitSet(temp, stemsTfByDocument[wordsStemIndex[wordIndex]]);
+                temp.clear();
+                stemsTfByDocument.addDocuments(wordsStemIndex[wordIndex], temp);
                 documentIndices.and(temp);
               }
             }
@@ -120,11 +120,4 @@ public class DocumentAssigner extends AttrComposite {
       context.allLabels.documentIndices = labelsDocumentIndices;
     }
   }
-
-  private static void addTfByDocumentToBitSet(
-      final BitSet documentIndices, final int[] tfByDocument) {
-    for (int j = 0; j < tfByDocument.length / 2; j++) {
-      documentIndices.set(tfByDocument[j * 2]);
-    }
-  }
 }
@@ -0,0 +1,169 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+import com.carrotsearch.hppc.BitMixer;
+import com.carrotsearch.hppc.IntArrayList;
+import java.util.Arrays;
+import org.carrot2.util.MutableCharArray;
+
+/**
+ * Unique character sequences (token and stem images) with dense identifiers assigned in the order
+ * of first appearance. Characters of all images are concatenated in a single growable array and
+ * images are looked up in an open addressing hash table of identifiers, so adding an image does not
+ * allocate any per-image objects.
+ *
+ * <p>Identifiers remain valid until the table is cleared. The character array may be reallocated
+ * when new images are added, so {@link #buffer()} must be read again after {@link #add}.
+ */
+final class ImageTable {
+  private static final int MIN_SLOTS = 16;
+  private static final int MIN_CHARS = 128;
+
+  /** Characters of all images, concatenated. */
+  private char[] chars = new char[MIN_CHARS];
+
+  /** The number of used elements of {@link #chars}. */
+  private int charCount;
+
+  /** Start offset of each image in {@link #chars}. */
+  private final IntArrayList offsets = new IntArrayList();
+
+  /** Length of each image. */
+  private final IntArrayList lengths = new IntArrayList();
+
+  /** Hash code of each image. */
+  private final IntArrayList hashes = new IntArrayList();
+
+  /** Image identifiers plus one, <code>0</code> marks an empty slot. */
+  private int[] slots = new int[MIN_SLOTS];
+
+  /**
+   * Returns the identifier of the image in <code>buffer[start, start + length)</code>, adding a
+   * copy of the image if it is not known yet.
+   */
+  int add(char[] buffer, int start, int length) {
+    final int hash = BitMixer.mix32(MutableCharArray.hashCode(buffer, start, length));
+    final int[] hashes = this.hashes.buffer;
+    final int mask = slots.length - 1;
+    int slot = hash & mask;
+    for (int id; (id = slots[slot] - 1) >= 0; slot = (slot + 1) & mask) {
+      if (hashes[id] == hash && equals(id, buffer, start, length)) {
+        return id;
+      }
+    }
+
+    if (charCount + length > chars.length) {
+      chars = Arrays.copyOf(chars, Math.max(charCount + length, chars.length * 2));
+    }
+    System.arraycopy(buffer, start, chars, charCount, length);
+
+    final int id = offsets.size();
+    offsets.add(charCount);
+    lengths.add(length);
+    this.hashes.add(hash);
+    charCount += length;
+
+    slots[slot] = id + 1;
+    if (size() * 4L > slots.length * 3L) {
+      rehash(slots.length * 2);
+    }
+    return id;
+  }
+
+  /** Returns the identifier of the image, adding a copy of it if it is not known yet. */
+  int add(MutableCharArray image) {
+    return add(image.getBuffer(), image.getStart(), image.length());
+  }
+
+  /** Returns the number of unique images. */
+  int size() {
+    return offsets.size();
+  }
+
+  /** Returns the characters of all images, valid until the next call to {@link #add}. */
+  char[] buffer() {
+    return chars;
+  }
+
+  /** Returns the start offset of an image in {@link #buffer()}. */
+  int offset(int id) {
+    return offsets.get(id);
+  }
+
+  /** Returns the length of an image. */
+  int length(int id) {
+    return lengths.get(id);
+  }
+
+  /** Returns the characters of all images, trimmed to their total length. */
+  char[] toCharArray() {
+    return Arrays.copyOf(chars, charCount);
+  }
+
+  /** Returns the start offsets of all images. */
+  int[] toOffsetArray() {
+    return offsets.toArray();
+  }
+
+  /** Returns the lengths of all images. */
+  int[] toLengthArray() {
+    return lengths.toArray();
+  }
+
+  /** Removes all images, keeping the allocated buffers. */
+  void clear() {
+    charCount = 0;
+    offsets.clear();
+    lengths.clear();
+    hashes.clear();
+    Arrays.fill(slots, 0);
+  }
+
+  /** Removes all images and deallocates the buffers. */
+  void release() {
+    chars = new char[MIN_CHARS];
+    charCount = 0;
+    offsets.release();
+    lengths.release();
+    hashes.release();
+    slots = new int[MIN_SLOTS];
+  }
+
+  /** Returns the approximate size of the buffers of this table, in bytes. */
+  long retainedBytes() {
+    return (long) chars.length * Character.BYTES
+        + (long) offsets.buffer.length * Integer.BYTES
+        + (long) lengths.buffer.length * Integer.BYTES
+        + (long) hashes.buffer.length * Integer.BYTES
+        + (long) slots.length * Integer.BYTES;
+  }
+
+  private boolean equals(int id, char[] buffer, int start, int length) {
+    final int offset = offsets.get(id);
+    return lengths.get(id) == length
+        && Arrays.equals(chars, offset, offset + length, buffer, start, start + length);
+  }
+
+  private void rehash(int slotCount) {
+    final int[] hashes = this.hashes.buffer;
+    final int mask = slotCount - 1;
+    final int[] slots = new int[slotCount];
+    for (int id = 0; id < size(); id++) {
+      int slot = hashes[id] & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = id + 1;
+    }
+    this.slots = slots;
+  }
+}
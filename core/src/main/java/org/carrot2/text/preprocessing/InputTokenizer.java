@@ -13,15 +13,19 @@ package org.carrot2.text.preprocessing;
 import com.carrotsearch.hppc.ByteArrayList;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.ShortArrayList;
-import com.carrotsearch.hppc.cursors.IntCursor;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.carrot2.clustering.Document;
 import org.carrot2.language.Tokenizer;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllFields;
+import org.carrot2.text.preprocessing.PreprocessingContext.AllTokenImages;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllTokens;
 import org.carrot2.util.CharArrayUtils;
 import org.carrot2.util.MutableCharArray;
@@ -33,28 +37,172 @@ import org.carrot2.util.StringUtils;
  * <p>This class saves the following results to the {@link PreprocessingContext}:
  *
  * <ul>
- *   <li>{@link AllTokens#image}
+ *   <li>{@link AllTokens#imageId}
+ *   <li>{@link AllTokenImages#arena}
+ *   <li>{@link AllTokenImages#offset}
+ *   <li>{@link AllTokenImages#length}
  *   <li>{@link AllTokens#documentIndex}
  *   <li>{@link AllTokens#fieldIndex}
  *   <li>{@link AllTokens#type}
  * </ul>
+ *
+ * <p>Documents can be optionally tokenized in parallel. In this mode, consecutive ranges of
+ * documents are tokenized on the fork-join pool, each range with its own {@link Tokenizer} and
+ * table of unique images. Partial results are then merged in document order, so the final arrays
+ * are identical to those produced by sequential tokenization.
  */
 final class InputTokenizer {
-  /** Token images. */
-  private ArrayList<char[]> images;
+  /** The minimum number of documents in a single shard tokenized in parallel. */
+  static final int MIN_DOCUMENTS_PER_SHARD = 64;
+
+  /** Performs tokenization and saves the results to the <code>context</code>. */
+  public void tokenize(PreprocessingContext context, Stream<? extends Document> docStream) {
+    tokenize(context, docStream, false);
+  }
 
-  /** An array of token types. */
-  private ShortArrayList tokenTypes;
+  /**
+   * Performs tokenization and saves the results to the <code>context</code>. If <code>parallel
+   * </code> is <code>true</code> and there are enough documents, ranges of documents are tokenized
+   * concurrently.
+   */
+  public void tokenize(
+      PreprocessingContext context, Stream<? extends Document> docStream, boolean parallel) {
+    if (parallel) {
+      final List<? extends Document> documents = docStream.collect(Collectors.toList());
+      final int shards =
+          Math.min(
+              documents.size() / MIN_DOCUMENTS_PER_SHARD,
+              Runtime.getRuntime().availableProcessors() * 4);
+      if (shards > 1) {
+        tokenizeParallel(context, documents, shards);
+        return;
+      }
+      docStream = documents.stream();
+    }
 
-  /** An array of document indexes. */
-  private IntArrayList documentIndices;
+    final PreprocessingArena arena = context.arena;
+    final Shard shard =
+        new Shard(
+            0,
+            context.languageComponents.get(Tokenizer.class),
+            context.images(),
+            arena.tokenImageIds,
+            arena.tokenTypes,
+            arena.tokenDocumentIndices,
+            arena.tokenFieldIndices);
+    docStream.forEachOrdered(shard::tokenize);
+    shard.addTerminator();
+
+    // Save results in the PreprocessingContext
+    context.documentCount = shard.documentIndex;
+    context.allTokens.documentIndex = shard.documentIndices.toArray();
+    context.allTokens.fieldIndex = shard.fieldIndices.toArray();
+    context.allTokens.imageId = shard.imageIds.toArray();
+    context.allTokens.type = shard.tokenTypes.toArray();
+    context.allFields.name = shard.fieldIndexes.keySet().toArray(new String[0]);
+    storeImages(context);
+  }
+
+  /** Tokenizes consecutive document ranges concurrently and merges the results. */
+  private void tokenizeParallel(
+      PreprocessingContext context, List<? extends Document> documents, int shardCount) {
+    final List<Shard> shards =
+        IntStream.range(0, shardCount)
+            .parallel()
+            .mapToObj(
+                (shardIndex) -> {
+                  final int from = (int) ((long) documents.size() * shardIndex / shardCount);
+                  final int to = (int) ((long) documents.size() * (shardIndex + 1) / shardCount);
+
+                  final Shard shard =
+                      new Shard(
+                          from, context.languageComponents.get(Tokenizer.class), new ImageTable());
+                  for (int i = from; i < to; i++) {
+                    shard.tokenize(documents.get(i));
+                  }
+                  return shard;
+                })
+            .collect(Collectors.toList());
+
+    int tokenCount = 1;
+    for (Shard shard : shards) {
+      tokenCount += shard.imageIds.size();
+    }
+
+    final int[] documentIndex = new int[tokenCount];
+    final byte[] fieldIndex = new byte[tokenCount];
+    final int[] imageId = new int[tokenCount];
+    final short[] type = new short[tokenCount];
+    final Map<String, Integer> fieldIndexes = new LinkedHashMap<>();
+    final ImageTable images = context.images();
+
+    int offset = 0;
+    for (Shard shard : shards) {
+      // Remap shard-local field indexes, in the order of their first appearance.
+      final byte[] fieldMapping = new byte[shard.fieldIndexes.size()];
+      for (Map.Entry<String, Integer> e : shard.fieldIndexes.entrySet()) {
+        final int globalIndex =
+            fieldIndexes.computeIfAbsent(e.getKey(), (k) -> fieldIndexes.size());
+        checkFieldIndex(globalIndex);
+        fieldMapping[e.getValue()] = (byte) globalIndex;
+      }
+
+      // Remap shard-local image identifiers, in the order of their first appearance.
+      final ImageTable shardImages = shard.images;
+      final int[] imageMapping = new int[shardImages.size()];
+      for (int i = 0; i < imageMapping.length; i++) {
+        imageMapping[i] =
+            images.add(shardImages.buffer(), shardImages.offset(i), shardImages.length(i));
+      }
+
+      final int size = shard.imageIds.size();
+      System.arraycopy(shard.documentIndices.buffer, 0, documentIndex, offset, size);
+      System.arraycopy(shard.tokenTypes.buffer, 0, type, offset, size);
+      final byte[] shardFieldIndex = shard.fieldIndices.buffer;
+      final int[] shardImageId = shard.imageIds.buffer;
+      for (int i = 0; i < size; i++) {
+        final byte localFieldIndex = shardFieldIndex[i];
+        fieldIndex[offset + i] =
+            localFieldIndex < 0 ? localFieldIndex : fieldMapping[localFieldIndex];
+        final int localImageId = shardImageId[i];
+        imageId[offset + i] = localImageId < 0 ? localImageId : imageMapping[localImageId];
+      }
+      offset += size;
+    }
+
+    // Add the terminator.
+    documentIndex[offset] = -1;
+    fieldIndex[offset] = -1;
+    imageId[offset] = -1;
+    type[offset] = Tokenizer.TF_TERMINATOR;
+
+    // Save results in the PreprocessingContext
+    context.documentCount = documents.size();
+    context.allTokens.documentIndex = documentIndex;
+    context.allTokens.fieldIndex = fieldIndex;
+    context.allTokens.imageId = imageId;
+    context.allTokens.type = type;
+    context.allFields.name = fieldIndexes.keySet().toArray(new String[0]);
+    storeImages(context);
+  }
 
   /**
-   * An array of field indexes.
-   *
-   * @see AllFields
+   * Saves unique token images in the packed {@link AllTokenImages} arena. The table of images is
+   * shared with {@link PreprocessingContext#intern}, so it is copied before other components add
+   * their images.
    */
-  private ByteArrayList fieldIndices;
+  private static void storeImages(PreprocessingContext context) {
+    final ImageTable images = context.images();
+    context.allTokenImages.arena = images.toCharArray();
+    context.allTokenImages.offset = images.toOffsetArray();
+    context.allTokenImages.length = images.toLengthArray();
+  }
+
+  private static void checkFieldIndex(int fieldIndex) {
+    if (fieldIndex > Byte.MAX_VALUE) {
+      throw new RuntimeException("Too many fields (>" + fieldIndex + ")");
+    }
+  }
 
   private static class FieldValue {
     String field;
@@ -66,106 +214,134 @@ final class InputTokenizer {
     }
   }
 
-  /** Performs tokenization and saves the results to the <code>context</code>. */
-  public void tokenize(PreprocessingContext context, Stream<? extends Document> docStream) {
-    images = new ArrayList<>();
-    tokenTypes = new ShortArrayList();
-    documentIndices = new IntArrayList();
-    fieldIndices = new ByteArrayList();
-
-    final Tokenizer ts = context.languageComponents.get(Tokenizer.class);
-    final MutableCharArray wrapper = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
-
-    HashMap<String, Integer> fieldIndexes = new HashMap<>();
-    ArrayList<FieldValue> fields = new ArrayList<>();
-
-    IntCursor docCount = new IntCursor();
-    docStream.forEachOrdered(
-        (doc) -> {
-          int documentIndex = docCount.value;
-          if (documentIndex > 0) {
-            addDocumentSeparator();
-          }
+  /**
+   * Token arrays for a consecutive range of documents, starting at a given document index. A single
+   * shard is not thread-safe.
+   */
+  private static final class Shard {
+    /** Token image identifiers, pointing to {@link #images}. */
+    final IntArrayList imageIds;
 
-          fields.clear();
-          doc.visitFields(
-              (fieldName, fieldValue) -> {
-                if (!StringUtils.isNullOrEmpty(fieldValue)) {
-                  fields.add(new FieldValue(fieldName, fieldValue));
-                }
-              });
-
-          boolean hadTokens = false;
-          for (FieldValue fv : fields) {
-            final int fieldIndex =
-                fieldIndexes.computeIfAbsent(fv.field, (k) -> fieldIndexes.size());
-            if (fieldIndex > Byte.MAX_VALUE) {
-              throw new RuntimeException("Too many fields (>" + fieldIndex + ")");
-            }
-            final String fieldValue = fv.value;
+    /** An array of token types. */
+    final ShortArrayList tokenTypes;
+
+    /** An array of document indexes. */
+    final IntArrayList documentIndices;
+
+    /**
+     * An array of field indexes, local to this shard.
+     *
+     * @see AllFields
+     */
+    final ByteArrayList fieldIndices;
+
+    /** Field names mapped to field indexes, in the order of their first appearance. */
+    final LinkedHashMap<String, Integer> fieldIndexes = new LinkedHashMap<>();
+
+    /** Unique token images of this shard. */
+    final ImageTable images;
+
+    /** Index of the next document. */
+    int documentIndex;
+
+    private final Tokenizer ts;
+    private final MutableCharArray wrapper = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
+    private final ArrayList<FieldValue> fields = new ArrayList<>();
+
+    Shard(int firstDocumentIndex, Tokenizer ts, ImageTable images) {
+      this(
+          firstDocumentIndex,
+          ts,
+          images,
+          new IntArrayList(),
+          new ShortArrayList(),
+          new IntArrayList(),
+          new ByteArrayList());
+    }
+
+    /** Creates a shard that appends tokens to the provided (empty) lists. */
+    Shard(
+        int firstDocumentIndex,
+        Tokenizer ts,
+        ImageTable images,
+        IntArrayList imageIds,
+        ShortArrayList tokenTypes,
+        IntArrayList documentIndices,
+        ByteArrayList fieldIndices) {
+      assert imageIds.isEmpty() && tokenTypes.isEmpty();
+      assert documentIndices.isEmpty() && fieldIndices.isEmpty();
+      this.documentIndex = firstDocumentIndex;
+      this.ts = ts;
+      this.images = images;
+      this.imageIds = imageIds;
+      this.tokenTypes = tokenTypes;
+      this.documentIndices = documentIndices;
+      this.fieldIndices = fieldIndices;
+    }
 
+    void tokenize(Document doc) {
+      final int documentIndex = this.documentIndex;
+      if (documentIndex > 0) {
+        addDocumentSeparator();
+      }
+
+      fields.clear();
+      doc.visitFields(
+          (fieldName, fieldValue) -> {
             if (!StringUtils.isNullOrEmpty(fieldValue)) {
-              try {
-                short tokenType;
-
-                ts.reset(new StringReader(fieldValue));
-                if ((tokenType = ts.nextToken()) != Tokenizer.TT_EOF) {
-                  if (hadTokens) addFieldSeparator(documentIndex);
-                  do {
-                    ts.setTermBuffer(wrapper);
-                    add(documentIndex, (byte) fieldIndex, context.intern(wrapper), tokenType);
-                  } while ((tokenType = ts.nextToken()) != Tokenizer.TT_EOF);
-                  hadTokens = true;
-                }
-              } catch (IOException e) {
-                throw new RuntimeException(e);
-              }
+              fields.add(new FieldValue(fieldName, fieldValue));
             }
-          }
+          });
 
-          docCount.value++;
-        });
+      boolean hadTokens = false;
+      for (FieldValue fv : fields) {
+        final int fieldIndex = fieldIndexes.computeIfAbsent(fv.field, (k) -> fieldIndexes.size());
+        checkFieldIndex(fieldIndex);
+        final String fieldValue = fv.value;
 
-    addTerminator();
+        if (!StringUtils.isNullOrEmpty(fieldValue)) {
+          try {
+            short tokenType;
 
-    String[] fieldNames = new String[fieldIndexes.size()];
-    fieldIndexes.forEach((field, index) -> fieldNames[index] = field);
+            ts.reset(new StringReader(fieldValue));
+            if ((tokenType = ts.nextToken()) != Tokenizer.TT_EOF) {
+              if (hadTokens) addFieldSeparator(documentIndex);
+              do {
+                ts.setTermBuffer(wrapper);
+                add(documentIndex, (byte) fieldIndex, images.add(wrapper), tokenType);
+              } while ((tokenType = ts.nextToken()) != Tokenizer.TT_EOF);
+              hadTokens = true;
+            }
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }
 
-    // Save results in the PreprocessingContext
-    context.documentCount = docCount.value;
-    context.allTokens.documentIndex = documentIndices.toArray();
-    context.allTokens.fieldIndex = fieldIndices.toArray();
-    context.allTokens.image = images.toArray(new char[images.size()][]);
-    context.allTokens.type = tokenTypes.toArray();
-    context.allFields.name = fieldNames;
-
-    // Clean up
-    images = null;
-    fieldIndices = null;
-    tokenTypes = null;
-    documentIndices = null;
-  }
+      this.documentIndex++;
+    }
 
-  /** Adds a special terminating token required at the very end of all documents. */
-  void addTerminator() {
-    add(-1, (byte) -1, null, Tokenizer.TF_TERMINATOR);
-  }
+    /** Adds a special terminating token required at the very end of all documents. */
+    void addTerminator() {
+      add(-1, (byte) -1, -1, Tokenizer.TF_TERMINATOR);
+    }
 
-  /** Adds a document separator to the lists. */
-  void addDocumentSeparator() {
-    add(-1, (byte) -1, null, Tokenizer.TF_SEPARATOR_DOCUMENT);
-  }
+    /** Adds a document separator to the lists. */
+    void addDocumentSeparator() {
+      add(-1, (byte) -1, -1, Tokenizer.TF_SEPARATOR_DOCUMENT);
+    }
 
-  /** Adds a field separator to the lists. */
-  void addFieldSeparator(int documentIndex) {
-    add(documentIndex, (byte) -1, null, Tokenizer.TF_SEPARATOR_FIELD);
-  }
+    /** Adds a field separator to the lists. */
+    void addFieldSeparator(int documentIndex) {
+      add(documentIndex, (byte) -1, -1, Tokenizer.TF_SEPARATOR_FIELD);
+    }
 
-  /** Adds custom token code to the sequence. May be used to add separator constants. */
-  void add(int documentIndex, byte fieldIndex, char[] image, short tokenTypeCode) {
-    documentIndices.add(documentIndex);
-    fieldIndices.add(fieldIndex);
-    images.add(image);
-    tokenTypes.add(tokenTypeCode);
+    /** Adds custom token code to the sequence. May be used to add separator constants. */
+    void add(int documentIndex, byte fieldIndex, int imageId, short tokenTypeCode) {
+      documentIndices.add(documentIndex);
+      fieldIndices.add(fieldIndex);
+      imageIds.add(imageId);
+      tokenTypes.add(tokenTypeCode);
+    }
   }
 }
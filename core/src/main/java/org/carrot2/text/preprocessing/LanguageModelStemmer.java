@@ -12,11 +12,12 @@ package org.carrot2.text.preprocessing;
 
 import com.carrotsearch.hppc.ByteArrayList;
 import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.ObjectArrayList;
 import com.carrotsearch.hppc.sorting.IndirectSort;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Locale;
 import java.util.Set;
+import org.carrot2.language.StemCache;
 import org.carrot2.language.Stemmer;
 import org.carrot2.language.Tokenizer;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllStems;
@@ -45,48 +46,81 @@ final class LanguageModelStemmer {
   /** Performs stemming and saves the results to the <code>context</code>. */
   public void stem(PreprocessingContext context, String queryHint) {
     final Stemmer stemmer = context.languageComponents.get(Stemmer.class);
+    final StemCache stemCache = context.languageComponents.stemCache();
 
     final char[][] wordImages = context.allWords.image;
-    final char[][] stemImages = new char[wordImages.length][];
+    final ImageTable images = context.images();
+    final int[] stemImageIds = new int[wordImages.length];
 
     final MutableCharArray mutableCharArray = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
-    char[] buffer = new char[128];
+    final MutableCharArray stemArray = new MutableCharArray(CharArrayUtils.EMPTY_ARRAY);
+    final PreprocessingArena arena = context.arena;
+    char[] buffer = arena.charBuffer;
+    char[] stemBuffer = arena.stemBuffer;
 
     for (int i = 0; i < wordImages.length; i++) {
       final char[] word = wordImages[i];
-      if (buffer.length < word.length) buffer = new char[word.length];
-
-      final boolean different = CharArrayUtils.toLowerCase(word, buffer);
+      if (buffer.length < word.length) buffer = arena.charBuffer = new char[word.length];
 
+      CharArrayUtils.toLowerCase(word, buffer);
       mutableCharArray.reset(buffer, 0, word.length);
-      final CharSequence stemmed = stemmer.stem(mutableCharArray);
-      if (stemmed != null) {
-        mutableCharArray.reset(stemmed);
-        stemImages[i] = context.intern(mutableCharArray);
+
+      final char[] cached = stemCache.get(mutableCharArray);
+      if (cached != null) {
+        stemImageIds[i] = images.add(cached, 0, cached.length);
+        continue;
+      }
+
+      int stemLength = stemmer.stem(buffer, 0, word.length, stemBuffer);
+      if (stemLength > stemBuffer.length) {
+        stemBuffer = arena.stemBuffer = new char[stemLength];
+        stemLength = stemmer.stem(buffer, 0, word.length, stemBuffer);
+      }
+
+      if (stemLength >= 0) {
+        stemArray.reset(stemBuffer, 0, stemLength);
       } else {
-        // We need to put the original word here, otherwise, we wouldn't be able
+        // We need to put the original (lower-case) word here, otherwise, we wouldn't be able
         // to compute frequencies for stems.
-        if (different) stemImages[i] = context.intern(mutableCharArray);
-        else stemImages[i] = word;
+        stemArray.reset(buffer, 0, word.length);
       }
+      stemImageIds[i] = images.add(stemArray);
+      stemCache.put(mutableCharArray, context.image(stemImageIds[i]));
     }
 
-    addStemStatistics(context, stemImages, prepareQueryWords(queryHint, stemmer));
+    addStemStatistics(context, stemImageIds, prepareQueryWords(queryHint, stemmer));
   }
 
-  /** Adds frequency statistics to the stems. */
+  /**
+   * Adds frequency statistics to the stems. Words are sorted by the images of their stems, compared
+   * in the table of images. Words with the same stem share the image identifier.
+   */
   private void addStemStatistics(
-      PreprocessingContext context, char[][] wordStemImages, Set<MutableCharArray> queryStems) {
+      PreprocessingContext context, int[] wordStemImageIds, Set<MutableCharArray> queryStems) {
+    final ImageTable images = context.images();
+    final char[] chars = images.buffer();
     final int[] stemImagesOrder =
         IndirectSort.mergesort(
-            wordStemImages,
             0,
-            wordStemImages.length,
-            CharArrayComparators.FAST_CHAR_ARRAY_COMPARATOR);
+            wordStemImageIds.length,
+            (a, b) -> {
+              final int idA = wordStemImageIds[a];
+              final int idB = wordStemImageIds[b];
+              if (idA == idB) {
+                return 0;
+              }
+              return CharArrayComparators.fastCompare(
+                  chars,
+                  images.offset(idA),
+                  images.length(idA),
+                  chars,
+                  images.offset(idB),
+                  images.length(idB));
+            });
 
     // Local array references
     final int[] wordTfArray = context.allWords.tf;
-    final int[][] wordTfByDocumentArray = context.allWords.tfByDocument;
+    final SparseTfByDocument wordTfByDocument = context.allWords.tfByDocument;
     final byte[] wordsFieldIndices = context.allWords.fieldIndices;
     final short[] wordsType = context.allWords.type;
 
@@ -99,7 +133,7 @@ final class LanguageModelStemmer {
       context.allStems.image = new char[0][];
       context.allStems.mostFrequentOriginalWordIndex = new int[0];
       context.allStems.tf = new int[0];
-      context.allStems.tfByDocument = new int[0][];
+      context.allStems.tfByDocument = SparseTfByDocument.EMPTY;
       context.allStems.fieldIndices = new byte[0];
 
       context.allWords.stemIndex = new int[context.allWords.image.length];
@@ -107,11 +141,19 @@ final class LanguageModelStemmer {
     }
 
     // Lists to accommodate the results
-    final ArrayList<char[]> stemImages = new ArrayList<>(allWordsCount);
-    final IntArrayList stemTf = new IntArrayList(allWordsCount);
-    final IntArrayList stemMostFrequentWordIndexes = new IntArrayList(allWordsCount);
-    final ArrayList<int[]> stemTfByDocumentList = new ArrayList<>(allWordsCount);
-    final ByteArrayList fieldIndexList = new ByteArrayList();
+    final PreprocessingArena arena = context.arena;
+    final ObjectArrayList<char[]> stemImages = arena.stemImages;
+    final IntArrayList stemTf = arena.stemTf;
+    final IntArrayList stemMostFrequentWordIndexes = arena.stemMostFrequentWordIndices;
+    final SparseTfByDocument.Builder stemTfByDocument = arena.tfByDocumentBuilder();
+    final ByteArrayList fieldIndexList = arena.stemFieldIndices;
+    stemImages.clear();
+    stemTf.clear();
+    stemMostFrequentWordIndexes.clear();
+    fieldIndexList.clear();
+    stemImages.ensureCapacity(allWordsCount);
+    stemTf.ensureCapacity(allWordsCount);
+    stemMostFrequentWordIndexes.ensureCapacity(allWordsCount);
 
     // Counters
     int totalTf = wordTfArray[stemImagesOrder[0]];
@@ -119,23 +161,24 @@ final class LanguageModelStemmer {
     int mostFrequentWordIndex = stemImagesOrder[0];
     int stemIndex = 0;
 
-    // A list of document-term-frequency pairs, by document, for all words with identical stems.
-    final ArrayList<int[]> stemTfsByDocument = new ArrayList<>();
+    // Indexes of all words with identical stems, to merge their frequencies by document.
+    final IntArrayList stemWords = new IntArrayList();
 
-    stemTfsByDocument.add(wordTfByDocumentArray[stemImagesOrder[0]]);
+    stemWords.add(stemImagesOrder[0]);
     byte fieldIndices = 0;
     fieldIndices |= wordsFieldIndices[0];
 
     // For locating query words
-    final MutableCharArray buffer = new MutableCharArray(wordStemImages[stemImagesOrder[0]]);
+    final MutableCharArray buffer =
+        new MutableCharArray(context.image(wordStemImageIds[stemImagesOrder[0]]));
     boolean inQuery = queryStems.contains(buffer);
 
     // Go through all words in the order of stem images
     for (int i = 0; i < stemImagesOrder.length - 1; i++) {
       final int orderIndex = stemImagesOrder[i];
-      final char[] stem = wordStemImages[orderIndex];
+      final int stem = wordStemImageIds[orderIndex];
       final int nextInOrderIndex = stemImagesOrder[i + 1];
-      final char[] nextStem = wordStemImages[nextInOrderIndex];
+      final int nextStem = wordStemImageIds[nextInOrderIndex];
 
       stemIndexesArray[orderIndex] = stemIndex;
       if (inQuery) {
@@ -143,22 +186,22 @@ final class LanguageModelStemmer {
       }
 
       // Now check if token image is changing
-      final boolean sameStem =
-          CharArrayComparators.FAST_CHAR_ARRAY_COMPARATOR.compare(stem, nextStem) == 0;
+      final boolean sameStem = stem == nextStem;
 
       if (sameStem) {
         totalTf += wordTfArray[nextInOrderIndex];
-        stemTfsByDocument.add(wordTfByDocumentArray[nextInOrderIndex]);
+        stemWords.add(nextInOrderIndex);
         fieldIndices |= wordsFieldIndices[nextInOrderIndex];
         if (mostFrequentWordFrequency < wordTfArray[nextInOrderIndex]) {
           mostFrequentWordFrequency = wordTfArray[nextInOrderIndex];
           mostFrequentWordIndex = nextInOrderIndex;
         }
       } else {
-        stemImages.add(stem);
+        stemImages.add(context.image(stem));
         stemTf.add(totalTf);
         stemMostFrequentWordIndexes.add(mostFrequentWordIndex);
-        storeTfByDocument(stemTfByDocumentList, stemTfsByDocument);
+        SparseTfByDocument.merge(wordTfByDocument, stemWords, stemTfByDocument);
+        stemTfByDocument.endFeature();
         fieldIndexList.add(fieldIndices);
 
         stemIndex++;
@@ -168,50 +211,37 @@ final class LanguageModelStemmer {
         fieldIndices = 0;
         fieldIndices |= wordsFieldIndices[nextInOrderIndex];
 
-        stemTfsByDocument.clear();
-        stemTfsByDocument.add(wordTfByDocumentArray[nextInOrderIndex]);
+        stemWords.clear();
+        stemWords.add(nextInOrderIndex);
 
-        buffer.reset(wordStemImages[nextInOrderIndex]);
+        buffer.reset(context.image(nextStem));
         inQuery = queryStems.contains(buffer);
       }
     }
 
     // Store tf for the last stem in the array
-    stemImages.add(wordStemImages[stemImagesOrder[stemImagesOrder.length - 1]]);
+    stemImages.add(context.image(wordStemImageIds[stemImagesOrder[stemImagesOrder.length - 1]]));
     stemTf.add(totalTf);
     stemMostFrequentWordIndexes.add(mostFrequentWordIndex);
     stemIndexesArray[stemImagesOrder[stemImagesOrder.length - 1]] = stemIndex;
-    storeTfByDocument(stemTfByDocumentList, stemTfsByDocument);
+    SparseTfByDocument.merge(wordTfByDocument, stemWords, stemTfByDocument);
+    stemTfByDocument.endFeature();
     fieldIndexList.add(fieldIndices);
     if (inQuery) {
       wordsType[stemImagesOrder[stemImagesOrder.length - 1]] |= Tokenizer.TF_QUERY_WORD;
     }
 
     // Convert lists to arrays and store them in allStems
-    context.allStems.image = stemImages.toArray(new char[stemImages.size()][]);
+    context.allStems.image = stemImages.toArray(char[].class);
     context.allStems.mostFrequentOriginalWordIndex = stemMostFrequentWordIndexes.toArray();
     context.allStems.tf = stemTf.toArray();
-    context.allStems.tfByDocument =
-        stemTfByDocumentList.toArray(new int[stemTfByDocumentList.size()][]);
+    context.allStems.tfByDocument = stemTfByDocument.build();
     context.allStems.fieldIndices = fieldIndexList.toArray();
 
     // References in allWords
     context.allWords.stemIndex = stemIndexesArray;
   }
 
-  /** */
-  private void storeTfByDocument(ArrayList<int[]> target, ArrayList<int[]> source) {
-    assert source.size() > 0 : "Empty source document list?";
-
-    if (source.size() == 1) {
-      // Just copy the reference over if a single list is available.
-      target.add(source.get(0));
-    } else {
-      // Merge sparse representations if more than one.
-      target.add(SparseArray.mergeSparseArrays(source));
-    }
-  }
-
   private Set<MutableCharArray> prepareQueryWords(String query, Stemmer stemmer) {
     final Set<MutableCharArray> queryWords = new HashSet<>();
 
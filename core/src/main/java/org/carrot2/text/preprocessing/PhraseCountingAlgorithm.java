@@ -0,0 +1,23 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+/** Algorithm used by {@link PhraseExtractor} to count phrase frequencies by document. */
+public enum PhraseCountingAlgorithm {
+  /** Keeps a document-frequency hash map for each phrase candidate, merged as candidates close. */
+  HASH_MAPS,
+
+  /**
+   * Counts documents over the range of suffixes each phrase occupies in the suffix array, using
+   * flat arrays only.
+   */
+  SUFFIX_RANGES;
+}
@@ -14,11 +14,12 @@ import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntIntHashMap;
 import com.carrotsearch.hppc.cursors.IntIntCursor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllPhrases;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllTokens;
-import org.carrot2.util.IntMapUtils;
 
 /**
  * Extracts frequent phrases from the provided document. A frequent phrase is a sequence of words
@@ -41,22 +42,60 @@ import org.carrot2.util.IntMapUtils;
  * {@link LanguageModelStemmer} be invoked first.
  */
 public class PhraseExtractor {
-  /** Internal minimum phrase length, we may want to make it an attribute at some point */
-  private static final int MIN_PHRASE_LENGTH = 2;
+  /** Default minimum phrase length. Shorter phrases are not supported. */
+  static final int MIN_PHRASE_LENGTH = 2;
 
-  /** Internal maximum phrase length, we may want to make it an attribute at some point */
+  /** Default maximum phrase length. */
   static final int MAX_PHRASE_LENGTH = 8;
 
-  /**
-   * Suffix sorter to be used by this phrase extractor. When the suffix sorter gets some attributes,
-   * we'll need to make this field public.
-   */
-  private SuffixSorter suffixSorter = new SuffixSorter();
+  /** Suffix sorter to be used by this phrase extractor. */
+  private final SuffixSorter suffixSorter;
 
   private final int dfThreshold;
 
+  /** Phrase frequency counting algorithm. */
+  private final PhraseCountingAlgorithm counting;
+
+  /** Minimum and maximum length of extracted phrases, in words. */
+  private final int minPhraseLength, maxPhraseLength;
+
+  /** The maximum number of phrase candidates kept in memory during extraction or 0 for no limit. */
+  private final int maxPhraseCandidates;
+
   PhraseExtractor(int dfThreshold) {
+    this(dfThreshold, SuffixSortingAlgorithm.MERGESORT, PhraseCountingAlgorithm.HASH_MAPS);
+  }
+
+  PhraseExtractor(
+      int dfThreshold,
+      SuffixSortingAlgorithm suffixSorting,
+      PhraseCountingAlgorithm phraseCounting) {
+    this(dfThreshold, suffixSorting, phraseCounting, MIN_PHRASE_LENGTH, MAX_PHRASE_LENGTH, 0);
+  }
+
+  PhraseExtractor(
+      int dfThreshold,
+      SuffixSortingAlgorithm suffixSorting,
+      PhraseCountingAlgorithm phraseCounting,
+      int minPhraseLength,
+      int maxPhraseLength,
+      int maxPhraseCandidates) {
+    if (minPhraseLength < MIN_PHRASE_LENGTH || minPhraseLength > maxPhraseLength) {
+      throw new IllegalArgumentException(
+          String.format(
+              Locale.ROOT,
+              "Phrase length bounds must satisfy %d <= min <= max: min=%d, max=%d",
+              MIN_PHRASE_LENGTH,
+              minPhraseLength,
+              maxPhraseLength));
+    }
+
     this.dfThreshold = dfThreshold;
+    this.suffixSorter = new SuffixSorter(suffixSorting);
+    this.counting = phraseCounting;
+    this.minPhraseLength = minPhraseLength;
+    this.maxPhraseLength = maxPhraseLength;
+    this.maxPhraseCandidates = maxPhraseCandidates;
   }
 
   /** Performs phrase extraction and saves the results to the provided <code>context</code>. */
@@ -71,22 +110,44 @@ public class PhraseExtractor {
     final int[] stemIndexes = context.allWords.stemIndex;
 
     // Find all subphrases
-    List<Substring> rcs = discoverRcs(suffixArray, lcpArray, documentIndexArray);
+    final boolean countSuffixRanges;
+    switch (counting) {
+      case HASH_MAPS:
+        countSuffixRanges = false;
+        break;
+      case SUFFIX_RANGES:
+        countSuffixRanges = true;
+        break;
+      default:
+        throw new RuntimeException("Unhandled case: " + counting);
+    }
+
+    // Per-document counters, used only when counting over suffix ranges.
+    final int[] documentCounters = countSuffixRanges ? new int[context.documentCount] : null;
+    final IntArrayList documents = new IntArrayList();
+
+    List<Substring> rcs =
+        discoverRcs(suffixArray, lcpArray, documentIndexArray, documentCounters, documents);
 
     List<int[]> phraseWordIndexes = new ArrayList<>();
     IntArrayList phraseTf = new IntArrayList();
-    List<int[]> phraseTfByDocumentList = new ArrayList<>();
+    SparseTfByDocument.Builder phraseTfByDocumentBuilder = context.arena.tfByDocumentBuilder();
 
     if (rcs.size() > 0) {
       // Determine most frequent originals and create the final phrase
-      // array. Also merge the phrase tf by document maps into flat
-      // arrays.
+      // array. Also merge the phrase tf by document maps into the
+      // sparse layout.
       Collections.sort(rcs, new SubstringComparator(wordIndexesArray, stemIndexes));
 
       int totalPhraseTf = rcs.get(0).frequency;
       Substring mostFrequentOriginal = rcs.get(0);
       IntIntHashMap phraseTfByDocument = new IntIntHashMap();
-      phraseTfByDocument.putAll(mostFrequentOriginal.tfByDocument);
+      if (countSuffixRanges) {
+        addSuffixRange(
+            mostFrequentOriginal, suffixArray, documentIndexArray, documentCounters, documents);
+      } else {
+        phraseTfByDocument.putAll(mostFrequentOriginal.tfByDocument);
+      }
 
       // Don't change the rcs list type from ArrayList or we'll
       // run into O(n^2) iteration cost :)
@@ -96,7 +157,12 @@ public class PhraseExtractor {
 
         if (substring.isEquivalentTo(nextSubstring, wordIndexesArray, stemIndexes)) {
           totalPhraseTf += nextSubstring.frequency;
-          addAllWithOffset(phraseTfByDocument, nextSubstring.tfByDocument, -1);
+          if (countSuffixRanges) {
+            addSuffixRange(
+                nextSubstring, suffixArray, documentIndexArray, documentCounters, documents);
+          } else {
+            addAllWithOffset(phraseTfByDocument, nextSubstring.tfByDocument, -1);
+          }
           if (mostFrequentOriginal.frequency < nextSubstring.frequency) {
             mostFrequentOriginal = nextSubstring;
           }
@@ -107,12 +173,21 @@ public class PhraseExtractor {
           }
           phraseWordIndexes.add(wordIndexes);
           phraseTf.add(totalPhraseTf);
-          phraseTfByDocumentList.add(IntMapUtils.flatten(phraseTfByDocument));
+          if (countSuffixRanges) {
+            flushDocumentCounters(documentCounters, documents, phraseTfByDocumentBuilder);
+          } else {
+            phraseTfByDocumentBuilder.addAll(phraseTfByDocument).endFeature();
+          }
 
           totalPhraseTf = nextSubstring.frequency;
           mostFrequentOriginal = nextSubstring;
-          phraseTfByDocument.clear();
-          phraseTfByDocument.putAll(nextSubstring.tfByDocument);
+          if (countSuffixRanges) {
+            addSuffixRange(
+                nextSubstring, suffixArray, documentIndexArray, documentCounters, documents);
+          } else {
+            phraseTfByDocument.clear();
+            phraseTfByDocument.putAll(nextSubstring.tfByDocument);
+          }
         }
       }
 
@@ -124,41 +199,62 @@ public class PhraseExtractor {
       }
       phraseWordIndexes.add(wordIndexes);
       phraseTf.add(totalPhraseTf);
-      phraseTfByDocumentList.add(IntMapUtils.flatten(phraseTfByDocument));
+      if (countSuffixRanges) {
+        flushDocumentCounters(documentCounters, documents, phraseTfByDocumentBuilder);
+      } else {
+        phraseTfByDocumentBuilder.addAll(phraseTfByDocument).endFeature();
+      }
     }
 
     // Store the results to allPhrases
     context.allPhrases.wordIndices = phraseWordIndexes.toArray(new int[phraseWordIndexes.size()][]);
     context.allPhrases.tf = phraseTf.toArray();
-    context.allPhrases.tfByDocument =
-        phraseTfByDocumentList.toArray(new int[phraseTfByDocumentList.size()][]);
+    context.allPhrases.tfByDocument = phraseTfByDocumentBuilder.build();
   }
 
-  /** Discovers Right Complete Substrings in the given LCP Suffix Array. */
-  private List<Substring> discoverRcs(int[] suffixArray, int[] lcpArray, int[] documentIndexArray) {
+  /**
+   * Discovers Right Complete Substrings in the given LCP Suffix Array. If <code>documentCounters
+   * </code> is not <code>null</code>, frequencies by document are not collected in hash maps.
+   * Instead, each substring records the range of the suffix array its occurrences occupy and the
+   * document frequency is counted over that range. Substrings nested on the stack are at most
+   * {@link #maxPhraseLength} deep, so each suffix is counted a bounded number of times.
+   *
+   * <p>If {@link #maxPhraseCandidates} is greater than 0, the number of retained substrings is kept
+   * below twice that limit: the document frequency threshold is raised whenever the limit is
+   * exceeded and substrings below the new threshold are discarded.
+   */
+  private List<Substring> discoverRcs(
+      int[] suffixArray,
+      int[] lcpArray,
+      int[] documentIndexArray,
+      int[] documentCounters,
+      IntArrayList documents) {
+    final boolean countSuffixRanges = (documentCounters != null);
     Substring[] rcsStack;
     int sp;
 
     int i;
-    rcsStack = new Substring[lcpArray.length];
+    // Substrings on the stack have increasing lengths, from minPhraseLength to maxPhraseLength.
+    rcsStack = new Substring[maxPhraseLength];
     sp = -1;
 
     i = 1;
 
+    int threshold = dfThreshold;
     final List<Substring> result = new ArrayList<>();
     while (i < lcpArray.length - 1) {
       final int currentSuffixIndex = suffixArray[i];
       final int currentDocumentIndex = documentIndexArray[currentSuffixIndex];
-      final int currentLcp = Math.min(MAX_PHRASE_LENGTH, lcpArray[i]);
+      final int currentLcp = Math.min(maxPhraseLength, lcpArray[i]);
 
       if (sp < 0) {
-        if (currentLcp >= MIN_PHRASE_LENGTH) {
-          // Push to the stack phrases of length 2..currentLcp. Only the
+        if (currentLcp >= minPhraseLength) {
+          // Push to the stack phrases of length minPhraseLength..currentLcp. Only the
           // topmost phrase will get its frequencies incremented, the other
           // ones will "inherit" the counts when the topmost phrase is
           // popped off the stack.
           final int length = currentLcp;
-          for (int j = length - 2; j >= 0; j--) {
+          for (int j = length - minPhraseLength; j >= 0; j--) {
             sp++;
 
             // Set initial tf = 2 for the topmost phrase. For the other phrases,
@@ -169,6 +265,12 @@ public class PhraseExtractor {
                 new Substring(
                     i, currentSuffixIndex, currentSuffixIndex + currentLcp - j, (j == 0 ? 2 : 1));
 
+            if (countSuffixRanges) {
+              // Occurrences start at the previous suffix, the range is closed when popped.
+              rcsStack[sp].suffixesFrom = i - 1;
+              continue;
+            }
+
             // By document tf. Again, topmost phrase gets tf = 2, the other
             // ones get tf = 1. This time, we need to track from which document's
             // tf we need to set off the "minus 1", hence the documentIndexToOffset field.
@@ -198,12 +300,17 @@ public class PhraseExtractor {
           // the algorithm no longer linear btw)
           int length = currentLcp - (r1.to - r1.from);
           for (int j = length - 1; j >= 0; j--) {
-            if (currentLcp - j >= MIN_PHRASE_LENGTH) {
+            if (currentLcp - j >= minPhraseLength) {
               sp++;
               rcsStack[sp] =
                   new Substring(
                       i, currentSuffixIndex, currentSuffixIndex + currentLcp - j, (j == 0 ? 2 : 1));
 
+              if (countSuffixRanges) {
+                rcsStack[sp].suffixesFrom = i - 1;
+                continue;
+              }
+
               rcsStack[sp].tfByDocument = new IntIntHashMap();
               rcsStack[sp].tfByDocument.put(documentIndexArray[suffixArray[i - 1]], 1);
               if (j == 0) {
@@ -220,7 +327,9 @@ public class PhraseExtractor {
           if ((r1.to - r1.from) == currentLcp) {
             // Increase the frequency of the generalized phrase
             rcsStack[sp].frequency += 1;
-            rcsStack[sp].tfByDocument.putOrAdd(currentDocumentIndex, 1, 1);
+            if (!countSuffixRanges) {
+              rcsStack[sp].tfByDocument.putOrAdd(currentDocumentIndex, 1, 1);
+            }
 
             i++;
           } else {
@@ -228,9 +337,23 @@ public class PhraseExtractor {
 
             // Pop generalized phrases off the stack
             do {
-              if (rcsStack[sp].tfByDocument.size() >= dfThreshold) {
+              final int df;
+              if (countSuffixRanges) {
+                rcsStack[sp].suffixesTo = i;
+                df =
+                    countDocuments(
+                        rcsStack[sp], suffixArray, documentIndexArray, documentCounters, documents);
+              } else {
+                df = rcsStack[sp].tfByDocument.size();
+              }
+
+              if (df >= threshold) {
                 // Add the generalized phrase to the result
+                rcsStack[sp].df = df;
                 result.add(rcsStack[sp]);
+                if (maxPhraseCandidates > 0 && result.size() / 2 >= maxPhraseCandidates) {
+                  threshold = pruneCandidates(result, maxPhraseCandidates, threshold);
+                }
               }
 
               s = rcsStack[sp];
@@ -243,8 +366,12 @@ public class PhraseExtractor {
               if (sp >= 0) {
                 // The "minus 1" mentioned above.
                 rcsStack[sp].frequency += s.frequency - 1;
-                addAllWithOffset(
-                    rcsStack[sp].tfByDocument, s.tfByDocument, rcsStack[sp].documentIndexToOffset);
+                if (!countSuffixRanges) {
+                  addAllWithOffset(
+                      rcsStack[sp].tfByDocument,
+                      s.tfByDocument,
+                      rcsStack[sp].documentIndexToOffset);
+                }
               }
             } while (sp >= 0 && (rcsStack[sp].to - rcsStack[sp].from) > currentLcp);
           }
@@ -252,9 +379,84 @@ public class PhraseExtractor {
       }
     }
 
+    if (maxPhraseCandidates > 0 && result.size() > maxPhraseCandidates) {
+      pruneCandidates(result, maxPhraseCandidates, threshold);
+    }
+
     return result;
   }
 
+  /**
+   * Raises the document frequency threshold to the lowest value that leaves at most <code>
+   * maxCandidates</code> substrings, removes substrings below it and returns the new threshold.
+   * Substrings with equal document frequency are either all kept or all removed, so the result does
+   * not depend on the order in which substrings were discovered.
+   */
+  private static int pruneCandidates(List<Substring> candidates, int maxCandidates, int threshold) {
+    final int[] dfs = new int[candidates.size()];
+    for (int i = 0; i < dfs.length; i++) {
+      dfs[i] = candidates.get(i).df;
+    }
+    Arrays.sort(dfs);
+
+    final int newThreshold = Math.max(threshold, dfs[dfs.length - maxCandidates - 1] + 1);
+    candidates.removeIf(substring -> substring.df < newThreshold);
+    return newThreshold;
+  }
+
+  /** Returns the number of distinct documents in the substring's range of suffixes. */
+  private static int countDocuments(
+      Substring substring,
+      int[] suffixArray,
+      int[] documentIndexArray,
+      int[] documentCounters,
+      IntArrayList documents) {
+    assert substring.suffixesTo - substring.suffixesFrom == substring.frequency;
+
+    int df = 0;
+    for (int i = substring.suffixesFrom; i < substring.suffixesTo; i++) {
+      final int documentIndex = documentIndexArray[suffixArray[i]];
+      if (documentCounters[documentIndex]++ == 0) {
+        documents.add(documentIndex);
+        df++;
+      }
+    }
+
+    for (int i = 0; i < documents.size(); i++) {
+      documentCounters[documents.get(i)] = 0;
+    }
+    documents.clear();
+    return df;
+  }
+
+  /** Adds the occurrences of the substring to per-document counters. */
+  private static void addSuffixRange(
+      Substring substring,
+      int[] suffixArray,
+      int[] documentIndexArray,
+      int[] documentCounters,
+      IntArrayList documents) {
+    for (int i = substring.suffixesFrom; i < substring.suffixesTo; i++) {
+      final int documentIndex = documentIndexArray[suffixArray[i]];
+      if (documentCounters[documentIndex]++ == 0) {
+        documents.add(documentIndex);
+      }
+    }
+  }
+
+  /** Appends per-document counters as a new feature to the builder and resets them. */
+  private static void flushDocumentCounters(
+      int[] documentCounters, IntArrayList documents, SparseTfByDocument.Builder builder) {
+    Arrays.sort(documents.buffer, 0, documents.size());
+    for (int i = 0; i < documents.size(); i++) {
+      final int documentIndex = documents.get(i);
+      builder.add(documentIndex, documentCounters[documentIndex]);
+      documentCounters[documentIndex] = 0;
+    }
+    builder.endFeature();
+    documents.clear();
+  }
+
   private static void addAllWithOffset(
       IntIntHashMap dest, IntIntHashMap src, int documentIndexToOffset) {
     for (IntIntCursor c : src) {
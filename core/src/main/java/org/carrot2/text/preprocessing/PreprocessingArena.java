@@ -0,0 +1,190 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+import com.carrotsearch.hppc.ByteArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.ObjectArrayList;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.ShortArrayList;
+import org.carrot2.util.MutableCharArray;
+
+/**
+ * Temporary buffers used by the preprocessing components: the table of unique images, growable
+ * token lists of {@link InputTokenizer}, hash maps of {@link CaseNormalizer} and lists of {@link
+ * LanguageModelStemmer} and {@link PhraseExtractor}.
+ *
+ * <p>A pooled arena is kept by each thread and reused by subsequent {@link PreprocessingContext}s
+ * created on that thread. Buffers are cleared, but not deallocated, when the context is closed, so
+ * steady-state preprocessing does not need to grow them again. If the size of retained buffers
+ * exceeds the limit given when the arena is acquired, all buffers are released.
+ *
+ * <p>Arrays stored in the {@link PreprocessingContext} are always copied out of the arena buffers
+ * and remain valid after the arena is reused.
+ */
+public final class PreprocessingArena {
+  /** Approximate size of an object reference, in bytes. */
+  private static final int REFERENCE_BYTES = 8;
+
+  private static final ThreadLocal<PreprocessingArena> ARENAS =
+      ThreadLocal.withInitial(() -> new PreprocessingArena(true));
+
+  /** Unique token and stem images, see {@link PreprocessingContext#intern}. */
+  final ImageTable images = new ImageTable();
+
+  /** <code>char[]</code> copies of images returned by {@link PreprocessingContext#intern}. */
+  final ObjectArrayList<char[]> internedImages = new ObjectArrayList<>();
+
+  /** {@link InputTokenizer}: token image identifiers. */
+  final IntArrayList tokenImageIds = new IntArrayList();
+
+  /** {@link InputTokenizer}: token types. */
+  final ShortArrayList tokenTypes = new ShortArrayList();
+
+  /** {@link InputTokenizer}: token document indices. */
+  final IntArrayList tokenDocumentIndices = new IntArrayList();
+
+  /** {@link InputTokenizer}: token field indices. */
+  final ByteArrayList tokenFieldIndices = new ByteArrayList();
+
+  /** {@link CaseNormalizer}: groups of case variants of token images. */
+  final ObjectIntHashMap<MutableCharArray> caseGroups = new ObjectIntHashMap<>();
+
+  /** {@link LanguageModelStemmer}: per-stem lists. */
+  final IntArrayList stemTf = new IntArrayList();
+
+  final IntArrayList stemMostFrequentWordIndices = new IntArrayList();
+
+  final ByteArrayList stemFieldIndices = new ByteArrayList();
+
+  final ObjectArrayList<char[]> stemImages = new ObjectArrayList<>();
+
+  /** A builder of term frequencies by document, shared by consecutive preprocessing steps. */
+  private final SparseTfByDocument.Builder tfByDocument = new SparseTfByDocument.Builder();
+
+  /** A buffer for lower-case word images. */
+  char[] charBuffer = new char[128];
+
+  /** A buffer for stems. */
+  char[] stemBuffer = new char[128];
+
+  private final boolean pooled;
+  private boolean inUse;
+  private long maxRetainedBytes;
+
+  private PreprocessingArena(boolean pooled) {
+    this.pooled = pooled;
+  }
+
+  /** Returns an arena that is used by a single preprocessing context and then discarded. */
+  static PreprocessingArena unpooled() {
+    return new PreprocessingArena(false);
+  }
+
+  /**
+   * Acquires the arena of the current thread, retaining at most <code>maxRetainedBytes</code> of
+   * buffers after it is released. If the thread's arena is already in use, an unpooled arena is
+   * returned.
+   */
+  static PreprocessingArena acquire(long maxRetainedBytes) {
+    final PreprocessingArena arena = ARENAS.get();
+    if (arena.inUse) {
+      return unpooled();
+    }
+    arena.inUse = true;
+    arena.maxRetainedBytes = maxRetainedBytes;
+    return arena;
+  }
+
+  /**
+   * Returns the approximate size of buffers retained by the current thread's arena between
+   * requests, in bytes. The size is bounded by the <code>maxArenaSize</code> attribute of the
+   * preprocessing pipeline. Only pooled arenas (the <code>pooledArenas</code> attribute) retain
+   * buffers.
+   */
+  public static long currentThreadRetainedBytes() {
+    return ARENAS.get().retainedBytes();
+  }
+
+  /** Returns the arena of the current thread. */
+  static PreprocessingArena current() {
+    return ARENAS.get();
+  }
+
+  /** Returns a cleared builder of term frequencies by document. */
+  SparseTfByDocument.Builder tfByDocumentBuilder() {
+    tfByDocument.clear();
+    return tfByDocument;
+  }
+
+  /**
+   * Clears all buffers of a pooled arena and releases them if their size exceeds the limit. Called
+   * when the {@link PreprocessingContext} using this arena is closed.
+   */
+  void release() {
+    if (!pooled) {
+      return;
+    }
+
+    images.clear();
+    internedImages.clear();
+    tokenImageIds.clear();
+    tokenTypes.clear();
+    tokenDocumentIndices.clear();
+    tokenFieldIndices.clear();
+    caseGroups.clear();
+    stemTf.clear();
+    stemMostFrequentWordIndices.clear();
+    stemFieldIndices.clear();
+    stemImages.clear();
+    tfByDocument.clear();
+
+    if (retainedBytes() > maxRetainedBytes) {
+      trim();
+    }
+    inUse = false;
+  }
+
+  /** Deallocates all buffers of this arena. */
+  void trim() {
+    images.release();
+    internedImages.release();
+    tokenImageIds.release();
+    tokenTypes.release();
+    tokenDocumentIndices.release();
+    tokenFieldIndices.release();
+    caseGroups.release();
+    stemTf.release();
+    stemMostFrequentWordIndices.release();
+    stemFieldIndices.release();
+    stemImages.release();
+    tfByDocument.release();
+    charBuffer = new char[128];
+    stemBuffer = new char[128];
+  }
+
+  /** Returns the approximate size of buffers retained by this arena, in bytes. */
+  long retainedBytes() {
+    return images.retainedBytes()
+        + (long) internedImages.buffer.length * REFERENCE_BYTES
+        + (long) tokenImageIds.buffer.length * Integer.BYTES
+        + (long) tokenTypes.buffer.length * Short.BYTES
+        + (long) tokenDocumentIndices.buffer.length * Integer.BYTES
+        + tokenFieldIndices.buffer.length
+        + (long) caseGroups.keys.length * (REFERENCE_BYTES + Integer.BYTES)
+        + (long) stemTf.buffer.length * Integer.BYTES
+        + (long) stemMostFrequentWordIndices.buffer.length * Integer.BYTES
+        + stemFieldIndices.buffer.length
+        + (long) stemImages.buffer.length * REFERENCE_BYTES
+        + tfByDocument.retainedBytes()
+        + (long) (charBuffer.length + stemBuffer.length) * Character.BYTES;
+  }
+}
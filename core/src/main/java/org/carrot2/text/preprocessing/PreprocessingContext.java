@@ -37,18 +37,31 @@ public final class PreprocessingContext implements Closeable {
   /** Count of documents processed by the tokenizer. */
   public int documentCount;
 
+  /** Temporary buffers of preprocessing components, cleared when this context is closed. */
+  final PreprocessingArena arena;
+
   /**
-   * Token interning cache. Token images are interned to save memory and allow reference
-   * comparisons.
+   * Unique token and stem images with their identifiers, <code>null</code> after the context is
+   * closed.
    */
-  private ObjectHashSet<MutableCharArray> tokenCache = new ObjectHashSet<>();
+  private ImageTable images;
 
   /**
    * Creates a preprocessing context for the provided <code>documents</code> and with the provided
    * <code>languageModel</code>.
    */
   public PreprocessingContext(LanguageComponents languageComponents) {
+    this(languageComponents, PreprocessingArena.unpooled());
+  }
+
+  /**
+   * Creates a preprocessing context that keeps temporary data structures in the provided <code>
+   * arena</code>. The arena is released when the context is closed.
+   */
+  PreprocessingContext(LanguageComponents languageComponents, PreprocessingArena arena) {
     this.languageComponents = languageComponents;
+    this.arena = arena;
+    this.images = arena.images;
   }
 
   /**
@@ -61,13 +74,16 @@ public final class PreprocessingContext implements Closeable {
    */
   public class AllTokens {
     /**
-     * Token image as it appears in the input. On positions where {@link #type} is equal to one of
-     * {@link Tokenizer#TF_TERMINATOR}, {@link Tokenizer#TF_SEPARATOR_DOCUMENT} or {@link
-     * Tokenizer#TF_SEPARATOR_FIELD} , image is <code>null</code>.
+     * Dense identifier of the token's image as it appears in the input, pointing to {@link
+     * AllTokenImages} arrays. Tokens with identical images (including case) share the same
+     * identifier, identifiers are assigned in the order of first appearance of each image. On
+     * positions where {@link #type} is equal to one of {@link Tokenizer#TF_TERMINATOR}, {@link
+     * Tokenizer#TF_SEPARATOR_DOCUMENT} or {@link Tokenizer#TF_SEPARATOR_FIELD}, the identifier is
+     * equal to <code>-1</code>.
      *
      * <p>This array is produced by {@link InputTokenizer}.
      */
-    public char[][] image;
+    public int[] imageId;
 
     /**
      * Token's {@link Tokenizer} bit flags.
@@ -127,7 +143,7 @@ public final class PreprocessingContext implements Closeable {
     /** For debugging purposes. */
     @Override
     public String toString() {
-      if (image == null) {
+      if (imageId == null) {
         return UNINITIALIZED;
       }
 
@@ -147,10 +163,10 @@ public final class PreprocessingContext implements Closeable {
                 .addColumn("=>word", (spec) -> spec.alignLeft())
                 .build();
 
-        for (int i = 0; i < image.length; i++, t.nextRow()) {
+        for (int i = 0; i < imageId.length; i++, t.nextRow()) {
           t.append(
               i,
-              image[i] == null ? "<null>" : new String(image[i]),
+              imageId[i] < 0 ? "<null>" : allTokenImages.toString(imageId[i]),
               type[i],
               fieldIndex[i],
               fieldIndex[i] >= 0 ? allFields.name[fieldIndex[i]] : null,
@@ -202,6 +218,77 @@ public final class PreprocessingContext implements Closeable {
   /** Information about all tokens of the input documents. */
   public final AllTokens allTokens = new AllTokens();
 
+  /**
+   * Packed storage of all unique token images. Characters of all images are stored in one shared
+   * {@link #arena}, each image is identified by its index in {@link #offset} and {@link #length}.
+   * Entries of {@link AllTokens#imageId} point to these arrays, so token images can be compared,
+   * sorted and grouped by identifier, without referencing individual <code>char[]</code> objects.
+   *
+   * <p>All arrays in this class, except for {@link #arena}, have the same length and values across
+   * different arrays correspond to each other for the same index.
+   */
+  public static class AllTokenImages {
+    /**
+     * Characters of all unique token images, concatenated.
+     *
+     * <p>This array is produced by {@link InputTokenizer}.
+     */
+    public char[] arena;
+
+    /**
+     * Start offset of each unique token image in {@link #arena}.
+     *
+     * <p>This array is produced by {@link InputTokenizer}.
+     */
+    public int[] offset;
+
+    /**
+     * Length of each unique token image in {@link #arena}.
+     *
+     * <p>This array is produced by {@link InputTokenizer}.
+     */
+    public int[] length;
+
+    /** Returns the number of unique token images. */
+    public int size() {
+      return offset.length;
+    }
+
+    /** Returns a new string with the image of the given identifier. For debugging purposes. */
+    public String toString(int imageId) {
+      return new String(arena, offset[imageId], length[imageId]);
+    }
+
+    /** For debugging purposes. */
+    @Override
+    public String toString() {
+      if (arena == null) {
+        return UNINITIALIZED;
+      }
+
+      StringWriter sw = new StringWriter();
+      TabularOutput t =
+          TabularOutput.to(sw)
+              .noAutoFlush()
+              .addColumn("#")
+              .addColumn("image", spec -> spec.alignLeft())
+              .addColumn("offset")
+              .addColumn("length")
+              .build();
+
+      for (int i = 0; i < offset.length; i++) {
+        t.append(i, toString(i), offset[i], length[i]).nextRow();
+      }
+
+      t.flush();
+      sw.append("\n");
+      return sw.toString();
+    }
+  }
+
+  /** Packed storage of all unique token images. */
+  public final AllTokenImages allTokenImages = new AllTokenImages();
+
   /** Information about all fields processed for the input documents. */
   public static class AllFields {
     /**
@@ -284,17 +371,12 @@ public final class PreprocessingContext implements Closeable {
     public int[] tf;
 
     /**
-     * Term Frequency of the word for each document. The length of this array is equal to the number
-     * of documents this word appeared in (Document Frequency) multiplied by 2. Elements at even
-     * indices contain document indices pointing to documents, elements at odd indices contain the
-     * frequency of the word in the document. For example, an array with 4 values: <code>
-     * [2, 15, 138, 7]</code> means that the word appeared 15 times in document at index 2 and 7
-     * times in document at index 138.
+     * Term Frequency of the word for each document, see {@link SparseTfByDocument} for the layout.
+     * The number of documents of each word is its Document Frequency.
      *
-     * <p>This array is produced by {@link CaseNormalizer}. The order of documents in this array is
-     * not defined.
+     * <p>This array is produced by {@link CaseNormalizer}.
      */
-    public int[][] tfByDocument;
+    public SparseTfByDocument tfByDocument;
 
     /**
      * A pointer to the {@link AllStems} arrays for this word.
@@ -344,7 +426,7 @@ public final class PreprocessingContext implements Closeable {
             image[i] == null ? "<null>" : new String(image[i]),
             type[i],
             tf[i],
-            SparseArray.sparseToString(tfByDocument[i]));
+            tfByDocument.toString(i));
 
         t.append(Arrays.toString(toFieldIndexes(fieldIndices[i])).replace(" ", ""));
 
@@ -400,10 +482,9 @@ public final class PreprocessingContext implements Closeable {
      * Term frequency of the stem for each document. For the encoding of this array, see {@link
      * AllWords#tfByDocument}.
      *
-     * <p>This array is produced by {@link LanguageModelStemmer}. The order of documents in this
-     * array is not defined.
+     * <p>This array is produced by {@link LanguageModelStemmer}.
      */
-    public int[][] tfByDocument;
+    public SparseTfByDocument tfByDocument;
 
     /**
      * A bit-packed index of all fields in which this word appears at least once. Indexes
@@ -442,7 +523,7 @@ public final class PreprocessingContext implements Closeable {
             mostFrequentOriginalWordIndex[i],
             new String(allWords.image[mostFrequentOriginalWordIndex[i]]),
             tf[i],
-            SparseArray.sparseToString(tfByDocument[i]),
+            tfByDocument.toString(i),
             Arrays.toString(toFieldIndexes(fieldIndices[i])).replace(" ", ""));
         t.nextRow();
       }
@@ -479,13 +560,12 @@ public final class PreprocessingContext implements Closeable {
     public int[] tf;
 
     /**
-     * Term frequency of the phrase for each document. The encoding of this array is similar to
-     * {@link AllWords#tfByDocument}: consecutive pairs of: document index, frequency.
+     * Term frequency of the phrase for each document. For the encoding of this array, see {@link
+     * AllWords#tfByDocument}.
      *
-     * <p>This array is produced by {@link PhraseExtractor}. The order of documents in this array is
-     * not defined.
+     * <p>This array is produced by {@link PhraseExtractor}.
      */
-    public int[][] tfByDocument;
+    public SparseTfByDocument tfByDocument;
 
     /** For debugging purposes. */
     @Override
@@ -511,7 +591,7 @@ public final class PreprocessingContext implements Closeable {
             Arrays.toString(wordIndices[i]).replace(" ", ""),
             getPhrase(i),
             tf[i],
-            SparseArray.sparseToString(tfByDocument[i]));
+            tfByDocument.toString(i));
         t.nextRow();
       }
 
@@ -698,19 +778,37 @@ public final class PreprocessingContext implements Closeable {
    * release temporary data structures.
    */
   public void close() {
-    this.tokenCache = null;
+    if (this.images != null) {
+      this.images = null;
+      arena.release();
+    }
   }
 
   /** Return a unique char buffer representing a given character sequence. */
   public char[] intern(MutableCharArray chs) {
-    int index = tokenCache.indexOf(chs);
-    if (tokenCache.indexExists(index)) {
-      return tokenCache.indexGet(index).getBuffer();
-    } else {
-      final char[] tokenImage = new char[chs.length()];
-      System.arraycopy(chs.getBuffer(), chs.getStart(), tokenImage, 0, chs.length());
-      tokenCache.add(new MutableCharArray(tokenImage));
-      return tokenImage;
+    return image(images.add(chs));
+  }
+
+  /**
+   * Returns the table of unique token and stem images. Identifiers of images are shared with {@link
+   * AllTokens#imageId} and {@link #intern}.
+   */
+  ImageTable images() {
+    return images;
+  }
+
+  /** Returns a unique char buffer representing the image with the given identifier. */
+  char[] image(int imageId) {
+    final ObjectArrayList<char[]> interned = arena.internedImages;
+    if (interned.size() <= imageId) {
+      interned.resize(images.size());
+    }
+    char[] image = interned.get(imageId);
+    if (image == null) {
+      final int offset = images.offset(imageId);
+      image = Arrays.copyOfRange(images.buffer(), offset, offset + images.length(imageId));
+      interned.set(imageId, image);
     }
+    return image;
   }
 }
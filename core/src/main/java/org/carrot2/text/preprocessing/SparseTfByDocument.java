@@ -0,0 +1,259 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import java.util.Arrays;
+
+/**
+ * Term frequencies by document for a set of features (words, stems or phrases), stored in a
+ * compressed sparse row layout. Documents and frequencies of the feature at index <code>i</code>
+ * are stored in {@link #documents} and {@link #tfs} at indices from <code>offsets[i]</code>
+ * (inclusive) to <code>offsets[i + 1]</code> (exclusive). Documents of each feature are sorted in
+ * increasing order.
+ *
+ * <p>For example, a feature with documents <code>[2, 138]</code> and frequencies <code>[15, 7]
+ * </code> appeared 15 times in document at index 2 and 7 times in document at index 138.
+ */
+public final class SparseTfByDocument {
+  /** An empty instance with no features. */
+  public static final SparseTfByDocument EMPTY =
+      new SparseTfByDocument(new int[] {0}, new int[0], new int[0]);
+
+  /** Start offsets of features, one more than the number of features. */
+  public final int[] offsets;
+
+  /** Document indices, in increasing order for each feature. */
+  public final int[] documents;
+
+  /** Frequency of the feature in the corresponding document. */
+  public final int[] tfs;
+
+  public SparseTfByDocument(int[] offsets, int[] documents, int[] tfs) {
+    assert offsets.length > 0 && offsets[0] == 0;
+    assert documents.length == tfs.length && offsets[offsets.length - 1] == documents.length;
+    this.offsets = offsets;
+    this.documents = documents;
+    this.tfs = tfs;
+  }
+
+  /** Returns the number of features. */
+  public int size() {
+    return offsets.length - 1;
+  }
+
+  /** Returns the number of documents the feature at index <code>feature</code> appeared in. */
+  public int df(int feature) {
+    return offsets[feature + 1] - offsets[feature];
+  }
+
+  /** Sets bits of all documents the feature at index <code>feature</code> appeared in. */
+  public void addDocuments(int feature, BitSet target) {
+    for (int i = offsets[feature], max = offsets[feature + 1]; i < max; i++) {
+      target.set(documents[i]);
+    }
+  }
+
+  /**
+   * Returns the frequencies of the feature at index <code>feature</code> encoded in pairs of:
+   * document index, frequency, as produced by {@link SparseArray#toSparseEncoding}.
+   */
+  public int[] toSparseEncoding(int feature) {
+    final int from = offsets[feature];
+    final int[] result = new int[(offsets[feature + 1] - from) * 2];
+    for (int i = 0, j = from; i < result.length; j++) {
+      result[i++] = documents[j];
+      result[i++] = tfs[j];
+    }
+    return result;
+  }
+
+  /** Converts frequencies in the pair encoding of {@link SparseArray} to the sparse row layout. */
+  public static SparseTfByDocument fromSparseEncodings(int[][] sparseEncodings) {
+    final Builder builder = new Builder();
+    final IntIntHashMap tfByDocument = new IntIntHashMap();
+    for (int[] sparseEncoding : sparseEncodings) {
+      tfByDocument.clear();
+      for (int i = 0; i < sparseEncoding.length; i += 2) {
+        tfByDocument.put(sparseEncoding[i], sparseEncoding[i + 1]);
+      }
+      builder.addAll(tfByDocument);
+      builder.endFeature();
+    }
+    return builder.build();
+  }
+
+  /**
+   * Appends the sum of frequencies of features <code>features</code> of <code>source</code> to the
+   * current feature of <code>target</code>.
+   */
+  public static void merge(SparseTfByDocument source, IntArrayList features, Builder target) {
+    final int count = features.size();
+    if (count == 1) {
+      final int feature = features.get(0);
+      for (int i = source.offsets[feature], max = source.offsets[feature + 1]; i < max; i++) {
+        target.add(source.documents[i], source.tfs[i]);
+      }
+      return;
+    }
+
+    // Merge sorted document lists, picking the smallest head document in each step.
+    final int[] heads = new int[count];
+    final int[] ends = new int[count];
+    for (int i = 0; i < count; i++) {
+      final int feature = features.get(i);
+      heads[i] = source.offsets[feature];
+      ends[i] = source.offsets[feature + 1];
+    }
+
+    while (true) {
+      int document = Integer.MAX_VALUE;
+      for (int i = 0; i < count; i++) {
+        if (heads[i] < ends[i] && source.documents[heads[i]] < document) {
+          document = source.documents[heads[i]];
+        }
+      }
+
+      if (document == Integer.MAX_VALUE) {
+        break;
+      }
+
+      int tf = 0;
+      for (int i = 0; i < count; i++) {
+        if (heads[i] < ends[i] && source.documents[heads[i]] == document) {
+          tf += source.tfs[heads[i]++];
+        }
+      }
+      target.add(document, tf);
+    }
+  }
+
+  /**
+   * Appends documents in which both feature <code>featureA</code> of <code>a</code> and feature
+   * <code>featureB</code> of <code>b</code> appeared to the current feature of <code>target</code>
+   * . The frequency in each document is the smaller of the two frequencies.
+   */
+  public static void intersect(
+      SparseTfByDocument a, int featureA, SparseTfByDocument b, int featureB, Builder target) {
+    int i = a.offsets[featureA];
+    int j = b.offsets[featureB];
+    final int maxI = a.offsets[featureA + 1];
+    final int maxJ = b.offsets[featureB + 1];
+    while (i < maxI && j < maxJ) {
+      final int documentA = a.documents[i];
+      final int documentB = b.documents[j];
+      if (documentA < documentB) {
+        i++;
+      } else if (documentA > documentB) {
+        j++;
+      } else {
+        target.add(documentA, Math.min(a.tfs[i++], b.tfs[j++]));
+      }
+    }
+  }
+
+  /** Converts frequencies of the feature to a string, for debugging purposes. */
+  public String toString(int feature) {
+    final StringBuilder b = new StringBuilder();
+    final int windowSize = 5;
+    final int from = offsets[feature];
+    final int to = offsets[feature + 1];
+    for (int i = from, max = Math.min(from + windowSize, to); i < max; i++) {
+      b.append(documents[i]).append("=>").append(tfs[i]);
+      b.append(",");
+    }
+    if (to - from > windowSize) b.append("...");
+    return b.toString();
+  }
+
+  /** Builds {@link SparseTfByDocument} by appending documents feature by feature. */
+  public static final class Builder {
+    private final IntArrayList offsets = new IntArrayList();
+    private final IntArrayList documents = new IntArrayList();
+    private final IntArrayList tfs = new IntArrayList();
+
+    public Builder() {
+      offsets.add(0);
+    }
+
+    /** Appends a document to the current feature. Documents must be added in increasing order. */
+    public Builder add(int document, int tf) {
+      assert documents.size() == offsets.get(offsets.size() - 1)
+              || documents.get(documents.size() - 1) < document
+          : "Documents must be added in increasing order.";
+      documents.add(document);
+      tfs.add(tf);
+      return this;
+    }
+
+    /**
+     * Appends documents from a sorted array of document indices, in which each document appears as
+     * many times as the feature occurred in it.
+     */
+    public Builder addDocuments(int[] sortedDocuments, int from, int to) {
+      for (int i = from; i < to; ) {
+        final int document = sortedDocuments[i];
+        int j = i + 1;
+        while (j < to && sortedDocuments[j] == document) {
+          j++;
+        }
+        add(document, j - i);
+        i = j;
+      }
+      return this;
+    }
+
+    /** Appends documents and frequencies from a document-frequency map. */
+    public Builder addAll(IntIntHashMap tfByDocument) {
+      final int[] keys = tfByDocument.keys().toArray();
+      Arrays.sort(keys);
+      for (int key : keys) {
+        add(key, tfByDocument.get(key));
+      }
+      return this;
+    }
+
+    /** Completes the current feature and returns its index. */
+    public int endFeature() {
+      offsets.add(documents.size());
+      return offsets.size() - 2;
+    }
+
+    public SparseTfByDocument build() {
+      assert documents.size() == offsets.get(offsets.size() - 1) : "Unfinished feature.";
+      return new SparseTfByDocument(offsets.toArray(), documents.toArray(), tfs.toArray());
+    }
+
+    /** Removes all features, keeping the allocated buffers. */
+    void clear() {
+      offsets.clear();
+      documents.clear();
+      tfs.clear();
+      offsets.add(0);
+    }
+
+    /** Removes all features and deallocates buffers. */
+    void release() {
+      offsets.release();
+      documents.release();
+      tfs.release();
+      offsets.add(0);
+    }
+
+    /** Returns the size of allocated buffers, in bytes. */
+    long retainedBytes() {
+      return (long) Integer.BYTES
+          * (offsets.buffer.length + documents.buffer.length + tfs.buffer.length);
+    }
+  }
+}
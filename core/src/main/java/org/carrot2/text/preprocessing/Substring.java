@@ -32,9 +32,19 @@ final class Substring {
   /** This substring's frequency across documents */
   public IntIntHashMap tfByDocument;
 
+  /** The number of documents this substring appeared in, set once the substring is complete. */
+  public int df;
+
   /** Used to properly aggregate phrase frequencies */
   public int documentIndexToOffset = -1;
 
+  /**
+   * The range of suffix array indices of this substring's occurrences, from (inclusive) to
+   * (exclusive). Used instead of {@link #tfByDocument} by {@link
+   * PhraseCountingAlgorithm#SUFFIX_RANGES}.
+   */
+  public int suffixesFrom, suffixesTo;
+
   public Substring(int id, int from, int to, int frequency) {
     this.id = id;
     this.from = from;
@@ -12,11 +12,25 @@ package org.carrot2.text.preprocessing;
 
 import com.carrotsearch.hppc.sorting.IndirectComparator;
 import com.carrotsearch.hppc.sorting.IndirectSort;
+import java.util.Arrays;
+import org.carrot2.text.suffixtree.SuffixArrays;
 
 /**
- * A simple suffix sorting utility based on the generic sorting routines from {@link IndirectSort}.
+ * A simple suffix sorting utility based on the generic sorting routines from {@link IndirectSort}
+ * or on the linear-time {@link SuffixArrays#sais(int[], int)}, depending on the selected {@link
+ * SuffixSortingAlgorithm}. Both algorithms produce identical results.
  */
 final class SuffixSorter {
+  private final SuffixSortingAlgorithm algorithm;
+
+  SuffixSorter() {
+    this(SuffixSortingAlgorithm.MERGESORT);
+  }
+
+  SuffixSorter(SuffixSortingAlgorithm algorithm) {
+    this.algorithm = algorithm;
+  }
+
   /** An int comparator that enables suffix sorting. */
   private static class SuffixComparator implements IndirectComparator {
     private int[] suffixData;
@@ -62,12 +76,57 @@ final class SuffixSorter {
       }
     }
 
-    // Create suffix order
-    int[] suffixOrder = IndirectSort.mergesort(0, intCodes.length, new SuffixComparator(intCodes));
-    context.allTokens.suffixOrder = suffixOrder;
+    switch (algorithm) {
+      case MERGESORT:
+        {
+          // Create suffix order
+          int[] suffixOrder =
+              IndirectSort.mergesort(0, intCodes.length, new SuffixComparator(intCodes));
+          context.allTokens.suffixOrder = suffixOrder;
+
+          // Add LCPs
+          context.allTokens.lcp = calculateLcp(intCodes, suffixOrder);
+          break;
+        }
+      case SAIS:
+        {
+          int[] symbols = toSaisAlphabet(intCodes);
+          int alphabetSize = 1;
+          for (int symbol : symbols) {
+            alphabetSize = Math.max(alphabetSize, symbol + 1);
+          }
+
+          int[] suffixArray = SuffixArrays.sais(symbols, alphabetSize);
+          int[] lcp = SuffixArrays.kasaiLcp(symbols, suffixArray);
+
+          // Drop the artificial sentinel which always comes first.
+          context.allTokens.suffixOrder = Arrays.copyOfRange(suffixArray, 1, suffixArray.length);
+          context.allTokens.lcp = Arrays.copyOfRange(lcp, 1, lcp.length);
+          context.allTokens.lcp[0] = 0;
+          break;
+        }
+      default:
+        throw new RuntimeException("Unhandled case: " + algorithm);
+    }
+  }
+
+  /**
+   * Remaps word codes to a dense alphabet that preserves the order imposed by {@link
+   * SuffixComparator} (larger codes first, separators last) and appends a unique zero sentinel
+   * required by SA-IS.
+   */
+  private static int[] toSaisAlphabet(int[] intCodes) {
+    int maxWordCode = -1;
+    for (int code : intCodes) {
+      maxWordCode = Math.max(maxWordCode, code);
+    }
 
-    // Add LCPs
-    context.allTokens.lcp = calculateLcp(intCodes, suffixOrder);
+    final int[] symbols = new int[intCodes.length + 1];
+    for (int i = 0; i < intCodes.length; i++) {
+      final int code = intCodes[i];
+      symbols[i] = code >= 0 ? maxWordCode - code + 1 : maxWordCode + 1 - code;
+    }
+    return symbols;
   }
 
   /** Calculates the Longest Common Prefix values for each token. */
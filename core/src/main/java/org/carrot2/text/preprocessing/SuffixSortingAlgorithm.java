@@ -0,0 +1,20 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+/** Suffix sorting algorithm used by {@link PhraseExtractor}. */
+public enum SuffixSortingAlgorithm {
+  /** Comparison-based merge sort of suffixes, O(n log n) comparisons of variable length. */
+  MERGESORT,
+
+  /** Linear-time induced suffix sorting (SA-IS) with Kasai's linear LCP computation. */
+  SAIS;
+}
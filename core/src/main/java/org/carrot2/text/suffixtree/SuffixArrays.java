@@ -0,0 +1,222 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.suffixtree;
+
+import java.util.Arrays;
+
+/**
+ * Linear-time suffix array and longest common prefix (LCP) array construction for sequences over an
+ * integer alphabet.
+ *
+ * @see "G. Nong, S. Zhang, W. H. Chan, Two Efficient Algorithms for Linear Time Suffix Array
+ *     Construction, IEEE Transactions on Computers, 2011, volume 60, number 10, pages 1471-1484."
+ * @see "T. Kasai, G. Lee, H. Arimura, S. Arikawa, K. Park, Linear-Time Longest-Common-Prefix
+ *     Computation in Suffix Arrays and Its Applications, CPM 2001, pages 181-192."
+ */
+public final class SuffixArrays {
+  private SuffixArrays() {}
+
+  /**
+   * Builds the suffix array of <code>input</code> using the SA-IS (induced sorting) algorithm.
+   *
+   * @param input The input sequence. The last element must be a unique sentinel equal to <code>0
+   *     </code>, all other elements must be in the range <code>[1, alphabetSize)</code>.
+   * @param alphabetSize The size of the alphabet, one larger than the maximum symbol in the input.
+   * @return Returns the suffix array: positions of suffixes of <code>input</code> in their
+   *     lexicographic order. The first element is always the sentinel's position.
+   */
+  public static int[] sais(int[] input, int alphabetSize) {
+    final int n = input.length;
+    if (n == 0) {
+      return new int[0];
+    }
+
+    assert input[n - 1] == 0 : "The input must end with a zero sentinel.";
+    final int[] sa = new int[n];
+    sais(input, sa, n, alphabetSize);
+    return sa;
+  }
+
+  /**
+   * Computes the longest common prefix array for a sequence and its suffix array using Kasai's
+   * algorithm. The value at index <code>i</code> is the length of the common prefix of suffixes
+   * <code>suffixArray[i - 1]</code> and <code>suffixArray[i]</code>, the value at index <code>0
+   * </code> is always <code>0</code>.
+   */
+  public static int[] kasaiLcp(int[] input, int[] suffixArray) {
+    final int n = suffixArray.length;
+    final int[] rank = new int[n];
+    for (int i = 0; i < n; i++) {
+      rank[suffixArray[i]] = i;
+    }
+
+    final int[] lcp = new int[n];
+    for (int i = 0, h = 0; i < n; i++) {
+      if (rank[i] > 0) {
+        final int j = suffixArray[rank[i] - 1];
+        while (i + h < n && j + h < n && input[i + h] == input[j + h]) {
+          h++;
+        }
+        lcp[rank[i]] = h;
+        if (h > 0) {
+          h--;
+        }
+      } else {
+        h = 0;
+      }
+    }
+    return lcp;
+  }
+
+  /** Recursive SA-IS step. Sorts suffixes of <code>s[0..n)</code> into <code>sa[0..n)</code>. */
+  private static void sais(int[] s, int[] sa, int n, int k) {
+    if (n == 1) {
+      sa[0] = 0;
+      return;
+    }
+
+    // Classify suffixes into S-type (true) and L-type (false).
+    final boolean[] stype = new boolean[n];
+    stype[n - 1] = true;
+    for (int i = n - 2; i >= 0; i--) {
+      stype[i] = s[i] < s[i + 1] || (s[i] == s[i + 1] && stype[i + 1]);
+    }
+
+    // Stage 1: sort LMS substrings by placing LMS suffixes at the ends of their
+    // buckets and inducing the order of the remaining suffixes.
+    final int[] buckets = new int[k];
+    bucketEnds(s, n, buckets, k);
+    Arrays.fill(sa, 0, n, -1);
+    for (int i = 1; i < n; i++) {
+      if (isLms(stype, i)) {
+        sa[--buckets[s[i]]] = i;
+      }
+    }
+    induceL(s, sa, stype, n, buckets, k);
+    induceS(s, sa, stype, n, buckets, k);
+
+    // Compact sorted LMS substrings into the first n1 items of sa.
+    int n1 = 0;
+    for (int i = 0; i < n; i++) {
+      if (isLms(stype, sa[i])) {
+        sa[n1++] = sa[i];
+      }
+    }
+
+    // Name LMS substrings, equal substrings get the same name. Names are stored
+    // in the upper half of sa, at index n1 + position / 2 (LMS positions are never adjacent).
+    Arrays.fill(sa, n1, n, -1);
+    int name = 0;
+    int prev = -1;
+    for (int i = 0; i < n1; i++) {
+      final int pos = sa[i];
+      boolean differs = false;
+      for (int d = 0; d < n; d++) {
+        if (prev < 0 || s[pos + d] != s[prev + d] || stype[pos + d] != stype[prev + d]) {
+          differs = true;
+          break;
+        } else if (d > 0 && (isLms(stype, pos + d) || isLms(stype, prev + d))) {
+          break;
+        }
+      }
+
+      if (differs) {
+        name++;
+        prev = pos;
+      }
+      sa[n1 + (pos >> 1)] = name - 1;
+    }
+
+    final int[] s1 = new int[n1];
+    for (int i = n - 1, j = n1 - 1; i >= n1; i--) {
+      if (sa[i] >= 0) {
+        s1[j--] = sa[i];
+      }
+    }
+
+    // Stage 2: sort the reduced problem, recursively if names are not unique.
+    final int[] sa1 = new int[n1];
+    if (name < n1) {
+      sais(s1, sa1, n1, name);
+    } else {
+      for (int i = 0; i < n1; i++) {
+        sa1[s1[i]] = i;
+      }
+    }
+
+    // Stage 3: induce the final order from the sorted LMS suffixes.
+    for (int i = 1, j = 0; i < n; i++) {
+      if (isLms(stype, i)) {
+        s1[j++] = i;
+      }
+    }
+    for (int i = 0; i < n1; i++) {
+      sa1[i] = s1[sa1[i]];
+    }
+
+    bucketEnds(s, n, buckets, k);
+    Arrays.fill(sa, 0, n, -1);
+    for (int i = n1 - 1; i >= 0; i--) {
+      final int j = sa1[i];
+      sa[--buckets[s[j]]] = j;
+    }
+    induceL(s, sa, stype, n, buckets, k);
+    induceS(s, sa, stype, n, buckets, k);
+  }
+
+  private static boolean isLms(boolean[] stype, int i) {
+    return i > 0 && stype[i] && !stype[i - 1];
+  }
+
+  private static void induceL(int[] s, int[] sa, boolean[] stype, int n, int[] buckets, int k) {
+    bucketStarts(s, n, buckets, k);
+    for (int i = 0; i < n; i++) {
+      final int j = sa[i] - 1;
+      if (j >= 0 && !stype[j]) {
+        sa[buckets[s[j]]++] = j;
+      }
+    }
+  }
+
+  private static void induceS(int[] s, int[] sa, boolean[] stype, int n, int[] buckets, int k) {
+    bucketEnds(s, n, buckets, k);
+    for (int i = n - 1; i >= 0; i--) {
+      final int j = sa[i] - 1;
+      if (j >= 0 && stype[j]) {
+        sa[--buckets[s[j]]] = j;
+      }
+    }
+  }
+
+  private static void bucketStarts(int[] s, int n, int[] buckets, int k) {
+    countSymbols(s, n, buckets, k);
+    for (int i = 0, sum = 0; i < k; i++) {
+      final int count = buckets[i];
+      buckets[i] = sum;
+      sum += count;
+    }
+  }
+
+  private static void bucketEnds(int[] s, int n, int[] buckets, int k) {
+    countSymbols(s, n, buckets, k);
+    for (int i = 0, sum = 0; i < k; i++) {
+      sum += buckets[i];
+      buckets[i] = sum;
+    }
+  }
+
+  private static void countSymbols(int[] s, int n, int[] buckets, int k) {
+    Arrays.fill(buckets, 0, k, 0);
+    for (int i = 0; i < n; i++) {
+      buckets[s[i]]++;
+    }
+  }
+}
@@ -13,14 +13,23 @@ package org.carrot2.text.suffixtree;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.LongIntScatterMap;
 import com.carrotsearch.hppc.cursors.LongIntCursor;
+import java.util.Arrays;
 
 /**
  * Builds a suffix tree (or generalized suffix tree) on a sequence of any integers (or objects that
  * can be represented as unique integers). A direct implementation of Esko Ukkonen's algorithm, but
  * optimized for Java to use primitive data types instead of objects (or boxed types).
  *
+ * <p>Alternatively, the tree can be built in a compact form from the suffix array and the longest
+ * common prefix array of the input (see {@link SuffixArrays}). The compact tree has the same states
+ * and edges, but no hash map of transitions: edges leaving a state are sorted by their first symbol
+ * and {@link #findEdge(int, int)} scans them sequentially. This requires a unique last symbol in
+ * the input (a terminator).
+ *
  * @see "E. Ukkonen, On-line construction of suffix trees, Algorithmica, 1995, volume 14, number 3,
  *     pages 249-260."
+ * @see "M. I. Abouelhoda, S. Kurtz, E. Ohlebusch, Replacing suffix trees with enhanced suffix
+ *     arrays, Journal of Discrete Algorithms, 2004, volume 2, number 1, pages 53-86."
  */
 public final class SuffixTree {
   /** A constant to represent invalid suffix link from a state. */
@@ -54,9 +63,9 @@ public final class SuffixTree {
   /**
    * A hash map of transitions (edges) between states in the suffix tree. The map is keyed by a
    * combination of state (upper 32 bits) and symbol (lower 32 bits). The value is an index in the
-   * transitions array.
+   * transitions array. The map is <code>null</code> in compact trees.
    */
-  private final LongIntScatterMap transitions_map = new LongIntScatterMap();
+  private final LongIntScatterMap transitions_map;
 
   /**
    * An array of all transitions.
@@ -144,8 +153,22 @@ public final class SuffixTree {
       Sequence sequence,
       IStateCallback newStateCallback,
       final IProgressCallback progressCallback) {
+    this(sequence, newStateCallback, progressCallback, false);
+  }
+
+  /**
+   * Build a suffix tree for a given input sequence of symbols, optionally in the compact form.
+   *
+   * @see SuffixTreeBuilder#withCompactTransitions(boolean)
+   */
+  SuffixTree(
+      Sequence sequence,
+      IStateCallback newStateCallback,
+      final IProgressCallback progressCallback,
+      boolean compact) {
     this.sequence = sequence;
     this.newStateCallback = newStateCallback;
+    this.inputSize = sequence.size();
 
     // Prepare initial conditions.
     head = createState();
@@ -157,9 +180,15 @@ public final class SuffixTree {
     slots_per_transition = transitions.size();
     root_transition = 0;
 
+    if (compact) {
+      transitions_map = null;
+      buildFromSuffixArray(progressCallback);
+      return;
+    }
+
     // Build the tree.
+    transitions_map = new LongIntScatterMap();
     s = root;
-    inputSize = sequence.size();
     for (k = i = 1; i <= inputSize; i++) {
       if (progressCallback != null) progressCallback.next(i - 1);
       update();
@@ -180,6 +209,145 @@ public final class SuffixTree {
     }
   }
 
+  /**
+   * Builds the compact tree from the suffix array and the longest common prefix array of the input.
+   * Suffixes are added in their lexicographic order, states on the rightmost path of the tree are
+   * kept on a stack. Leaf states are numbered by the position of their suffix, so callbacks are
+   * invoked after the tree is built, in the order of input positions.
+   */
+  private void buildFromSuffixArray(IProgressCallback progressCallback) {
+    final int n = inputSize;
+    for (int i = 0; i < n - 1; i++) {
+      if (sequence.objectAt(i) == sequence.objectAt(n - 1)) {
+        throw new IllegalArgumentException(
+            "Compact suffix trees require a unique last symbol in the input.");
+      }
+    }
+
+    final int[] suffixArray;
+    final int[] lcp;
+    {
+      final int[] symbols = toSuffixArrayAlphabet();
+      int alphabetSize = 1;
+      for (int symbol : symbols) {
+        alphabetSize = Math.max(alphabetSize, symbol + 1);
+      }
+      suffixArray = SuffixArrays.sais(symbols, alphabetSize);
+      lcp = SuffixArrays.kasaiLcp(symbols, suffixArray);
+    }
+
+    // Leaf states, one for each suffix.
+    for (int i = 0; i < n; i++) {
+      createState();
+    }
+    for (int i = states.size() - 1; i >= 0; i--) states.set(i, LEAF_STATE);
+
+    // Internal states and their positions, reported to the state callback.
+    final IntArrayList internalStates = new IntArrayList();
+
+    // Each stack entry holds a state, its depth, the start of any suffix below it and its last
+    // edge.
+    final IntArrayList stack = new IntArrayList();
+    stack.add(root, 0, 0, NO_EDGE);
+
+    // The first suffix is the sentinel, skip it.
+    for (int r = 1; r <= n; r++) {
+      final int suffix = suffixArray[r];
+      final int depth = lcp[r];
+
+      // Complete the states deeper than the common prefix with the previous suffix.
+      int state = -1, stateDepth = 0, stateSuffix = 0;
+      while (stack.get(stack.size() - 3) > depth) {
+        stateSuffix = stack.get(stack.size() - 2);
+        stateDepth = stack.get(stack.size() - 3);
+        state = stack.get(stack.size() - 4);
+        stack.elementsCount -= 4;
+
+        if (stack.get(stack.size() - 3) >= depth) {
+          addChild(stack, state, stateDepth, stateSuffix);
+        }
+      }
+
+      // Split the edge to the last completed state if the common prefix ends on it.
+      if (stack.get(stack.size() - 3) < depth) {
+        final int internal = createState();
+        states.set(internal, LEAF_STATE);
+        internalStates.add(internal, stateSuffix + depth);
+        stack.add(internal, depth, stateSuffix, NO_EDGE);
+        addChild(stack, state, stateDepth, stateSuffix);
+      }
+
+      stack.add(leafState(suffix), n - suffix, suffix, NO_EDGE);
+    }
+
+    while (stack.size() > 4) {
+      final int stateSuffix = stack.get(stack.size() - 2);
+      final int stateDepth = stack.get(stack.size() - 3);
+      final int state = stack.get(stack.size() - 4);
+      stack.elementsCount -= 4;
+      addChild(stack, state, stateDepth, stateSuffix);
+    }
+
+    for (int i = 0; i < n; i++) {
+      if (progressCallback != null) progressCallback.next(i);
+      if (newStateCallback != null) newStateCallback.newState(leafState(i), i + 1);
+    }
+    if (newStateCallback != null) {
+      for (int i = 0; i < internalStates.size(); i += 2) {
+        newStateCallback.newState(internalStates.get(i), internalStates.get(i + 1));
+      }
+    }
+  }
+
+  /** Returns the leaf state of the suffix starting at <code>position</code> in a compact tree. */
+  private int leafState(int position) {
+    return root + 1 + position;
+  }
+
+  /**
+   * Adds an edge from the state on top of the stack to <code>state</code>, after any existing edges
+   * of the parent state.
+   */
+  private void addChild(IntArrayList stack, int state, int stateDepth, int stateSuffix) {
+    final int top = stack.size() - 4;
+    final int parent = stack.get(top);
+    final int parentDepth = stack.get(top + 1);
+    final int lastEdge = stack.get(top + 3);
+
+    final int edge = addTransition(state, stateSuffix + parentDepth + 1, stateSuffix + stateDepth);
+    if (lastEdge == NO_EDGE) {
+      states.set(parent, edge);
+    } else {
+      transitions.set(lastEdge + 3, edge);
+    }
+    stack.set(top + 3, edge);
+  }
+
+  /**
+   * Remaps the input to symbols in the order of their values, starting at <code>1</code>, and
+   * appends the zero sentinel required by {@link SuffixArrays#sais(int[], int)}.
+   */
+  private int[] toSuffixArrayAlphabet() {
+    final int[] unique = new int[inputSize];
+    for (int i = 0; i < inputSize; i++) {
+      unique[i] = sequence.objectAt(i);
+    }
+    Arrays.sort(unique);
+
+    int uniqueCount = 0;
+    for (int i = 0; i < unique.length; i++) {
+      if (uniqueCount == 0 || unique[uniqueCount - 1] != unique[i]) {
+        unique[uniqueCount++] = unique[i];
+      }
+    }
+
+    final int[] symbols = new int[inputSize + 1];
+    for (int i = 0; i < inputSize; i++) {
+      symbols[i] = Arrays.binarySearch(unique, 0, uniqueCount, sequence.objectAt(i)) + 1;
+    }
+    return symbols;
+  }
+
   /** Update subroutine of the suffix tree building algorithm. */
   private final void update() {
     int oldr = root;
@@ -428,7 +596,18 @@ public final class SuffixTree {
    * is returned if there is no such edge.
    */
   public final int findEdge(int state, int symbol) {
-    return transitions_map.getOrDefault(asLong(state, symbol), NO_EDGE);
+    if (transitions_map != null) {
+      return transitions_map.getOrDefault(asLong(state, symbol), NO_EDGE);
+    }
+
+    // Edges of compact trees are sorted by their first symbol.
+    for (int edge = firstEdge(state); edge != NO_EDGE; edge = nextEdge(edge)) {
+      final int first = sequence.objectAt(getStartIndex(edge));
+      if (first >= symbol) {
+        return first == symbol ? edge : NO_EDGE;
+      }
+    }
+    return NO_EDGE;
   }
 
   /** Returns the target state for a given edge. */
@@ -27,6 +27,9 @@ public final class SuffixTreeBuilder {
   /* */
   private SuffixTree.IProgressCallback progressCallback;
 
+  /* */
+  private boolean compact;
+
   /** @see #from(Sequence) */
   private SuffixTreeBuilder(Sequence sequence) {
     this.sequence = sequence;
@@ -42,7 +45,7 @@ public final class SuffixTreeBuilder {
    *     long time, depending on the length of the input sequence.
    */
   public SuffixTree build() {
-    return new SuffixTree(sequence, newStateCallback, progressCallback);
+    return new SuffixTree(sequence, newStateCallback, progressCallback, compact);
   }
 
   public SuffixTreeBuilder withProgressCallback(SuffixTree.IProgressCallback callback) {
@@ -54,4 +57,16 @@ public final class SuffixTreeBuilder {
     this.newStateCallback = callback;
     return this;
   }
+
+  /**
+   * Builds the tree from the suffix array of the input, without a hash map of transitions. Compact
+   * trees take less memory, but finding an edge by its symbol requires a scan over the edges of a
+   * state. The last symbol of the input must be unique. Callbacks are invoked after the tree is
+   * built, the state callback is invoked for leaf states in the order of their positions in the
+   * input, then for the internal states.
+   */
+  public SuffixTreeBuilder withCompactTransitions(boolean compact) {
+    this.compact = compact;
+    return this;
+  }
 }
@@ -11,23 +11,30 @@
 package org.carrot2.text.vsm;
 
 import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
 import com.carrotsearch.hppc.sorting.IndirectComparator;
 import com.carrotsearch.hppc.sorting.IndirectSort;
 import java.util.Arrays;
 import java.util.function.IntToDoubleFunction;
+import org.carrot2.attrs.AttrBoolean;
 import org.carrot2.attrs.AttrComposite;
 import org.carrot2.attrs.AttrDouble;
 import org.carrot2.attrs.AttrInteger;
 import org.carrot2.attrs.AttrObject;
 import org.carrot2.attrs.AttrStringArray;
 import org.carrot2.language.TokenTypeUtils;
+import org.carrot2.math.mahout.function.IntIntDoubleFunction;
 import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.CompressedRowDoubleMatrix2D;
 import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseFloatMatrix2D;
 import org.carrot2.math.mahout.matrix.impl.SparseDoubleMatrix2D;
 import org.carrot2.math.matrix.MatrixUtils;
 import org.carrot2.text.preprocessing.PreprocessingContext;
 import org.carrot2.text.preprocessing.PreprocessingContext.AllFields;
+import org.carrot2.text.preprocessing.SparseTfByDocument;
 
 /** Builds a term document matrix based on the provided {@link PreprocessingContext}. */
 public class TermDocumentMatrixBuilder extends AttrComposite {
@@ -54,7 +61,8 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
 
   /**
    * Maximum term-document matrix size. Determines the maximum number of the term-document matrix
-   * elements. The larger the size, the more accurate, time- and memory-consuming clustering.
+   * elements. The larger the size, the more accurate, time- and memory-consuming clustering. If
+   * {@link #sparseMatrix} is enabled, the limit applies to the number of non-zero elements only.
    */
   public final AttrInteger maximumMatrixSize =
       attributes.register(
@@ -64,6 +72,29 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
               .min(50 * 100)
               .defaultValue(250 * 150));
 
+  /**
+   * Use sparse term-document matrices. If enabled, term-document and term-phrase matrices are
+   * stored in the compressed sparse row format and only their non-zero elements count towards
+   * {@link #maximumMatrixSize}, which allows much larger vocabularies to be included for the same
+   * memory budget.
+   */
+  public final AttrBoolean sparseMatrix =
+      attributes.register(
+          "sparseMatrix",
+          AttrBoolean.builder().label("Use sparse term-document matrices").defaultValue(false));
+
+  /**
+   * Store dense term-document matrices in single precision. Halves the memory footprint of the
+   * matrix and the memory bandwidth used by the factorization and clustering loops, at the cost of
+   * rounding matrix elements to <code>float</code>. Ignored if {@link #sparseMatrix} is enabled.
+   */
+  public final AttrBoolean singlePrecision =
+      attributes.register(
+          "singlePrecision",
+          AttrBoolean.builder()
+              .label("Use single-precision term-document matrices")
+              .defaultValue(false));
+
   /**
    * Maximum word document frequency. The maximum document frequency allowed for words as a fraction
    * of all documents. Words with document frequency larger than {@link #maxWordDf} will be ignored.
@@ -109,7 +140,7 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
 
     final int documentCount = preprocessingContext.documentCount;
     final int[] stemsTf = preprocessingContext.allStems.tf;
-    final int[][] stemsTfByDocument = preprocessingContext.allStems.tfByDocument;
+    final SparseTfByDocument stemsTfByDocument = preprocessingContext.allStems.tfByDocument;
     final byte[] stemsFieldIndices = preprocessingContext.allStems.fieldIndices;
 
     if (documentCount == 0) {
@@ -152,31 +183,74 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
       final int stemIndex = stemsToInclude[i];
       double weight =
           termWeighting.calculateTermWeight(
-              stemsTf[stemIndex], stemsTfByDocument[stemIndex].length / 2, documentCount);
+              stemsTf[stemIndex], stemsTfByDocument.df(stemIndex), documentCount);
       stemsWeight[i] = weight * fieldIndexToBoost.applyAsDouble(stemsFieldIndices[stemIndex]);
     }
     final int[] stemWeightOrder =
         IndirectSort.mergesort(
             0, stemsWeight.length, new IndirectComparator.DescendingDoubleComparator(stemsWeight));
 
-    // Calculate the number of terms we can include to fulfill the max matrix size
-    final int maxRows = maximumMatrixSize.get() / documentCount;
-    final DoubleMatrix2D tdMatrix =
-        new DenseDoubleMatrix2D(Math.min(maxRows, stemsToInclude.length), documentCount);
-
-    for (int i = 0; i < stemWeightOrder.length && i < maxRows; i++) {
-      final int stemIndex = stemsToInclude[stemWeightOrder[i]];
-      final int[] tfByDocument = stemsTfByDocument[stemIndex];
-      final int df = tfByDocument.length / 2;
-      final byte fieldIndices = stemsFieldIndices[stemIndex];
+    final DoubleMatrix2D tdMatrix;
+    if (sparseMatrix.get()) {
+      // Include terms for as long as their non-zero elements fit the max matrix size
+      final int maxNonZeros = maximumMatrixSize.get();
+      int rows = 0;
+      int nonZeros = 0;
+      for (; rows < stemWeightOrder.length; rows++) {
+        final int df = stemsTfByDocument.df(stemsToInclude[stemWeightOrder[rows]]);
+        if (nonZeros + df > maxNonZeros) {
+          break;
+        }
+        nonZeros += df;
+      }
 
-      double fieldWeight = fieldIndexToBoost.applyAsDouble(fieldIndices);
-      for (int j = 0; j < df; j++) {
-        double weight =
-            termWeighting.calculateTermWeight(tfByDocument[j * 2 + 1], df, documentCount);
+      final int[] rowOffsets = new int[rows + 1];
+      final int[] columnIndices = new int[nonZeros];
+      final double[] values = new double[nonZeros];
+      int k = 0;
+      for (int i = 0; i < rows; i++) {
+        final int stemIndex = stemsToInclude[stemWeightOrder[i]];
+        final int df = stemsTfByDocument.df(stemIndex);
+        final double fieldWeight = fieldIndexToBoost.applyAsDouble(stemsFieldIndices[stemIndex]);
+        for (int j = stemsTfByDocument.offsets[stemIndex],
+                max = stemsTfByDocument.offsets[stemIndex + 1];
+            j < max;
+            j++, k++) {
+          columnIndices[k] = stemsTfByDocument.documents[j];
+          values[k] =
+              termWeighting.calculateTermWeight(stemsTfByDocument.tfs[j], df, documentCount)
+                  * fieldWeight;
+        }
+        sortRow(columnIndices, values, rowOffsets[i], k);
+        rowOffsets[i + 1] = k;
+      }
+      tdMatrix =
+          new CompressedRowDoubleMatrix2D(rows, documentCount, rowOffsets, columnIndices, values);
+    } else {
+      // Calculate the number of terms we can include to fulfill the max matrix size
+      final int maxRows = maximumMatrixSize.get() / documentCount;
+      final int rows = Math.min(maxRows, stemsToInclude.length);
+      tdMatrix =
+          singlePrecision.get()
+              ? new DenseFloatMatrix2D(rows, documentCount)
+              : new DenseDoubleMatrix2D(rows, documentCount);
+
+      for (int i = 0; i < stemWeightOrder.length && i < maxRows; i++) {
+        final int stemIndex = stemsToInclude[stemWeightOrder[i]];
+        final int df = stemsTfByDocument.df(stemIndex);
+        final byte fieldIndices = stemsFieldIndices[stemIndex];
+
+        double fieldWeight = fieldIndexToBoost.applyAsDouble(fieldIndices);
+        for (int j = stemsTfByDocument.offsets[stemIndex],
+                max = stemsTfByDocument.offsets[stemIndex + 1];
+            j < max;
+            j++) {
+          double weight =
+              termWeighting.calculateTermWeight(stemsTfByDocument.tfs[j], df, documentCount);
 
-        weight *= fieldWeight;
-        tdMatrix.set(i, tfByDocument[j * 2], weight);
+          weight *= fieldWeight;
+          tdMatrix.set(i, stemsTfByDocument.documents[j], weight);
+        }
       }
     }
 
@@ -209,14 +283,63 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
         phraseFeatureIndices[featureIndex] = labelsFeatureIndex[featureIndex + firstPhraseIndex];
       }
 
-      final DoubleMatrix2D phraseMatrix =
-          TermDocumentMatrixBuilder.buildAlignedMatrix(
-              context, phraseFeatureIndices, termWeighting);
-      MatrixUtils.normalizeColumnL2(phraseMatrix, null);
-      context.termPhraseMatrix = phraseMatrix.viewDice();
+      if (sparseMatrix.get()) {
+        final DoubleMatrix2D phraseMatrix =
+            TermDocumentMatrixBuilder.buildAlignedRowMatrix(
+                context, phraseFeatureIndices, termWeighting);
+        normalizeRowL2(phraseMatrix);
+        context.termPhraseMatrix = phraseMatrix;
+      } else {
+        final DoubleMatrix2D phraseMatrix =
+            TermDocumentMatrixBuilder.buildAlignedMatrix(
+                context, phraseFeatureIndices, termWeighting);
+        MatrixUtils.normalizeColumnL2(phraseMatrix, null);
+        context.termPhraseMatrix = phraseMatrix.viewDice();
+      }
     }
   }
 
+  /**
+   * Sorts elements of a compressed matrix row by column index. Document indices in {@link
+   * SparseTfByDocument} are usually sorted already, so insertion sort is used.
+   */
+  private static void sortRow(int[] columnIndices, double[] values, int from, int to) {
+    for (int i = from + 1; i < to; i++) {
+      final int column = columnIndices[i];
+      final double value = values[i];
+      int j = i - 1;
+      for (; j >= from && columnIndices[j] > column; j--) {
+        columnIndices[j + 1] = columnIndices[j];
+        values[j + 1] = values[j];
+      }
+      columnIndices[j + 1] = column;
+      values[j + 1] = value;
+    }
+  }
+
+  /** Normalizes rows of a sparse matrix so that their L2 norm is equal to 1.0. */
+  private static void normalizeRowL2(DoubleMatrix2D matrix) {
+    final double[] norms = new double[matrix.rows()];
+    matrix.forEachNonZero(
+        new IntIntDoubleFunction() {
+          @Override
+          public double apply(int row, int column, double value) {
+            norms[row] += value * value;
+            return value;
+          }
+        });
+    for (int r = 0; r < norms.length; r++) {
+      norms[r] = Math.sqrt(norms[r]);
+    }
+    matrix.forEachNonZero(
+        new IntIntDoubleFunction() {
+          @Override
+          public double apply(int row, int column, double value) {
+            return value / norms[row];
+          }
+        });
+  }
+
   /**
    * Computes stem indices of words that are one-word label candidates or are non-stop words from
    * phrase label candidates.
@@ -228,7 +351,7 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
     final int[][] phrasesWordIndices = context.allPhrases.wordIndices;
     final int wordCount = wordsStemIndex.length;
 
-    final int[][] stemsTfByDocument = context.allStems.tfByDocument;
+    final SparseTfByDocument stemsTfByDocument = context.allStems.tfByDocument;
     int documentCount = context.documentCount;
     final BitSet requiredStemIndices = new BitSet(labelsFeatureIndex.length);
 
@@ -267,12 +390,12 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
   private void addStemIndex(
       final int[] wordsStemIndex,
       int documentCount,
-      int[][] stemsTfByDocument,
+      SparseTfByDocument stemsTfByDocument,
       final BitSet requiredStemIndices,
       final int featureIndex,
       double maxWordDf) {
     final int stemIndex = wordsStemIndex[featureIndex];
-    final int df = stemsTfByDocument[stemIndex].length / 2;
+    final int df = stemsTfByDocument.df(stemIndex);
     if (((double) df / documentCount) <= maxWordDf) {
       requiredStemIndices.set(stemIndex);
     }
@@ -295,7 +418,7 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
     final PreprocessingContext preprocessingContext = vsmContext.preprocessingContext;
     final int[] wordsStemIndex = preprocessingContext.allWords.stemIndex;
     final int[] stemsTf = preprocessingContext.allStems.tf;
-    final int[][] stemsTfByDocument = preprocessingContext.allStems.tfByDocument;
+    final SparseTfByDocument stemsTfByDocument = preprocessingContext.allStems.tfByDocument;
     final int[][] phrasesWordIndices = preprocessingContext.allPhrases.wordIndices;
     final int documentCount = preprocessingContext.documentCount;
     final int wordCount = wordsStemIndex.length;
@@ -317,7 +440,7 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
 
           double weight =
               termWeighting.calculateTermWeight(
-                  stemsTf[stemIndex], stemsTfByDocument[stemIndex].length / 2, documentCount);
+                  stemsTf[stemIndex], stemsTfByDocument.df(stemIndex), documentCount);
 
           phraseMatrix.setQuick(rowIndex, i, weight);
         }
@@ -326,4 +449,70 @@ public class TermDocumentMatrixBuilder extends AttrComposite {
 
     return phraseMatrix;
   }
+
+  /**
+   * Builds a compressed sparse row matrix with one row for each of the provided features, in the
+   * same term space as the original term-document matrix. This is the transposition of the matrix
+   * built by {@link #buildAlignedMatrix}.
+   */
+  static DoubleMatrix2D buildAlignedRowMatrix(
+      VectorSpaceModelContext vsmContext, int[] featureIndex, TermWeighting termWeighting) {
+    final IntIntHashMap stemToRowIndex = vsmContext.stemToRowIndex;
+    final PreprocessingContext preprocessingContext = vsmContext.preprocessingContext;
+    final int[] wordsStemIndex = preprocessingContext.allWords.stemIndex;
+    final int[] stemsTf = preprocessingContext.allStems.tf;
+    final SparseTfByDocument stemsTfByDocument = preprocessingContext.allStems.tfByDocument;
+    final int[][] phrasesWordIndices = preprocessingContext.allPhrases.wordIndices;
+    final int documentCount = preprocessingContext.documentCount;
+    final int wordCount = wordsStemIndex.length;
+
+    final int[] rowOffsets = new int[featureIndex.length + 1];
+    final IntArrayList columnIndices = new IntArrayList();
+    for (int i = 0; i < featureIndex.length; i++) {
+      final int feature = featureIndex[i];
+      final int start = columnIndices.size();
+      if (feature < wordCount) {
+        addAlignedColumn(stemToRowIndex, wordsStemIndex[feature], columnIndices, start);
+      } else {
+        for (int wordIndex : phrasesWordIndices[feature - wordCount]) {
+          addAlignedColumn(stemToRowIndex, wordsStemIndex[wordIndex], columnIndices, start);
+        }
+      }
+      Arrays.sort(columnIndices.buffer, start, columnIndices.size());
+      rowOffsets[i + 1] = columnIndices.size();
+    }
+
+    // Term weights, by term-document matrix row.
+    final double[] rowWeights = new double[stemToRowIndex.size()];
+    for (IntIntCursor c : stemToRowIndex) {
+      final int stemIndex = c.key;
+      rowWeights[c.value] =
+          termWeighting.calculateTermWeight(
+              stemsTf[stemIndex], stemsTfByDocument.df(stemIndex), documentCount);
+    }
+
+    final int[] columns = columnIndices.toArray();
+    final double[] values = new double[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      values[i] = rowWeights[columns[i]];
+    }
+
+    return new CompressedRowDoubleMatrix2D(
+        featureIndex.length, stemToRowIndex.size(), rowOffsets, columns, values);
+  }
+
+  /** Adds the term-document matrix row of a stem, unless it is absent or already added. */
+  private static void addAlignedColumn(
+      IntIntHashMap stemToRowIndex, int stemIndex, IntArrayList columnIndices, int start) {
+    final int index = stemToRowIndex.indexOf(stemIndex);
+    if (stemToRowIndex.indexExists(index)) {
+      final int column = stemToRowIndex.indexGet(index);
+      for (int i = start; i < columnIndices.size(); i++) {
+        if (columnIndices.get(i) == column) {
+          return;
+        }
+      }
+      columnIndices.add(column);
+    }
+  }
 }
@@ -10,15 +10,19 @@
  */
 package org.carrot2.text.vsm;
 
+import com.carrotsearch.hppc.cursors.IntIntCursor;
 import org.carrot2.attrs.AttrComposite;
 import org.carrot2.attrs.AttrObject;
 import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
 import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
 import org.carrot2.math.matrix.IterativeMatrixFactorizationFactory;
+import org.carrot2.math.matrix.LanczosSingularValueDecompositionFactory;
 import org.carrot2.math.matrix.MatrixFactorization;
 import org.carrot2.math.matrix.MatrixFactorizationFactory;
 import org.carrot2.math.matrix.MatrixUtils;
 import org.carrot2.math.matrix.NonnegativeMatrixFactorizationEDFactory;
+import org.carrot2.math.matrix.RandomizedSingularValueDecompositionFactory;
+import org.carrot2.math.matrix.WarmStartSeedingStrategyFactory;
 
 /** Reduces the dimensionality of a term-document matrix using a matrix factorization algorithm. */
 public class TermDocumentMatrixReducer extends AttrComposite {
@@ -47,20 +51,45 @@ public class TermDocumentMatrixReducer extends AttrComposite {
       return;
     }
 
+    WarmStartSeedingStrategyFactory warmStartFactory = null;
+    String[] rowKeys = null;
     if (factorizationFactory instanceof IterativeMatrixFactorizationFactory) {
-      ((IterativeMatrixFactorizationFactory) factorizationFactory)
-          .estimateIterationsNumber(dimensions, vsmContext.termDocumentMatrix);
+      final IterativeMatrixFactorizationFactory iterativeFactory =
+          (IterativeMatrixFactorizationFactory) factorizationFactory;
+      iterativeFactory.estimateIterationsNumber(dimensions, vsmContext.termDocumentMatrix);
+      if (iterativeFactory.getSeedingFactory() instanceof WarmStartSeedingStrategyFactory) {
+        warmStartFactory = (WarmStartSeedingStrategyFactory) iterativeFactory.getSeedingFactory();
+        rowKeys = stemImages(vsmContext);
+      }
+      iterativeFactory.setRowKeys(rowKeys);
+    } else if (factorizationFactory instanceof RandomizedSingularValueDecompositionFactory) {
+      // Compute only the base vectors that will be used.
+      ((RandomizedSingularValueDecompositionFactory) factorizationFactory).setK(dimensions);
+    } else if (factorizationFactory instanceof LanczosSingularValueDecompositionFactory) {
+      ((LanczosSingularValueDecompositionFactory) factorizationFactory).setK(dimensions);
     }
 
     MatrixUtils.normalizeColumnL2(vsmContext.termDocumentMatrix, null);
     final MatrixFactorization factorization =
         factorizationFactory.factorize(vsmContext.termDocumentMatrix);
-    context.baseMatrix = factorization.getU();
-    context.coefficientMatrix = factorization.getV();
+    if (warmStartFactory != null) {
+      warmStartFactory.update(rowKeys, factorization.getU());
+    }
+
     context.baseMatrix = trim(factorizationFactory, factorization.getU(), dimensions);
     context.coefficientMatrix = trim(factorizationFactory, factorization.getV(), dimensions);
   }
 
+  /** Returns images of stems corresponding to rows of the term-document matrix. */
+  private static String[] stemImages(VectorSpaceModelContext vsmContext) {
+    final char[][] images = vsmContext.preprocessingContext.allStems.image;
+    final String[] rowKeys = new String[vsmContext.termDocumentMatrix.rows()];
+    for (IntIntCursor c : vsmContext.stemToRowIndex) {
+      rowKeys[c.value] = new String(images[c.key]);
+    }
+    return rowKeys;
+  }
+
   private final DoubleMatrix2D trim(
       MatrixFactorizationFactory factorizationFactory, DoubleMatrix2D matrix, int dimensions) {
     if (!(factorizationFactory instanceof IterativeMatrixFactorizationFactory)
@@ -0,0 +1,69 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.util;
+
+import com.carrotsearch.hppc.BitSet;
+import java.util.Arrays;
+
+/**
+ * An inverted index of a list of {@link BitSet}s: for each set element, the indices of sets
+ * containing it, in increasing order. Postings of element <code>e</code> are at indices from {@link
+ * #postingsStart(int)} (inclusive) to {@link #postingsEnd(int)} (exclusive).
+ */
+public final class BitSetInvertedIndex {
+  /** Sets containing each element, in increasing order. */
+  private final int[] postings;
+
+  /** Start of each element's sets in {@link #postings}, the last value is the total size. */
+  private final int[] postingStarts;
+
+  /** Builds the index in two passes over the sets. */
+  public BitSetInvertedIndex(BitSet[] sets) {
+    int elementCount = 0;
+    for (BitSet set : sets) {
+      elementCount = Math.max(elementCount, set.wlen * Long.SIZE);
+    }
+
+    postingStarts = new int[elementCount + 1];
+    for (BitSet set : sets) {
+      for (int e = set.nextSetBit(0); e >= 0; e = set.nextSetBit(e + 1)) {
+        postingStarts[e + 1]++;
+      }
+    }
+    for (int e = 0; e < elementCount; e++) {
+      postingStarts[e + 1] += postingStarts[e];
+    }
+
+    postings = new int[postingStarts[elementCount]];
+    final int[] postingEnds = Arrays.copyOf(postingStarts, elementCount);
+    for (int i = 0; i < sets.length; i++) {
+      final BitSet set = sets[i];
+      for (int e = set.nextSetBit(0); e >= 0; e = set.nextSetBit(e + 1)) {
+        postings[postingEnds[e]++] = i;
+      }
+    }
+  }
+
+  /** Returns the start (inclusive) of the postings of <code>element</code>. */
+  public int postingsStart(int element) {
+    return postingStarts[element];
+  }
+
+  /** Returns the end (exclusive) of the postings of <code>element</code>. */
+  public int postingsEnd(int element) {
+    return postingStarts[element + 1];
+  }
+
+  /** Returns the set index at a given position of the postings. */
+  public int posting(int index) {
+    return postings[index];
+  }
+}
@@ -10,9 +10,11 @@
  */
 package org.carrot2.util;
 
+import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.IntArrayDeque;
 import com.carrotsearch.hppc.IntArrayList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /** Various utilities for processing graphs. */
@@ -67,6 +69,86 @@ public class GraphUtils {
     return clusterGroups;
   }
 
+  /**
+   * Finds coherent subgraphs of an undirected graph whose vertices are sets and only vertices with
+   * intersecting sets can be connected. Unlike {@link #findCoherentSubgraphs(int, IArcPredicate,
+   * boolean)}, which tests all pairs of vertices, this method uses an inverted index of set
+   * elements to test only the pairs sharing at least one element, computes their intersection sizes
+   * with bit counts of the underlying words and joins connected vertices in a union-find structure.
+   * Pairs of vertices already known to be in the same subgraph are not tested.
+   *
+   * @param vertexSets the sets corresponding to the vertices of the graph
+   * @param arcPredicate a predicate that determines which vertices with intersecting sets are
+   *     connected by an arc
+   * @param pruneOneNodeSubgraphs if <code>true</code>, one-node subgraphs will not be included in
+   *     the result
+   * @return a list of {@link IntArrayList}s containing vertices of the coherent subgraphs, in the
+   *     order of their lowest vertices. Vertices of each subgraph are sorted.
+   */
+  public static List<IntArrayList> findCoherentSubgraphs(
+      BitSet[] vertexSets, IOverlapArcPredicate arcPredicate, boolean pruneOneNodeSubgraphs) {
+    final int vertexCount = vertexSets.length;
+
+    final BitSetInvertedIndex index = new BitSetInvertedIndex(vertexSets);
+
+    // Test each pair of vertices sharing an element once, from the lower vertex.
+    final int[] parents = new int[vertexCount];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      parents[vertex] = vertex;
+    }
+    final int[] lastTestedFrom = new int[vertexCount];
+    Arrays.fill(lastTestedFrom, -1);
+    for (int vertexA = 0; vertexA < vertexCount; vertexA++) {
+      final BitSet setA = vertexSets[vertexA];
+      for (int e = setA.nextSetBit(0); e >= 0; e = setA.nextSetBit(e + 1)) {
+        for (int i = index.postingsEnd(e) - 1; i >= index.postingsStart(e); i--) {
+          final int vertexB = index.posting(i);
+          if (vertexB <= vertexA) {
+            break;
+          }
+          if (lastTestedFrom[vertexB] == vertexA) {
+            continue;
+          }
+          lastTestedFrom[vertexB] = vertexA;
+
+          final int rootA = findRoot(parents, vertexA);
+          final int rootB = findRoot(parents, vertexB);
+          if (rootA != rootB
+              && arcPredicate.isArcPresent(
+                  vertexA, vertexB, BitSet.intersectionCount(setA, vertexSets[vertexB]))) {
+            // Keep the lower vertex as the root.
+            parents[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+          }
+        }
+      }
+    }
+
+    final List<IntArrayList> subgraphs = new ArrayList<>();
+    final int[] subgraphIndex = new int[vertexCount];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      final int root = findRoot(parents, vertex);
+      if (root == vertex) {
+        subgraphIndex[vertex] = subgraphs.size();
+        subgraphs.add(new IntArrayList());
+      }
+      subgraphs.get(subgraphIndex[root]).add(vertex);
+    }
+
+    if (pruneOneNodeSubgraphs) {
+      subgraphs.removeIf(subgraph -> subgraph.size() == 1);
+    }
+    return subgraphs;
+  }
+
+  /** Returns the root of a vertex in a union-find forest, halving the path on the way. */
+  private static int findRoot(int[] parents, int vertex) {
+    while (parents[vertex] != vertex) {
+      parents[vertex] = parents[parents[vertex]];
+      vertex = parents[vertex];
+    }
+    return vertex;
+  }
+
   /** A predicate defining arcs of an undirected graph. */
   public static interface IArcPredicate {
     /**
@@ -75,4 +157,13 @@ public class GraphUtils {
      */
     public boolean isArcPresent(int vertexA, int vertexB);
   }
+
+  /** A predicate defining arcs of an undirected graph whose vertices are sets. */
+  public static interface IOverlapArcPredicate {
+    /**
+     * Returns <code>true</code> if there is an arc connecting <code>vertexA</code> and <code>
+     * vertexB</code>, given the number of elements shared by their sets.
+     */
+    public boolean isArcPresent(int vertexA, int vertexB, long overlap);
+  }
 }
@@ -15,6 +15,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import com.carrotsearch.randomizedtesting.RandomizedTest;
 import com.carrotsearch.randomizedtesting.annotations.Nightly;
 import com.carrotsearch.randomizedtesting.annotations.ThreadLeakLingering;
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -171,6 +172,73 @@ public abstract class ClusteringAlgorithmTestBase<E extends ClusteringAlgorithm
     }
   }
 
+  @Test
+  public void testDocumentsFromParallelStream() {
+    List<Document> documents = SampleDocumentData.DOCUMENTS_DATA_MINING;
+    LanguageComponents english = CachedLangComponents.loadCached("English");
+
+    List<Cluster<Document>> expected = algorithm().cluster(documents.stream(), english);
+    List<Cluster<Document>> actual = algorithm().cluster(documents.parallelStream(), english);
+
+    assertThat(actual).isNotEmpty().containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  public void testClusterOrdinals() {
+    List<Document> documents = SampleDocumentData.DOCUMENTS_DATA_MINING;
+    LanguageComponents english = CachedLangComponents.loadCached("English");
+
+    List<Cluster<Document>> expected = algorithm().cluster(documents.stream(), english);
+    List<Cluster<Integer>> actual = algorithm().clusterOrdinals(documents.stream(), english);
+
+    assertThat(actual.stream().map(c -> resolveOrdinals(c, documents)))
+        .isNotEmpty()
+        .containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  public void testClusterOrdinalsDoesNotRetainDocuments() throws InterruptedException {
+    List<Document> documents = SampleDocumentData.DOCUMENTS_DATA_MINING;
+    List<WeakReference<Document>> streamed = new ArrayList<>();
+    BitSet tokenized = new BitSet();
+
+    List<Cluster<Integer>> clusters =
+        algorithm()
+            .clusterOrdinals(
+                IntStream.range(0, documents.size())
+                    .mapToObj(
+                        ordinal -> {
+                          // The previous document must have been consumed before this one is
+                          // requested from the stream.
+                          assertThat(tokenized.cardinality()).isEqualTo(ordinal);
+                          Document document =
+                              fieldConsumer -> {
+                                tokenized.set(ordinal);
+                                documents.get(ordinal).visitFields(fieldConsumer);
+                              };
+                          streamed.add(new WeakReference<>(document));
+                          return document;
+                        }),
+                CachedLangComponents.loadCached("English"));
+
+    assertThat(clusters).isNotEmpty();
+    assertThat(tokenized.cardinality()).isEqualTo(documents.size());
+    for (int i = 0; i < 50 && streamed.stream().anyMatch(ref -> ref.get() != null); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertThat(streamed).allMatch(ref -> ref.get() == null);
+  }
+
+  private static <T> Cluster<T> resolveOrdinals(Cluster<Integer> cluster, List<T> documents) {
+    Cluster<T> resolved = new Cluster<>();
+    cluster.getLabels().forEach(resolved::addLabel);
+    cluster.getDocuments().forEach(ordinal -> resolved.addDocument(documents.get(ordinal)));
+    cluster.getClusters().forEach(sub -> resolved.addCluster(resolveOrdinals(sub, documents)));
+    resolved.setScore(cluster.getScore());
+    return resolved;
+  }
+
   @Test
   public void testAttrGetAndSet() {
     AcceptingVisitor algorithm = algorithm();
@@ -55,6 +55,31 @@ public class BisectingKMeansClusteringAlgorithmTest
     Assertions.assertThat(clusters.get(2).getLabels()).containsExactly("WordC");
   }
 
+  @Test
+  public void testSinglePrecisionTermDocumentMatrix() {
+    // Without dimensionality reduction, k-means works on the term-document matrix directly.
+    BisectingKMeansClusteringAlgorithm algorithm = algorithm();
+    algorithm.useDimensionalityReduction.set(false);
+    final List<Cluster<Document>> expected =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    algorithm.matrixBuilder.singlePrecision.set(true);
+    final List<Cluster<Document>> clusters =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    Assertions.assertThat(expected).isNotEmpty();
+    Assertions.assertThat(clusters.size()).isEqualTo(expected.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assertions.assertThat(clusters.get(i).getLabels()).isEqualTo(expected.get(i).getLabels());
+      Assertions.assertThat(clusters.get(i).getDocuments())
+          .isEqualTo(expected.get(i).getDocuments());
+    }
+  }
+
   // TODO: CARROT-1195 (clustering not deterministic)
   @AwaitsFix("https://issues.carrot2.org/browse/CARROT-1195")
   @Override
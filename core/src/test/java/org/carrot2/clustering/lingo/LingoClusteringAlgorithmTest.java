@@ -18,6 +18,7 @@ import org.carrot2.AwaitsFix;
 import org.carrot2.clustering.*;
 import org.carrot2.clustering.Cluster;
 import org.carrot2.clustering.Document;
+import org.carrot2.text.preprocessing.PreprocessingArena;
 import org.junit.Test;
 
 public class LingoClusteringAlgorithmTest
@@ -41,6 +42,59 @@ public class LingoClusteringAlgorithmTest
     Assertions.assertThat(clusters).isEmpty();
   }
 
+  @Test
+  public void testSparseTermDocumentMatrix() {
+    LingoClusteringAlgorithm algorithm = algorithm();
+    List<Cluster<Document>> expected =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    algorithm.matrixBuilder.sparseMatrix.set(true);
+    List<Cluster<Document>> clusters =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    assertSameClusters(expected, clusters);
+  }
+
+  @Test
+  public void testSinglePrecisionTermDocumentMatrix() {
+    LingoClusteringAlgorithm algorithm = algorithm();
+    List<Cluster<Document>> expected =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    algorithm.matrixBuilder.singlePrecision.set(true);
+    List<Cluster<Document>> clusters =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    assertSameClusters(expected, clusters);
+  }
+
+  @Test
+  public void testPooledArenaRetainedBytes() {
+    LingoClusteringAlgorithm algorithm = algorithm();
+    algorithm.preprocessing.pooledArenas.set(true);
+    algorithm.cluster(
+        SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+        CachedLangComponents.loadCached("English"));
+    long retained = PreprocessingArena.currentThreadRetainedBytes();
+    Assertions.assertThat(retained)
+        .isGreaterThan(1024)
+        .isLessThanOrEqualTo(algorithm.preprocessing.maxArenaSize.get() * (1L << 20));
+
+    algorithm.preprocessing.maxArenaSize.set(0);
+    algorithm.cluster(
+        SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+        CachedLangComponents.loadCached("English"));
+    Assertions.assertThat(PreprocessingArena.currentThreadRetainedBytes()).isLessThan(1024);
+  }
+
   @Test
   public void testNoLabelCandidates() {
     LingoClusteringAlgorithm algorithm = algorithm();
@@ -82,4 +136,18 @@ public class LingoClusteringAlgorithmTest
   public void testResultsStableFromRandomShuffle() throws Exception {
     super.testResultsStableFromRandomShuffle();
   }
+
+  /** Checks that clusters have the same labels, documents and (nearly) the same scores. */
+  private static void assertSameClusters(
+      List<Cluster<Document>> expected, List<Cluster<Document>> actual) {
+    Assertions.assertThat(expected).isNotEmpty();
+    Assertions.assertThat(actual).hasSameSizeAs(expected);
+    for (int i = 0; i < expected.size(); i++) {
+      Cluster<Document> e = expected.get(i);
+      Cluster<Document> a = actual.get(i);
+      Assertions.assertThat(a.getLabels()).isEqualTo(e.getLabels());
+      Assertions.assertThat(a.getDocuments()).isEqualTo(e.getDocuments());
+      Assertions.assertThat(a.getScore()).isCloseTo(e.getScore(), Assertions.within(1e-4));
+    }
+  }
 }
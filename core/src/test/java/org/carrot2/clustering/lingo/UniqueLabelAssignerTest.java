@@ -0,0 +1,131 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.clustering.lingo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import java.util.stream.Stream;
+import org.carrot2.clustering.TestDocument;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.text.preprocessing.PreprocessingContext;
+import org.junit.Test;
+
+/** Test cases for {@link UniqueLabelAssigner}. */
+public class UniqueLabelAssignerTest extends LingoProcessingComponentTestBase {
+  private static final int PHRASE_FEATURE_OFFSET = 1000;
+
+  @Test
+  public void testSameAsExhaustiveSearch() {
+    for (int i = 0; i < iterations(20, 200); i++) {
+      final int columns = randomIntBetween(1, 15);
+      final DoubleMatrix2D stemCos = randomMatrix(randomIntBetween(0, 30), columns);
+      final DoubleMatrix2D phraseCos =
+          randomBoolean() ? null : randomMatrix(randomIntBetween(0, 30), columns);
+
+      final IntIntHashMap filteredRowToStemIndex = new IntIntHashMap();
+      for (int row = 0; row < stemCos.rows(); row++) {
+        filteredRowToStemIndex.put(row, row);
+      }
+
+      buildLingoModel(Stream.of(new TestDocument("aa bb", "cc dd")));
+      final PreprocessingContext context = lingoContext.preprocessingContext;
+      context.allStems.mostFrequentOriginalWordIndex = new int[stemCos.rows()];
+      for (int row = 0; row < stemCos.rows(); row++) {
+        context.allStems.mostFrequentOriginalWordIndex[row] = row;
+      }
+      context.allLabels.firstPhraseIndex = 0;
+      context.allLabels.featureIndex = new int[phraseCos != null ? phraseCos.rows() : 0];
+      for (int row = 0; row < context.allLabels.featureIndex.length; row++) {
+        context.allLabels.featureIndex[row] = PHRASE_FEATURE_OFFSET + row;
+      }
+
+      final IntArrayList expectedFeatures = new IntArrayList();
+      final DoubleArrayList expectedScores = new DoubleArrayList();
+      exhaustiveSearch(
+          stemCos.copy(),
+          phraseCos != null ? phraseCos.copy() : null,
+          expectedFeatures,
+          expectedScores);
+
+      new UniqueLabelAssigner()
+          .assignLabels(lingoContext, stemCos, filteredRowToStemIndex, phraseCos);
+      assertThat(lingoContext.clusterLabelFeatureIndex).containsExactly(expectedFeatures.toArray());
+      assertThat(lingoContext.clusterLabelScore).containsExactly(expectedScores.toArray());
+    }
+  }
+
+  /** Repeatedly selects the maximum element and clears its row and column. */
+  private static void exhaustiveSearch(
+      DoubleMatrix2D stemCos,
+      DoubleMatrix2D phraseCos,
+      IntArrayList features,
+      DoubleArrayList scores) {
+    for (int label = 0; label < stemCos.columns(); label++) {
+      final int[] stemMax = max(stemCos);
+      final int[] phraseMax = max(phraseCos);
+      if (stemMax == null && phraseMax == null) {
+        break;
+      }
+
+      final double stemScore = stemMax != null ? stemCos.getQuick(stemMax[0], stemMax[1]) : -1;
+      final double phraseScore =
+          phraseMax != null ? phraseCos.getQuick(phraseMax[0], phraseMax[1]) : -1;
+      if (phraseScore > stemScore) {
+        phraseCos.viewRow(phraseMax[0]).assign(0);
+        phraseCos.viewColumn(phraseMax[1]).assign(0);
+        stemCos.viewColumn(phraseMax[1]).assign(0);
+        features.add(PHRASE_FEATURE_OFFSET + phraseMax[0]);
+        scores.add(phraseScore);
+      } else {
+        stemCos.viewRow(stemMax[0]).assign(0);
+        stemCos.viewColumn(stemMax[1]).assign(0);
+        if (phraseCos != null) {
+          phraseCos.viewColumn(stemMax[1]).assign(0);
+        }
+        features.add(stemMax[0]);
+        scores.add(stemScore);
+      }
+    }
+  }
+
+  private static int[] max(DoubleMatrix2D matrix) {
+    if (matrix == null) {
+      return null;
+    }
+
+    int[] max = null;
+    double value = 0;
+    for (int r = 0; r < matrix.rows(); r++) {
+      for (int c = 0; c < matrix.columns(); c++) {
+        if (matrix.getQuick(r, c) > value) {
+          value = matrix.getQuick(r, c);
+          max = new int[] {r, c};
+        }
+      }
+    }
+    return max;
+  }
+
+  /** Returns a matrix with many equal elements, to exercise tie resolution. */
+  private DoubleMatrix2D randomMatrix(int rows, int columns) {
+    final DoubleMatrix2D matrix = new DenseDoubleMatrix2D(rows, columns);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        matrix.setQuick(r, c, randomFrom(new Double[] {-0.5, 0d, 0d, 0.25, 0.5, 0.75, 1d}));
+      }
+    }
+    return matrix;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.clustering.stc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import org.carrot2.TestBase;
+import org.junit.Test;
+
+/** Test cases for {@link BaseClusterOverlaps}. */
+public class BaseClusterOverlapsTest extends TestBase {
+  @Test
+  public void testSameAsAllPairs() {
+    for (int i = 0; i < iterations(5, 50); i++) {
+      final int documents = randomIntBetween(1, 200);
+      final List<ClusterCandidate> baseClusters = new ArrayList<>();
+      final int count = randomIntBetween(0, 3 * BaseClusterOverlaps.MIN_CLUSTERS_PER_SHARD);
+      for (int c = 0; c < count; c++) {
+        final BitSet set = new BitSet();
+        for (int d = randomIntBetween(1, 20); d > 0; d--) {
+          set.set(randomIntBetween(0, documents - 1));
+        }
+        baseClusters.add(new ClusterCandidate(new int[0], set, (int) set.cardinality(), 1));
+      }
+      final float threshold = randomFrom(new Float[] {0f, 0.3f, 0.6f, 0.9f});
+
+      final int[][] expected = allPairs(baseClusters, threshold);
+      final BaseClusterOverlaps overlaps = new BaseClusterOverlaps(baseClusters);
+      assertThat(overlaps.mergeNeighbors(threshold, false)).containsExactly(expected);
+      assertThat(overlaps.mergeNeighbors(threshold, true)).containsExactly(expected);
+    }
+  }
+
+  private static int[][] allPairs(List<ClusterCandidate> baseClusters, float threshold) {
+    final int[][] neighbors = new int[baseClusters.size()][];
+    for (int i = 0; i < baseClusters.size(); i++) {
+      final IntArrayList list = new IntArrayList();
+      for (int j = i + 1; j < baseClusters.size(); j++) {
+        final ClusterCandidate c1 = baseClusters.get(i);
+        final ClusterCandidate c2 = baseClusters.get(j);
+        final float c = BitSet.intersectionCount(c1.documents, c2.documents);
+        if (c / c1.cardinality > threshold && c / c2.cardinality > threshold) {
+          list.add(j);
+        }
+      }
+      neighbors[i] = list.toArray();
+    }
+    return neighbors;
+  }
+}
@@ -10,12 +10,16 @@
  */
 package org.carrot2.clustering.stc;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.carrot2.text.suffixtree.SuffixTree.NO_EDGE;
 import static org.junit.Assert.*;
 
 import com.carrotsearch.hppc.BitSet;
 import com.carrotsearch.hppc.IntStack;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.carrot2.TestBase;
 import org.carrot2.clustering.stc.GeneralizedSuffixTree.SequenceBuilder;
 import org.carrot2.text.suffixtree.SuffixTree;
@@ -103,4 +107,175 @@ public class GeneralizedSuffixTreeTest extends TestBase {
     TestGST gst = new TestGST(sb);
     gst.visit();
   }
+
+  @Test
+  public void testVisitorSameAsRecursiveWalk() {
+    for (int i = 0; i < iterations(10, 100); i++) {
+      final SequenceBuilder sb = new SequenceBuilder();
+      final int vocabulary = randomIntBetween(1, 10);
+      final int documents = randomIntBetween(1, 300);
+      for (int d = 0; d < documents; d++) {
+        for (int p = randomIntBetween(0, 3); p > 0; p--) {
+          final int[] phrase = new int[randomIntBetween(1, 6)];
+          for (int t = 0; t < phrase.length; t++) {
+            phrase[t] = randomIntBetween(0, vocabulary - 1);
+          }
+          sb.addPhrase(phrase);
+        }
+        sb.endDocument();
+      }
+      sb.buildSuffixTree();
+
+      final int minCardinality = randomIntBetween(2, 5);
+      assertThat(visitIterative(sb, minCardinality))
+          .containsExactlyElementsOf(visitRecursive(sb, minCardinality));
+    }
+  }
+
+  @Test
+  public void testDeepTree() {
+    // A long run of a repeated token creates a tree as deep as the run.
+    final int[] run = new int[50_000];
+    final SequenceBuilder sb = new SequenceBuilder();
+    for (int d = 0; d < 2; d++) {
+      sb.addPhrase(run);
+      sb.endDocument();
+    }
+    sb.buildSuffixTree();
+
+    final int[] visited = new int[1];
+    new GeneralizedSuffixTree.Visitor(sb, 2) {
+      @Override
+      protected void visit(int state, int cardinality, BitSet documents, IntStack path) {
+        assertThat(cardinality).isEqualTo(2);
+        visited[0]++;
+      }
+    }.visit();
+    assertThat(visited[0]).isEqualTo(run.length);
+  }
+
+  @Test
+  public void testCompactSuffixTree() {
+    for (int i = 0; i < iterations(10, 100); i++) {
+      final SequenceBuilder sb = new SequenceBuilder();
+      final int vocabulary = randomIntBetween(1, 10);
+      for (int d = randomIntBetween(1, 300); d > 0; d--) {
+        for (int p = randomIntBetween(1, 3); p > 0; p--) {
+          final int[] phrase = new int[randomIntBetween(1, 6)];
+          for (int t = 0; t < phrase.length; t++) {
+            phrase[t] = randomIntBetween(0, vocabulary - 1);
+          }
+          sb.addPhrase(phrase);
+        }
+        sb.endDocument();
+      }
+
+      final int minCardinality = randomIntBetween(2, 5);
+      sb.buildSuffixTree();
+      final List<String> expected = visitPhrases(sb, minCardinality);
+      Collections.sort(expected);
+      sb.buildSuffixTree(true);
+      final List<String> compact = visitPhrases(sb, minCardinality);
+      sb.buildSuffixArray();
+      assertThat(visitPhrases(sb, minCardinality)).containsExactlyElementsOf(compact);
+
+      Collections.sort(compact);
+      assertThat(compact).containsExactlyElementsOf(expected);
+    }
+  }
+
+  @Test
+  public void testEmptyDocuments() {
+    final SequenceBuilder sb = new SequenceBuilder();
+    sb.addPhrase(0, 1, 2);
+    sb.endDocument();
+    sb.endDocument();
+    sb.addPhrase(3, 1, 2);
+    sb.endDocument();
+    sb.endDocument();
+    sb.addPhrase(1, 2, 4);
+    sb.endDocument();
+
+    final List<String> expected = Arrays.asList("1 2 [3] {0, 2, 4}", "2 [3] {0, 2, 4}");
+    sb.buildSuffixTree();
+    assertThat(visitPhrases(sb, 2)).containsExactlyInAnyOrderElementsOf(expected);
+    sb.buildSuffixTree(true);
+    assertThat(visitPhrases(sb, 2)).containsExactlyElementsOf(expected);
+    sb.buildSuffixArray();
+    assertThat(visitPhrases(sb, 2)).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  public void testEmptySuffixArray() {
+    final SequenceBuilder sb = new SequenceBuilder();
+    sb.endDocument();
+    sb.buildSuffixArray();
+    assertThat(visitPhrases(sb, 2)).isEmpty();
+  }
+
+  /** Returns the phrases, cardinalities and documents of all visited states. */
+  private static List<String> visitPhrases(SequenceBuilder sb, int minCardinality) {
+    final List<String> visits = new ArrayList<>();
+    new GeneralizedSuffixTree.Visitor(sb, minCardinality) {
+      @Override
+      protected void visit(int state, int cardinality, BitSet documents, IntStack path) {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < path.size(); i += 2) {
+          for (int j = path.get(i); j <= path.get(i + 1); j++) {
+            b.append(sb.input.get(j)).append(' ');
+          }
+        }
+        visits.add(b + "[" + cardinality + "] " + documents);
+      }
+    }.visit();
+    return visits;
+  }
+
+  private static List<String> visitIterative(SequenceBuilder sb, int minCardinality) {
+    final List<String> visits = new ArrayList<>();
+    new GeneralizedSuffixTree.Visitor(sb, minCardinality) {
+      @Override
+      protected void visit(int state, int cardinality, BitSet documents, IntStack path) {
+        assertThat(documents.cardinality()).isEqualTo(cardinality);
+        visits.add(describe(state, cardinality, documents, path));
+      }
+    }.visit();
+    return visits;
+  }
+
+  /** The reference, recursive walk with a bit set per level. */
+  private static List<String> visitRecursive(SequenceBuilder sb, int minCardinality) {
+    final List<String> visits = new ArrayList<>();
+    final SuffixTree stree = sb.stree;
+    if (!stree.isLeaf(stree.getRootState())) {
+      countDocs(sb, minCardinality, stree.getRootState(), new IntStack(), visits);
+    }
+    return visits;
+  }
+
+  private static BitSet countDocs(
+      SequenceBuilder sb, int minCardinality, int state, IntStack edges, List<String> visits) {
+    final SuffixTree stree = sb.stree;
+    final BitSet me = new BitSet();
+    for (int edge = stree.firstEdge(state); edge != NO_EDGE; edge = stree.nextEdge(edge)) {
+      final int childState = stree.getToState(edge);
+      if (stree.isLeaf(childState)) {
+        me.set(sb.stateOriginDocument.get(childState));
+      } else {
+        edges.push(stree.getStartIndex(edge), stree.getEndIndex(edge));
+        me.or(countDocs(sb, minCardinality, childState, edges, visits));
+        edges.discard(2);
+      }
+    }
+
+    final int card = (int) me.cardinality();
+    if (stree.getRootState() != state && card >= minCardinality) {
+      visits.add(describe(state, card, me, edges));
+    }
+    return me;
+  }
+
+  private static String describe(int state, int cardinality, BitSet documents, IntStack path) {
+    return state + " " + cardinality + " " + documents + " " + Arrays.toString(path.toArray());
+  }
 }
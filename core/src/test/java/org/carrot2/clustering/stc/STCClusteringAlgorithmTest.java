@@ -59,6 +59,129 @@ public class STCClusteringAlgorithmTest
     Assertions.assertThat(clusters.size()).isEqualTo(9);
   }
 
+  @Test
+  public void testParallelMerging() {
+    STCClusteringAlgorithm algorithm = algorithm();
+    algorithm.maxBaseClusters.set(2000);
+    algorithm.maxClusters.set(50);
+    List<Cluster<Document>> sequential =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    algorithm.parallelMerging.set(true);
+    List<Cluster<Document>> parallel =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    Assertions.assertThat(parallel.size()).isEqualTo(sequential.size());
+    for (int i = 0; i < sequential.size(); i++) {
+      Assertions.assertThat(parallel.get(i).getLabels()).isEqualTo(sequential.get(i).getLabels());
+      Assertions.assertThat(parallel.get(i).getDocuments())
+          .isEqualTo(sequential.get(i).getDocuments());
+    }
+  }
+
+  @Test
+  public void testParallelLabeling() {
+    STCClusteringAlgorithm algorithm = algorithm();
+    algorithm.maxBaseClusters.set(2000);
+    algorithm.maxClusters.set(50);
+    List<Cluster<Document>> sequential =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    algorithm.parallelLabeling.set(true);
+    algorithm.parallelLabelingThreshold.set(1);
+    List<Cluster<Document>> parallel =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    Assertions.assertThat(parallel.size()).isEqualTo(sequential.size());
+    for (int i = 0; i < sequential.size(); i++) {
+      Assertions.assertThat(parallel.get(i).getLabels()).isEqualTo(sequential.get(i).getLabels());
+      Assertions.assertThat(parallel.get(i).getDocuments())
+          .isEqualTo(sequential.get(i).getDocuments());
+      Assertions.assertThat(parallel.get(i).getScore()).isEqualTo(sequential.get(i).getScore());
+    }
+  }
+
+  @Test
+  public void testSuffixStructures() {
+    STCClusteringAlgorithm algorithm = algorithm();
+    List<Cluster<Document>> expected =
+        algorithm.cluster(
+            SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+            CachedLangComponents.loadCached("English"));
+
+    for (SuffixStructure structure : SuffixStructure.values()) {
+      algorithm.suffixStructure.set(structure);
+      List<Cluster<Document>> clusters =
+          algorithm.cluster(
+              SampleDocumentData.DOCUMENTS_DATA_MINING.stream(),
+              CachedLangComponents.loadCached("English"));
+
+      Assertions.assertThat(clusters.size()).isEqualTo(expected.size());
+      for (int i = 0; i < expected.size(); i++) {
+        Assertions.assertThat(clusters.get(i).getLabels())
+            .as(structure.name())
+            .isEqualTo(expected.get(i).getLabels());
+        Assertions.assertThat(clusters.get(i).getDocuments())
+            .isEqualTo(expected.get(i).getDocuments());
+      }
+    }
+  }
+
+  @Test
+  public void testEmptyDocument() {
+    List<Document> documents =
+        Arrays.asList(
+            new TestDocument("data mining tools"),
+            new TestDocument(""),
+            new TestDocument("data mining methods"),
+            new TestDocument("data mining software"));
+
+    for (SuffixStructure structure : SuffixStructure.values()) {
+      STCClusteringAlgorithm algorithm = algorithm();
+      algorithm.suffixStructure.set(structure);
+      List<Cluster<Document>> clusters =
+          algorithm.cluster(documents.stream(), CachedLangComponents.loadCached("English"));
+
+      Assertions.assertThat(clusters).hasSize(1);
+      Assertions.assertThat(clusters.get(0).getLabels()).containsExactly("Data Mining");
+      Assertions.assertThat(clusters.get(0).getDocuments())
+          .containsExactly(documents.get(0), documents.get(2), documents.get(3));
+    }
+  }
+
+  @Test
+  public void testStemEquivalentPhrases() {
+    // "cluster" is followed by different words, so the path of "cluster analysis" has two edges.
+    // The path of "clusters analysis" is a single edge.
+    List<Document> documents =
+        Arrays.asList(
+            new TestDocument("cluster analysis alpha"),
+            new TestDocument("cluster analysis beta"),
+            new TestDocument("cluster method"),
+            new TestDocument("clusters analysis gamma"),
+            new TestDocument("clusters analysis delta"));
+
+    for (SuffixStructure structure : SuffixStructure.values()) {
+      STCClusteringAlgorithm algorithm = algorithm();
+      algorithm.suffixStructure.set(structure);
+      List<Cluster<Document>> clusters =
+          algorithm.cluster(documents.stream(), CachedLangComponents.loadCached("English"));
+
+      Assertions.assertThat(clusters).hasSize(1);
+      Assertions.assertThat(clusters.get(0).getLabels()).containsExactly("Cluster Analysis");
+      Assertions.assertThat(clusters.get(0).getDocuments())
+          .containsExactly(documents.get(0), documents.get(1), documents.get(3), documents.get(4));
+    }
+  }
+
   @Test
   public void testComputeIntersection() {
     int[] t1;
@@ -0,0 +1,84 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.language;
+
+import org.assertj.core.api.Assertions;
+import org.carrot2.TestBase;
+import org.carrot2.clustering.CachedLangComponents;
+import org.carrot2.util.MutableCharArray;
+import org.junit.Test;
+
+public class StemCacheTest extends TestBase {
+  @Test
+  public void testHitsAndMisses() {
+    StemCache cache = new StemCache(10);
+    MutableCharArray word = new MutableCharArray("programming");
+
+    Assertions.assertThat(cache.get(word)).isNull();
+    cache.put(word, "program".toCharArray());
+    Assertions.assertThat(new String(cache.get(word))).isEqualTo("program");
+    Assertions.assertThat(new String(cache.get(new MutableCharArray("programming"))))
+        .isEqualTo("program");
+
+    Assertions.assertThat(cache.hits()).isEqualTo(2);
+    Assertions.assertThat(cache.misses()).isEqualTo(1);
+    Assertions.assertThat(cache.size()).isEqualTo(1);
+
+    cache.clear();
+    Assertions.assertThat(cache.size()).isEqualTo(0);
+    Assertions.assertThat(cache.hits()).isEqualTo(0);
+  }
+
+  @Test
+  public void testKeyIsCopied() {
+    StemCache cache = new StemCache(10);
+    char[] buffer = "abc".toCharArray();
+    cache.put(new MutableCharArray(buffer), "a".toCharArray());
+    buffer[0] = 'x';
+
+    Assertions.assertThat(cache.get(new MutableCharArray("abc"))).isNotNull();
+    Assertions.assertThat(cache.get(new MutableCharArray("xbc"))).isNull();
+  }
+
+  @Test
+  public void testBoundedWithFrequentWordsRetained() {
+    int capacity = randomIntBetween(2, 100);
+    StemCache cache = new StemCache(capacity);
+    MutableCharArray frequent = new MutableCharArray("frequent");
+    cache.put(frequent, "freq".toCharArray());
+
+    for (int i = 0; i < capacity * 10; i++) {
+      cache.put(new MutableCharArray("word" + i), "word".toCharArray());
+      Assertions.assertThat(cache.size()).isLessThanOrEqualTo(capacity);
+      Assertions.assertThat(cache.get(frequent)).isNotNull();
+    }
+  }
+
+  @Test
+  public void testBufferStemmingIdenticalToCharSequenceStemming() {
+    Stemmer stemmer = CachedLangComponents.loadCached("English").get(Stemmer.class);
+    String[] words = {"programming", "programs", "clusters", "data", "a", "analyses"};
+
+    char[] output = new char[randomIntBetween(0, 10)];
+    for (String word : words) {
+      CharSequence expected = stemmer.stem(word);
+      int length = stemmer.stem(word.toCharArray(), 0, word.length(), output);
+      if (expected == null) {
+        Assertions.assertThat(length).isEqualTo(-1);
+      } else {
+        Assertions.assertThat(length).isEqualTo(expected.length());
+        if (length <= output.length) {
+          Assertions.assertThat(new String(output, 0, length)).isEqualTo(expected.toString());
+        }
+      }
+    }
+  }
+}
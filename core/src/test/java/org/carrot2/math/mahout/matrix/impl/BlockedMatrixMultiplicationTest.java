@@ -0,0 +1,107 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.mahout.matrix.impl;
+
+import com.carrotsearch.randomizedtesting.annotations.Nightly;
+import java.util.Locale;
+import org.carrot2.TestBase;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.matrix.MatrixAssertions;
+import org.junit.Test;
+
+/** Test cases for {@link BlockedMatrixMultiplication}. */
+public class BlockedMatrixMultiplicationTest extends TestBase {
+  @Test
+  public void testSameAsUnblocked() {
+    for (int i = 0; i < iterations(5, 20); i++) {
+      final int m = randomIntBetween(1, 300);
+      final int n = randomIntBetween(1, 300);
+      final int p = randomIntBetween(1, 100);
+      final boolean transposeA = randomBoolean();
+      final boolean transposeB = randomBoolean();
+      final double alpha = randomFrom(new Double[] {1d, 0.5, -2d});
+      final double beta = randomFrom(new Double[] {0d, 1d, 0.25});
+
+      DenseDoubleMatrix2D A = transposeA ? randomMatrix(n, m) : randomMatrix(m, n);
+      DenseDoubleMatrix2D B = transposeB ? randomMatrix(p, n) : randomMatrix(n, p);
+      DenseDoubleMatrix2D C = randomMatrix(m, p);
+
+      DenseDoubleMatrix2D a = (DenseDoubleMatrix2D) (transposeA ? A.viewDice() : A);
+      DenseDoubleMatrix2D b = (DenseDoubleMatrix2D) (transposeB ? B.viewDice() : B);
+
+      DenseDoubleMatrix2D expected = (DenseDoubleMatrix2D) C.copy();
+      a.zMultUnblocked(b, expected, alpha, beta);
+
+      DenseDoubleMatrix2D actual = (DenseDoubleMatrix2D) C.copy();
+      BlockedMatrixMultiplication.multiply(a, b, actual, alpha, beta);
+      MatrixAssertions.assertThat(actual).isEquivalentTo(expected, 1e-9);
+
+      DoubleMatrix2D product = A.zMult(B, C.copy(), alpha, beta, transposeA, transposeB);
+      MatrixAssertions.assertThat(product).isEquivalentTo(expected, 1e-9);
+    }
+  }
+
+  /** Compares the running time of the blocked and the single-threaded kernels. */
+  @Nightly
+  @Test
+  public void benchmarkMultiplication() {
+    final int[][] sizes = {{100, 100, 100}, {500, 250, 50}, {250, 1000, 25}, {800, 800, 800}};
+    for (int[] size : sizes) {
+      final DenseDoubleMatrix2D A = randomMatrix(size[0], size[1]);
+      final DenseDoubleMatrix2D B = randomMatrix(size[1], size[2]);
+      final DenseDoubleMatrix2D Bt =
+          (DenseDoubleMatrix2D) randomMatrix(size[2], size[1]).viewDice();
+      final DenseDoubleMatrix2D C = new DenseDoubleMatrix2D(size[0], size[2]);
+
+      for (int round = 0; round < 5; round++) {
+        long start = System.nanoTime();
+        A.zMultUnblocked(B, C, 1, 0);
+        final long unblocked = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        BlockedMatrixMultiplication.multiply(A, B, C, 1, 0);
+        final long blocked = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        A.zMultUnblocked(Bt, C, 1, 0);
+        final long unblockedTransposed = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        BlockedMatrixMultiplication.multiply(A, Bt, C, 1, 0);
+        final long blockedTransposed = System.nanoTime() - start;
+
+        System.out.println(
+            String.format(
+                Locale.ROOT,
+                "Round %d, %dx%dx%d: unblocked %.2f ms, blocked %.2f ms,"
+                    + " transposed B: unblocked %.2f ms, blocked %.2f ms.",
+                round,
+                size[0],
+                size[1],
+                size[2],
+                unblocked / 1_000_000d,
+                blocked / 1_000_000d,
+                unblockedTransposed / 1_000_000d,
+                blockedTransposed / 1_000_000d));
+      }
+    }
+  }
+
+  private DenseDoubleMatrix2D randomMatrix(int rows, int columns) {
+    DenseDoubleMatrix2D matrix = new DenseDoubleMatrix2D(rows, columns);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        matrix.setQuick(r, c, randomIntBetween(-100, 100) / 10d);
+      }
+    }
+    return matrix;
+  }
+}
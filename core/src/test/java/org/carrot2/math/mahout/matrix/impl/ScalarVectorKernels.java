@@ -0,0 +1,67 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.mahout.matrix.impl;
+
+/** Reference implementations of {@link VectorKernels}, processing one element at a time. */
+final class ScalarVectorKernels {
+  private ScalarVectorKernels() {}
+
+  static double dot(
+      double[] x, int xOffset, int xStride, double[] y, int yOffset, int yStride, int length) {
+    double sum = 0;
+    for (int k = 0, i = xOffset, j = yOffset; k < length; k++, i += xStride, j += yStride) {
+      sum += x[i] * y[j];
+    }
+    return sum;
+  }
+
+  static double sum(double[] x, int offset, int stride, int length) {
+    double sum = 0;
+    for (int k = 0, i = offset; k < length; k++, i += stride) {
+      sum += x[i];
+    }
+    return sum;
+  }
+
+  static void multiply(
+      double[] x, int xOffset, int xStride, double[] y, int yOffset, int yStride, int length) {
+    for (int k = 0, i = xOffset, j = yOffset; k < length; k++, i += xStride, j += yStride) {
+      x[i] *= y[j];
+    }
+  }
+
+  static void divide(
+      double[] x, int xOffset, int xStride, double[] y, int yOffset, int yStride, int length) {
+    for (int k = 0, i = xOffset, j = yOffset; k < length; k++, i += xStride, j += yStride) {
+      x[i] /= y[j];
+    }
+  }
+
+  static void addScaled(
+      double[] x,
+      int xOffset,
+      int xStride,
+      double[] y,
+      int yOffset,
+      int yStride,
+      double alpha,
+      int length) {
+    for (int k = 0, i = xOffset, j = yOffset; k < length; k++, i += xStride, j += yStride) {
+      x[i] += alpha * y[j];
+    }
+  }
+
+  static void scale(double[] x, int offset, int stride, double alpha, int length) {
+    for (int k = 0, i = offset; k < length; k++, i += stride) {
+      x[i] *= alpha;
+    }
+  }
+}
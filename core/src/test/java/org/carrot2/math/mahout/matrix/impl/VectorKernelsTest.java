@@ -0,0 +1,176 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.mahout.matrix.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.carrotsearch.randomizedtesting.annotations.Nightly;
+import java.util.Locale;
+import org.carrot2.TestBase;
+import org.junit.Test;
+
+/** Test cases for {@link VectorKernels}. */
+public class VectorKernelsTest extends TestBase {
+  @Test
+  public void testReductions() {
+    for (int i = 0; i < iterations(10, 100); i++) {
+      final int length = randomIntBetween(0, 100);
+      final int xStride = randomFrom(new Integer[] {1, 1, 2, 5, -1});
+      final int yStride = randomFrom(new Integer[] {1, 1, 3, -2});
+      final double[] x = randomArray(length * Math.abs(xStride) + 10);
+      final double[] y = randomArray(length * Math.abs(yStride) + 10);
+      final int xOffset = offset(length, xStride);
+      final int yOffset = offset(length, yStride);
+
+      double absDot = 0;
+      double absSum = 0;
+      for (int k = 0; k < length; k++) {
+        absDot += Math.abs(x[xOffset + k * xStride] * y[yOffset + k * yStride]);
+        absSum += Math.abs(x[xOffset + k * xStride]);
+      }
+      final double tolerance = 2 * length * Math.ulp(1d);
+
+      assertThat(VectorKernels.dot(x, xOffset, xStride, y, yOffset, yStride, length))
+          .isCloseTo(
+              ScalarVectorKernels.dot(x, xOffset, xStride, y, yOffset, yStride, length),
+              within(tolerance * absDot));
+      assertThat(VectorKernels.sum(x, xOffset, xStride, length))
+          .isCloseTo(
+              ScalarVectorKernels.sum(x, xOffset, xStride, length), within(tolerance * absSum));
+    }
+  }
+
+  @Test
+  public void testElementWise() {
+    for (int i = 0; i < iterations(10, 100); i++) {
+      final int length = randomIntBetween(0, 100);
+      final int xStride = randomFrom(new Integer[] {1, 1, 2, -1});
+      final int yStride = randomFrom(new Integer[] {1, 1, 3, -2});
+      final double[] x = randomArray(length * Math.abs(xStride) + 10);
+      final double[] y = randomArray(length * Math.abs(yStride) + 10);
+      final int xOffset = offset(length, xStride);
+      final int yOffset = offset(length, yStride);
+      final double alpha = randomFrom(new Double[] {1d, -1d, 0.5, 3d});
+
+      double[] expected = x.clone();
+      double[] actual = x.clone();
+      ScalarVectorKernels.multiply(expected, xOffset, xStride, y, yOffset, yStride, length);
+      VectorKernels.multiply(actual, xOffset, xStride, y, yOffset, yStride, length);
+      assertThat(actual).containsExactly(expected);
+
+      expected = x.clone();
+      actual = x.clone();
+      ScalarVectorKernels.divide(expected, xOffset, xStride, y, yOffset, yStride, length);
+      VectorKernels.divide(actual, xOffset, xStride, y, yOffset, yStride, length);
+      assertThat(actual).containsExactly(expected);
+
+      expected = x.clone();
+      actual = x.clone();
+      ScalarVectorKernels.addScaled(expected, xOffset, xStride, y, yOffset, yStride, alpha, length);
+      VectorKernels.addScaled(actual, xOffset, xStride, y, yOffset, yStride, alpha, length);
+      assertThat(actual).containsExactly(expected);
+
+      expected = x.clone();
+      actual = x.clone();
+      ScalarVectorKernels.scale(expected, xOffset, xStride, alpha, length);
+      VectorKernels.scale(actual, xOffset, xStride, alpha, length);
+      assertThat(actual).containsExactly(expected);
+    }
+  }
+
+  /**
+   * Compares the running time of the kernels on shapes typical for Lingo: rows and columns of a
+   * term-document matrix of a few hundred documents.
+   */
+  @Nightly
+  @Test
+  public void benchmarkKernels() {
+    final int terms = 2000;
+    final int documents = 300;
+    final double[] tdm = randomArray(terms * documents);
+    final double[] other = randomArray(terms * documents);
+
+    for (int round = 0; round < 5; round++) {
+      for (boolean scalar : new boolean[] {true, false}) {
+        double result = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < terms; r++) {
+          for (int s = r; s < Math.min(terms, r + 50); s++) {
+            result += dot(scalar, tdm, r * documents, 1, tdm, s * documents, 1, documents);
+          }
+        }
+        final long rowDots = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int c = 0; c < documents; c++) {
+          result += dot(scalar, tdm, c, documents, other, c, documents, terms);
+        }
+        final long columnDots = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int repeat = 0; repeat < 20; repeat++) {
+          if (scalar) {
+            ScalarVectorKernels.addScaled(tdm, 0, 1, other, 0, 1, 1e-9, tdm.length);
+            ScalarVectorKernels.multiply(tdm, 0, 1, other, 0, 1, tdm.length);
+            ScalarVectorKernels.divide(tdm, 0, 1, other, 0, 1, tdm.length);
+            result += ScalarVectorKernels.sum(tdm, 0, 1, tdm.length);
+          } else {
+            VectorKernels.addScaled(tdm, 0, 1, other, 0, 1, 1e-9, tdm.length);
+            VectorKernels.multiply(tdm, 0, 1, other, 0, 1, tdm.length);
+            VectorKernels.divide(tdm, 0, 1, other, 0, 1, tdm.length);
+            result += VectorKernels.sum(tdm, 0, 1, tdm.length);
+          }
+        }
+        final long elementWise = System.nanoTime() - start;
+
+        System.out.println(
+            String.format(
+                Locale.ROOT,
+                "Round %d, %s: row dots %.2f ms, column dots %.2f ms,"
+                    + " element-wise %.2f ms (%.3f).",
+                round,
+                scalar ? "scalar" : "unrolled",
+                rowDots / 1_000_000d,
+                columnDots / 1_000_000d,
+                elementWise / 1_000_000d,
+                result));
+      }
+    }
+  }
+
+  private static double dot(
+      boolean scalar,
+      double[] x,
+      int xOffset,
+      int xStride,
+      double[] y,
+      int yOffset,
+      int yStride,
+      int length) {
+    return scalar
+        ? ScalarVectorKernels.dot(x, xOffset, xStride, y, yOffset, yStride, length)
+        : VectorKernels.dot(x, xOffset, xStride, y, yOffset, yStride, length);
+  }
+
+  /** Returns the offset of the first element of a range with the given stride. */
+  private int offset(int length, int stride) {
+    return (stride < 0 ? (length - 1) * -stride : 0) + randomIntBetween(0, 5);
+  }
+
+  private double[] randomArray(int length) {
+    final double[] array = new double[length];
+    for (int i = 0; i < length; i++) {
+      array[i] = randomIntBetween(1, 1000) / 100d;
+    }
+    return array;
+  }
+}
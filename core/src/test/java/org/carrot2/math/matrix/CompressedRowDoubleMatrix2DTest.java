@@ -0,0 +1,160 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.matrix;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import org.carrot2.TestBase;
+import org.carrot2.math.mahout.matrix.DoubleMatrix1D;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.CompressedRowDoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.SparseDoubleMatrix2D;
+import org.junit.Test;
+
+/** Test cases for {@link CompressedRowDoubleMatrix2D}. */
+public class CompressedRowDoubleMatrix2DTest extends TestBase {
+  private static final double DELTA = 1e-9;
+
+  @Test
+  public void testElementAccess() {
+    DoubleMatrix2D dense = randomSparseDense(randomIntBetween(1, 20), randomIntBetween(1, 20));
+    CompressedRowDoubleMatrix2D csr = compress(dense);
+
+    MatrixAssertions.assertThat(csr).isEquivalentTo(dense);
+    MatrixAssertions.assertThat(csr.viewDice()).isEquivalentTo(dense.viewDice());
+    MatrixAssertions.assertThat(csr.copy()).isEquivalentTo(dense);
+    assertThat(csr.cardinality()).isEqualTo(dense.cardinality());
+  }
+
+  @Test
+  public void testSetQuick() {
+    CompressedRowDoubleMatrix2D csr =
+        compress(new DenseDoubleMatrix2D(new double[][] {{1, 0}, {0, 2}}));
+
+    csr.setQuick(0, 0, 3);
+    csr.setQuick(0, 1, 0);
+    assertThat(csr.getQuick(0, 0)).isEqualTo(3);
+    assertThat(csr.getQuick(0, 1)).isEqualTo(0);
+    assertThatThrownBy(() -> csr.setQuick(1, 0, 1))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void testZMult() {
+    for (int i = 0; i < iterations(10, 50); i++) {
+      final int m = randomIntBetween(1, 30);
+      final int n = randomIntBetween(1, 30);
+      final int p = randomIntBetween(1, 10);
+      final boolean transposeA = randomBoolean();
+      final boolean transposeB = randomBoolean();
+      final double alpha = randomFrom(new Double[] {1d, 0.5, -2d});
+      final double beta = randomFrom(new Double[] {0d, 1d, 0.25});
+
+      DoubleMatrix2D dense = randomSparseDense(m, n);
+      CompressedRowDoubleMatrix2D csr = compress(dense);
+
+      final int inner = transposeA ? m : n;
+      final int outer = transposeA ? n : m;
+      DoubleMatrix2D B = transposeB ? randomDense(p, inner) : randomDense(inner, p);
+      DoubleMatrix2D C = randomDense(outer, p);
+
+      DoubleMatrix2D expected = dense.zMult(B, C.copy(), alpha, beta, transposeA, transposeB);
+      DoubleMatrix2D actual = csr.zMult(B, C.copy(), alpha, beta, transposeA, transposeB);
+      MatrixAssertions.assertThat(actual).isEquivalentTo(expected, DELTA);
+
+      // A non-dense argument takes the generic path.
+      actual =
+          csr.zMult(
+              new SparseDoubleMatrix2D(B.toArray()), C.copy(), alpha, beta, transposeA, transposeB);
+      MatrixAssertions.assertThat(actual).isEquivalentTo(expected, DELTA);
+
+      // Dense times sparse.
+      DoubleMatrix2D left = randomDense(p, m);
+      MatrixAssertions.assertThat(left.zMult(csr, null, 1, 0, false, false))
+          .isEquivalentTo(left.zMult(dense, null, 1, 0, false, false), DELTA);
+    }
+  }
+
+  @Test
+  public void testZMult1D() {
+    for (int i = 0; i < iterations(10, 50); i++) {
+      final int m = randomIntBetween(1, 30);
+      final int n = randomIntBetween(1, 30);
+      final boolean transposeA = randomBoolean();
+
+      DoubleMatrix2D dense = randomSparseDense(m, n);
+      CompressedRowDoubleMatrix2D csr = compress(dense);
+
+      DoubleMatrix1D y = randomDense(transposeA ? m : n, 1).viewColumn(0).copy();
+      DoubleMatrix1D z = randomDense(transposeA ? n : m, 1).viewColumn(0).copy();
+
+      DoubleMatrix1D expected = dense.zMult(y, z.copy(), 2, 0.5, transposeA);
+      DoubleMatrix1D actual = csr.zMult(y, z.copy(), 2, 0.5, transposeA);
+      for (int j = 0; j < expected.size(); j++) {
+        assertThat(actual.getQuick(j)).isCloseTo(expected.getQuick(j), within(DELTA));
+      }
+    }
+  }
+
+  @Test
+  public void testNormalizeColumnL2() {
+    DoubleMatrix2D dense = randomSparseDense(randomIntBetween(1, 20), randomIntBetween(1, 20));
+    CompressedRowDoubleMatrix2D csr = compress(dense);
+
+    MatrixUtils.normalizeColumnL2(dense, null);
+    MatrixUtils.normalizeColumnL2(csr, null);
+    MatrixAssertions.assertThat(csr).isEquivalentTo(dense, DELTA);
+  }
+
+  private DoubleMatrix2D randomDense(int rows, int columns) {
+    DoubleMatrix2D matrix = new DenseDoubleMatrix2D(rows, columns);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        matrix.setQuick(r, c, randomIntBetween(-100, 100) / 10d);
+      }
+    }
+    return matrix;
+  }
+
+  private DoubleMatrix2D randomSparseDense(int rows, int columns) {
+    DoubleMatrix2D matrix = new DenseDoubleMatrix2D(rows, columns);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        if (randomIntBetween(0, 4) == 0) {
+          matrix.setQuick(r, c, randomIntBetween(1, 100) / 10d);
+        }
+      }
+    }
+    return matrix;
+  }
+
+  private static CompressedRowDoubleMatrix2D compress(DoubleMatrix2D dense) {
+    int[] rowOffsets = new int[dense.rows() + 1];
+    IntArrayList columns = new IntArrayList();
+    DoubleArrayList values = new DoubleArrayList();
+    for (int r = 0; r < dense.rows(); r++) {
+      for (int c = 0; c < dense.columns(); c++) {
+        if (dense.getQuick(r, c) != 0) {
+          columns.add(c);
+          values.add(dense.getQuick(r, c));
+        }
+      }
+      rowOffsets[r + 1] = columns.size();
+    }
+    return new CompressedRowDoubleMatrix2D(
+        dense.rows(), dense.columns(), rowOffsets, columns.toArray(), values.toArray());
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.math.matrix;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.carrot2.TestBase;
+import org.carrot2.math.mahout.matrix.DoubleMatrix1D;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseFloatMatrix2D;
+import org.junit.Test;
+
+/** Test cases for {@link DenseFloatMatrix2D}. */
+public class DenseFloatMatrix2DTest extends TestBase {
+  private static final double DELTA = 1e-4;
+
+  @Test
+  public void testElementAccess() {
+    DoubleMatrix2D dense = randomDense(randomIntBetween(2, 20), randomIntBetween(2, 20));
+    DoubleMatrix2D single = new DenseFloatMatrix2D(dense.toArray());
+
+    MatrixAssertions.assertThat(single).isEquivalentTo(dense);
+    MatrixAssertions.assertThat(single.viewDice()).isEquivalentTo(dense.viewDice());
+    MatrixAssertions.assertThat(single.viewPart(1, 1, dense.rows() - 1, dense.columns() - 1))
+        .isEquivalentTo(dense.viewPart(1, 1, dense.rows() - 1, dense.columns() - 1));
+    MatrixAssertions.assertThat(single.viewRowFlip().viewColumnFlip())
+        .isEquivalentTo(dense.viewRowFlip().viewColumnFlip());
+    MatrixAssertions.assertThat(single.viewSelection(new int[] {1, 0}, null))
+        .isEquivalentTo(dense.viewSelection(new int[] {1, 0}, null));
+    MatrixAssertions.assertThat(single.copy()).isEquivalentTo(dense);
+    assertThat(single.copy()).isInstanceOf(DenseFloatMatrix2D.class);
+
+    final DoubleMatrix1D column = single.viewDice().viewColumn(1);
+    column.setQuick(0, 0.5);
+    assertThat(single.getQuick(1, 0)).isEqualTo(0.5);
+    assertThat(single.viewRow(1).getQuick(0)).isEqualTo(0.5);
+
+    single.setQuick(0, 0, 0.1);
+    assertThat(single.getQuick(0, 0)).isEqualTo((float) 0.1);
+  }
+
+  @Test
+  public void testZMult() {
+    for (int i = 0; i < iterations(10, 50); i++) {
+      final int m = randomIntBetween(1, 30);
+      final int n = randomIntBetween(1, 30);
+      final int p = randomIntBetween(1, 10);
+      final boolean transposeA = randomBoolean();
+      final boolean transposeB = randomBoolean();
+      final double alpha = randomFrom(new Double[] {1d, 0.5, -2d});
+      final double beta = randomFrom(new Double[] {0d, 1d, 0.25});
+
+      final DoubleMatrix2D A = transposeA ? randomDense(n, m) : randomDense(m, n);
+      final DoubleMatrix2D B = transposeB ? randomDense(p, n) : randomDense(n, p);
+      final DoubleMatrix2D C = randomDense(m, p);
+      final DoubleMatrix2D singleA = new DenseFloatMatrix2D(A.toArray());
+      final DoubleMatrix2D singleB = new DenseFloatMatrix2D(B.toArray());
+
+      final DoubleMatrix2D expected = A.zMult(B, C.copy(), alpha, beta, transposeA, transposeB);
+      MatrixAssertions.assertThat(
+              singleA.zMult(singleB, C.copy(), alpha, beta, transposeA, transposeB))
+          .isEquivalentTo(expected, DELTA);
+      MatrixAssertions.assertThat(singleA.zMult(B, C.copy(), alpha, beta, transposeA, transposeB))
+          .isEquivalentTo(expected, DELTA);
+      MatrixAssertions.assertThat(A.zMult(singleB, C.copy(), alpha, beta, transposeA, transposeB))
+          .isEquivalentTo(expected, DELTA);
+
+      // Result precision follows the operands.
+      assertThat(singleA.zMult(singleB, null, 1, 0, transposeA, transposeB))
+          .isInstanceOf(DenseFloatMatrix2D.class);
+      assertThat(singleA.zMult(B, null, 1, 0, transposeA, transposeB))
+          .isInstanceOf(DenseDoubleMatrix2D.class);
+      assertThat(A.zMult(singleB, null, 1, 0, transposeA, transposeB))
+          .isInstanceOf(DenseDoubleMatrix2D.class);
+    }
+  }
+
+  @Test
+  public void testZMult1D() {
+    for (int i = 0; i < iterations(10, 50); i++) {
+      final int m = randomIntBetween(1, 30);
+      final int n = randomIntBetween(1, 30);
+      final boolean transposeA = randomBoolean();
+
+      DoubleMatrix2D dense = randomDense(m, n);
+      DoubleMatrix2D single = new DenseFloatMatrix2D(dense.toArray());
+
+      DoubleMatrix1D y = randomDense(transposeA ? m : n, 1).viewColumn(0).copy();
+      DoubleMatrix1D z = randomDense(transposeA ? n : m, 1).viewColumn(0).copy();
+
+      DoubleMatrix1D expected = dense.zMult(y, z.copy(), 2, 0.5, transposeA);
+      DoubleMatrix1D actual = single.zMult(y, z.copy(), 2, 0.5, transposeA);
+      for (int j = 0; j < expected.size(); j++) {
+        assertThat(actual.getQuick(j)).isCloseTo(expected.getQuick(j), within(DELTA));
+      }
+    }
+  }
+
+  private DoubleMatrix2D randomDense(int rows, int columns) {
+    DoubleMatrix2D matrix = new DenseDoubleMatrix2D(rows, columns);
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        matrix.setQuick(r, c, randomIntBetween(-100, 100) / 8d);
+      }
+    }
+    return matrix;
+  }
+}
@@ -10,9 +10,16 @@
  */
 package org.carrot2.math.matrix;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import java.util.Arrays;
+import java.util.Random;
 import org.carrot2.TestBase;
+import org.carrot2.math.mahout.function.Functions;
 import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.CompressedRowDoubleMatrix2D;
 import org.carrot2.math.mahout.matrix.impl.DenseDoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseFloatMatrix2D;
 import org.junit.Test;
 
 /** Test cases for matrix factorizations. */
@@ -74,6 +81,156 @@ public class MatrixFactorizationTest extends TestBase {
     org.junit.Assert.assertArrayEquals(expectedS, factorization.getSingularValues(), DELTA);
   }
 
+  @Test
+  public void testRandomizedSVD() {
+    RandomizedSingularValueDecompositionFactory factory =
+        new RandomizedSingularValueDecompositionFactory();
+    factory.setK(2);
+
+    RandomizedSingularValueDecomposition factorization =
+        (RandomizedSingularValueDecomposition) factory.factorize(A);
+
+    // Singular vectors are unique up to their signs.
+    PartialSingularValueDecompositionFactory svdFactory =
+        new PartialSingularValueDecompositionFactory();
+    svdFactory.setK(2);
+    MatrixFactorization expected = svdFactory.factorize(A);
+    MatrixAssertions.assertThat(abs(factorization.getU()))
+        .as("U")
+        .isEquivalentTo(abs(expected.getU()), DELTA);
+    MatrixAssertions.assertThat(abs(factorization.getV()))
+        .as("V")
+        .isEquivalentTo(abs(expected.getV()), DELTA);
+    org.junit.Assert.assertArrayEquals(
+        new double[] {1.6450472, 1.5621864}, factorization.getSingularValues(), DELTA);
+  }
+
+  @Test
+  public void testRandomizedSVDOfLowRankMatrix() {
+    int rows = randomIntBetween(20, 80);
+    int columns = randomIntBetween(20, 80);
+    int rank = randomIntBetween(1, 10);
+    Random random = new Random(randomLong());
+    DoubleMatrix2D left = new DenseDoubleMatrix2D(rows, rank);
+    left.assign((v) -> random.nextDouble());
+    DoubleMatrix2D right = new DenseDoubleMatrix2D(rank, columns);
+    right.assign((v) -> random.nextDouble());
+    DoubleMatrix2D matrix = left.zMult(right, null, 1, 0, false, false);
+
+    RandomizedSingularValueDecompositionFactory factory =
+        new RandomizedSingularValueDecompositionFactory();
+    factory.setK(rank);
+    RandomizedSingularValueDecomposition factorization =
+        (RandomizedSingularValueDecomposition) factory.factorize(matrix);
+
+    PartialSingularValueDecomposition svd =
+        (PartialSingularValueDecomposition)
+            new PartialSingularValueDecompositionFactory().factorize(matrix);
+    org.junit.Assert.assertArrayEquals(
+        Arrays.copyOf(svd.getSingularValues(), rank), factorization.getSingularValues(), 1e-8);
+
+    // U S V' reconstructs the matrix.
+    DoubleMatrix2D us = factorization.getU().copy();
+    for (int c = 0; c < rank; c++) {
+      final double s = factorization.getSingularValues()[c];
+      us.viewColumn(c).assign((v) -> v * s);
+    }
+    MatrixAssertions.assertThat(us.zMult(factorization.getV(), null, 1, 0, false, true))
+        .isEquivalentTo(matrix, 1e-8);
+  }
+
+  @Test
+  public void testLanczosSVD() {
+    LanczosSingularValueDecompositionFactory factory =
+        new LanczosSingularValueDecompositionFactory();
+    factory.setK(2);
+    factory.additionalVectors.set(1);
+
+    LanczosSingularValueDecomposition factorization =
+        (LanczosSingularValueDecomposition) factory.factorize(A);
+
+    PartialSingularValueDecompositionFactory svdFactory =
+        new PartialSingularValueDecompositionFactory();
+    svdFactory.setK(2);
+    MatrixFactorization expected = svdFactory.factorize(A);
+    MatrixAssertions.assertThat(abs(factorization.getU()))
+        .as("U")
+        .isEquivalentTo(abs(expected.getU()), DELTA);
+    MatrixAssertions.assertThat(abs(factorization.getV()))
+        .as("V")
+        .isEquivalentTo(abs(expected.getV()), DELTA);
+    org.junit.Assert.assertArrayEquals(
+        new double[] {1.6450472, 1.5621864}, factorization.getSingularValues(), DELTA);
+    org.junit.Assert.assertTrue(factorization.isConverged());
+  }
+
+  @Test
+  public void testLanczosSVDOfSparseMatrix() {
+    int rows = randomIntBetween(20, 80);
+    int columns = randomIntBetween(20, 80);
+    int k = randomIntBetween(1, 5);
+    Random random = new Random(randomLong());
+
+    int[] rowOffsets = new int[rows + 1];
+    IntArrayList columnIndices = new IntArrayList();
+    DoubleArrayList values = new DoubleArrayList();
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < columns; c++) {
+        if (random.nextInt(10) == 0) {
+          columnIndices.add(c);
+          values.add(random.nextDouble());
+        }
+      }
+      rowOffsets[r + 1] = columnIndices.size();
+    }
+    DoubleMatrix2D matrix =
+        new CompressedRowDoubleMatrix2D(
+            rows, columns, rowOffsets, columnIndices.toArray(), values.toArray());
+
+    LanczosSingularValueDecompositionFactory factory =
+        new LanczosSingularValueDecompositionFactory();
+    factory.setK(k);
+    // Force restarts with a small Krylov subspace.
+    factory.additionalVectors.set(randomIntBetween(1, 3));
+    factory.maxIterations.set(1000);
+    LanczosSingularValueDecomposition factorization =
+        (LanczosSingularValueDecomposition) factory.factorize(matrix);
+
+    PartialSingularValueDecomposition svd =
+        (PartialSingularValueDecomposition)
+            new PartialSingularValueDecompositionFactory()
+                .factorize(new DenseDoubleMatrix2D(matrix.toArray()));
+    org.junit.Assert.assertTrue(factorization.isConverged());
+    org.junit.Assert.assertArrayEquals(
+        Arrays.copyOf(svd.getSingularValues(), k), factorization.getSingularValues(), 1e-6);
+    org.junit.Assert.assertTrue(factorization.getIterations() >= 1);
+    org.junit.Assert.assertTrue(
+        factorization.getMatrixVectorProducts() >= 2 * (k + factory.additionalVectors.get()));
+    org.junit.Assert.assertTrue(factorization.getReorthogonalizations() > 0);
+
+    // Singular vectors are orthonormal.
+    MatrixAssertions.assertThat(
+            factorization.getU().zMult(factorization.getU(), null, 1, 0, true, false))
+        .isEquivalentTo(identity(k), 1e-8);
+    MatrixAssertions.assertThat(
+            factorization.getV().zMult(factorization.getV(), null, 1, 0, true, false))
+        .isEquivalentTo(identity(k), 1e-8);
+  }
+
+  private static DoubleMatrix2D identity(int size) {
+    DoubleMatrix2D result = new DenseDoubleMatrix2D(size, size);
+    for (int i = 0; i < size; i++) {
+      result.setQuick(i, i, 1);
+    }
+    return result;
+  }
+
+  private static DoubleMatrix2D abs(DoubleMatrix2D matrix) {
+    DoubleMatrix2D result = matrix.copy();
+    result.assign((v) -> Math.abs(v));
+    return result;
+  }
+
   @Test
   public void testUnorderedNMFED() {
     DoubleMatrix2D expectedU =
@@ -214,6 +371,108 @@ public class MatrixFactorizationTest extends TestBase {
     checkIterative(expectedU, expectedV, new LocalNonnegativeMatrixFactorizationFactory());
   }
 
+  @Test
+  public void testNMFApproximationError() {
+    final DoubleMatrix2D sparseA = compress(A);
+    for (IterativeMatrixFactorizationFactory factory :
+        Arrays.asList(
+            new NonnegativeMatrixFactorizationEDFactory(),
+            new NonnegativeMatrixFactorizationKLFactory(),
+            new LocalNonnegativeMatrixFactorizationFactory())) {
+      factory.setK(K);
+      factory.setMaxIterations(randomIntBetween(1, MAX_ITERATIONS));
+      factory.setStopThreshold(randomFrom(new Double[] {-1d, STOP_THRESHOLD, 0.01}));
+      factory.setSeedingFactory(ConstantSeedingStrategyFactory.INSTANCE);
+
+      final IterativeMatrixFactorizationBase factorization =
+          (IterativeMatrixFactorizationBase) factory.factorize(A);
+      if (factory.getStopThreshold() >= 0) {
+        // The error computed during the updates is the error of the final factors.
+        final double error =
+            MatrixUtils.frobeniusNorm(
+                factorization
+                    .getU()
+                    .zMult(factorization.getV(), null, 1, 0, false, true)
+                    .assign(A, Functions.MINUS));
+        org.junit.Assert.assertEquals(error, factorization.getApproximationError(), 1e-9);
+        org.junit.Assert.assertEquals(
+            error,
+            factorization.getApproximationErrors()[factorization.getIterationsCompleted()],
+            1e-9);
+      } else {
+        org.junit.Assert.assertNull(factorization.getApproximationErrors());
+        org.junit.Assert.assertEquals(
+            factory.getMaxIterations(), factorization.getIterationsCompleted());
+      }
+
+      // Sparse input gives the same factors.
+      check(factorization.getU(), factorization.getV(), factory.factorize(sparseA));
+    }
+  }
+
+  @Test
+  public void testSinglePrecisionInput() {
+    final DoubleMatrix2D singleA = new DenseFloatMatrix2D(A.toArray());
+    for (MatrixFactorizationFactory factory :
+        Arrays.asList(
+            new NonnegativeMatrixFactorizationEDFactory(),
+            new NonnegativeMatrixFactorizationKLFactory(),
+            new LocalNonnegativeMatrixFactorizationFactory(),
+            new KMeansMatrixFactorizationFactory(),
+            new PartialSingularValueDecompositionFactory(),
+            new RandomizedSingularValueDecompositionFactory(),
+            new LanczosSingularValueDecompositionFactory())) {
+      if (factory instanceof IterativeMatrixFactorizationFactory) {
+        ((IterativeMatrixFactorizationFactory) factory)
+            .setSeedingFactory(ConstantSeedingStrategyFactory.INSTANCE);
+        ((IterativeMatrixFactorizationFactory) factory).setK(K);
+      }
+
+      final MatrixFactorization expected = factory.factorize(A);
+      final MatrixFactorization actual = factory.factorize(singleA);
+      if (singularValues(expected) != null) {
+        // Singular vectors of (nearly) equal singular values are not unique, compare the values.
+        org.junit.Assert.assertArrayEquals(
+            factory.toString(), singularValues(expected), singularValues(actual), DELTA);
+      } else {
+        MatrixAssertions.assertThat(actual.getU())
+            .as(factory + " U")
+            .isEquivalentTo(expected.getU(), DELTA);
+        MatrixAssertions.assertThat(actual.getV())
+            .as(factory + " V")
+            .isEquivalentTo(expected.getV(), DELTA);
+      }
+    }
+  }
+
+  private static double[] singularValues(MatrixFactorization factorization) {
+    if (factorization instanceof PartialSingularValueDecomposition) {
+      return ((PartialSingularValueDecomposition) factorization).getSingularValues();
+    } else if (factorization instanceof RandomizedSingularValueDecomposition) {
+      return ((RandomizedSingularValueDecomposition) factorization).getSingularValues();
+    } else if (factorization instanceof LanczosSingularValueDecomposition) {
+      return ((LanczosSingularValueDecomposition) factorization).getSingularValues();
+    }
+    return null;
+  }
+
+  private static DoubleMatrix2D compress(DoubleMatrix2D dense) {
+    final int[] rowOffsets = new int[dense.rows() + 1];
+    final IntArrayList columnIndices = new IntArrayList();
+    final DoubleArrayList values = new DoubleArrayList();
+    for (int r = 0; r < dense.rows(); r++) {
+      for (int c = 0; c < dense.columns(); c++) {
+        if (dense.getQuick(r, c) != 0) {
+          columnIndices.add(c);
+          values.add(dense.getQuick(r, c));
+        }
+      }
+      rowOffsets[r + 1] = columnIndices.size();
+    }
+    return new CompressedRowDoubleMatrix2D(
+        dense.rows(), dense.columns(), rowOffsets, columnIndices.toArray(), values.toArray());
+  }
+
   private MatrixFactorization checkIterative(
       DoubleMatrix2D expectedU,
       DoubleMatrix2D expectedV,
@@ -245,4 +245,47 @@ public class CaseNormalizerTest extends TestBase {
         .withExactDocumentTfs(new int[][] {{1, 1}, {2, 2}});
     Assertions.assertThat(ctx.allWords.image.length).isEqualTo(3);
   }
+
+  @Test
+  public void testHashingIdenticalToSorting() {
+    String[] words = {"foo", "Foo", "FOO", "bar", "Bar", "baz", "BAZ", ".", "1", "a.b", "x"};
+    String[] fields = {"title", "snippet"};
+
+    for (int iteration = 0; iteration < 20; iteration++) {
+      PreprocessingContextBuilder builder =
+          new PreprocessingContextBuilder(CachedLangComponents.loadCached("English"));
+      for (int doc = randomIntBetween(0, 20); doc > 0; doc--) {
+        String[] values = new String[fields.length];
+        for (int i = 0; i < values.length; i++) {
+          StringBuilder sb = new StringBuilder();
+          for (int j = randomIntBetween(0, 10); j > 0; j--) {
+            sb.append(words[randomIntBetween(0, words.length - 1)]).append(" ");
+          }
+          values[i] = sb.toString();
+        }
+        builder.newDoc(values[0], values[1]);
+      }
+
+      BasicPreprocessingPipeline pipeline = new BasicPreprocessingPipeline();
+      pipeline.wordDfThreshold.set(randomIntBetween(1, 3));
+      pipeline.caseNormalization.set(CaseNormalizationAlgorithm.SORTING);
+      PreprocessingContext sorting = builder.buildContext(pipeline);
+      pipeline.caseNormalization.set(CaseNormalizationAlgorithm.HASHING);
+      PreprocessingContext hashing = builder.buildContext(pipeline);
+
+      Assertions.assertThat(hashing.allTokens.wordIndex)
+          .containsExactly(sorting.allTokens.wordIndex);
+      Assertions.assertThat(hashing.allWords.image).isEqualTo(sorting.allWords.image);
+      Assertions.assertThat(hashing.allWords.type).containsExactly(sorting.allWords.type);
+      Assertions.assertThat(hashing.allWords.tf).containsExactly(sorting.allWords.tf);
+      Assertions.assertThat(hashing.allWords.tfByDocument.offsets)
+          .containsExactly(sorting.allWords.tfByDocument.offsets);
+      Assertions.assertThat(hashing.allWords.tfByDocument.documents)
+          .containsExactly(sorting.allWords.tfByDocument.documents);
+      Assertions.assertThat(hashing.allWords.tfByDocument.tfs)
+          .containsExactly(sorting.allWords.tfByDocument.tfs);
+      Assertions.assertThat(hashing.allWords.fieldIndices)
+          .containsExactly(sorting.allWords.fieldIndices);
+    }
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.carrot2.TestBase;
+import org.carrot2.clustering.CachedLangComponents;
+import org.carrot2.util.MutableCharArray;
+import org.junit.Test;
+
+/** Test cases for {@link ImageTable}. */
+public class ImageTableTest extends TestBase {
+  @Test
+  public void testIdentifiersInOrderOfFirstAppearance() {
+    for (int i = 0; i < iterations(5, 50); i++) {
+      final ImageTable table = new ImageTable();
+      final Map<String, Integer> expected = new LinkedHashMap<>();
+      for (int j = randomIntBetween(0, 2000); j > 0; j--) {
+        final String image = randomAsciiLettersOfLengthBetween(0, 6);
+        final int id = expected.computeIfAbsent(image, (k) -> expected.size());
+
+        // Pass the image as a sub-range of a larger buffer.
+        final char[] buffer = ("  " + image + " ").toCharArray();
+        assertThat(table.add(buffer, 2, image.length())).isEqualTo(id);
+      }
+
+      assertThat(table.size()).isEqualTo(expected.size());
+      for (Map.Entry<String, Integer> e : expected.entrySet()) {
+        final int id = e.getValue();
+        assertThat(new String(table.buffer(), table.offset(id), table.length(id)))
+            .isEqualTo(e.getKey());
+      }
+
+      table.clear();
+      assertThat(table.size()).isEqualTo(0);
+      assertThat(table.add(new MutableCharArray("abc"))).isEqualTo(0);
+    }
+  }
+
+  @Test
+  public void testInternSharesImageIdentifiers() {
+    try (PreprocessingContext context =
+        new PreprocessingContext(CachedLangComponents.loadCached("English"))) {
+      final char[] image = context.intern(new MutableCharArray("data"));
+      assertThat(context.intern(new MutableCharArray(" data ").subSequence(1, 5))).isSameAs(image);
+      assertThat(context.image(context.images().add(new MutableCharArray("data")))).isSameAs(image);
+      assertThat(context.intern(new MutableCharArray("Data"))).isNotSameAs(image);
+    }
+  }
+}
@@ -12,8 +12,10 @@ package org.carrot2.text.preprocessing;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.carrotsearch.randomizedtesting.annotations.Nightly;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import org.assertj.core.api.Assertions;
 import org.carrot2.TestBase;
 import org.carrot2.clustering.CachedLangComponents;
@@ -285,17 +287,33 @@ public class PhraseExtractorTest extends TestBase {
     checkPhrase("i h g f e d c b a");
   }
 
-  private void checkPhrase(String phrase) {
+  @Test
+  public void configuredMinMaxPhraseLength() {
     CompletePreprocessingPipeline pipeline = new CompletePreprocessingPipeline();
+    pipeline.minPhraseLength.set(3);
+    pipeline.maxPhraseLength.set(5);
+    checkPhrase("a b c d e f g h i", pipeline, 3, 5);
+  }
+
+  private void checkPhrase(String phrase) {
+    checkPhrase(
+        phrase,
+        new CompletePreprocessingPipeline(),
+        PhraseExtractor.MIN_PHRASE_LENGTH,
+        PhraseExtractor.MAX_PHRASE_LENGTH);
+  }
+
+  private void checkPhrase(
+      String phrase, CompletePreprocessingPipeline pipeline, int minLength, int maxLength) {
     pipeline.wordDfThreshold.set(2);
 
     PreprocessingContextAssert a =
         contextBuilder.newDoc(phrase, phrase).newDoc(phrase, phrase).buildContextAssert(pipeline);
 
-    // All subsequences sized 2..MAX_PHRASE_LENGTH.
+    // All subsequences sized minLength..maxLength.
     List<String> sequence = Arrays.asList(phrase.split("\\s"));
     int all = 0;
-    for (int len = 2; len <= PhraseExtractor.MAX_PHRASE_LENGTH; len++) {
+    for (int len = minLength; len <= maxLength; len++) {
       for (int pos = 0; pos + len <= sequence.size(); pos++, all++) {
         a.containsPhrase(sequence.subList(pos, pos + len))
             .withTf(4)
@@ -325,4 +343,134 @@ public class PhraseExtractorTest extends TestBase {
       a.phraseTfsCorrect();
     }
   }
+
+  @Test
+  public void testSuffixRangeCountingIdenticalToHashMaps() {
+    String[] words = {"a", "b", "c", "d", "A", "B", "."};
+    for (int reps = 0; reps < 50; reps++) {
+      PreprocessingContextBuilder contextBuilder =
+          new PreprocessingContextBuilder(
+              CachedLangComponents.loadCached(TestsLanguageComponentsFactoryVariant2.NAME));
+      for (int docs = iterations(1, 20); docs > 0; docs--) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = randomIntBetween(0, 20); i > 0; i--) {
+          sb.append(words[randomIntBetween(0, words.length - 1)]).append(" ");
+        }
+        contextBuilder.newDoc(sb.toString(), null);
+      }
+
+      CompletePreprocessingPipeline pipeline = new CompletePreprocessingPipeline();
+      pipeline.phraseDfThreshold.set(randomIntBetween(1, 3));
+      pipeline.phraseCounting.set(PhraseCountingAlgorithm.HASH_MAPS);
+      PreprocessingContext hashMaps = contextBuilder.buildContext(pipeline);
+      pipeline.phraseCounting.set(PhraseCountingAlgorithm.SUFFIX_RANGES);
+      PreprocessingContext suffixRanges = contextBuilder.buildContext(pipeline);
+
+      assertThat(suffixRanges.allPhrases.wordIndices).isEqualTo(hashMaps.allPhrases.wordIndices);
+      assertThat(suffixRanges.allPhrases.tf).containsExactly(hashMaps.allPhrases.tf);
+      assertThat(suffixRanges.allPhrases.tfByDocument.offsets)
+          .containsExactly(hashMaps.allPhrases.tfByDocument.offsets);
+      assertThat(suffixRanges.allPhrases.tfByDocument.documents)
+          .containsExactly(hashMaps.allPhrases.tfByDocument.documents);
+      assertThat(suffixRanges.allPhrases.tfByDocument.tfs)
+          .containsExactly(hashMaps.allPhrases.tfByDocument.tfs);
+    }
+  }
+
+  @Test
+  public void testMaxPhraseCandidates() {
+    String[] words = {"a", "b", "c", "d", "e", "."};
+    for (int reps = 0; reps < 20; reps++) {
+      PreprocessingContextBuilder contextBuilder =
+          new PreprocessingContextBuilder(
+              CachedLangComponents.loadCached(TestsLanguageComponentsFactoryVariant2.NAME));
+      int documents = iterations(2, 20);
+      for (int docs = documents; docs > 0; docs--) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = randomIntBetween(0, 30); i > 0; i--) {
+          sb.append(words[randomIntBetween(0, words.length - 1)]).append(" ");
+        }
+        contextBuilder.newDoc(sb.toString(), null);
+      }
+
+      int maxCandidates = randomIntBetween(1, 20);
+      CompletePreprocessingPipeline pipeline = new CompletePreprocessingPipeline();
+      pipeline.phraseCounting.set(randomFrom(PhraseCountingAlgorithm.values()));
+      pipeline.maxPhraseCandidates.set(maxCandidates);
+      PreprocessingContext limited = contextBuilder.buildContext(pipeline);
+      assertThat(limited.allPhrases.tf.length).isLessThanOrEqualTo(maxCandidates);
+
+      // The result must be identical to extraction with some higher df threshold.
+      pipeline.maxPhraseCandidates.set(0);
+      boolean found = false;
+      for (int threshold = 1; threshold <= documents + 1 && !found; threshold++) {
+        pipeline.phraseDfThreshold.set(threshold);
+        PreprocessingContext unlimited = contextBuilder.buildContext(pipeline);
+        found =
+            Arrays.deepEquals(unlimited.allPhrases.wordIndices, limited.allPhrases.wordIndices)
+                && Arrays.equals(unlimited.allPhrases.tf, limited.allPhrases.tf);
+      }
+      assertThat(found).isTrue();
+    }
+  }
+
+  @Test
+  public void testMaxPhraseCandidatesNoOverflow() {
+    contextBuilder.newDoc("a b c", "a b c").newDoc("a b", "b c");
+
+    PreprocessingContext unlimited = contextBuilder.buildContext(new BasicPreprocessingPipeline());
+    new PhraseExtractor(
+            1,
+            SuffixSortingAlgorithm.SAIS,
+            PhraseCountingAlgorithm.SUFFIX_RANGES,
+            PhraseExtractor.MIN_PHRASE_LENGTH,
+            PhraseExtractor.MAX_PHRASE_LENGTH,
+            0)
+        .extractPhrases(unlimited);
+
+    PreprocessingContext limited = contextBuilder.buildContext(new BasicPreprocessingPipeline());
+    new PhraseExtractor(
+            1,
+            SuffixSortingAlgorithm.SAIS,
+            PhraseCountingAlgorithm.SUFFIX_RANGES,
+            PhraseExtractor.MIN_PHRASE_LENGTH,
+            PhraseExtractor.MAX_PHRASE_LENGTH,
+            Integer.MAX_VALUE)
+        .extractPhrases(limited);
+
+    assertThat(limited.allPhrases.wordIndices).isNotEmpty();
+    assertThat(Arrays.deepEquals(limited.allPhrases.wordIndices, unlimited.allPhrases.wordIndices))
+        .isTrue();
+    assertThat(limited.allPhrases.tf).containsExactly(unlimited.allPhrases.tf);
+  }
+
+  /** Compares the running time of phrase counting algorithms on long, repetitive input. */
+  @Nightly
+  @Test
+  public void benchmarkPhraseCounting() {
+    String[] words = {"data", "mining", "text", "clustering", "search", "results"};
+    for (int docs = 0; docs < 5000; docs++) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 50; i++) {
+        sb.append(words[randomIntBetween(0, words.length - 1)]).append(" ");
+      }
+      contextBuilder.newDoc(sb.toString(), null);
+    }
+
+    PreprocessingContext context = contextBuilder.buildContext(new BasicPreprocessingPipeline());
+    for (int round = 0; round < 10; round++) {
+      for (PhraseCountingAlgorithm algorithm : PhraseCountingAlgorithm.values()) {
+        long start = System.nanoTime();
+        new PhraseExtractor(1, SuffixSortingAlgorithm.SAIS, algorithm).extractPhrases(context);
+        System.out.println(
+            String.format(
+                Locale.ROOT,
+                "Round %d, %s: %.2f ms, %d phrases.",
+                round,
+                algorithm,
+                (System.nanoTime() - start) / 1_000_000d,
+                context.allPhrases.tf.length));
+      }
+    }
+  }
 }
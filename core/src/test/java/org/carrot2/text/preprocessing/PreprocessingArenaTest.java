@@ -0,0 +1,103 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.carrot2.TestBase;
+import org.carrot2.clustering.CachedLangComponents;
+import org.carrot2.language.TestsLanguageComponentsFactoryVariant2;
+import org.junit.Test;
+
+/** Test cases for {@link PreprocessingArena}. */
+public class PreprocessingArenaTest extends TestBase {
+  private static final String[] WORDS = {"data", "Data", "mining", "minings", "text", ".", "a"};
+
+  private PreprocessingContextBuilder randomDocuments() {
+    PreprocessingContextBuilder contextBuilder =
+        new PreprocessingContextBuilder(
+            CachedLangComponents.loadCached(TestsLanguageComponentsFactoryVariant2.NAME));
+    for (int docs = iterations(1, 30); docs > 0; docs--) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = randomIntBetween(0, 30); i > 0; i--) {
+        sb.append(WORDS[randomIntBetween(0, WORDS.length - 1)]).append(" ");
+      }
+      contextBuilder.newDoc(sb.toString(), null);
+    }
+    return contextBuilder;
+  }
+
+  @Test
+  public void testPooledIdenticalToUnpooled() {
+    CompletePreprocessingPipeline unpooled = new CompletePreprocessingPipeline();
+    CompletePreprocessingPipeline pooled = new CompletePreprocessingPipeline();
+    pooled.pooledArenas.set(true);
+
+    for (int reps = 0; reps < 20; reps++) {
+      PreprocessingContextBuilder contextBuilder = randomDocuments();
+      PreprocessingContext expected = contextBuilder.buildContext(unpooled);
+      PreprocessingContext actual = contextBuilder.buildContext(pooled);
+
+      assertThat(actual.allTokens.imageId).containsExactly(expected.allTokens.imageId);
+      assertThat(actual.allTokenImages.arena).containsExactly(expected.allTokenImages.arena);
+      assertThat(actual.allTokens.wordIndex).containsExactly(expected.allTokens.wordIndex);
+      assertThat(actual.allWords.image).isEqualTo(expected.allWords.image);
+      assertThat(actual.allWords.tfByDocument.documents)
+          .containsExactly(expected.allWords.tfByDocument.documents);
+      assertThat(actual.allStems.image).isEqualTo(expected.allStems.image);
+      assertThat(actual.allStems.tf).containsExactly(expected.allStems.tf);
+      assertThat(actual.allPhrases.wordIndices).isEqualTo(expected.allPhrases.wordIndices);
+      assertThat(actual.allPhrases.tfByDocument.tfs)
+          .containsExactly(expected.allPhrases.tfByDocument.tfs);
+      assertThat(actual.allLabels.featureIndex).containsExactly(expected.allLabels.featureIndex);
+    }
+  }
+
+  @Test
+  public void testBuffersRetainedAndReused() {
+    PreprocessingArena.current().trim();
+    CompletePreprocessingPipeline pipeline = new CompletePreprocessingPipeline();
+    pipeline.pooledArenas.set(true);
+
+    PreprocessingContextBuilder contextBuilder = randomDocuments();
+    contextBuilder.buildContext(pipeline);
+    long retained = PreprocessingArena.current().retainedBytes();
+    assertThat(retained).isGreaterThan(0);
+
+    contextBuilder.buildContext(pipeline);
+    assertThat(PreprocessingArena.current().retainedBytes()).isEqualTo(retained);
+  }
+
+  @Test
+  public void testBuffersReleasedAboveLimit() {
+    CompletePreprocessingPipeline pipeline = new CompletePreprocessingPipeline();
+    pipeline.pooledArenas.set(true);
+    pipeline.maxArenaSize.set(0);
+
+    PreprocessingContextBuilder contextBuilder = randomDocuments();
+    contextBuilder.buildContext(pipeline);
+    assertThat(PreprocessingArena.current().retainedBytes()).isLessThan(1024);
+  }
+
+  @Test
+  public void testNestedAcquireReturnsUnpooledArena() {
+    PreprocessingArena outer = PreprocessingArena.acquire(Long.MAX_VALUE);
+    try {
+      assertThat(outer).isSameAs(PreprocessingArena.current());
+      assertThat(PreprocessingArena.acquire(Long.MAX_VALUE)).isNotSameAs(outer);
+    } finally {
+      outer.release();
+    }
+    PreprocessingArena again = PreprocessingArena.acquire(Long.MAX_VALUE);
+    assertThat(again).isSameAs(outer);
+    again.release();
+  }
+}
@@ -43,7 +43,7 @@ public class PreprocessingContextAssert {
     }
 
     public PreprocessingContextPhraseAssert withDocumentTf(int documentIndex, int expectedTf) {
-      int[] byDocTf = context.allPhrases.tfByDocument[phraseIndex];
+      int[] byDocTf = context.allPhrases.tfByDocument.toSparseEncoding(phraseIndex);
       for (int i = 0; i < byDocTf.length; i += 2) {
         if (byDocTf[i] == documentIndex) {
           Assertions.assertThat(expectedTf).isEqualTo(byDocTf[i + 1]);
@@ -71,7 +71,8 @@ public class PreprocessingContextAssert {
         withDocumentTf(docTf[0], docTf[1]);
       }
 
-      Assertions.assertThat(context.allPhrases.tfByDocument[phraseIndex].length / 2)
+      Assertions.assertThat(
+              context.allPhrases.tfByDocument.toSparseEncoding(phraseIndex).length / 2)
           .describedAs(
               "tfByDocument array size for phrase: '"
                   + context.allPhrases.getPhrase(phraseIndex)
@@ -243,7 +244,7 @@ public class PreprocessingContextAssert {
     }
 
     public StemAssert withDocumentTf(int documentIndex, int expectedTf) {
-      int[] byDocTf = context.allStems.tfByDocument[stemIndex];
+      int[] byDocTf = context.allStems.tfByDocument.toSparseEncoding(stemIndex);
       for (int i = 0; i < byDocTf.length; i += 2) {
         if (byDocTf[i] == documentIndex) {
           Assertions.assertThat(expectedTf).isEqualTo(byDocTf[i + 1]);
@@ -267,7 +268,7 @@ public class PreprocessingContextAssert {
         withDocumentTf(docTf[0], docTf[1]);
       }
 
-      Assertions.assertThat(context.allStems.tfByDocument[stemIndex].length / 2)
+      Assertions.assertThat(context.allStems.tfByDocument.toSparseEncoding(stemIndex).length / 2)
           .describedAs("tfByDocument array size for stem: '" + stemImage + "'")
           .isEqualTo(docTfPairs.length);
 
@@ -324,7 +325,7 @@ public class PreprocessingContextAssert {
     }
 
     public WordAssert withDocumentTf(int documentIndex, int expectedTf) {
-      int[] byDocTf = context.allWords.tfByDocument[wordIndex];
+      int[] byDocTf = context.allWords.tfByDocument.toSparseEncoding(wordIndex);
       for (int i = 0; i < byDocTf.length; i += 2) {
         if (byDocTf[i] == documentIndex) {
           Assertions.assertThat(expectedTf).isEqualTo(byDocTf[i + 1]);
@@ -348,7 +349,7 @@ public class PreprocessingContextAssert {
         withDocumentTf(docTf[0], docTf[1]);
       }
 
-      Assertions.assertThat(context.allWords.tfByDocument[wordIndex].length / 2)
+      Assertions.assertThat(context.allWords.tfByDocument.toSparseEncoding(wordIndex).length / 2)
           .describedAs("tfByDocument array size for word: '" + wordImage + "'")
           .isEqualTo(docTfPairs.length);
 
@@ -410,12 +411,11 @@ public class PreprocessingContextAssert {
     }
 
     public String getTokenImage() {
-      if (context.allTokens.image[tokenIndex] == null) return null;
-      return new String(context.allTokens.image[tokenIndex]);
+      return tokenImage(tokenIndex);
     }
 
     public String getWordImage() {
-      if (context.allTokens.image[tokenIndex] == null) {
+      if (tokenImage(tokenIndex) == null) {
         if (TokenTypeUtils.isDocumentSeparator(context.allTokens.type[tokenIndex])) return DS;
         if (TokenTypeUtils.isFieldSeparator(context.allTokens.type[tokenIndex])) return FS;
         if (TokenTypeUtils.isTerminator(context.allTokens.type[tokenIndex])) return EOS;
@@ -441,9 +441,15 @@ public class PreprocessingContextAssert {
     }
   }
 
+  /** Returns the image of a token, <code>null</code> for separators and the terminator. */
+  private String tokenImage(int tokenIndex) {
+    final int imageId = context.allTokens.imageId[tokenIndex];
+    return imageId < 0 ? null : context.allTokenImages.toString(imageId);
+  }
+
   public List<TokenEntry> tokens() {
     List<TokenEntry> result = new ArrayList<>();
-    for (int i = 0; i < context.allTokens.image.length; i++) result.add(new TokenEntry(i));
+    for (int i = 0; i < context.allTokens.imageId.length; i++) result.add(new TokenEntry(i));
     return result;
   }
 
@@ -454,11 +460,7 @@ public class PreprocessingContextAssert {
     public TokenAssert(int tokenIndex) {
       this.tokenIndex = tokenIndex;
       this.tokenImage =
-          tokenIndex
-              + ":"
-              + (context.allTokens.image[tokenIndex] != null
-                  ? new String(context.allTokens.image[tokenIndex])
-                  : "<null>");
+          tokenIndex + ":" + ObjectUtils.firstNonNull(tokenImage(tokenIndex), "<null>");
     }
 
     /** type masked to token type only. */
@@ -478,19 +480,7 @@ public class PreprocessingContextAssert {
     }
 
     public TokenAssert hasImage(String image) {
-      Assertions.assertThat(
-              CharArrayComparators.FAST_CHAR_ARRAY_COMPARATOR.compare(
-                      image != null ? image.toCharArray() : null,
-                      context.allTokens.image[tokenIndex])
-                  == 0)
-          .as(
-              "token image equality: "
-                  + image
-                  + " vs. "
-                  + new String(
-                      ObjectUtils.firstNonNull(
-                          context.allTokens.image[tokenIndex], "<null>".toCharArray())))
-          .isTrue();
+      Assertions.assertThat(tokenImage(tokenIndex)).as("token image").isEqualTo(image);
       return this;
     }
 
@@ -539,7 +529,7 @@ public class PreprocessingContextAssert {
       Assertions.assertThat(
               IntMapUtils.flattenSortedByKey(
                   IntMapUtils.addAllFromFlattened(
-                      new IntIntHashMap(), allPhrases.tfByDocument[index])))
+                      new IntIntHashMap(), allPhrases.tfByDocument.toSparseEncoding(index))))
           .as("Phrase: " + allPhrases.getPhrase(index))
           .isEqualTo(IntMapUtils.flattenSortedByKey(realTfByDocuments));
     }
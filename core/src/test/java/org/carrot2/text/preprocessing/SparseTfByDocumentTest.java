@@ -0,0 +1,128 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import org.carrot2.TestBase;
+import org.junit.Test;
+
+/** Test cases for {@link SparseTfByDocument}. */
+public class SparseTfByDocumentTest extends TestBase {
+  @Test
+  public void testBuilder() {
+    SparseTfByDocument.Builder builder = new SparseTfByDocument.Builder();
+    assertThat(builder.add(2, 15).add(138, 7).endFeature()).isEqualTo(0);
+    assertThat(builder.endFeature()).isEqualTo(1);
+    assertThat(builder.addDocuments(new int[] {1, 1, 1, 3, 4, 4}, 0, 6).endFeature()).isEqualTo(2);
+
+    SparseTfByDocument tfByDocument = builder.build();
+    assertThat(tfByDocument.size()).isEqualTo(3);
+    assertThat(tfByDocument.df(0)).isEqualTo(2);
+    assertThat(tfByDocument.df(1)).isEqualTo(0);
+    assertThat(tfByDocument.toSparseEncoding(0)).containsExactly(2, 15, 138, 7);
+    assertThat(tfByDocument.toSparseEncoding(1)).isEmpty();
+    assertThat(tfByDocument.toSparseEncoding(2)).containsExactly(1, 3, 3, 1, 4, 2);
+    assertThat(tfByDocument.toString(0)).isEqualTo("2=>15,138=>7,");
+
+    BitSet documents = new BitSet();
+    tfByDocument.addDocuments(2, documents);
+    assertThat(documents.asIntLookupContainer().toArray()).containsExactly(1, 3, 4);
+  }
+
+  @Test
+  public void testFromSparseEncodings() {
+    SparseTfByDocument tfByDocument =
+        SparseTfByDocument.fromSparseEncodings(new int[][] {{7, 1, 2, 3}, {}});
+    assertThat(tfByDocument.documents).containsExactly(2, 7);
+    assertThat(tfByDocument.tfs).containsExactly(3, 1);
+    assertThat(tfByDocument.offsets).containsExactly(0, 2, 2);
+  }
+
+  @Test
+  public void testMerge() {
+    SparseTfByDocument source =
+        SparseTfByDocument.fromSparseEncodings(
+            new int[][] {{0, 1, 5, 2}, {1, 1, 5, 3, 9, 1}, {}, {0, 4}});
+
+    SparseTfByDocument.Builder builder = new SparseTfByDocument.Builder();
+    SparseTfByDocument.merge(source, IntArrayList.from(0, 1, 2, 3), builder);
+    builder.endFeature();
+    SparseTfByDocument.merge(source, IntArrayList.from(1), builder);
+    builder.endFeature();
+
+    SparseTfByDocument merged = builder.build();
+    assertThat(merged.toSparseEncoding(0)).containsExactly(0, 5, 1, 1, 5, 5, 9, 1);
+    assertThat(merged.toSparseEncoding(1)).containsExactly(1, 1, 5, 3, 9, 1);
+  }
+
+  @Test
+  public void testMergeIdenticalToHashMerge() {
+    for (int iteration = 0; iteration < 20; iteration++) {
+      int[][] encodings = new int[randomIntBetween(1, 10)][];
+      IntIntHashMap expected = new IntIntHashMap();
+      for (int i = 0; i < encodings.length; i++) {
+        IntIntHashMap tfByDocument = new IntIntHashMap();
+        for (int j = randomIntBetween(0, 20); j > 0; j--) {
+          int document = randomIntBetween(0, 50);
+          tfByDocument.putOrAdd(document, 1, 1);
+          expected.putOrAdd(document, 1, 1);
+        }
+        encodings[i] = toSparseEncoding(tfByDocument);
+      }
+
+      SparseTfByDocument source = SparseTfByDocument.fromSparseEncodings(encodings);
+      IntArrayList features = new IntArrayList();
+      for (int i = 0; i < encodings.length; i++) {
+        features.add(i);
+      }
+
+      SparseTfByDocument.Builder builder = new SparseTfByDocument.Builder();
+      SparseTfByDocument.merge(source, features, builder);
+      builder.endFeature();
+
+      assertThat(builder.build().toSparseEncoding(0))
+          .containsExactly(
+              SparseTfByDocument.fromSparseEncodings(new int[][] {toSparseEncoding(expected)})
+                  .toSparseEncoding(0));
+    }
+  }
+
+  @Test
+  public void testIntersect() {
+    SparseTfByDocument a = SparseTfByDocument.fromSparseEncodings(new int[][] {{0, 1, 3, 4, 8, 2}});
+    SparseTfByDocument b =
+        SparseTfByDocument.fromSparseEncodings(new int[][] {{}, {1, 1, 3, 2, 8, 5, 9, 1}});
+
+    SparseTfByDocument.Builder builder = new SparseTfByDocument.Builder();
+    SparseTfByDocument.intersect(a, 0, b, 1, builder);
+    builder.endFeature();
+    SparseTfByDocument.intersect(a, 0, b, 0, builder);
+    builder.endFeature();
+
+    SparseTfByDocument intersection = builder.build();
+    assertThat(intersection.toSparseEncoding(0)).containsExactly(3, 2, 8, 2);
+    assertThat(intersection.toSparseEncoding(1)).isEmpty();
+  }
+
+  private static int[] toSparseEncoding(IntIntHashMap tfByDocument) {
+    int[] result = new int[tfByDocument.size() * 2];
+    int i = 0;
+    for (int document : tfByDocument.keys().toArray()) {
+      result[i++] = document;
+      result[i++] = tfByDocument.get(document);
+    }
+    return result;
+  }
+}
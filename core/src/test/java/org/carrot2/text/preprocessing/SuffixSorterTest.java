@@ -10,6 +10,9 @@
  */
 package org.carrot2.text.preprocessing;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.assertj.core.api.Assertions;
 import org.carrot2.TestBase;
@@ -22,9 +25,6 @@ import org.junit.Test;
 
 /** Test cases for {@link SuffixSorter}. */
 public class SuffixSorterTest extends TestBase {
-  /** Suffix sorter under tests */
-  private SuffixSorter suffixSorter;
-
   /** Other preprocessing components required for the test */
   private InputTokenizer tokenizer;
 
@@ -34,7 +34,6 @@ public class SuffixSorterTest extends TestBase {
   public void setUpPreprocessingComponents() {
     tokenizer = new InputTokenizer();
     caseNormalizer = new CaseNormalizer();
-    suffixSorter = new SuffixSorter();
   }
 
   @Test
@@ -105,21 +104,60 @@ public class SuffixSorterTest extends TestBase {
         expectedLcpArray);
   }
 
-  private void checkAsserts(
-      Stream<? extends Document> documents, int[] expectedSuffixOrder, int[] expectedLcpArray) {
+  @Test
+  public void testSaisIdenticalToMergesort() {
+    String symbols = "abcde.";
+    for (int reps = 0; reps < iterations(20, 200); reps++) {
+      List<Document> documents = new ArrayList<>();
+      for (int docs = randomIntBetween(0, 20); docs > 0; docs--) {
+        documents.add(new TestDocument(randomText(symbols), randomText(symbols)));
+      }
+
+      PreprocessingContext expected =
+          suffixSort(documents.stream(), SuffixSortingAlgorithm.MERGESORT);
+      PreprocessingContext actual = suffixSort(documents.stream(), SuffixSortingAlgorithm.SAIS);
+
+      Assertions.assertThat(actual.allTokens.suffixOrder)
+          .as("allTokens.suffixOrder")
+          .containsExactly(expected.allTokens.suffixOrder);
+      Assertions.assertThat(actual.allTokens.lcp)
+          .as("allTokens.lcp")
+          .containsExactly(expected.allTokens.lcp);
+    }
+  }
+
+  private String randomText(String symbols) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = randomIntBetween(0, 30); i > 0; i--) {
+      sb.append(symbols.charAt(randomIntBetween(0, symbols.length() - 1))).append(" ");
+    }
+    return sb.toString();
+  }
+
+  private PreprocessingContext suffixSort(
+      Stream<? extends Document> documents, SuffixSortingAlgorithm algorithm) {
     PreprocessingContext context =
         new PreprocessingContext(
             CachedLangComponents.loadCached(TestsLanguageComponentsFactoryVariant2.NAME));
 
     tokenizer.tokenize(context, documents);
     caseNormalizer.normalize(context, 1);
-    suffixSorter.suffixSort(context);
-
-    Assertions.assertThat(context.allTokens.suffixOrder)
-        .as("allTokens.suffixOrder")
-        .containsExactly(expectedSuffixOrder);
-    Assertions.assertThat(context.allTokens.lcp)
-        .as("allTokens.lcp")
-        .containsExactly(expectedLcpArray);
+    new SuffixSorter(algorithm).suffixSort(context);
+    return context;
+  }
+
+  private void checkAsserts(
+      Stream<? extends Document> documents, int[] expectedSuffixOrder, int[] expectedLcpArray) {
+    List<? extends Document> documentList = documents.collect(Collectors.toList());
+    for (SuffixSortingAlgorithm algorithm : SuffixSortingAlgorithm.values()) {
+      PreprocessingContext context = suffixSort(documentList.stream(), algorithm);
+
+      Assertions.assertThat(context.allTokens.suffixOrder)
+          .as("allTokens.suffixOrder (" + algorithm + ")")
+          .containsExactly(expectedSuffixOrder);
+      Assertions.assertThat(context.allTokens.lcp)
+          .as("allTokens.lcp (" + algorithm + ")")
+          .containsExactly(expectedLcpArray);
+    }
   }
 }
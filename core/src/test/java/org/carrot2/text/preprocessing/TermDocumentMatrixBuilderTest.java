@@ -16,8 +16,11 @@ import org.assertj.core.api.Assertions;
 import org.carrot2.attrs.AttrAccess;
 import org.carrot2.clustering.CachedLangComponents;
 import org.carrot2.clustering.Document;
+import org.carrot2.clustering.SampleDocumentData;
 import org.carrot2.clustering.TestDocument;
 import org.carrot2.language.TestsLanguageComponentsFactoryVariant2;
+import org.carrot2.math.mahout.matrix.impl.CompressedRowDoubleMatrix2D;
+import org.carrot2.math.mahout.matrix.impl.DenseFloatMatrix2D;
 import org.carrot2.math.matrix.MatrixAssertions;
 import org.carrot2.text.vsm.TermDocumentMatrixBuilder;
 import org.carrot2.text.vsm.VectorSpaceModelContext;
@@ -117,6 +120,79 @@ public class TermDocumentMatrixBuilderTest extends TermDocumentMatrixBuilderTest
     check(documents, expectedTdMatrixElements, expectedTdMatrixStemIndices);
   }
 
+  @Test
+  public void testSparseMatrix() {
+    Stream<TestDocument> documents =
+        Stream.of("aa . bb", "bb . cc", "aa . cc . cc").map(v -> new TestDocument("", v));
+
+    int[] expectedTdMatrixStemIndices = {2, 0, 1};
+
+    double[][] expectedTdMatrixElements = {
+      {0, 1, 2},
+      {1, 0, 1},
+      {1, 1, 0}
+    };
+
+    matrixBuilder.sparseMatrix.set(true);
+    check(documents, expectedTdMatrixElements, expectedTdMatrixStemIndices);
+    Assertions.assertThat(vsmContext.termDocumentMatrix)
+        .isInstanceOf(CompressedRowDoubleMatrix2D.class);
+  }
+
+  @Test
+  public void testSparseMatrixSizeLimit() {
+    Stream<TestDocument> documents =
+        Stream.of("aa . aa", "bb . bb . bb", "cc . cc . cc . cc").map(v -> new TestDocument("", v));
+
+    preprocessingPipeline.documentAssigner.minClusterSize.set(1);
+
+    int[] expectedTdMatrixStemIndices = {2, 1};
+    double[][] expectedTdMatrixElements = {
+      {0, 0, 4},
+      {0, 3, 0}
+    };
+
+    // The limit applies to non-zero elements in sparse mode.
+    matrixBuilder.sparseMatrix.set(true);
+    AttrAccess.forceSet(matrixBuilder.maximumMatrixSize, 2);
+    check(documents, expectedTdMatrixElements, expectedTdMatrixStemIndices);
+  }
+
+  @Test
+  public void testSparseMatrixEquivalentToDense() {
+    matrixBuilder.maximumMatrixSize.set(1000 * 1000);
+    buildTermDocumentMatrix(SampleDocumentData.DOCUMENTS_DATA_MINING.stream());
+    final VectorSpaceModelContext dense = vsmContext;
+
+    matrixBuilder.sparseMatrix.set(true);
+    buildTermDocumentMatrix(SampleDocumentData.DOCUMENTS_DATA_MINING.stream());
+    final VectorSpaceModelContext sparse = vsmContext;
+
+    Assertions.assertThat(sparse.termDocumentMatrix.rows()).isGreaterThan(0);
+    Assertions.assertThat((Object) sparse.stemToRowIndex).isEqualTo(dense.stemToRowIndex);
+    MatrixAssertions.assertThat(sparse.termDocumentMatrix)
+        .isEquivalentTo(dense.termDocumentMatrix, 1e-9);
+    MatrixAssertions.assertThat(sparse.termPhraseMatrix)
+        .isEquivalentTo(dense.termPhraseMatrix, 1e-9);
+  }
+
+  @Test
+  public void testSinglePrecisionMatrix() {
+    buildTermDocumentMatrix(SampleDocumentData.DOCUMENTS_DATA_MINING.stream());
+    final VectorSpaceModelContext doublePrecision = vsmContext;
+
+    matrixBuilder.singlePrecision.set(true);
+    buildTermDocumentMatrix(SampleDocumentData.DOCUMENTS_DATA_MINING.stream());
+    final VectorSpaceModelContext singlePrecision = vsmContext;
+
+    Assertions.assertThat(singlePrecision.termDocumentMatrix)
+        .isInstanceOf(DenseFloatMatrix2D.class);
+    Assertions.assertThat((Object) singlePrecision.stemToRowIndex)
+        .isEqualTo(doublePrecision.stemToRowIndex);
+    MatrixAssertions.assertThat(singlePrecision.termDocumentMatrix)
+        .isEquivalentTo(doublePrecision.termDocumentMatrix, 1e-5);
+  }
+
   @Test
   public void testTitleWordBoost() {
     Stream<TestDocument> documents =
@@ -151,18 +227,18 @@ public class TermDocumentMatrixBuilderTest extends TermDocumentMatrixBuilderTest
 
     // The preprocessing pipeline will produce increasing indices in tfByDocument,
     // so to reproduce the bug, we need to perturb them, e.g. reverse.
-    final int[][] tfByDocument = context.allStems.tfByDocument;
-    for (int s = 0; s < tfByDocument.length; s++) {
-      final int[] stemTfByDocument = tfByDocument[s];
-      for (int i = 0; i < stemTfByDocument.length / 4; i++) {
-        int t = stemTfByDocument[i * 2];
-        stemTfByDocument[i * 2] = stemTfByDocument[(stemTfByDocument.length / 2 - i - 1) * 2];
-        stemTfByDocument[(stemTfByDocument.length / 2 - i - 1) * 2] = t;
-
-        t = stemTfByDocument[i * 2 + 1];
-        stemTfByDocument[i * 2 + 1] =
-            stemTfByDocument[(stemTfByDocument.length / 2 - i - 1) * 2 + 1];
-        stemTfByDocument[(stemTfByDocument.length / 2 - i - 1) * 2 + 1] = t;
+    final SparseTfByDocument tfByDocument = context.allStems.tfByDocument;
+    for (int s = 0; s < tfByDocument.size(); s++) {
+      final int from = tfByDocument.offsets[s];
+      final int to = tfByDocument.offsets[s + 1];
+      for (int i = 0; i < (to - from) / 2; i++) {
+        int t = tfByDocument.documents[from + i];
+        tfByDocument.documents[from + i] = tfByDocument.documents[to - i - 1];
+        tfByDocument.documents[to - i - 1] = t;
+
+        t = tfByDocument.tfs[from + i];
+        tfByDocument.tfs[from + i] = tfByDocument.tfs[to - i - 1];
+        tfByDocument.tfs[to - i - 1] = t;
       }
     }
 
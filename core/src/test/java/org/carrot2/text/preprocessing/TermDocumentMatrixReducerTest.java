@@ -0,0 +1,113 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.text.preprocessing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Locale;
+import org.carrot2.clustering.Document;
+import org.carrot2.clustering.SampleDocumentData;
+import org.carrot2.math.mahout.matrix.DoubleMatrix2D;
+import org.carrot2.math.matrix.IterativeMatrixFactorization;
+import org.carrot2.math.matrix.MatrixFactorization;
+import org.carrot2.math.matrix.NonnegativeMatrixFactorizationEDFactory;
+import org.carrot2.math.matrix.RandomSeedingStrategyFactory;
+import org.carrot2.math.matrix.SeedingStrategyFactory;
+import org.carrot2.math.matrix.WarmStartSeedingStrategyFactory;
+import org.carrot2.text.vsm.TermDocumentMatrixReducer;
+import org.junit.Test;
+
+/** Test cases for {@link TermDocumentMatrixReducer}. */
+public class TermDocumentMatrixReducerTest extends ReducedTermDocumentMatrixBuilderTestBase {
+  private static final int DIMENSIONS = 10;
+
+  @Test
+  public void testWarmStartSeeding() {
+    final List<Document> documents = SampleDocumentData.DOCUMENTS_DATA_MINING;
+    final WarmStartSeedingStrategyFactory warmStart = new WarmStartSeedingStrategyFactory();
+
+    int coldIterations = 0;
+    int warmIterations = 0;
+    for (int page = 0; page < 5; page++) {
+      // Overlapping windows of documents, similar to subsequent pages of results.
+      final List<Document> window = documents.subList(page * 5, page * 5 + 50);
+
+      final int cold = iterationsToConvergence(window, new RandomSeedingStrategyFactory(0));
+      final int warm = iterationsToConvergence(window, warmStart);
+      if (page > 0) {
+        coldIterations += cold;
+        warmIterations += warm;
+      }
+    }
+
+    System.out.println(
+        String.format(
+            Locale.ROOT,
+            "Iterations to convergence: random seeding %d, warm start %d, hit rate %.2f.",
+            coldIterations,
+            warmIterations,
+            warmStart.getHitRate()));
+    assertThat(warmStart.getHitRate()).isGreaterThan(0.5);
+    assertThat(warmIterations).isLessThan(coldIterations);
+  }
+
+  @Test
+  public void testWarmStartCacheLimit() {
+    final WarmStartSeedingStrategyFactory warmStart =
+        new WarmStartSeedingStrategyFactory(20, new RandomSeedingStrategyFactory(0));
+    iterationsToConvergence(SampleDocumentData.DOCUMENTS_DATA_MINING.subList(0, 20), warmStart);
+
+    assertThat(vsmContext.termDocumentMatrix.rows()).isGreaterThan(20);
+    assertThat(warmStart.getCachedRows()).isEqualTo(20);
+    assertThat(warmStart.getHitRate()).isEqualTo(0);
+
+    iterationsToConvergence(SampleDocumentData.DOCUMENTS_DATA_MINING.subList(0, 20), warmStart);
+    assertThat(warmStart.getHitRate()).isGreaterThan(0).isLessThan(0.5);
+
+    warmStart.clear();
+    assertThat(warmStart.getCachedRows()).isEqualTo(0);
+    assertThat(warmStart.getHitRate()).isEqualTo(0);
+  }
+
+  private int iterationsToConvergence(List<Document> documents, SeedingStrategyFactory seeding) {
+    final IterationCountingFactory factory = new IterationCountingFactory();
+    factory.setSeedingFactory(seeding);
+    factory.setStopThreshold(0.001);
+    factory.setMaxIterations(500);
+    reducer.factorizationFactory = factory;
+
+    buildReducedTermDocumentMatrix(documents.stream());
+    return factory.iterations;
+  }
+
+  /** Runs up to the maximum number of iterations and records the number of iterations done. */
+  private static class IterationCountingFactory extends NonnegativeMatrixFactorizationEDFactory {
+    int iterations;
+
+    @Override
+    public void estimateIterationsNumber(int dimensions, DoubleMatrix2D termDocumentMatrix) {
+      setK(dimensions);
+    }
+
+    @Override
+    public MatrixFactorization factorize(DoubleMatrix2D A) {
+      final MatrixFactorization factorization = super.factorize(A);
+      iterations = ((IterativeMatrixFactorization) factorization).getIterationsCompleted();
+      return factorization;
+    }
+  }
+
+  @Override
+  protected int getDimensions(PreprocessingContext ctx) {
+    return DIMENSIONS;
+  }
+}
@@ -17,6 +17,7 @@ import static org.carrot2.text.preprocessing.PreprocessingContextBuilder.FieldVa
 
 import org.carrot2.TestBase;
 import org.carrot2.language.Tokenizer;
+import org.carrot2.text.preprocessing.PreprocessingContextBuilder.FieldValue;
 import org.junit.Test;
 
 /** Test cases for {@link Tokenizer}. */
@@ -263,4 +264,60 @@ public class TokenizerTest extends TestBase {
         .containsExactly(
             new short[] {Tokenizer.TT_TERM, Tokenizer.TT_TERM, Tokenizer.TF_TERMINATOR});
   }
+
+  @Test
+  public void testParallelTokenizationIdenticalToSequential() {
+    String[] words = {"foo", "Foo", "bar", "BAZ", "baz", ".", "a.b", "1"};
+    String[] fields = {"title", "snippet", "url", "body"};
+
+    PreprocessingContextBuilder builder = new PreprocessingContextBuilder();
+    int documents = randomIntBetween(0, InputTokenizer.MIN_DOCUMENTS_PER_SHARD * 10);
+    for (int doc = 0; doc < documents; doc++) {
+      // Later field names appear only in later documents to verify field index remapping.
+      FieldValue[] values =
+          new FieldValue[randomIntBetween(0, 1 + doc * fields.length / documents)];
+      for (int i = 0; i < values.length; i++) {
+        StringBuilder sb = new StringBuilder();
+        for (int j = randomIntBetween(0, 10); j > 0; j--) {
+          sb.append(words[randomIntBetween(0, words.length - 1)]).append(" ");
+        }
+        values[i] = fv(fields[i], sb.toString());
+      }
+      builder.newDoc(values);
+    }
+
+    BasicPreprocessingPipeline pipeline = new BasicPreprocessingPipeline();
+    PreprocessingContext sequential = builder.buildContext(pipeline);
+    pipeline.parallelTokenization.set(true);
+    PreprocessingContext parallel = builder.buildContext(pipeline);
+
+    assertThat(parallel.documentCount).isEqualTo(sequential.documentCount);
+    assertThat(parallel.allFields.name).containsExactly(sequential.allFields.name);
+    assertThat(parallel.allTokens.type).containsExactly(sequential.allTokens.type);
+    assertThat(parallel.allTokens.fieldIndex).containsExactly(sequential.allTokens.fieldIndex);
+    assertThat(parallel.allTokens.documentIndex)
+        .containsExactly(sequential.allTokens.documentIndex);
+    assertThat(parallel.allTokens.wordIndex).containsExactly(sequential.allTokens.wordIndex);
+    assertThat(parallel.allTokens.imageId).containsExactly(sequential.allTokens.imageId);
+    assertThat(parallel.allTokenImages.arena).containsExactly(sequential.allTokenImages.arena);
+    assertThat(parallel.allTokenImages.offset).containsExactly(sequential.allTokenImages.offset);
+    assertThat(parallel.allTokenImages.length).containsExactly(sequential.allTokenImages.length);
+  }
+
+  @Test
+  public void testPackedTokenImages() {
+    PreprocessingContext ctx =
+        new PreprocessingContextBuilder()
+            .newDoc("data Data", "mining data")
+            .newDoc("DATA mining")
+            .buildContext(new BasicPreprocessingPipeline());
+
+    assertThat(ctx.allTokens.imageId).containsExactly(0, 1, -1, 2, 0, -1, 3, 2, -1);
+    assertThat(new String(ctx.allTokenImages.arena)).isEqualTo("dataDataminingDATA");
+    assertThat(ctx.allTokenImages.offset).containsExactly(0, 4, 8, 14);
+    assertThat(ctx.allTokenImages.length).containsExactly(4, 4, 6, 4);
+
+    assertThat(ctx.allTokenImages.size()).isEqualTo(4);
+    assertThat(ctx.allTokenImages.toString(3)).isEqualTo("DATA");
+  }
 }
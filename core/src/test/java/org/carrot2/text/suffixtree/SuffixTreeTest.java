@@ -10,11 +10,14 @@
  */
 package org.carrot2.text.suffixtree;
 
+import static org.carrot2.text.suffixtree.SuffixTree.NO_EDGE;
 import static org.junit.Assert.*;
 
 import com.carrotsearch.hppc.IntArrayList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.carrot2.TestBase;
 import org.carrot2.text.suffixtree.SuffixTree.VisitorAdapter;
 import org.junit.Test;
@@ -164,6 +167,97 @@ public class SuffixTreeTest extends TestBase {
         nodes.toArray());
   }
 
+  @Test
+  public void testCompactTreeSameAsUkkonen() {
+    for (int i = 0; i < iterations(10, 100); i++) {
+      final int[] input = new int[randomIntBetween(1, 2000)];
+      final int vocabulary = randomIntBetween(1, 20);
+      for (int j = 0; j < input.length; j++) {
+        input[j] = randomIntBetween(-vocabulary, vocabulary);
+      }
+      input[input.length - 1] = Integer.MIN_VALUE;
+
+      final Sequence seq = new IntegerSequence(input);
+      final SuffixTree ukkonen = SuffixTreeBuilder.from(seq).build();
+      final SuffixTree compact = SuffixTreeBuilder.from(seq).withCompactTransitions(true).build();
+
+      assertEquals(ukkonen.getStatesCount(), compact.getStatesCount());
+      assertEquals(ukkonen.getTransitionsCount(), compact.getTransitionsCount());
+      assertEquals(paths(ukkonen, seq), paths(compact, seq));
+
+      for (int j = 0; j < Math.min(500, input.length); j++) {
+        final int start = randomIntBetween(0, input.length - 1);
+        final Sequence suffix = new IntegerSequence(input, start, input.length - start);
+        assertTrue(compact.containsSuffix(suffix));
+        if (start > 0) {
+          assertFalse(compact.containsSuffix(new IntegerSequence(input, 0, start)));
+        }
+      }
+
+      final int root = compact.getRootState();
+      for (int symbol = -vocabulary - 1; symbol <= vocabulary + 1; symbol++) {
+        assertEquals(
+            ukkonen.findEdge(root, symbol) == NO_EDGE, compact.findEdge(root, symbol) == NO_EDGE);
+      }
+    }
+  }
+
+  @Test
+  public void testCompactTreeCallbacks() {
+    final CharacterSequence seq = new CharacterSequence("cocoa$");
+    final IntArrayList events = new IntArrayList();
+    final SuffixTree stree =
+        SuffixTreeBuilder.from(seq)
+            .withCompactTransitions(true)
+            .withProgressCallback(pos -> events.add(-1, pos))
+            .withStateCallback((state, position) -> events.add(state, position))
+            .build();
+
+    // Progress and leaf states in the order of positions, then the internal states.
+    final int root = stree.getRootState();
+    final IntArrayList expected = new IntArrayList();
+    for (int i = 0; i < seq.size(); i++) {
+      expected.add(-1, i, root + 1 + i, i + 1);
+    }
+    assertArrayEquals(expected.toArray(), Arrays.copyOf(events.toArray(), expected.size()));
+    assertEquals(stree.getStatesCount() - 1 - seq.size(), (events.size() - expected.size()) / 2);
+    for (int i = 0; i < seq.size(); i++) {
+      assertTrue(stree.isLeaf(root + 1 + i));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCompactTreeRequiresTerminator() {
+    SuffixTreeBuilder.from(new CharacterSequence("banana")).withCompactTransitions(true).build();
+  }
+
+  /** Returns the sorted labels of paths to all states of a tree. */
+  private static List<String> paths(SuffixTree stree, Sequence seq) {
+    final List<String> paths = new ArrayList<>();
+    stree.visit(
+        new VisitorAdapter() {
+          final ArrayList<String> labels = new ArrayList<>();
+
+          public void post(int state) {
+            paths.add(String.join(" ", labels) + (stree.isLeaf(state) ? " [leaf]" : ""));
+            if (!labels.isEmpty()) {
+              labels.remove(labels.size() - 1);
+            }
+          }
+
+          public boolean edge(int fromState, int toState, int startIndex, int endIndex) {
+            final StringBuilder label = new StringBuilder();
+            for (int i = startIndex; i <= endIndex; i++) {
+              label.append(i > startIndex ? " " : "").append(seq.objectAt(i));
+            }
+            labels.add(label.toString());
+            return true;
+          }
+        });
+    Collections.sort(paths);
+    return paths;
+  }
+
   /**
    * Build a suffix tree for a given sequence and check if it contains all suffixes of the input
    * sequence (ending in leaves).
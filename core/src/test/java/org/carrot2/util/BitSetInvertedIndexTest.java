@@ -0,0 +1,54 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import org.carrot2.TestBase;
+import org.junit.Test;
+
+/** Test cases for {@link BitSetInvertedIndex}. */
+public class BitSetInvertedIndexTest extends TestBase {
+  @Test
+  public void testPostings() {
+    for (int i = 0; i < iterations(5, 50); i++) {
+      final int elements = randomIntBetween(1, 300);
+      final BitSet[] sets = new BitSet[randomIntBetween(0, 50)];
+      for (int s = 0; s < sets.length; s++) {
+        sets[s] = new BitSet();
+        for (int e = randomIntBetween(0, 20); e > 0; e--) {
+          sets[s].set(randomIntBetween(0, elements - 1));
+        }
+      }
+
+      final BitSetInvertedIndex index = new BitSetInvertedIndex(sets);
+      for (int e = 0; e < elements; e++) {
+        final IntArrayList expected = new IntArrayList();
+        for (int s = 0; s < sets.length; s++) {
+          if (sets[s].get(e)) {
+            expected.add(s);
+          }
+        }
+        if (expected.isEmpty()) {
+          continue;
+        }
+
+        final IntArrayList postings = new IntArrayList();
+        for (int p = index.postingsStart(e); p < index.postingsEnd(e); p++) {
+          postings.add(index.posting(p));
+        }
+        assertThat(postings).isEqualTo(expected);
+      }
+    }
+  }
+}
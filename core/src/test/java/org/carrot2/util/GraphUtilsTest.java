@@ -0,0 +1,88 @@
+/*
+ * Carrot2 project.
+ *
+ * Copyright (C) 2002-2020, Dawid Weiss, Stanisław Osiński.
+ * All rights reserved.
+ *
+ * Refer to the full license file "carrot2.LICENSE"
+ * in the root folder of the repository checkout or at:
+ * https://www.carrot2.org/carrot2.LICENSE
+ */
+package org.carrot2.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.carrot2.TestBase;
+import org.junit.Test;
+
+/** Test cases for {@link GraphUtils}. */
+public class GraphUtilsTest extends TestBase {
+  @Test
+  public void testCoherentSubgraphs() {
+    final List<IntArrayList> subgraphs =
+        GraphUtils.findCoherentSubgraphs(
+            new BitSet[] {
+              bitSet(0, 1), bitSet(5), bitSet(1, 2), bitSet(), bitSet(2, 3), bitSet(5, 200)
+            },
+            (vertexA, vertexB, overlap) -> true,
+            false);
+
+    assertThat(toString(subgraphs)).containsExactly("[0, 2, 4]", "[1, 5]", "[3]");
+  }
+
+  @Test
+  public void testSameAsAllPairs() {
+    for (int i = 0; i < iterations(10, 100); i++) {
+      final BitSet[] sets = new BitSet[randomIntBetween(0, 50)];
+      final int elements = randomIntBetween(1, 150);
+      for (int v = 0; v < sets.length; v++) {
+        sets[v] = new BitSet();
+        for (int e = randomIntBetween(0, 10); e > 0; e--) {
+          sets[v].set(randomIntBetween(0, elements - 1));
+        }
+      }
+      final double threshold = randomFrom(new Double[] {0.01, 0.3, 0.5, 1d});
+      final boolean prune = randomBoolean();
+
+      final List<IntArrayList> expected =
+          GraphUtils.findCoherentSubgraphs(
+              sets.length,
+              (a, b) ->
+                  BitSet.intersectionCount(sets[a], sets[b])
+                          / (double) Math.max(sets[a].cardinality(), sets[b].cardinality())
+                      >= threshold,
+              prune);
+      final List<IntArrayList> actual =
+          GraphUtils.findCoherentSubgraphs(
+              sets,
+              (a, b, overlap) ->
+                  overlap / (double) Math.max(sets[a].cardinality(), sets[b].cardinality())
+                      >= threshold,
+              prune);
+
+      for (IntArrayList subgraph : expected) {
+        Arrays.sort(subgraph.buffer, 0, subgraph.size());
+      }
+      assertThat(toString(actual)).containsExactlyElementsOf(toString(expected));
+    }
+  }
+
+  private static List<String> toString(List<IntArrayList> subgraphs) {
+    return subgraphs.stream()
+        .map(subgraph -> Arrays.toString(subgraph.toArray()))
+        .collect(Collectors.toList());
+  }
+
+  private static BitSet bitSet(int... bits) {
+    final BitSet set = new BitSet();
+    for (int bit : bits) {
+      set.set(bit);
+    }
+    return set;
+  }
+}